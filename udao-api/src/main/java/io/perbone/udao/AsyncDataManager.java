@@ -0,0 +1,106 @@
+/*
+ * This file is part of UDAO 
+ * https://github.com/perbone/udao/
+ * 
+ * Copyright 2013-2018 Paulo Perbone
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package io.perbone.udao;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import io.perbone.udao.query.Query;
+
+/**
+ * Asynchronous Data Manager interface.
+ * <p>
+ * Every operation returns at once with a {@link CompletableFuture} and runs on the executor of the
+ * storage unit, sized after its providers. A failure completes the future exceptionally with the
+ * same exception the {@link DataManager} counterpart throws. Fetches by key served by the cache
+ * complete synchronously, with no thread hop.
+ * <p>
+ * There is no transaction support; every operation commits on its own.
+ * 
+ * @author Paulo Perbone <pauloperbone@yahoo.com>
+ * @since 0.17.0
+ */
+public interface AsyncDataManager extends AutoCloseable
+{
+    <T> CompletableFuture<T> create(T bean);
+
+    <T> CompletableFuture<List<T>> create(List<T> beans);
+
+    <T> CompletableFuture<T> save(T bean);
+
+    <T> CompletableFuture<List<T>> save(List<T> beans);
+
+    <T> CompletableFuture<T> fetchI(Class<T> type, Object id);
+
+    <T> CompletableFuture<List<T>> fetchI(Class<T> type, Object... ids);
+
+    <T> CompletableFuture<T> fetchP(Class<T> type, Object... keys);
+
+    <T> CompletableFuture<T> fetchA(Class<T> type, String name, Object... keys);
+
+    <T> CompletableFuture<T> updateI(T bean, Object id);
+
+    <T> CompletableFuture<T> updateP(T bean, Object... keys);
+
+    <T> CompletableFuture<List<T>> update(List<T> beans);
+
+    <T> CompletableFuture<T> patchI(T bean, Object id);
+
+    <T> CompletableFuture<T> patchP(T bean, Object... keys);
+
+    <T> CompletableFuture<List<T>> patch(List<T> beans);
+
+    CompletableFuture<Void> deleteI(Class<?> type, Object id);
+
+    CompletableFuture<Void> deleteP(Class<?> type, Object... keys);
+
+    <T> CompletableFuture<Void> delete(List<T> beans);
+
+    /** Cursor operations support; the cursor is read on the executor and iterated in memory by the caller */
+
+    <T> CompletableFuture<Cursor<T>> cursorI(Class<T> type);
+
+    <T> CompletableFuture<Cursor<T>> cursorQ(Class<T> type, Query query);
+
+    /** Counting operations support */
+
+    CompletableFuture<Long> count(Class<?> type);
+
+    CompletableFuture<Long> countQ(Class<?> type, Query query);
+
+    /**
+     * Tells whether or not this data manager is open.
+     * 
+     * @return <tt>true</tt> if it is open; <tt>false</tt> otherwise
+     * 
+     * @see #close
+     */
+    boolean isOpen();
+
+    /**
+     * Releases this {@code AsyncDataManager} object's resources.
+     * <p>
+     * Operations not started yet fail with {@link IllegalStateException}. Calling it on a closed
+     * manager is a no-op.
+     * 
+     * @throws DataException
+     */
+    void close() throws DataException;
+}
@@ -31,6 +31,9 @@ import io.perbone.udao.transaction.TransactionException;
 
 /**
  * Data Manager interface.
+ * <p>
+ * A data manager can be shared by concurrent threads. Transactions are bound to the calling thread
+ * unless they are run through a {@link #scope(Object) scoped view}.
  * 
  * @author Paulo Perbone <pauloperbone@yahoo.com>
  * @since 0.1.0
@@ -153,6 +156,16 @@ public interface DataManager extends AutoCloseable
             NotFoundException, KeyViolationException, DataConstraintViolationException, OperationTimeoutException,
             NotEnoughResourceException, DataException;
 
+    /** Bulk methods apply all the changes in one round trip to the provider */
+
+    <T> List<T> update(List<T> beans) throws UnsupportedOperationException, IllegalStateException,
+            IllegalArgumentException, TransactionException, NotFoundException, KeyViolationException,
+            DataConstraintViolationException, OperationTimeoutException, NotEnoughResourceException, DataException;
+
+    <T> List<T> patch(List<T> beans) throws UnsupportedOperationException, IllegalStateException,
+            IllegalArgumentException, TransactionException, NotFoundException, KeyViolationException,
+            DataConstraintViolationException, OperationTimeoutException, NotEnoughResourceException, DataException;
+
     void touchI(Class<?> type, Object id) throws UnsupportedOperationException, IllegalStateException,
             IllegalArgumentException, TransactionException, NotFoundException, DataConstraintViolationException,
             OperationTimeoutException, NotEnoughResourceException, DataException;
@@ -195,6 +208,14 @@ public interface DataManager extends AutoCloseable
             IllegalArgumentException, TransactionException, NotFoundException, KeyViolationException,
             DataConstraintViolationException, OperationTimeoutException, NotEnoughResourceException, DataException;
 
+    void deleteI(Class<?> type, Object... ids) throws UnsupportedOperationException, IllegalStateException,
+            IllegalArgumentException, TransactionException, NotFoundException, KeyViolationException,
+            DataConstraintViolationException, OperationTimeoutException, NotEnoughResourceException, DataException;
+
+    <T> void delete(List<T> beans) throws UnsupportedOperationException, IllegalStateException,
+            IllegalArgumentException, TransactionException, NotFoundException, KeyViolationException,
+            DataConstraintViolationException, OperationTimeoutException, NotEnoughResourceException, DataException;
+
     <T> T removeI(Class<T> type, Object id) throws UnsupportedOperationException, IllegalStateException,
             IllegalArgumentException, TransactionException, NotFoundException, KeyViolationException,
             DataConstraintViolationException, OperationTimeoutException, NotEnoughResourceException, DataException;
@@ -274,6 +295,62 @@ public interface DataManager extends AutoCloseable
             throws UnsupportedOperationException, IllegalStateException, IllegalArgumentException, TransactionException,
             OperationTimeoutException, NotEnoughResourceException, DataException;
 
+    /**
+     * Returns a view of this data manager whose transactions are bound to the given scope object
+     * instead of the calling thread, so a unit of work can begin, use and end its transaction from
+     * different threads.
+     * <p>
+     * Views share everything else with this data manager but the read-your-writes session: a view
+     * records its writes on a session of its own unless it was created from a session bound view.
+     * Closing a view rolls back the pending transaction of its scope, if any, and leaves this data
+     * manager open.
+     * 
+     * @param scope
+     *            the transaction scope; compared by {@code equals}
+     * 
+     * @return the scoped view
+     * 
+     * @throws IllegalStateException
+     *             if this data manager is closed
+     * @throws IllegalArgumentException
+     *             if the scope is null
+     */
+    DataManager scope(Object scope) throws IllegalStateException, IllegalArgumentException;
+
+    /** Read-your-writes session support */
+
+    /**
+     * Returns the session token the writes of the caller are recorded on: the token this view is
+     * bound to, or else the token of the calling thread.
+     * 
+     * @return the session token
+     * 
+     * @throws IllegalStateException
+     *             if this data manager is closed
+     * 
+     * @see SessionToken
+     */
+    SessionToken session() throws IllegalStateException;
+
+    /**
+     * Returns a view of this data manager bound to the given session token, so its reads see the
+     * writes recorded on it, either by the view or by any other manager bound to the same token.
+     * <p>
+     * The view keeps the transaction scope of this data manager. This data manager stays on its own
+     * session.
+     * 
+     * @param token
+     *            the session token
+     * 
+     * @return the session bound view
+     * 
+     * @throws IllegalStateException
+     *             if this data manager is closed
+     * @throws IllegalArgumentException
+     *             if the token is null
+     */
+    DataManager session(SessionToken token) throws IllegalStateException, IllegalArgumentException;
+
     /**
      * Tells whether or not this data manager is open.
      * <p>
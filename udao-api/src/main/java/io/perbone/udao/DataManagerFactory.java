@@ -24,6 +24,7 @@ import java.util.concurrent.TimeUnit;
 import io.perbone.toolbox.provider.NotEnoughResourceException;
 import io.perbone.toolbox.settings.BackingStoreException;
 import io.perbone.toolbox.settings.InvalidSettingsException;
+import io.perbone.udao.metrics.MetricsSnapshot;
 
 /**
  * Bootstrap class that is used to obtain an {@link DataManager}.
@@ -99,6 +100,36 @@ public interface DataManagerFactory<T extends DataManager>
      */
     DataManager create(String unitId) throws IllegalStateException, IllegalArgumentException, DataException;
 
+    /**
+     * Creates an {@link AsyncDataManager} object for the default storage unit.
+     * 
+     * @return a new {@link AsyncDataManager} object
+     * 
+     * @throws IllegalStateException
+     *             if either shutdown is in progress or this factory is inactive
+     * @throws DataException
+     *             if cannot create a new object
+     */
+    AsyncDataManager createAsync() throws IllegalStateException, DataException;
+
+    /**
+     * Creates an {@link AsyncDataManager} object for the given storage unit name.
+     * 
+     * @param unitId
+     *            the storage unit id
+     * 
+     * @return a new {@link AsyncDataManager} object
+     * 
+     * @throws IllegalStateException
+     *             if either shutdown is in progress or this factory is inactive
+     * @throws IllegalArgumentException
+     *             if the storage unit name is invalid
+     * @throws DataException
+     *             if cannot create a new object
+     */
+    AsyncDataManager createAsync(String unitId)
+            throws IllegalStateException, IllegalArgumentException, DataException;
+
     /**
      * Destroys the given {@link DataManager} object.
      * 
@@ -114,6 +145,19 @@ public interface DataManagerFactory<T extends DataManager>
      */
     void destroy(DataManager dm) throws IllegalStateException, IllegalArgumentException, DataException;
 
+    /**
+     * Takes a snapshot of the metrics of this factory.
+     * <p>
+     * The snapshot holds the per operation counters and latencies, the cache statistics and the
+     * provider pool wait times collected since activation.
+     * 
+     * @return the current metrics
+     * 
+     * @throws IllegalStateException
+     *             if this factory is inactive
+     */
+    MetricsSnapshot metrics() throws IllegalStateException;
+
     /**
      * Activates this factory.
      * 
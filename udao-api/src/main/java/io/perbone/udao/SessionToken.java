@@ -0,0 +1,111 @@
+/*
+ * This file is part of UDAO 
+ * https://github.com/perbone/udao/
+ * 
+ * Copyright 2013-2018 Paulo Perbone
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package io.perbone.udao;
+
+/**
+ * A session token carries the read-your-writes state of a logical session across data managers.
+ * <p>
+ * Every write, and every commit, records on the token the provider that took it and the end of the
+ * storage unit read-your-writes window. Until then the reads of any data manager bound to the
+ * token go to the read-write providers that took the writes instead of a read-only replica that
+ * may not have them yet. Afterwards the reads fall back to the regular provider selection.
+ * <p>
+ * Tokens are thread safe. Each thread, and each scoped view, of a data manager starts with a token
+ * of its own; hand it over to other threads or managers with {@link DataManager#session(SessionToken)},
+ * which returns a view bound to it, to share the window between them.
+ * 
+ * @author Paulo Perbone <pauloperbone@yahoo.com>
+ * @since 0.17.0
+ */
+public final class SessionToken
+{
+    /* Provider and window end are replaced together */
+    private volatile Mark mark;
+
+    /**
+     * Returns the name of the provider that took the last write.
+     * 
+     * @return the provider name or null if there was no write yet
+     */
+    public String provider()
+    {
+        final Mark current = mark;
+
+        return current == null ? null : current.provider;
+    }
+
+    /**
+     * Returns the end of the read-your-writes window.
+     * 
+     * @return the window end, in milliseconds since the epoch; zero if there was no write yet
+     */
+    public long expiresAt()
+    {
+        final Mark current = mark;
+
+        return current == null ? 0L : current.expiresAt;
+    }
+
+    /**
+     * Tells whether the reads must still see the last write.
+     * 
+     * @return <tt>true</tt> if the read-your-writes window is open; <tt>false</tt> otherwise
+     */
+    public boolean isSticky()
+    {
+        final Mark current = mark;
+
+        return current != null && System.currentTimeMillis() < current.expiresAt;
+    }
+
+    /**
+     * Records a write.
+     * 
+     * @param provider
+     *            the name of the provider that took the write
+     * @param expiresAt
+     *            the end of the read-your-writes window, in milliseconds since the epoch
+     * 
+     * @return this token
+     */
+    public SessionToken mark(final String provider, final long expiresAt)
+    {
+        mark = new Mark(provider, expiresAt);
+        return this;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "SessionToken [provider=" + provider() + ", expiresAt=" + expiresAt() + "]";
+    }
+
+    private static final class Mark
+    {
+        final String provider;
+        final long expiresAt;
+
+        Mark(final String provider, final long expiresAt)
+        {
+            this.provider = provider;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * This file is part of UDAO 
+ * https://github.com/perbone/udao/
+ * 
+ * Copyright 2013-2018 Paulo Perbone
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package io.perbone.udao.metrics;
+
+/**
+ * Metrics of one cache.
+ * 
+ * @author Paulo Perbone <pauloperbone@yahoo.com>
+ * @since 0.17.0
+ */
+public final class CacheMetrics
+{
+    private final String id;
+    private final int level;
+    private final long size;
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+
+    public CacheMetrics(final String id, final int level, final long size, final long hits, final long misses,
+            final long evictions)
+    {
+        this.id = id;
+        this.level = level;
+        this.size = size;
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+    }
+
+    public String id()
+    {
+        return id;
+    }
+
+    public int level()
+    {
+        return level;
+    }
+
+    public long size()
+    {
+        return size;
+    }
+
+    public long hits()
+    {
+        return hits;
+    }
+
+    public long misses()
+    {
+        return misses;
+    }
+
+    /**
+     * Returns the number of beans dropped by the cache itself, either expired or pushed out by the
+     * size limits.
+     * 
+     * @return the eviction count
+     */
+    public long evictions()
+    {
+        return evictions;
+    }
+
+    public double hitRatio()
+    {
+        final long lookups = hits + misses;
+
+        return lookups == 0L ? 0.0 : (double) hits / lookups;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "CacheMetrics [id=" + id + ", level=" + level + ", size=" + size + ", hits=" + hits + ", misses="
+                + misses + ", evictions=" + evictions + "]";
+    }
+}
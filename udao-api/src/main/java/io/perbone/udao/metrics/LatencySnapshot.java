@@ -0,0 +1,100 @@
+/*
+ * This file is part of UDAO 
+ * https://github.com/perbone/udao/
+ * 
+ * Copyright 2013-2018 Paulo Perbone
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package io.perbone.udao.metrics;
+
+/**
+ * Latency distribution summary in nanoseconds.
+ * <p>
+ * Percentiles are read from a log-linear histogram so they are exact to about 6% of the value.
+ * 
+ * @author Paulo Perbone <pauloperbone@yahoo.com>
+ * @since 0.17.0
+ */
+public final class LatencySnapshot
+{
+    private final long count;
+    private final long min;
+    private final long max;
+    private final double mean;
+    private final long p50;
+    private final long p90;
+    private final long p99;
+    private final long p999;
+
+    public LatencySnapshot(final long count, final long min, final long max, final double mean, final long p50,
+            final long p90, final long p99, final long p999)
+    {
+        this.count = count;
+        this.min = min;
+        this.max = max;
+        this.mean = mean;
+        this.p50 = p50;
+        this.p90 = p90;
+        this.p99 = p99;
+        this.p999 = p999;
+    }
+
+    public long count()
+    {
+        return count;
+    }
+
+    public long min()
+    {
+        return min;
+    }
+
+    public long max()
+    {
+        return max;
+    }
+
+    public double mean()
+    {
+        return mean;
+    }
+
+    public long p50()
+    {
+        return p50;
+    }
+
+    public long p90()
+    {
+        return p90;
+    }
+
+    public long p99()
+    {
+        return p99;
+    }
+
+    public long p999()
+    {
+        return p999;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "LatencySnapshot [count=" + count + ", min=" + min + ", max=" + max + ", mean=" + mean + ", p50="
+                + p50 + ", p90=" + p90 + ", p99=" + p99 + ", p999=" + p999 + "]";
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * This file is part of UDAO 
+ * https://github.com/perbone/udao/
+ * 
+ * Copyright 2013-2018 Paulo Perbone
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package io.perbone.udao.metrics;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Point in time copy of all the metrics of a data manager factory.
+ * 
+ * @author Paulo Perbone <pauloperbone@yahoo.com>
+ * @since 0.17.0
+ */
+public final class MetricsSnapshot
+{
+    private final long timestamp;
+    private final List<OperationMetrics> operations;
+    private final List<CacheMetrics> caches;
+    private final List<ProviderMetrics> providers;
+    private final long negativeLookups;
+    private final long negativeHits;
+    private final long writeBehindDepth;
+    private final long writeBehindDeadLetters;
+
+    public MetricsSnapshot(final long timestamp, final List<OperationMetrics> operations,
+            final List<CacheMetrics> caches, final List<ProviderMetrics> providers, final long negativeLookups,
+            final long negativeHits, final long writeBehindDepth, final long writeBehindDeadLetters)
+    {
+        this.timestamp = timestamp;
+        this.operations = Collections.unmodifiableList(operations);
+        this.caches = Collections.unmodifiableList(caches);
+        this.providers = Collections.unmodifiableList(providers);
+        this.negativeLookups = negativeLookups;
+        this.negativeHits = negativeHits;
+        this.writeBehindDepth = writeBehindDepth;
+        this.writeBehindDeadLetters = writeBehindDeadLetters;
+    }
+
+    /**
+     * Returns when this snapshot was taken.
+     * 
+     * @return the time in milliseconds since the epoch
+     */
+    public long timestamp()
+    {
+        return timestamp;
+    }
+
+    public List<OperationMetrics> operations()
+    {
+        return operations;
+    }
+
+    public List<CacheMetrics> caches()
+    {
+        return caches;
+    }
+
+    public List<ProviderMetrics> providers()
+    {
+        return providers;
+    }
+
+    public long negativeLookups()
+    {
+        return negativeLookups;
+    }
+
+    public long negativeHits()
+    {
+        return negativeHits;
+    }
+
+    /**
+     * Returns the share of the lookups of negative cached types answered without the provider.
+     * 
+     * @return the negative hit ratio
+     */
+    public double negativeHitRatio()
+    {
+        return negativeLookups == 0L ? 0.0 : (double) negativeHits / negativeLookups;
+    }
+
+    /**
+     * Returns the number of beans waiting in the write-behind buffers.
+     * 
+     * @return the write-behind queue depth
+     */
+    public long writeBehindDepth()
+    {
+        return writeBehindDepth;
+    }
+
+    /**
+     * Returns the number of write-behind beans given up on after failing to be written.
+     * 
+     * @return the write-behind dead letters count
+     */
+    public long writeBehindDeadLetters()
+    {
+        return writeBehindDeadLetters;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "MetricsSnapshot [timestamp=" + timestamp + ", operations=" + operations + ", caches=" + caches
+                + ", providers=" + providers + ", negativeLookups=" + negativeLookups + ", negativeHits="
+                + negativeHits + ", writeBehindDepth=" + writeBehindDepth + ", writeBehindDeadLetters="
+                + writeBehindDeadLetters + "]";
+    }
+}
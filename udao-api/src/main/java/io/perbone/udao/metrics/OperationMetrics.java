@@ -0,0 +1,92 @@
+/*
+ * This file is part of UDAO 
+ * https://github.com/perbone/udao/
+ * 
+ * Copyright 2013-2018 Paulo Perbone
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package io.perbone.udao.metrics;
+
+/**
+ * Metrics of one data source operation for a bean type on a provider.
+ * 
+ * @author Paulo Perbone <pauloperbone@yahoo.com>
+ * @since 0.17.0
+ */
+public final class OperationMetrics
+{
+    private final Class<?> type;
+    private final String operation;
+    private final String provider;
+    private final long errors;
+    private final LatencySnapshot latency;
+
+    public OperationMetrics(final Class<?> type, final String operation, final String provider, final long errors,
+            final LatencySnapshot latency)
+    {
+        this.type = type;
+        this.operation = operation;
+        this.provider = provider;
+        this.errors = errors;
+        this.latency = latency;
+    }
+
+    public Class<?> type()
+    {
+        return type;
+    }
+
+    public String operation()
+    {
+        return operation;
+    }
+
+    public String provider()
+    {
+        return provider;
+    }
+
+    /**
+     * Returns the number of calls, failed ones included.
+     * 
+     * @return the call count
+     */
+    public long count()
+    {
+        return latency.count();
+    }
+
+    /**
+     * Returns the number of calls that failed; a {@code NotFoundException} is not a failure.
+     * 
+     * @return the error count
+     */
+    public long errors()
+    {
+        return errors;
+    }
+
+    public LatencySnapshot latency()
+    {
+        return latency;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "OperationMetrics [type=" + type.getName() + ", operation=" + operation + ", provider=" + provider
+                + ", errors=" + errors + ", latency=" + latency + "]";
+    }
+}
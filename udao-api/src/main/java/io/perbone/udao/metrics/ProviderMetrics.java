@@ -0,0 +1,59 @@
+/*
+ * This file is part of UDAO 
+ * https://github.com/perbone/udao/
+ * 
+ * Copyright 2013-2018 Paulo Perbone
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package io.perbone.udao.metrics;
+
+/**
+ * Metrics of one data provider.
+ * 
+ * @author Paulo Perbone <pauloperbone@yahoo.com>
+ * @since 0.17.0
+ */
+public final class ProviderMetrics
+{
+    private final String id;
+    private final LatencySnapshot poolWait;
+
+    public ProviderMetrics(final String id, final LatencySnapshot poolWait)
+    {
+        this.id = id;
+        this.poolWait = poolWait;
+    }
+
+    public String id()
+    {
+        return id;
+    }
+
+    /**
+     * Returns the time spent waiting for a pooled resource, like a JDBC connection.
+     * 
+     * @return the pool wait latencies; empty for providers with no pool
+     */
+    public LatencySnapshot poolWait()
+    {
+        return poolWait;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "ProviderMetrics [id=" + id + ", poolWait=" + poolWait + "]";
+    }
+}
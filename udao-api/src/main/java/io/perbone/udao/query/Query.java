@@ -28,6 +28,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import io.perbone.toolbox.collection.Pair;
+import io.perbone.udao.Cursor.ScrollMode;
 
 /**
  * Represents storage access query.
@@ -50,6 +51,8 @@ public final class Query
 
     private Long offset = null;
 
+    private ScrollMode scrollMode = null;
+
     private Expression current = null;
 
     /**
@@ -295,6 +298,32 @@ public final class Query
         return this;
     }
 
+    /**
+     * Returns the cursor scroll mode hint for this query.
+     * 
+     * @return the scroll mode or <tt>null</tt> to use the provider default
+     */
+    public ScrollMode scrollMode()
+    {
+        return scrollMode;
+    }
+
+    /**
+     * Sets the cursor scroll mode hint for this query.
+     * <p>
+     * Providers unable to honor the given mode fall back to their default one.
+     * 
+     * @param mode
+     *            the scroll mode or <tt>null</tt> to use the provider default
+     * 
+     * @return this query object
+     */
+    public Query scrollMode(final ScrollMode mode)
+    {
+        scrollMode = mode;
+        return this;
+    }
+
     public List<Expression> where()
     {
         return where;
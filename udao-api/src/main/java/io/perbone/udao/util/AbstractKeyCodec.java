@@ -0,0 +1,234 @@
+/*
+ * This file is part of UDAO 
+ * https://github.com/perbone/udao/
+ * 
+ * Copyright 2013-2018 Paulo Perbone
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package io.perbone.udao.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import io.perbone.udao.annotation.Storable;
+
+/**
+ * This class provides a skeletal implementation of the {@code KeyCodec} interface, to minimize the
+ * effort required to implement this interface.
+ * <p>
+ * It extracts and validates the key values leaving only the actual encoding to the subclasses.
+ * 
+ * @author Paulo Perbone <pauloperbone@yahoo.com>
+ * @since 0.17.0
+ */
+public abstract class AbstractKeyCodec implements KeyCodec
+{
+    @Override
+    public EntityKey surrogateKey(final Object bean) throws IllegalArgumentException
+    {
+        final StorableInfo sinfo = info(bean);
+
+        if (sinfo.surrogateKey() == null)
+            return null;
+
+        final Object id = sinfo.accessor().get(bean, sinfo.surrogateKey());
+
+        if (id == null)
+            return null;
+
+        return encodeSurrogateKey(sinfo, id);
+    }
+
+    @Override
+    public EntityKey surrogateKey(final Class<?> type, final Object id) throws IllegalArgumentException
+    {
+        final StorableInfo sinfo = info(type);
+
+        if (id == null)
+            throw new IllegalArgumentException("Invalid surrogate key value");
+
+        return encodeSurrogateKey(sinfo, id);
+    }
+
+    @Override
+    public EntityKey primaryKey(final Object bean) throws IllegalArgumentException
+    {
+        final StorableInfo sinfo = info(bean);
+
+        if (sinfo.primaryKey().isEmpty())
+            return null;
+
+        final Object[] values = new Object[sinfo.primaryKey().size()];
+
+        int i = 0;
+
+        for (final ElementInfo einfo : sinfo.primaryKey())
+            values[i++] = sinfo.accessor().get(bean, einfo);
+
+        return encodePrimaryKey(sinfo, values);
+    }
+
+    @Override
+    public EntityKey primaryKey(final Class<?> type, final Object... keys) throws IllegalArgumentException
+    {
+        final StorableInfo sinfo = info(type);
+
+        if (keys == null || keys.length == 0)
+            throw new IllegalArgumentException("Invalid primary key values");
+
+        if (keys.length != sinfo.primaryKey().size())
+            throw new IllegalArgumentException("Invalid primary key values");
+
+        return encodePrimaryKey(sinfo, keys);
+    }
+
+    @Override
+    public List<EntityKey> alternateKeys(final Object bean) throws IllegalArgumentException
+    {
+        final StorableInfo sinfo = info(bean);
+
+        if (sinfo.alternateKeys().isEmpty())
+            return Collections.emptyList();
+
+        final List<EntityKey> result = new ArrayList<>(sinfo.alternateKeys().size());
+
+        for (final String name : sinfo.alternateKeys().keySet())
+        {
+            final List<ElementInfo> elements = sinfo.alternateKeys().get(name);
+            final List<Object> values = new ArrayList<>(elements.size());
+
+            for (final ElementInfo einfo : elements)
+            {
+                final Object value = sinfo.accessor().get(bean, einfo);
+                if (value == null)
+                    continue;
+                values.add(value);
+            }
+
+            if (!values.isEmpty())
+                result.add(encodeAlternateKey(sinfo, name, values.toArray()));
+        }
+
+        return result;
+    }
+
+    @Override
+    public EntityKey alternateKey(final Class<?> type, final String name, final Object... keys)
+            throws IllegalArgumentException
+    {
+        final StorableInfo sinfo = info(type);
+
+        if (keys == null || keys.length == 0)
+            throw new IllegalArgumentException("Invalid alternate key values");
+
+        if (name == null || sinfo.alternateKey(name).isEmpty())
+            throw new IllegalArgumentException("Invalid alternate key name");
+
+        return encodeAlternateKey(sinfo, name, keys);
+    }
+
+    @Override
+    public String toString()
+    {
+        return name();
+    }
+
+    /**
+     * Encodes a surrogate key.
+     * 
+     * @param sinfo
+     *            the bean storable info
+     * @param id
+     *            the surrogate key value; never null
+     * 
+     * @return the encoded key
+     * 
+     * @throws IllegalArgumentException
+     *             if the value cannot be encoded
+     */
+    protected abstract EntityKey encodeSurrogateKey(StorableInfo sinfo, Object id) throws IllegalArgumentException;
+
+    /**
+     * Encodes a primary key.
+     * 
+     * @param sinfo
+     *            the bean storable info
+     * @param keys
+     *            the primary key values; never null neither empty
+     * 
+     * @return the encoded key
+     * 
+     * @throws IllegalArgumentException
+     *             if any of the values is null or cannot be encoded
+     */
+    protected abstract EntityKey encodePrimaryKey(StorableInfo sinfo, Object[] keys) throws IllegalArgumentException;
+
+    /**
+     * Encodes an alternate key.
+     * 
+     * @param sinfo
+     *            the bean storable info
+     * @param name
+     *            the alternate key name
+     * @param keys
+     *            the alternate key values; never null neither empty
+     * 
+     * @return the encoded key
+     * 
+     * @throws IllegalArgumentException
+     *             if any of the values is null or cannot be encoded
+     */
+    protected abstract EntityKey encodeAlternateKey(StorableInfo sinfo, String name, Object[] keys)
+            throws IllegalArgumentException;
+
+    /**
+     * Returns the storable info for the given bean.
+     * 
+     * @param bean
+     *            the bean object
+     * 
+     * @return the storable info
+     * 
+     * @throws IllegalArgumentException
+     *             if the bean is null or an invalid {@link Storable} object
+     */
+    private static StorableInfo info(final Object bean) throws IllegalArgumentException
+    {
+        if (bean == null)
+            throw new IllegalArgumentException("Bean cannot be null");
+
+        return info(bean.getClass());
+    }
+
+    /**
+     * Returns the storable info for the given type.
+     * 
+     * @param type
+     *            the bean type
+     * 
+     * @return the storable info
+     * 
+     * @throws IllegalArgumentException
+     *             if the type is null or an invalid {@link Storable} type
+     */
+    private static StorableInfo info(final Class<?> type) throws IllegalArgumentException
+    {
+        if (type == null)
+            throw new IllegalArgumentException("Bean type cannot be null");
+
+        return EntityUtils.info(type);
+    }
+}
@@ -0,0 +1,490 @@
+/*
+ * This file is part of UDAO 
+ * https://github.com/perbone/udao/
+ * 
+ * Copyright 2013-2018 Paulo Perbone
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package io.perbone.udao.util;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import io.perbone.udao.annotation.DataType;
+import io.perbone.udao.annotation.Storable;
+
+/**
+ * Compiled accessor for the elements of a {@link Storable} bean type.
+ * <p>
+ * It is built once per {@link StorableInfo} and binds a getter and a setter {@link MethodHandle}
+ * for every element; elements are addressed by their ordinal, as returned by
+ * {@link ElementInfo#ordinal()}, so no name lookup and no access check happen on the hot path.
+ * <p>
+ * The setter applies the same conversions as {@link EntityUtils#value(Object, String, Object)}:
+ * dates and byte arrays are defensively copied and {@link BigDecimal} values are narrowed for
+ * <tt>FLOAT</tt> elements.
+ * 
+ * @author Paulo Perbone <pauloperbone@yahoo.com>
+ * @since 0.17.0
+ */
+public final class BeanAccessor
+{
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+    private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class);
+
+    private final Class<?> type;
+    private final String[] names;
+    private final DataType[] dataTypes;
+    private final Class<?>[] fieldTypes;
+    private final MethodHandle[] getters;
+    private final MethodHandle[] setters;
+    private final MethodHandle constructor;
+
+    /* Elements whose values can be shared between copies; no conversion nor defensive copy */
+    private final boolean[] shared;
+
+    /* Element names and alias names to ordinals */
+    private final Map<String, Integer> ordinals = new HashMap<>();
+
+    /* Lower case field names and alias names to ordinals */
+    private final Map<String, Integer> lenientOrdinals = new HashMap<>();
+
+    /**
+     * Creates a new accessor for the given type.
+     * 
+     * @param type
+     *            the bean type
+     * @param fields
+     *            the element fields in ordinal order
+     * @param elements
+     *            the element infos in ordinal order
+     * 
+     * @throws IllegalArgumentException
+     *             if the fields cannot be bound
+     */
+    BeanAccessor(final Class<?> type, final List<Field> fields, final List<ElementInfo> elements)
+            throws IllegalArgumentException
+    {
+        final int size = fields.size();
+
+        this.type = type;
+        this.names = new String[size];
+        this.dataTypes = new DataType[size];
+        this.fieldTypes = new Class<?>[size];
+        this.getters = new MethodHandle[size];
+        this.setters = new MethodHandle[size];
+        this.shared = new boolean[size];
+
+        final MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+        for (int i = 0; i < size; i++)
+        {
+            final Field field = fields.get(i);
+            final ElementInfo einfo = elements.get(i);
+
+            names[i] = einfo.name();
+            dataTypes[i] = einfo.dataType();
+            fieldTypes[i] = field.getType();
+            shared[i] = isShareable(einfo.dataType(), field.getType());
+
+            try
+            {
+                field.setAccessible(true);
+                getters[i] = lookup.unreflectGetter(field).asType(GETTER_TYPE);
+                setters[i] = lookup.unreflectSetter(field).asType(SETTER_TYPE);
+            }
+            catch (final IllegalAccessException | SecurityException e)
+            {
+                throw new IllegalArgumentException(
+                        String.format("Cannot bind the accessors for element [%s]", einfo.name()), e);
+            }
+
+            /* Same precedence as the former field matching: first field wins */
+            ordinals.putIfAbsent(einfo.name(), i);
+            lenientOrdinals.putIfAbsent(field.getName().toLowerCase(Locale.ENGLISH), i);
+            for (final List<String> aliases : einfo.aliases().values())
+                for (final String alias : aliases)
+                    lenientOrdinals.putIfAbsent(alias.toLowerCase(Locale.ENGLISH), i);
+        }
+
+        MethodHandle ctor = null;
+
+        try
+        {
+            final Constructor<?> c = type.getDeclaredConstructor();
+            c.setAccessible(true);
+            ctor = lookup.unreflectConstructor(c).asType(CONSTRUCTOR_TYPE);
+        }
+        catch (final NoSuchMethodException | IllegalAccessException | SecurityException e)
+        {
+            // no usable default constructor; newInstance will return null
+        }
+
+        this.constructor = ctor;
+    }
+
+    /**
+     * Returns the bean type.
+     * 
+     * @return the bean type
+     */
+    public Class<?> type()
+    {
+        return type;
+    }
+
+    /**
+     * Returns the number of elements.
+     * 
+     * @return the number of elements
+     */
+    public int size()
+    {
+        return names.length;
+    }
+
+    /**
+     * Returns the ordinal for the given element name.
+     * <p>
+     * The name is matched against the element name first, then against the field name and the
+     * alias names ignoring case.
+     * 
+     * @param name
+     *            either the element name or one of its alias names
+     * 
+     * @return the element ordinal or -1 if there is no such element
+     */
+    public int ordinal(final String name)
+    {
+        if (name == null)
+            return -1;
+
+        Integer result = ordinals.get(name);
+
+        if (result == null)
+            result = lenientOrdinals.get(name.toLowerCase(Locale.ENGLISH));
+
+        return result == null ? -1 : result;
+    }
+
+    /**
+     * Returns the element name for the given ordinal.
+     * 
+     * @param ordinal
+     *            the element ordinal
+     * 
+     * @return the element name
+     */
+    public String name(final int ordinal)
+    {
+        return names[ordinal];
+    }
+
+    /**
+     * Returns the data type for the given ordinal.
+     * 
+     * @param ordinal
+     *            the element ordinal
+     * 
+     * @return the element data type
+     */
+    public DataType dataType(final int ordinal)
+    {
+        return dataTypes[ordinal];
+    }
+
+    /**
+     * Returns the declared field type for the given ordinal.
+     * 
+     * @param ordinal
+     *            the element ordinal
+     * 
+     * @return the element field type
+     */
+    public Class<?> fieldType(final int ordinal)
+    {
+        return fieldTypes[ordinal];
+    }
+
+    /**
+     * Returns the value of the given element.
+     * 
+     * @param bean
+     *            the bean object
+     * @param ordinal
+     *            the element ordinal
+     * 
+     * @return the element value
+     * 
+     * @throws IllegalArgumentException
+     *             if the bean is not an instance of this accessor type
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(final Object bean, final int ordinal) throws IllegalArgumentException
+    {
+        try
+        {
+            return (T) getters[ordinal].invokeExact(bean);
+        }
+        catch (final Throwable e)
+        {
+            throw new IllegalArgumentException(
+                    String.format("Cannot get the value for element [%s]", names[ordinal]), e);
+        }
+    }
+
+    /**
+     * Returns the value of the given element.
+     * 
+     * @param bean
+     *            the bean object
+     * @param einfo
+     *            the element info
+     * 
+     * @return the element value
+     * 
+     * @throws IllegalArgumentException
+     *             if the bean is not an instance of this accessor type
+     */
+    public <T> T get(final Object bean, final ElementInfo einfo) throws IllegalArgumentException
+    {
+        return get(bean, einfo.ordinal());
+    }
+
+    /**
+     * Sets a new value for the given element.
+     * 
+     * @param bean
+     *            the bean object
+     * @param ordinal
+     *            the element ordinal
+     * @param value
+     *            the new value; can be null
+     * 
+     * @throws IllegalArgumentException
+     *             if the bean is not an instance of this accessor type or if the field cannot be set
+     *             to the new value
+     */
+    public void set(final Object bean, final int ordinal, final Object value) throws IllegalArgumentException
+    {
+        if (value != null && dataTypes[ordinal] == DataType.BYTES && !byte[].class.equals(fieldTypes[ordinal])
+                && !Byte[].class.equals(fieldTypes[ordinal]))
+            return; // Unsupported bytes holder; the field is left untouched
+
+        try
+        {
+            setters[ordinal].invokeExact(bean, convert(ordinal, value));
+        }
+        catch (final Throwable e)
+        {
+            throw new IllegalArgumentException(
+                    String.format("Cannot set the value for element [%s]", names[ordinal]), e);
+        }
+    }
+
+    /**
+     * Sets a new value for the given element.
+     * 
+     * @param bean
+     *            the bean object
+     * @param einfo
+     *            the element info
+     * @param value
+     *            the new value; can be null
+     * 
+     * @throws IllegalArgumentException
+     *             if the bean is not an instance of this accessor type or if the field cannot be set
+     *             to the new value
+     */
+    public void set(final Object bean, final ElementInfo einfo, final Object value) throws IllegalArgumentException
+    {
+        set(bean, einfo.ordinal(), value);
+    }
+
+    /**
+     * Creates a new bean instance using the default constructor.
+     * 
+     * @return the new bean instance or null if the type cannot be instantiated
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T newInstance()
+    {
+        if (constructor == null)
+            return null;
+
+        try
+        {
+            return (T) constructor.invokeExact();
+        }
+        catch (final Throwable e)
+        {
+            return null;
+        }
+    }
+
+    /**
+     * Creates a deep copy of the given bean.
+     * <p>
+     * This is the fast path of {@link #copy(Object, Object, boolean)} for a new target: values that
+     * can be shared are moved straight from getter to setter and only dates and byte arrays go
+     * through the defensive copies.
+     * 
+     * @param bean
+     *            the bean to be copied
+     * 
+     * @return the new bean instance or null if the type cannot be instantiated
+     * 
+     * @throws IllegalArgumentException
+     *             if the bean is not an instance of this accessor type
+     */
+    public <T> T duplicate(final T bean) throws IllegalArgumentException
+    {
+        final T copy = newInstance();
+
+        if (copy == null)
+            return null;
+
+        for (int i = 0; i < names.length; i++)
+        {
+            final Object value = get(bean, i);
+
+            if (value == null)
+                continue;
+
+            if (!shared[i])
+            {
+                set(copy, i, value);
+                continue;
+            }
+
+            try
+            {
+                setters[i].invokeExact((Object) copy, value);
+            }
+            catch (final Throwable e)
+            {
+                throw new IllegalArgumentException(
+                        String.format("Cannot set the value for element [%s]", names[i]), e);
+            }
+        }
+
+        return copy;
+    }
+
+    /**
+     * Deep copy the non null values from source to target.
+     * 
+     * @param source
+     *            the bean to copy the values from
+     * @param target
+     *            the bean to copy the values to
+     * @param override
+     *            controls if there should be overriding of any existing values
+     * 
+     * @throws IllegalArgumentException
+     *             if any of the beans is not an instance of this accessor type
+     */
+    public void copy(final Object source, final Object target, final boolean override) throws IllegalArgumentException
+    {
+        for (int i = 0; i < names.length; i++)
+        {
+            final Object value = get(source, i);
+
+            if (value == null)
+                continue;
+
+            if (!override && get(target, i) != null)
+                continue; // keeps the value from target (no override)
+
+            set(target, i, value);
+        }
+    }
+
+    /**
+     * Applies the data type conversions and defensive copies for the given element.
+     */
+    private Object convert(final int ordinal, final Object value)
+    {
+        if (value == null)
+            return null;
+
+        switch (dataTypes[ordinal])
+        {
+        // FIXME the field type may or may not match the DataType
+
+        case FLOAT:
+            return value instanceof BigDecimal ? ((BigDecimal) value).floatValue() : value;
+        case DATE:
+        case TIME:
+        case TIMESTAMP:
+            return new Date(((Date) value).getTime());
+        case BYTES:
+            if (byte[].class.equals(fieldTypes[ordinal]))
+            {
+                final byte[] tmp = new byte[((byte[]) value).length];
+                System.arraycopy(value, 0, tmp, 0, tmp.length);
+                return tmp;
+            }
+            else if (Byte[].class.equals(fieldTypes[ordinal]))
+            {
+                return value.getClass().equals(Byte[].class) ? value : toObjects((byte[]) value);
+            }
+            else
+            {
+                return value;
+            }
+        default:
+            return value;
+        }
+    }
+
+    /**
+     * Tells whether or not the values of the given element can be shared as they are.
+     */
+    private static boolean isShareable(final DataType dataType, final Class<?> fieldType)
+    {
+        switch (dataType)
+        {
+        case FLOAT:
+        case DATE:
+        case TIME:
+        case TIMESTAMP:
+        case BYTES:
+            return false;
+        default:
+            return !fieldType.isArray() && !Date.class.isAssignableFrom(fieldType);
+        }
+    }
+
+    private static Byte[] toObjects(final byte[] bytesPrim)
+    {
+        final Byte[] bytes = new Byte[bytesPrim.length];
+
+        for (int i = 0; i < bytesPrim.length; i++)
+            bytes[i] = bytesPrim[i];
+
+        return bytes;
+    }
+}
@@ -0,0 +1,382 @@
+/*
+ * This file is part of UDAO 
+ * https://github.com/perbone/udao/
+ * 
+ * Copyright 2013-2018 Paulo Perbone
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package io.perbone.udao.util;
+
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Binary {@link KeyCodec} implementation.
+ * <p>
+ * Keys are laid out as a kind byte, the length prefixed UTF-8 storable name, the length prefixed
+ * UTF-8 alternate key name (alternate keys only) followed by the typed key components. Names are
+ * written in full rather than hashed so keys of distinct types never collide, even when shared by
+ * several caches. No digest and no intermediate string is involved; the encoded storable name is
+ * computed once per type and the only allocations are the key byte array and the key object itself.
+ * <p>
+ * Integral numbers share the same encoding regardless of their boxed type so an <tt>Integer</tt>
+ * and a <tt>Long</tt> holding the same value produce the same key, matching the behavior of the
+ * legacy digest keys.
+ * 
+ * @author Paulo Perbone <pauloperbone@yahoo.com>
+ * @since 0.17.0
+ */
+public final class BinaryKeyCodec extends AbstractKeyCodec
+{
+    public static final String NAME = "binary";
+
+    private static final byte KIND_SURROGATE = 1;
+    private static final byte KIND_PRIMARY = 2;
+    private static final byte KIND_ALTERNATE = 3;
+
+    private static final byte TAG_STRING = 1;
+    private static final byte TAG_INTEGRAL = 2;
+    private static final byte TAG_BOOLEAN = 3;
+    private static final byte TAG_DATE = 4;
+    private static final byte TAG_UUID = 5;
+    private static final byte TAG_BYTES = 6;
+
+    /* Encoded storable names by storable name */
+    private final ConcurrentMap<String, byte[]> typeIds = new ConcurrentHashMap<>();
+
+    @Override
+    public String name()
+    {
+        return NAME;
+    }
+
+    @Override
+    protected EntityKey encodeSurrogateKey(final StorableInfo sinfo, final Object id) throws IllegalArgumentException
+    {
+        final byte[] typeId = typeId(sinfo);
+        final byte[] bytes = new byte[1 + typeId.length + sizeOf(id)];
+
+        int pos = writeHeader(bytes, KIND_SURROGATE, typeId);
+
+        write(bytes, pos, id);
+
+        return new EntityKey(bytes);
+    }
+
+    @Override
+    protected EntityKey encodePrimaryKey(final StorableInfo sinfo, final Object[] keys) throws IllegalArgumentException
+    {
+        final byte[] typeId = typeId(sinfo);
+
+        int size = 1 + typeId.length;
+
+        for (final Object v : keys)
+            size += sizeOf(v);
+
+        final byte[] bytes = new byte[size];
+
+        int pos = writeHeader(bytes, KIND_PRIMARY, typeId);
+
+        for (final Object v : keys)
+            pos = write(bytes, pos, v);
+
+        return new EntityKey(bytes);
+    }
+
+    @Override
+    protected EntityKey encodeAlternateKey(final StorableInfo sinfo, final String name, final Object[] keys)
+            throws IllegalArgumentException
+    {
+        final byte[] typeId = typeId(sinfo);
+        final int nameLength = utf8Length(name);
+
+        int size = 1 + typeId.length + varIntLength(nameLength) + nameLength;
+
+        for (final Object v : keys)
+            size += sizeOf(v);
+
+        final byte[] bytes = new byte[size];
+
+        int pos = writeHeader(bytes, KIND_ALTERNATE, typeId);
+
+        pos = writeText(bytes, pos, name);
+
+        for (final Object v : keys)
+            pos = write(bytes, pos, v);
+
+        return new EntityKey(bytes);
+    }
+
+    /**
+     * Returns the encoded storable name of the given type, computing it on first use.
+     */
+    private byte[] typeId(final StorableInfo sinfo)
+    {
+        final String name = sinfo.name();
+
+        byte[] typeId = typeIds.get(name);
+
+        if (typeId == null)
+        {
+            final int len = utf8Length(name);
+
+            typeId = new byte[varIntLength(len) + len];
+            writeText(typeId, 0, name);
+
+            final byte[] other = typeIds.putIfAbsent(name, typeId);
+            if (other != null)
+                typeId = other;
+        }
+
+        return typeId;
+    }
+
+    /**
+     * Writes the key kind and the encoded storable name.
+     */
+    private static int writeHeader(final byte[] bytes, final byte kind, final byte[] typeId)
+    {
+        bytes[0] = kind;
+        System.arraycopy(typeId, 0, bytes, 1, typeId.length);
+
+        return 1 + typeId.length;
+    }
+
+    /**
+     * Computes the encoded size for the given key component, including its tag.
+     */
+    private static int sizeOf(final Object value) throws IllegalArgumentException
+    {
+        if (value == null)
+            throw new IllegalArgumentException("Cannot create key: value is null");
+
+        if (value instanceof String)
+        {
+            final int len = utf8Length((String) value);
+            return 1 + varIntLength(len) + len;
+        }
+        else if (value instanceof Long || value instanceof Integer || value instanceof Short
+                || value instanceof Byte)
+        {
+            return 1 + 8;
+        }
+        else if (value instanceof Boolean)
+        {
+            return 1 + 1;
+        }
+        else if (value instanceof Date)
+        {
+            return 1 + 8;
+        }
+        else if (value instanceof UUID)
+        {
+            return 1 + 16;
+        }
+        else if (value instanceof byte[])
+        {
+            final int len = ((byte[]) value).length;
+            return 1 + varIntLength(len) + len;
+        }
+        else
+        {
+            final int len = utf8Length(value.toString());
+            return 1 + varIntLength(len) + len;
+        }
+    }
+
+    /**
+     * Writes the given key component at the given position.
+     * 
+     * @return the position right after the written component
+     */
+    private static int write(final byte[] bytes, int pos, final Object value)
+    {
+        if (value instanceof String)
+        {
+            pos = writeString(bytes, pos, (String) value);
+        }
+        else if (value instanceof Long || value instanceof Integer || value instanceof Short
+                || value instanceof Byte)
+        {
+            bytes[pos++] = TAG_INTEGRAL;
+            pos = writeLong(bytes, pos, ((Number) value).longValue());
+        }
+        else if (value instanceof Boolean)
+        {
+            bytes[pos++] = TAG_BOOLEAN;
+            bytes[pos++] = (byte) (((Boolean) value) ? 1 : 0);
+        }
+        else if (value instanceof Date)
+        {
+            bytes[pos++] = TAG_DATE;
+            pos = writeLong(bytes, pos, ((Date) value).getTime());
+        }
+        else if (value instanceof UUID)
+        {
+            bytes[pos++] = TAG_UUID;
+            pos = writeLong(bytes, pos, ((UUID) value).getMostSignificantBits());
+            pos = writeLong(bytes, pos, ((UUID) value).getLeastSignificantBits());
+        }
+        else if (value instanceof byte[])
+        {
+            final byte[] src = (byte[]) value;
+            bytes[pos++] = TAG_BYTES;
+            pos = writeVarInt(bytes, pos, src.length);
+            System.arraycopy(src, 0, bytes, pos, src.length);
+            pos += src.length;
+        }
+        else
+        {
+            pos = writeString(bytes, pos, value.toString());
+        }
+
+        return pos;
+    }
+
+    private static int writeString(final byte[] bytes, int pos, final String value)
+    {
+        bytes[pos++] = TAG_STRING;
+
+        return writeText(bytes, pos, value);
+    }
+
+    /**
+     * Writes the given string as its UTF-8 length followed by its UTF-8 bytes.
+     * 
+     * @return the position right after the written string
+     */
+    private static int writeText(final byte[] bytes, int pos, final String value)
+    {
+        pos = writeVarInt(bytes, pos, utf8Length(value));
+
+        final int len = value.length();
+
+        for (int i = 0; i < len; i++)
+        {
+            final char c = value.charAt(i);
+
+            if (c < 0x80)
+            {
+                bytes[pos++] = (byte) c;
+            }
+            else if (c < 0x800)
+            {
+                bytes[pos++] = (byte) (0xC0 | (c >> 6));
+                bytes[pos++] = (byte) (0x80 | (c & 0x3F));
+            }
+            else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(value.charAt(i + 1)))
+            {
+                final int cp = Character.toCodePoint(c, value.charAt(++i));
+                bytes[pos++] = (byte) (0xF0 | (cp >> 18));
+                bytes[pos++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                bytes[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                bytes[pos++] = (byte) (0x80 | (cp & 0x3F));
+            }
+            else if (Character.isSurrogate(c))
+            {
+                bytes[pos++] = '?'; // Malformed surrogate; same replacement as String.getBytes
+            }
+            else
+            {
+                bytes[pos++] = (byte) (0xE0 | (c >> 12));
+                bytes[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                bytes[pos++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+
+        return pos;
+    }
+
+    private static int utf8Length(final String value)
+    {
+        final int len = value.length();
+
+        int result = 0;
+
+        for (int i = 0; i < len; i++)
+        {
+            final char c = value.charAt(i);
+
+            if (c < 0x80)
+            {
+                result += 1;
+            }
+            else if (c < 0x800)
+            {
+                result += 2;
+            }
+            else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(value.charAt(i + 1)))
+            {
+                result += 4;
+                i++;
+            }
+            else if (Character.isSurrogate(c))
+            {
+                result += 1;
+            }
+            else
+            {
+                result += 3;
+            }
+        }
+
+        return result;
+    }
+
+    private static int varIntLength(int value)
+    {
+        int result = 1;
+
+        while ((value & ~0x7F) != 0)
+        {
+            value >>>= 7;
+            result++;
+        }
+
+        return result;
+    }
+
+    private static int writeVarInt(final byte[] bytes, int pos, int value)
+    {
+        while ((value & ~0x7F) != 0)
+        {
+            bytes[pos++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+
+        bytes[pos++] = (byte) value;
+
+        return pos;
+    }
+
+    private static int writeInt(final byte[] bytes, int pos, final int value)
+    {
+        bytes[pos++] = (byte) (value >>> 24);
+        bytes[pos++] = (byte) (value >>> 16);
+        bytes[pos++] = (byte) (value >>> 8);
+        bytes[pos++] = (byte) value;
+
+        return pos;
+    }
+
+    private static int writeLong(final byte[] bytes, int pos, final long value)
+    {
+        pos = writeInt(bytes, pos, (int) (value >>> 32));
+
+        return writeInt(bytes, pos, (int) value);
+    }
+}
@@ -0,0 +1,723 @@
+/*
+ * This file is part of UDAO 
+ * https://github.com/perbone/udao/
+ * 
+ * Copyright 2013-2018 Paulo Perbone
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package io.perbone.udao.util;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import io.perbone.toolbox.serialization.JSONSerializer;
+import io.perbone.toolbox.serialization.Serializer;
+import io.perbone.udao.annotation.DataType;
+import io.perbone.udao.annotation.Storable;
+
+/**
+ * Compact binary {@link Serializer} implementation driven by the {@link StorableInfo} layout.
+ * <p>
+ * Records are laid out as a magic byte, a flags byte, the record format version, the element count
+ * and a null bitmap followed by the non null values in ordinal order. Integral numbers and dates
+ * are zig-zag varints while strings, byte arrays and big numbers are length prefixed. The per
+ * element codecs are resolved once per type so there is no data type switch and no reflection on
+ * the hot path.
+ * <p>
+ * The type version is not part of the record. Records written before elements were appended to a
+ * type, that is, under an older {@link Storable#version()}, are still read; the appended elements
+ * are left untouched. Records holding more elements than the type are rejected.
+ * <p>
+ * It backs the JE provider records and the off-heap L2 cache entries.
+ * <p>
+ * When compression is enabled record bodies bigger than the threshold are deflated. Types holding
+ * elements this layout cannot represent, as well records written before this serializer existed,
+ * are handled by the legacy {@link JSONSerializer}.
+ * 
+ * @author Paulo Perbone <pauloperbone@yahoo.com>
+ * @since 0.17.0
+ */
+public final class BinarySerializer implements Serializer
+{
+    private static final byte MAGIC = (byte) 0xB1;
+
+    private static final byte FLAG_COMPRESSED = 0x01;
+
+    private static final byte FORMAT_VERSION = 1; // The record layout described above
+
+    private static final int HEADER_SIZE = 3; // magic + flags + format version
+
+    private final boolean compress;
+    private final int compressThreshold;
+
+    private final Serializer fallback = new JSONSerializer();
+
+    private final ConcurrentMap<Class<?>, Layout> layouts = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new serializer.
+     * 
+     * @param compress
+     *            if record bodies should be compressed
+     * @param compressThreshold
+     *            the minimum body size, in bytes, for compression to apply
+     */
+    public BinarySerializer(final boolean compress, final int compressThreshold)
+    {
+        this.compress = compress;
+        this.compressThreshold = compressThreshold;
+    }
+
+    @Override
+    public byte[] deflate(final Object bean)
+    {
+        final Layout layout = layout(bean.getClass());
+
+        if (layout == Layout.UNSUPPORTED)
+            return fallback.deflate(bean);
+
+        final Output out = new Output(128);
+
+        out.skip(HEADER_SIZE);
+        layout.write(out, bean);
+
+        byte flags = 0;
+        byte[] bytes = out.toByteArray();
+
+        if (compress && bytes.length - HEADER_SIZE >= compressThreshold)
+        {
+            final byte[] compressed = compress(bytes, HEADER_SIZE);
+            if (compressed.length < bytes.length)
+            {
+                bytes = compressed;
+                flags |= FLAG_COMPRESSED;
+            }
+        }
+
+        bytes[0] = MAGIC;
+        bytes[1] = flags;
+        bytes[2] = FORMAT_VERSION;
+
+        return bytes;
+    }
+
+    @Override
+    public <T> T inflate(final Class<T> type, final byte[] bytes)
+    {
+        if (bytes.length == 0 || bytes[0] != MAGIC)
+            return fallback.inflate(type, bytes); // legacy record
+
+        final Layout layout = layout(type);
+
+        if (layout == Layout.UNSUPPORTED)
+            throw new IllegalArgumentException(
+                    String.format("Type [%s] has no binary layout", type.getName()));
+        if (bytes.length < HEADER_SIZE || bytes[2] < 1 || bytes[2] > FORMAT_VERSION)
+            throw new IllegalArgumentException(
+                    String.format("Record of type [%s] has an unknown format version", type.getName()));
+
+        final byte[] body = (bytes[1] & FLAG_COMPRESSED) != 0 ? decompress(bytes, HEADER_SIZE) : bytes;
+        final Input in = new Input(body, body == bytes ? HEADER_SIZE : 0);
+
+        return layout.read(in);
+    }
+
+    private Layout layout(final Class<?> type)
+    {
+        Layout layout = layouts.get(type);
+
+        if (layout == null)
+        {
+            layout = Layout.of(EntityUtils.info(type));
+            layouts.putIfAbsent(type, layout);
+        }
+
+        return layout;
+    }
+
+    /**
+     * Deflates the bytes after the header keeping room for it on the result.
+     */
+    private static byte[] compress(final byte[] bytes, final int offset)
+    {
+        final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+
+        try
+        {
+            deflater.setInput(bytes, offset, bytes.length - offset);
+            deflater.finish();
+
+            final Output out = new Output(bytes.length);
+            out.skip(offset);
+            while (!deflater.finished())
+            {
+                out.ensure(512);
+                out.pos += deflater.deflate(out.buf, out.pos, out.buf.length - out.pos);
+            }
+
+            final Output result = new Output(out.pos + 5);
+            result.skip(offset);
+            result.writeVarInt(bytes.length - offset); // the original body size
+            result.writeRaw(out.buf, offset, out.pos - offset);
+
+            return result.toByteArray();
+        }
+        finally
+        {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Inflates the bytes after the header.
+     */
+    private static byte[] decompress(final byte[] bytes, final int offset)
+    {
+        final Input in = new Input(bytes, offset);
+        final byte[] body = new byte[in.readVarInt()];
+        final Inflater inflater = new Inflater();
+
+        try
+        {
+            inflater.setInput(bytes, in.pos, bytes.length - in.pos);
+            int size = 0;
+            while (size < body.length && !inflater.finished())
+            {
+                final int n = inflater.inflate(body, size, body.length - size);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+                    break;
+                size += n;
+            }
+            if (size != body.length)
+                throw new IllegalArgumentException("Truncated compressed record");
+
+            return body;
+        }
+        catch (final DataFormatException e)
+        {
+            throw new IllegalArgumentException("Corrupted compressed record", e);
+        }
+        finally
+        {
+            inflater.end();
+        }
+    }
+
+    /**
+     * The precomputed binary layout for a storable type.
+     */
+    private static final class Layout
+    {
+        static final Layout UNSUPPORTED = new Layout(null, null, null);
+
+        final BeanAccessor accessor;
+        final int[] ordinals;
+        final Codec[] codecs;
+
+        Layout(final BeanAccessor accessor, final int[] ordinals, final Codec[] codecs)
+        {
+            this.accessor = accessor;
+            this.ordinals = ordinals;
+            this.codecs = codecs;
+        }
+
+        static Layout of(final StorableInfo sinfo)
+        {
+            final BeanAccessor accessor = sinfo.accessor();
+            final List<ElementInfo> elements = sinfo.nonVirtualElements();
+            final int[] ordinals = new int[elements.size()];
+            final Codec[] codecs = new Codec[elements.size()];
+
+            if (accessor.newInstance() == null)
+                return UNSUPPORTED;
+
+            for (int i = 0; i < ordinals.length; i++)
+            {
+                ordinals[i] = elements.get(i).ordinal();
+                codecs[i] = Codec.of(accessor.dataType(ordinals[i]), accessor.fieldType(ordinals[i]));
+                if (codecs[i] == null)
+                    return UNSUPPORTED;
+            }
+
+            return new Layout(accessor, ordinals, codecs);
+        }
+
+        void write(final Output out, final Object bean)
+        {
+            final int count = ordinals.length;
+            final Object[] values = new Object[count];
+            final byte[] bitmap = new byte[(count + 7) >>> 3];
+
+            for (int i = 0; i < count; i++)
+            {
+                values[i] = accessor.get(bean, ordinals[i]);
+                if (values[i] != null)
+                    bitmap[i >>> 3] |= 1 << (i & 7);
+            }
+
+            out.writeVarInt(count);
+            out.writeRaw(bitmap, 0, bitmap.length);
+
+            for (int i = 0; i < count; i++)
+            {
+                if (values[i] != null)
+                    codecs[i].write(out, values[i]);
+            }
+        }
+
+        <T> T read(final Input in)
+        {
+            final T bean = accessor.newInstance();
+            final int count = in.readVarInt();
+
+            if (count > ordinals.length)
+                throw new IllegalArgumentException(
+                        String.format("Record has more elements than type [%s]", accessor.type().getName()));
+
+            final int offset = in.pos;
+            in.pos += (count + 7) >>> 3;
+
+            /* Elements appended after the record was written are left untouched */
+            for (int i = 0; i < count; i++)
+            {
+                if ((in.buf[offset + (i >>> 3)] & (1 << (i & 7))) != 0)
+                    accessor.set(bean, ordinals[i], codecs[i].read(in));
+            }
+
+            return bean;
+        }
+    }
+
+    /**
+     * Element value codec.
+     */
+    private enum Codec
+    {
+        BOOLEAN
+        {
+            @Override
+            void write(final Output out, final Object value)
+            {
+                out.writeByte((Boolean) value ? 1 : 0);
+            }
+
+            @Override
+            Object read(final Input in)
+            {
+                return in.readByte() != 0;
+            }
+        },
+        CHAR
+        {
+            @Override
+            void write(final Output out, final Object value)
+            {
+                out.writeVarInt((Character) value);
+            }
+
+            @Override
+            Object read(final Input in)
+            {
+                return (char) in.readVarInt();
+            }
+        },
+        BYTE
+        {
+            @Override
+            void write(final Output out, final Object value)
+            {
+                out.writeByte((Byte) value);
+            }
+
+            @Override
+            Object read(final Input in)
+            {
+                return in.readByte();
+            }
+        },
+        SHORT
+        {
+            @Override
+            void write(final Output out, final Object value)
+            {
+                out.writeVarLong(zigzag((Short) value));
+            }
+
+            @Override
+            Object read(final Input in)
+            {
+                return (short) unzigzag(in.readVarLong());
+            }
+        },
+        INT
+        {
+            @Override
+            void write(final Output out, final Object value)
+            {
+                out.writeVarLong(zigzag((Integer) value));
+            }
+
+            @Override
+            Object read(final Input in)
+            {
+                return (int) unzigzag(in.readVarLong());
+            }
+        },
+        LONG
+        {
+            @Override
+            void write(final Output out, final Object value)
+            {
+                out.writeVarLong(zigzag((Long) value));
+            }
+
+            @Override
+            Object read(final Input in)
+            {
+                return unzigzag(in.readVarLong());
+            }
+        },
+        FLOAT
+        {
+            @Override
+            void write(final Output out, final Object value)
+            {
+                out.writeFixed(Float.floatToIntBits((Float) value), 4);
+            }
+
+            @Override
+            Object read(final Input in)
+            {
+                return Float.intBitsToFloat((int) in.readFixed(4));
+            }
+        },
+        DOUBLE
+        {
+            @Override
+            void write(final Output out, final Object value)
+            {
+                out.writeFixed(Double.doubleToLongBits((Double) value), 8);
+            }
+
+            @Override
+            Object read(final Input in)
+            {
+                return Double.longBitsToDouble(in.readFixed(8));
+            }
+        },
+        BIGINTEGER
+        {
+            @Override
+            void write(final Output out, final Object value)
+            {
+                out.writeBytes(((BigInteger) value).toByteArray());
+            }
+
+            @Override
+            Object read(final Input in)
+            {
+                return new BigInteger(in.readBytes());
+            }
+        },
+        BIGDECIMAL
+        {
+            @Override
+            void write(final Output out, final Object value)
+            {
+                final BigDecimal decimal = (BigDecimal) value;
+                out.writeVarLong(zigzag(decimal.scale()));
+                out.writeBytes(decimal.unscaledValue().toByteArray());
+            }
+
+            @Override
+            Object read(final Input in)
+            {
+                final int scale = (int) unzigzag(in.readVarLong());
+                return new BigDecimal(new BigInteger(in.readBytes()), scale);
+            }
+        },
+        DATE
+        {
+            @Override
+            void write(final Output out, final Object value)
+            {
+                out.writeVarLong(zigzag(((Date) value).getTime()));
+            }
+
+            @Override
+            Object read(final Input in)
+            {
+                return new Date(unzigzag(in.readVarLong()));
+            }
+        },
+        STRING
+        {
+            @Override
+            void write(final Output out, final Object value)
+            {
+                out.writeBytes(((String) value).getBytes(StandardCharsets.UTF_8));
+            }
+
+            @Override
+            Object read(final Input in)
+            {
+                final int length = in.readVarInt();
+                final String value = new String(in.buf, in.pos, length, StandardCharsets.UTF_8);
+                in.pos += length;
+                return value;
+            }
+        },
+        UNIQUE_ID
+        {
+            @Override
+            void write(final Output out, final Object value)
+            {
+                out.writeFixed(((UUID) value).getMostSignificantBits(), 8);
+                out.writeFixed(((UUID) value).getLeastSignificantBits(), 8);
+            }
+
+            @Override
+            Object read(final Input in)
+            {
+                return new UUID(in.readFixed(8), in.readFixed(8));
+            }
+        },
+        BYTES
+        {
+            @Override
+            void write(final Output out, final Object value)
+            {
+                if (value instanceof byte[])
+                {
+                    out.writeBytes((byte[]) value);
+                }
+                else
+                {
+                    final Byte[] bytes = (Byte[]) value;
+                    out.writeVarInt(bytes.length);
+                    for (final Byte b : bytes)
+                        out.writeByte(b == null ? 0 : b);
+                }
+            }
+
+            @Override
+            Object read(final Input in)
+            {
+                return in.readBytes(); // the accessor converts it to the field type
+            }
+        };
+
+        abstract void write(Output out, Object value);
+
+        abstract Object read(Input in);
+
+        /**
+         * Resolves the codec for the given element or null if it has no binary representation.
+         */
+        static Codec of(final DataType dataType, final Class<?> fieldType)
+        {
+            switch (dataType)
+            {
+            case DATE:
+            case TIME:
+            case TIMESTAMP:
+                return Date.class.equals(fieldType) ? DATE : null;
+            case BYTES:
+                return byte[].class.equals(fieldType) || Byte[].class.equals(fieldType) ? BYTES : null;
+            case FLOAT:
+                // the accessor narrows BigDecimal values; keep the field own representation
+                return float.class.equals(fieldType) || Float.class.equals(fieldType) ? FLOAT : null;
+            default:
+                break;
+            }
+
+            if (boolean.class.equals(fieldType) || Boolean.class.equals(fieldType))
+                return BOOLEAN;
+            if (char.class.equals(fieldType) || Character.class.equals(fieldType))
+                return CHAR;
+            if (byte.class.equals(fieldType) || Byte.class.equals(fieldType))
+                return BYTE;
+            if (short.class.equals(fieldType) || Short.class.equals(fieldType))
+                return SHORT;
+            if (int.class.equals(fieldType) || Integer.class.equals(fieldType))
+                return INT;
+            if (long.class.equals(fieldType) || Long.class.equals(fieldType))
+                return LONG;
+            if (float.class.equals(fieldType) || Float.class.equals(fieldType))
+                return FLOAT;
+            if (double.class.equals(fieldType) || Double.class.equals(fieldType))
+                return DOUBLE;
+            if (BigInteger.class.equals(fieldType))
+                return BIGINTEGER;
+            if (BigDecimal.class.equals(fieldType))
+                return BIGDECIMAL;
+            if (String.class.equals(fieldType))
+                return STRING;
+            if (UUID.class.equals(fieldType))
+                return UNIQUE_ID;
+
+            return null; // enums, collections, maps and nested objects stay on JSON
+        }
+
+        static long zigzag(final long value)
+        {
+            return (value << 1) ^ (value >> 63);
+        }
+
+        static long unzigzag(final long value)
+        {
+            return (value >>> 1) ^ -(value & 1);
+        }
+    }
+
+    /**
+     * Growable output buffer.
+     */
+    private static final class Output
+    {
+        byte[] buf;
+        int pos;
+
+        Output(final int capacity)
+        {
+            buf = new byte[capacity];
+        }
+
+        void ensure(final int size)
+        {
+            if (pos + size > buf.length)
+                buf = Arrays.copyOf(buf, Math.max(buf.length << 1, pos + size));
+        }
+
+        void skip(final int size)
+        {
+            ensure(size);
+            pos += size;
+        }
+
+        void writeByte(final int value)
+        {
+            ensure(1);
+            buf[pos++] = (byte) value;
+        }
+
+        void writeRaw(final byte[] bytes, final int offset, final int length)
+        {
+            ensure(length);
+            System.arraycopy(bytes, offset, buf, pos, length);
+            pos += length;
+        }
+
+        void writeBytes(final byte[] bytes)
+        {
+            writeVarInt(bytes.length);
+            writeRaw(bytes, 0, bytes.length);
+        }
+
+        void writeVarInt(final int value)
+        {
+            writeVarLong(value & 0xFFFFFFFFL);
+        }
+
+        void writeVarLong(long value)
+        {
+            ensure(10);
+            while ((value & ~0x7FL) != 0)
+            {
+                buf[pos++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buf[pos++] = (byte) value;
+        }
+
+        void writeFixed(final long value, final int size)
+        {
+            ensure(size);
+            for (int i = size - 1; i >= 0; i--)
+                buf[pos++] = (byte) (value >>> (i << 3));
+        }
+
+        byte[] toByteArray()
+        {
+            return Arrays.copyOf(buf, pos);
+        }
+    }
+
+    /**
+     * Input cursor over a byte array.
+     */
+    private static final class Input
+    {
+        final byte[] buf;
+        int pos;
+
+        Input(final byte[] buf, final int pos)
+        {
+            this.buf = buf;
+            this.pos = pos;
+        }
+
+        byte readByte()
+        {
+            return buf[pos++];
+        }
+
+        byte[] readBytes()
+        {
+            final int length = readVarInt();
+            final byte[] bytes = Arrays.copyOfRange(buf, pos, pos + length);
+            pos += length;
+            return bytes;
+        }
+
+        int readVarInt()
+        {
+            return (int) readVarLong();
+        }
+
+        long readVarLong()
+        {
+            long value = 0;
+            int shift = 0;
+            byte b;
+            do
+            {
+                b = buf[pos++];
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            }
+            while (b < 0);
+            return value;
+        }
+
+        long readFixed(final int size)
+        {
+            long value = 0;
+            for (int i = 0; i < size; i++)
+                value = (value << 8) | (buf[pos++] & 0xFF);
+            return value;
+        }
+    }
+}
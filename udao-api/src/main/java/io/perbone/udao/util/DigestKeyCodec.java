@@ -0,0 +1,82 @@
+/*
+ * This file is part of UDAO 
+ * https://github.com/perbone/udao/
+ * 
+ * Copyright 2013-2018 Paulo Perbone
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package io.perbone.udao.util;
+
+import java.nio.charset.Charset;
+
+/**
+ * Legacy {@link KeyCodec} implementation.
+ * <p>
+ * Keys are the hexadecimal SHA digest of the joined key values, exactly as returned by
+ * {@link EntityUtils#surrogateKeyHash(Class, Object)} and its siblings, encoded as UTF-8. It exists
+ * to keep compatibility with keys already persisted by previous versions.
+ * 
+ * @author Paulo Perbone <pauloperbone@yahoo.com>
+ * @since 0.17.0
+ */
+public final class DigestKeyCodec extends AbstractKeyCodec
+{
+    public static final String NAME = "digest";
+
+    private static final Charset charset = Charset.forName(EntityUtils.CHARSET_UTF8);
+
+    @Override
+    public String name()
+    {
+        return NAME;
+    }
+
+    @Override
+    protected EntityKey encodeSurrogateKey(final StorableInfo sinfo, final Object id) throws IllegalArgumentException
+    {
+        return toKey(EntityUtils.createKey(sinfo.name(), id));
+    }
+
+    @Override
+    protected EntityKey encodePrimaryKey(final StorableInfo sinfo, final Object[] keys) throws IllegalArgumentException
+    {
+        final Object[] values = new Object[keys.length + 1];
+
+        values[0] = sinfo.name();
+
+        System.arraycopy(keys, 0, values, 1, keys.length);
+
+        return toKey(EntityUtils.createKey(values));
+    }
+
+    @Override
+    protected EntityKey encodeAlternateKey(final StorableInfo sinfo, final String name, final Object[] keys)
+            throws IllegalArgumentException
+    {
+        final Object[] values = new Object[keys.length + 2];
+
+        values[0] = sinfo.name();
+        values[1] = name;
+
+        System.arraycopy(keys, 0, values, 2, keys.length);
+
+        return toKey(EntityUtils.createKey(values));
+    }
+
+    private static EntityKey toKey(final String hash)
+    {
+        return new EntityKey(hash.getBytes(charset));
+    }
+}
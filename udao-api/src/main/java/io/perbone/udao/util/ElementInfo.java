@@ -45,6 +45,7 @@ public final class ElementInfo
     private MetadataType metadataType;
     private Short index;
     private Boolean nullable;
+    private Integer ordinal;
 
     public ElementInfo()
     {
@@ -58,6 +59,7 @@ public final class ElementInfo
         metadataType = null;
         index = null;
         nullable = null;
+        ordinal = null;
     }
 
     public Map<String, List<String>> aliases()
@@ -145,6 +147,17 @@ public final class ElementInfo
         return this;
     }
 
+    public Integer ordinal()
+    {
+        return ordinal;
+    }
+
+    public ElementInfo ordinal(final Integer ordinal)
+    {
+        this.ordinal = ordinal;
+        return this;
+    }
+
     public String name()
     {
         return name;
@@ -0,0 +1,104 @@
+/*
+ * This file is part of UDAO 
+ * https://github.com/perbone/udao/
+ * 
+ * Copyright 2013-2018 Paulo Perbone
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package io.perbone.udao.util;
+
+import java.util.Arrays;
+
+import io.perbone.toolbox.formatter.HexFormatter;
+
+/**
+ * Immutable, compact representation of an entity key as produced by a {@link KeyCodec}.
+ * <p>
+ * The hash code is computed once at construction time so this object can be used as a cheap map
+ * key for caches and as the raw key of a binary storage.
+ * 
+ * @author Paulo Perbone <pauloperbone@yahoo.com>
+ * @since 0.17.0
+ */
+public final class EntityKey
+{
+    private final byte[] bytes;
+    private final int hash;
+
+    /**
+     * Creates a new key object that takes ownership of the given byte array.
+     * 
+     * @param bytes
+     *            the encoded key; must not be changed afterwards
+     * 
+     * @throws IllegalArgumentException
+     *             if the byte array is null or empty
+     */
+    public EntityKey(final byte[] bytes) throws IllegalArgumentException
+    {
+        if (bytes == null || bytes.length == 0)
+            throw new IllegalArgumentException("Key bytes must not be empty neither null");
+
+        this.bytes = bytes;
+        this.hash = Arrays.hashCode(bytes);
+    }
+
+    /**
+     * Returns the encoded key bytes.
+     * <p>
+     * The returned array is the internal one; callers must not change its content.
+     * 
+     * @return the encoded key bytes
+     */
+    public byte[] bytes()
+    {
+        return bytes;
+    }
+
+    /**
+     * Returns the encoded key length in bytes.
+     * 
+     * @return the key length
+     */
+    public int length()
+    {
+        return bytes.length;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(final Object obj)
+    {
+        if (this == obj)
+            return true;
+        if (!(obj instanceof EntityKey))
+            return false;
+
+        final EntityKey other = (EntityKey) obj;
+
+        return hash == other.hash && Arrays.equals(bytes, other.bytes);
+    }
+
+    @Override
+    public String toString()
+    {
+        return HexFormatter.encode(bytes);
+    }
+}
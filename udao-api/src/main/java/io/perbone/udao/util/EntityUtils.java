@@ -21,7 +21,6 @@ package io.perbone.udao.util;
 
 import java.io.UnsupportedEncodingException;
 import java.lang.reflect.Field;
-import java.math.BigDecimal;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.nio.charset.Charset;
@@ -55,6 +54,7 @@ import io.perbone.udao.annotation.AlternateKeys;
 import io.perbone.udao.annotation.ConsistencyLevel;
 import io.perbone.udao.annotation.DataType;
 import io.perbone.udao.annotation.Element;
+import io.perbone.udao.annotation.Immutable;
 import io.perbone.udao.annotation.InstanceType;
 import io.perbone.udao.annotation.Metadata;
 import io.perbone.udao.annotation.PrimaryKey;
@@ -83,9 +83,6 @@ public final class EntityUtils
     /* Cache of types already scanned for StorableInfo annotation */
     private static final Map<Class<?>, StorableInfo> storablesCache = new ConcurrentHashMap<>();
 
-    /* Cache of match fields already scanned */
-    private static final Map<String, Field> fieldsCache = new ConcurrentHashMap<>();
-
     /* Cache of types with ttl fields */
     private static final Map<Class<?>, Field> ttlFields = new ConcurrentHashMap<>();
 
@@ -95,6 +92,12 @@ public final class EntityUtils
     /* Cache of MessageDigest instance */
     private static final AtomicReference<MessageDigest> messageDigestCache = new AtomicReference<>(null);
 
+    /* Default key codec */
+    private static final KeyCodec defaultKeyCodec = new BinaryKeyCodec();
+
+    /* Legacy key codec */
+    private static final KeyCodec digestKeyCodec = new DigestKeyCodec();
+
     private static String hostName = null;
 
     static
@@ -249,6 +252,9 @@ public final class EntityUtils
 
             final List<ElementInfo> elements = parseElements(type);
 
+            final BeanAccessor accessor = new BeanAccessor(type, AnnotationScanner.scanFields(type, Element.class),
+                    elements);
+
             final List<ElementInfo> nonVirtualElements = new ArrayList<>();
 
             for (final ElementInfo einfo : elements)
@@ -261,6 +267,9 @@ public final class EntityUtils
 
             final Boolean cacheable = storable.cacheable();
 
+            final Boolean immutable = !storable.mutable()
+                    || AnnotationScanner.isAnnotationPresent(type, Immutable.class);
+
             final Boolean sharedNothing = storable.sharedNothing();
 
             sinfo
@@ -268,6 +277,7 @@ public final class EntityUtils
                     .name(name)
                     .aliases(aliases)
                     .schema(schema)
+                    .version(storable.version())
                     .surrogateKey(surrogateKey)
                     .primaryKey(primaryKey)
                     .alternateKeys(alternateKeys)
@@ -275,8 +285,10 @@ public final class EntityUtils
                     .nonVirtualElements(nonVirtualElements)
                     .dirtyChecking(dirtyChecking)
                     .cacheable(cacheable)
+                    .immutable(immutable)
                     .sharedNothing(sharedNothing)
-                    .consistencyLevel(consistencyLevel);
+                    .consistencyLevel(consistencyLevel)
+                    .accessor(accessor);
 
             storablesCache.put(type, sinfo); // Caches it
         }
@@ -334,35 +346,18 @@ public final class EntityUtils
      *             references a bean field member. if the bean type doesn't have a element with the
      *             specified name
      */
-    @SuppressWarnings("unchecked")
     public static <T> T value(final Object bean, final String name) throws IllegalArgumentException
     {
         if (bean == null)
             throw new IllegalArgumentException("Bean cannot be null");
 
-        final Class<T> type = (Class<T>) bean.getClass();
+        final BeanAccessor accessor = info(bean.getClass()).accessor();
 
-        checkStorable(type);
-
-        // if (!StringValidations.isValid(name))
-        // throw new IllegalArgumentException("Name is invalid");
-
-        T result = null;
-
-        try
-        {
-            final Field field = matchField(type, name);
-            if (field == null)
-                throw new IllegalArgumentException(String.format("Bean does not have such element [%s]", name));
-            field.setAccessible(true);
-            result = (T) field.get(bean);
-        }
-        catch (final IllegalAccessException e)
-        {
-            throw new IllegalArgumentException(String.format("Cannot set the value for element [%s]", name));
-        }
+        final int ordinal = accessor.ordinal(name);
+        if (ordinal < 0)
+            throw new IllegalArgumentException(String.format("Bean does not have such element [%s]", name));
 
-        return result;
+        return accessor.get(bean, ordinal);
     }
 
     /**
@@ -385,103 +380,16 @@ public final class EntityUtils
         if (bean == null)
             throw new IllegalArgumentException("Bean cannot be null");
 
-        final Class<?> type = bean.getClass();
-
-        checkStorable(type);
+        final BeanAccessor accessor = info(bean.getClass()).accessor();
 
         if (!StringValidations.isValid(name))
             throw new IllegalArgumentException("Name is invalid");
 
-        final Field field = matchField(type, name);
-        if (field == null)
+        final int ordinal = accessor.ordinal(name);
+        if (ordinal < 0)
             throw new IllegalArgumentException(String.format("Bean does not have such element [%s]", name));
 
-        try
-        {
-            field.setAccessible(true);
-            final DataType dt = parseDataType(field.getType(), field.getAnnotation(Element.class));
-            switch (dt)
-            {
-            // FIXME the field type may or may not match the DataType
-
-            case BOOLEAN:
-                field.set(bean, value);
-                break;
-            case CHAR:
-                field.set(bean, value);
-                break;
-            case BYTE:
-                field.set(bean, value);
-                break;
-            case SHORT:
-                field.set(bean, value);
-                break;
-            case INT:
-                field.set(bean, value);
-                break;
-            case LONG:
-                field.set(bean, value);
-                break;
-            case BIGINTEGER:
-                field.set(bean, value);
-                break;
-            case FLOAT:
-                if (value instanceof BigDecimal)
-                    field.set(bean, ((BigDecimal) value).floatValue());
-                else
-                    field.set(bean, value);
-                break;
-            case DOUBLE:
-                field.set(bean, value);
-                break;
-            case BIGDECIMAL:
-                field.set(bean, value);
-                break;
-            case STRING:
-                field.set(bean, value);
-                break;
-            case ENUM:
-                field.set(bean, value);
-                break;
-            case DATE:
-            case TIME:
-            case TIMESTAMP:
-                field.set(bean, value == null ? null : new Date(((Date) value).getTime()));
-                break;
-            case BYTES:
-                if (value == null)
-                    field.set(bean, value);
-                else
-                {
-                    if (byte[].class.equals(field.getType()))
-                    {
-                        byte[] tmp = new byte[((byte[]) value).length];
-                        System.arraycopy(value, 0, tmp, 0, tmp.length);
-                        field.set(bean, tmp);
-                    }
-                    else if (Byte[].class.equals(field.getType()))
-                    {
-                        Byte[] tmp = value.getClass().equals(Byte[].class) ? (Byte[]) value : toObjects((byte[]) value);
-                        field.set(bean, tmp);
-                    }
-                }
-
-                break;
-            default:
-                field.set(bean, value);
-            }
-        }
-        catch (final IllegalArgumentException | IllegalAccessException e)
-        {
-            throw new IllegalArgumentException(String.format("Cannot set the value for element [%s]", name));
-        }
-    }
-
-    private static Byte[] toObjects(byte[] bytesPrim)
-    {
-        Byte[] bytes = new Byte[bytesPrim.length];
-        Arrays.setAll(bytes, n -> bytesPrim[n]);
-        return bytes;
+        accessor.set(bean, ordinal, value);
     }
 
     /**
@@ -500,18 +408,15 @@ public final class EntityUtils
         if (bean == null)
             throw new IllegalArgumentException("Bean cannot be null");
 
-        final Class<?> type = bean.getClass();
-
-        checkStorable(type);
+        final BeanAccessor accessor = info(bean.getClass()).accessor();
 
         final Map<String, Object> result = new HashMap<>();
 
-        for (final ElementInfo einfo : info(type).elements())
+        for (int i = 0; i < accessor.size(); i++)
         {
-            final String name = einfo.name();
-            final Object value = value(bean, name);
+            final Object value = accessor.get(bean, i);
             if (value != null)
-                result.put(name, value);
+                result.put(accessor.name(i), value);
         }
 
         return result;
@@ -615,6 +520,37 @@ public final class EntityUtils
         return createKey(values);
     }
 
+    /**
+     * Returns the default {@link KeyCodec}.
+     * 
+     * @return the default key codec
+     */
+    public static KeyCodec keyCodec()
+    {
+        return defaultKeyCodec;
+    }
+
+    /**
+     * Returns the {@link KeyCodec} for the given name.
+     * 
+     * @param name
+     *            the codec name; either {@value BinaryKeyCodec#NAME} or {@value DigestKeyCodec#NAME}
+     * 
+     * @return the key codec
+     * 
+     * @throws IllegalArgumentException
+     *             if the name is invalid
+     */
+    public static KeyCodec keyCodec(final String name) throws IllegalArgumentException
+    {
+        if (BinaryKeyCodec.NAME.equalsIgnoreCase(name))
+            return defaultKeyCodec;
+        else if (DigestKeyCodec.NAME.equalsIgnoreCase(name))
+            return digestKeyCodec;
+        else
+            throw new IllegalArgumentException("Invalid key codec name: " + name);
+    }
+
     /**
      * 
      * @param bean
@@ -916,6 +852,12 @@ public final class EntityUtils
      */
     public static <T> void copy(final T source, final T target, final boolean override)
     {
+        if (source != null && target != null && source.getClass().equals(target.getClass()))
+        {
+            info(source.getClass()).accessor().copy(source, target, override);
+            return;
+        }
+
         final Map<String, Object> values = values(source);
 
         if (override)
@@ -958,11 +900,15 @@ public final class EntityUtils
         if (bean == null)
             throw new IllegalArgumentException("Bean cannot be null");
 
-        checkStorable(bean.getClass());
+        final BeanAccessor accessor = info(bean.getClass()).accessor();
 
-        T clone = newInstance(bean);
+        T clone = accessor.duplicate(bean);
 
-        copy(bean, clone, true);
+        if (clone == null)
+        {
+            clone = newInstance(bean);
+            accessor.copy(bean, clone, true);
+        }
 
         return clone;
     }
@@ -1126,6 +1072,9 @@ public final class EntityUtils
         if (type == null)
             throw new IllegalStateException("Bean type cannot be null");
 
+        if (storablesCache.containsKey(type))
+            return; // Already scanned
+
         if (!AnnotationScanner.isAnnotationPresent(type, Storable.class))
             throw new IllegalArgumentException("Not a storable bean type");
     }
@@ -1151,61 +1100,6 @@ public final class EntityUtils
         return name;
     }
 
-    /**
-     * Retrieves from the bean type the field that matches the given name.
-     * 
-     * @param type
-     *            the bean type
-     * @param elementName
-     *            the element name to match
-     * 
-     * @return the match field or null if there is none
-     */
-    private static Field matchField(final Class<?> type, final String elementName)
-    {
-        final String key = type.getName() + elementName;
-
-        if (fieldsCache.containsKey(key))
-            return fieldsCache.get(key);
-
-        for (final Field field : AnnotationScanner.scanFields(type, Element.class))
-        {
-            if (elementName.equals(field.getAnnotation(Element.class).name())
-                    || elementName.equalsIgnoreCase(field.getName()))
-            {
-                fieldsCache.put(key, field);
-                return field;
-            }
-            else if (field.isAnnotationPresent(Aliases.class))
-            {
-                for (final Alias alias : field.getAnnotation(Aliases.class).value())
-                {
-                    for (final String aliasName : alias.names())
-                    {
-                        if (elementName.equalsIgnoreCase(aliasName))
-                        {
-                            fieldsCache.put(key, field);
-                            return field;
-                        }
-                    }
-                }
-            }
-            else if (field.isAnnotationPresent(Alias.class))
-            {
-                for (final String aliasName : field.getAnnotation(Alias.class).names())
-                {
-                    if (elementName.equalsIgnoreCase(aliasName))
-                    {
-                        fieldsCache.put(key, field);
-                        return field;
-                    }
-                }
-            }
-        }
-
-        return null;
-    }
-
     /**
      * Parses the collection of {@link Alias} annotations.
      * 
@@ -1246,6 +1140,8 @@ public final class EntityUtils
     {
         final List<ElementInfo> elements = new ArrayList<ElementInfo>();
 
+        int ordinal = 0;
+
         for (final Field field : AnnotationScanner.scanFields(type, Element.class))
         {
             final Element element = field.getAnnotation(Element.class);
@@ -1291,7 +1187,8 @@ public final class EntityUtils
                     .metadata(metadata)
                     .metadataType(metadata ? field.getAnnotation(Metadata.class).value() : null)
                     .index(index)
-                    .nullable(nullable);
+                    .nullable(nullable)
+                    .ordinal(ordinal++);
 
             elements.add(einfo);
         }
@@ -1447,7 +1344,7 @@ public final class EntityUtils
      * @throws IllegalArgumentException
      *             If the list of values are null or empty
      */
-    private static String createKey(final Object... values) throws IllegalStateException, IllegalArgumentException
+    static String createKey(final Object... values) throws IllegalStateException, IllegalArgumentException
     {
         for (final Object v : values)
         {
@@ -0,0 +1,132 @@
+/*
+ * This file is part of UDAO 
+ * https://github.com/perbone/udao/
+ * 
+ * Copyright 2013-2018 Paulo Perbone
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package io.perbone.udao.util;
+
+import java.util.List;
+
+import io.perbone.udao.annotation.Storable;
+
+/**
+ * Encodes the surrogate, primary and alternate keys of {@link Storable} beans into
+ * {@link EntityKey} objects.
+ * <p>
+ * Implementations must be thread-safe and deterministic across JVM instances as the encoded keys
+ * can be persisted by the storage providers.
+ * 
+ * @author Paulo Perbone <pauloperbone@yahoo.com>
+ * @since 0.17.0
+ */
+public interface KeyCodec
+{
+    /**
+     * Returns the name of this codec.
+     * 
+     * @return the codec name
+     */
+    String name();
+
+    /**
+     * Returns the surrogate key for the given bean.
+     * 
+     * @param bean
+     *            the bean object
+     * 
+     * @return the surrogate key or null if the bean does not have a surrogate key
+     * 
+     * @throws IllegalArgumentException
+     *             if the bean is null or an invalid {@link Storable} object
+     */
+    EntityKey surrogateKey(Object bean) throws IllegalArgumentException;
+
+    /**
+     * Returns the surrogate key for the given id value.
+     * 
+     * @param type
+     *            the bean type
+     * @param id
+     *            the surrogate key value
+     * 
+     * @return the surrogate key
+     * 
+     * @throws IllegalArgumentException
+     *             if the type is null or an invalid {@link Storable} object; if the id is null
+     */
+    EntityKey surrogateKey(Class<?> type, Object id) throws IllegalArgumentException;
+
+    /**
+     * Returns the primary key for the given bean.
+     * 
+     * @param bean
+     *            the bean object
+     * 
+     * @return the primary key or null if the bean does not have a primary key
+     * 
+     * @throws IllegalArgumentException
+     *             if the bean is null or an invalid {@link Storable} object
+     */
+    EntityKey primaryKey(Object bean) throws IllegalArgumentException;
+
+    /**
+     * Returns the primary key for the given key values.
+     * 
+     * @param type
+     *            the bean type
+     * @param keys
+     *            the primary key values
+     * 
+     * @return the primary key
+     * 
+     * @throws IllegalArgumentException
+     *             if the type is null or an invalid {@link Storable} object; if the primary key
+     *             values are invalid
+     */
+    EntityKey primaryKey(Class<?> type, Object... keys) throws IllegalArgumentException;
+
+    /**
+     * Returns the alternate keys for the given bean.
+     * 
+     * @param bean
+     *            the bean object
+     * 
+     * @return the alternate keys or an empty list if the bean does not have any alternate key
+     * 
+     * @throws IllegalArgumentException
+     *             if the bean is null or an invalid {@link Storable} object
+     */
+    List<EntityKey> alternateKeys(Object bean) throws IllegalArgumentException;
+
+    /**
+     * Returns the alternate key for the given key values.
+     * 
+     * @param type
+     *            the bean type
+     * @param name
+     *            the alternate key name
+     * @param keys
+     *            the alternate key values
+     * 
+     * @return the alternate key
+     * 
+     * @throws IllegalArgumentException
+     *             if the type is null or an invalid {@link Storable} object; if the alternate key
+     *             name is null or invalid; if the alternate key values are invalid
+     */
+    EntityKey alternateKey(Class<?> type, String name, Object... keys) throws IllegalArgumentException;
+}
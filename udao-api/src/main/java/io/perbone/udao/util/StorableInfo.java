@@ -49,6 +49,7 @@ public final class StorableInfo
     private Boolean authentication;
     private Boolean dirtyChecking;
     private Boolean cacheable;
+    private Boolean immutable;
     private Boolean sharedNothing;
     private PersistenceType persistenceType;
     private InstanceType defaultInstanceType;
@@ -58,6 +59,7 @@ public final class StorableInfo
     private Map<String, List<ElementInfo>> alternateKeys;
     private List<ElementInfo> elements;
     private List<ElementInfo> nonVirtualElements;
+    private BeanAccessor accessor;
 
     public StorableInfo()
     {
@@ -72,6 +74,7 @@ public final class StorableInfo
         authentication = null;
         dirtyChecking = null;
         cacheable = null;
+        immutable = null;
         sharedNothing = null;
         persistenceType = null;
         defaultInstanceType = null;
@@ -80,6 +83,18 @@ public final class StorableInfo
         primaryKey = new CopyOnWriteArrayList<ElementInfo>();
         alternateKeys = new ConcurrentHashMap<String, List<ElementInfo>>();
         elements = new CopyOnWriteArrayList<ElementInfo>();
+        accessor = null;
+    }
+
+    public BeanAccessor accessor()
+    {
+        return accessor;
+    }
+
+    public StorableInfo accessor(final BeanAccessor accessor)
+    {
+        this.accessor = accessor;
+        return this;
     }
 
     public Class<?> type()
@@ -153,6 +168,17 @@ public final class StorableInfo
         return this;
     }
 
+    public Boolean immutable()
+    {
+        return immutable;
+    }
+
+    public StorableInfo immutable(final Boolean immutable)
+    {
+        this.immutable = immutable;
+        return this;
+    }
+
     public ConsistencyLevel consistencyLevel()
     {
         return consistencyLevel;
@@ -0,0 +1,118 @@
+/*
+ * This file is part of UDAO 
+ * https://github.com/perbone/udao/
+ * 
+ * Copyright 2013-2018 Paulo Perbone
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package io.perbone.udao.benchmarks;
+
+import io.perbone.udao.annotation.AlternateKey;
+import io.perbone.udao.annotation.DataType;
+import io.perbone.udao.annotation.Element;
+import io.perbone.udao.annotation.PrimaryKey;
+import io.perbone.udao.annotation.Storable;
+import io.perbone.udao.annotation.SurrogateKey;
+
+/**
+ * The bean type used by all the benchmarks.
+ * <p>
+ * It is stored on the <tt>BENCH_ITEM</tt> table by the JDBC provider; see {@link #DDL}.
+ * 
+ * @author Paulo Perbone <pauloperbone@yahoo.com>
+ * @since 0.17.0
+ */
+@Storable(name = "BENCH_ITEM")
+@SurrogateKey("id")
+@PrimaryKey("code")
+@AlternateKey(name = "name", value = "name")
+public class BenchItem
+{
+    public static final String DDL = "CREATE TABLE BENCH_ITEM (ID BIGINT NOT NULL PRIMARY KEY, "
+            + "CODE VARCHAR(32) NOT NULL UNIQUE, NAME VARCHAR(64) NOT NULL, PRICE DOUBLE, QUANTITY INT, "
+            + "CREATED BIGINT)";
+
+    @Element(dataType = DataType.LONG)
+    private Long id;
+
+    @Element(dataType = DataType.STRING)
+    private String code;
+
+    @Element(dataType = DataType.STRING)
+    private String name;
+
+    @Element(dataType = DataType.DOUBLE)
+    private Double price;
+
+    @Element(dataType = DataType.INT)
+    private Integer quantity;
+
+    @Element(dataType = DataType.LONG)
+    private Long created;
+
+    public BenchItem()
+    {
+        // do nothing
+    }
+
+    public static BenchItem of(final long id)
+    {
+        final BenchItem item = new BenchItem();
+
+        item.id = id;
+        item.code = "C" + id;
+        item.name = "Item " + id;
+        item.price = id * 0.25;
+        item.quantity = (int) (id % 1000);
+        item.created = 1500000000000L + id;
+
+        return item;
+    }
+
+    public Long getId()
+    {
+        return id;
+    }
+
+    public String getCode()
+    {
+        return code;
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    public void setName(final String name)
+    {
+        this.name = name;
+    }
+
+    public Double getPrice()
+    {
+        return price;
+    }
+
+    public Integer getQuantity()
+    {
+        return quantity;
+    }
+
+    public Long getCreated()
+    {
+        return created;
+    }
+}
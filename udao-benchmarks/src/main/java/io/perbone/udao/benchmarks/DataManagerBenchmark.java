@@ -0,0 +1,153 @@
+/*
+ * This file is part of UDAO 
+ * https://github.com/perbone/udao/
+ * 
+ * Copyright 2013-2018 Paulo Perbone
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package io.perbone.udao.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.perbone.udao.DataManager;
+import io.perbone.udao.internal.DataManagerFactoryImpl;
+
+/**
+ * Benchmarks full round trips through the public API: settings, factory, data manager, L1 cache and
+ * the Berkeley DB JE provider.
+ * <p>
+ * The settings are written to a temporary file so the factory goes through its regular loading
+ * path. With <tt>cacheable</tt> off every fetch reaches the provider.
+ * 
+ * @author Paulo Perbone <pauloperbone@yahoo.com>
+ * @since 0.17.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DataManagerBenchmark
+{
+    static final String SETTINGS = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" //
+            + "<udao>\n" //
+            + "  <caches>\n" //
+            + "    <cache id=\"bench\" level=\"1\" default=\"true\">\n" //
+            + "      <hard-limit-size>100000</hard-limit-size>\n" //
+            + "      <time-to-live unit=\"HOURS\">1</time-to-live>\n" //
+            + "      <eviction-policy>LRU</eviction-policy>\n" //
+            + "    </cache>\n" //
+            + "  </caches>\n" //
+            + "  <schemas>\n" //
+            + "    <schema id=\"bench\">\n" //
+            + "      <entity id=\"item\" type=\"%s\" cacheable=\"%s\"/>\n" //
+            + "    </schema>\n" //
+            + "  </schemas>\n" //
+            + "  <storage-units>\n" //
+            + "    <storage-unit id=\"bench\" default=\"true\">\n" //
+            + "      <providers>\n" //
+            + "        <provider id=\"je\" type=\"%s\">\n" //
+            + "          <properties>\n" //
+            + "            <property name=\"database-home\" value=\"%s\"/>\n" //
+            + "          </properties>\n" //
+            + "        </provider>\n" //
+            + "      </providers>\n" //
+            + "    </storage-unit>\n" //
+            + "  </storage-units>\n" //
+            + "</udao>\n";
+
+    @Param({ "true", "false" })
+    public boolean cacheable;
+
+    private Path home;
+    private Path settings;
+    private DataManagerFactoryImpl factory;
+    private DataManager dm;
+    private final AtomicLong nextId = new AtomicLong(Fixtures.DATASET_SIZE);
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception
+    {
+        home = Files.createTempDirectory("udao-bench-dm");
+        settings = Files.createTempFile("udao-bench", ".xml");
+
+        Files.write(settings,
+                String.format(SETTINGS, BenchItem.class.getName(), cacheable,
+                        "io.perbone.udao.provider.je.JeDataProviderImpl", home.toString())
+                        .getBytes(StandardCharsets.UTF_8));
+
+        factory = new DataManagerFactoryImpl();
+        factory.loadSettings(settings.toString()).activate();
+
+        dm = factory.create();
+
+        for (int i = 0; i < Fixtures.DATASET_SIZE; i++)
+            dm.save(BenchItem.of(i));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception
+    {
+        dm.close();
+        factory.shutdown(1L, TimeUnit.SECONDS);
+
+        Fixtures.delete(home);
+        Files.deleteIfExists(settings);
+    }
+
+    @Benchmark
+    public BenchItem saveAndFetch()
+    {
+        final BenchItem bean = dm.save(BenchItem.of(nextId.getAndIncrement()));
+
+        return dm.fetchI(BenchItem.class, bean.getId());
+    }
+
+    @Benchmark
+    public BenchItem fetch()
+    {
+        return dm.fetchI(BenchItem.class, (long) ThreadLocalRandom.current().nextInt(Fixtures.DATASET_SIZE));
+    }
+
+    @Benchmark
+    public BenchItem saveExisting()
+    {
+        final BenchItem bean = BenchItem.of(ThreadLocalRandom.current().nextInt(Fixtures.DATASET_SIZE));
+
+        bean.setName("Updated " + bean.getId());
+
+        return dm.save(bean);
+    }
+}
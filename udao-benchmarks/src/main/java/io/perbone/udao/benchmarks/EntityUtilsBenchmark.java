@@ -0,0 +1,124 @@
+/*
+ * This file is part of UDAO 
+ * https://github.com/perbone/udao/
+ * 
+ * Copyright 2013-2018 Paulo Perbone
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package io.perbone.udao.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.perbone.udao.util.BinaryKeyCodec;
+import io.perbone.udao.util.DigestKeyCodec;
+import io.perbone.udao.util.EntityKey;
+import io.perbone.udao.util.EntityUtils;
+import io.perbone.udao.util.KeyCodec;
+
+/**
+ * Benchmarks the per bean work done by {@link EntityUtils} on every operation: key creation,
+ * cloning and element access.
+ * <p>
+ * Key creation runs once per key codec: the default {@link BinaryKeyCodec} and the
+ * {@link DigestKeyCodec}, which hashes the key values the way the cache keys used to be built. The
+ * hash and equals benchmarks add the cost of a hash map lookup.
+ * 
+ * @author Paulo Perbone <pauloperbone@yahoo.com>
+ * @since 0.17.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EntityUtilsBenchmark
+{
+    @Param({ BinaryKeyCodec.NAME, DigestKeyCodec.NAME })
+    public String keyCodec;
+
+    private KeyCodec codec;
+    private BenchItem bean;
+
+    @Setup
+    public void setup()
+    {
+        codec = EntityUtils.keyCodec(keyCodec);
+        bean = BenchItem.of(42L);
+
+        EntityUtils.info(BenchItem.class); // the metadata is scanned once, outside the measurement
+    }
+
+    @Benchmark
+    public EntityKey surrogateKey()
+    {
+        return codec.surrogateKey(bean);
+    }
+
+    @Benchmark
+    public EntityKey primaryKey()
+    {
+        return codec.primaryKey(bean);
+    }
+
+    @Benchmark
+    public EntityKey primaryKeyFromValues()
+    {
+        return codec.primaryKey(BenchItem.class, "C42");
+    }
+
+    @Benchmark
+    public int surrogateKeyHash()
+    {
+        return codec.surrogateKey(bean).hashCode();
+    }
+
+    @Benchmark
+    public boolean surrogateKeyEquals()
+    {
+        return codec.surrogateKey(bean).equals(codec.surrogateKey(BenchItem.class, 42L));
+    }
+
+    @Benchmark
+    public BenchItem cloneBean()
+    {
+        return EntityUtils.clone(bean);
+    }
+
+    @Benchmark
+    public Object valueGet()
+    {
+        return EntityUtils.value(bean, "name");
+    }
+
+    @Benchmark
+    public BenchItem valueSet()
+    {
+        EntityUtils.value(bean, "quantity", 7);
+        return bean;
+    }
+}
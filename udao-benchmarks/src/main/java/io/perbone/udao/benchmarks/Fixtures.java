@@ -0,0 +1,96 @@
+/*
+ * This file is part of UDAO 
+ * https://github.com/perbone/udao/
+ * 
+ * Copyright 2013-2018 Paulo Perbone
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package io.perbone.udao.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Map;
+
+import io.perbone.toolbox.settings.Settings;
+import io.perbone.udao.spi.DataProvider;
+
+/**
+ * Shared fixtures of the benchmarks.
+ * 
+ * @author Paulo Perbone <pauloperbone@yahoo.com>
+ * @since 0.17.0
+ */
+final class Fixtures
+{
+    /** Number of beans loaded before every read benchmark */
+    static final int DATASET_SIZE = 10_000;
+
+    private Fixtures()
+    {
+        // Not instantiable
+    }
+
+    /**
+     * Injects the given properties and activates the provider, the same way the data manager
+     * factory does.
+     */
+    static <T extends DataProvider> T activate(final T provider, final String... properties)
+    {
+        final Map<String, String> props = new HashMap<>();
+
+        for (int i = 0; i < properties.length; i += 2)
+            props.put(properties[i], properties[i + 1]);
+
+        final Settings settings = new Settings();
+
+        settings.load(props);
+        settings.inject(provider);
+
+        provider.activate();
+
+        return provider;
+    }
+
+    /**
+     * Deletes the given directory and everything under it.
+     */
+    static void delete(final Path dir) throws IOException
+    {
+        if (dir == null || !Files.exists(dir))
+            return;
+
+        Files.walkFileTree(dir, new SimpleFileVisitor<Path>()
+        {
+            @Override
+            public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) throws IOException
+            {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(final Path d, final IOException e) throws IOException
+            {
+                Files.delete(d);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
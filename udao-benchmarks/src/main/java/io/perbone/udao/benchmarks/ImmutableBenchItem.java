@@ -0,0 +1,108 @@
+/*
+ * This file is part of UDAO 
+ * https://github.com/perbone/udao/
+ * 
+ * Copyright 2013-2018 Paulo Perbone
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package io.perbone.udao.benchmarks;
+
+import io.perbone.udao.annotation.AlternateKey;
+import io.perbone.udao.annotation.DataType;
+import io.perbone.udao.annotation.Element;
+import io.perbone.udao.annotation.PrimaryKey;
+import io.perbone.udao.annotation.Storable;
+import io.perbone.udao.annotation.SurrogateKey;
+
+/**
+ * The immutable counterpart of {@link BenchItem}, with the same elements; the cache hands out the
+ * cached instance itself instead of a copy.
+ * 
+ * @author Paulo Perbone <pauloperbone@yahoo.com>
+ * @since 0.17.0
+ */
+@Storable(name = "BENCH_ITEM", mutable = false)
+@SurrogateKey("id")
+@PrimaryKey("code")
+@AlternateKey(name = "name", value = "name")
+public class ImmutableBenchItem
+{
+    @Element(dataType = DataType.LONG)
+    private Long id;
+
+    @Element(dataType = DataType.STRING)
+    private String code;
+
+    @Element(dataType = DataType.STRING)
+    private String name;
+
+    @Element(dataType = DataType.DOUBLE)
+    private Double price;
+
+    @Element(dataType = DataType.INT)
+    private Integer quantity;
+
+    @Element(dataType = DataType.LONG)
+    private Long created;
+
+    public ImmutableBenchItem()
+    {
+        // do nothing
+    }
+
+    public static ImmutableBenchItem of(final long id)
+    {
+        final ImmutableBenchItem item = new ImmutableBenchItem();
+
+        item.id = id;
+        item.code = "C" + id;
+        item.name = "Item " + id;
+        item.price = id * 0.25;
+        item.quantity = (int) (id % 1000);
+        item.created = 1500000000000L + id;
+
+        return item;
+    }
+
+    public Long getId()
+    {
+        return id;
+    }
+
+    public String getCode()
+    {
+        return code;
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    public Double getPrice()
+    {
+        return price;
+    }
+
+    public Integer getQuantity()
+    {
+        return quantity;
+    }
+
+    public Long getCreated()
+    {
+        return created;
+    }
+}
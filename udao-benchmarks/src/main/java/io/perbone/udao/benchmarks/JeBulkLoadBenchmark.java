@@ -0,0 +1,116 @@
+/*
+ * This file is part of UDAO 
+ * https://github.com/perbone/udao/
+ * 
+ * Copyright 2013-2018 Paulo Perbone
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package io.perbone.udao.benchmarks;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.perbone.udao.provider.je.JeDataProviderImpl;
+import io.perbone.udao.spi.DataSource;
+
+/**
+ * Measures a bootstrap load of {@link #LOAD_SIZE} beans into an empty JE environment.
+ * <p>
+ * With <tt>bulk</tt> the beans go through the list create, which serializes them in parallel and
+ * writes them in key order; with <tt>single</tt> they are created one by one, the way a list create
+ * used to fall back to. The beans are shuffled so neither side gets them in key order for free.
+ * Every iteration starts from a fresh environment.
+ * 
+ * @author Paulo Perbone <pauloperbone@yahoo.com>
+ * @since 0.17.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class JeBulkLoadBenchmark
+{
+    static final int LOAD_SIZE = 100_000;
+
+    @Param({ "bulk", "single" })
+    public String mode;
+
+    private List<BenchItem> beans;
+    private Path home;
+    private JeDataProviderImpl provider;
+    private DataSource ds;
+
+    @Setup(Level.Trial)
+    public void prepare()
+    {
+        beans = new ArrayList<>(LOAD_SIZE);
+
+        for (int i = 0; i < LOAD_SIZE; i++)
+            beans.add(BenchItem.of(i));
+
+        Collections.shuffle(beans);
+    }
+
+    @Setup(Level.Iteration)
+    public void setup() throws Exception
+    {
+        home = Files.createTempDirectory("udao-bench-je-load");
+
+        provider = Fixtures.activate(new JeDataProviderImpl(), "database-home", home.toString());
+        ds = provider.openDataSource(BenchItem.class);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws Exception
+    {
+        provider.shutdown(1L, TimeUnit.SECONDS);
+
+        Fixtures.delete(home);
+    }
+
+    @Benchmark
+    public Object load()
+    {
+        if ("bulk".equals(mode))
+            return ds.create(null, NoCache.INSTANCE, beans);
+
+        BenchItem last = null;
+
+        for (final BenchItem bean : beans)
+            last = ds.create(null, NoCache.INSTANCE, bean);
+
+        return last;
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * This file is part of UDAO 
+ * https://github.com/perbone/udao/
+ * 
+ * Copyright 2013-2018 Paulo Perbone
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package io.perbone.udao.benchmarks;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import io.perbone.udao.Cursor;
+import io.perbone.udao.provider.je.JeDataProviderImpl;
+import io.perbone.udao.spi.DataSource;
+
+/**
+ * Benchmarks the Berkeley DB JE data source against a temporary environment.
+ * <p>
+ * The environment lives in a fresh temporary directory that is deleted after the trial.
+ * 
+ * @author Paulo Perbone <pauloperbone@yahoo.com>
+ * @since 0.17.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JeDataSourceBenchmark
+{
+    private Path home;
+    private JeDataProviderImpl provider;
+    private DataSource ds;
+    private final AtomicLong nextId = new AtomicLong(Fixtures.DATASET_SIZE);
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception
+    {
+        home = Files.createTempDirectory("udao-bench-je");
+
+        provider = Fixtures.activate(new JeDataProviderImpl(), "database-home", home.toString());
+        ds = provider.openDataSource(BenchItem.class);
+
+        final List<BenchItem> beans = new ArrayList<>(Fixtures.DATASET_SIZE);
+
+        for (int i = 0; i < Fixtures.DATASET_SIZE; i++)
+            beans.add(BenchItem.of(i));
+
+        ds.create(null, NoCache.INSTANCE, beans);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception
+    {
+        provider.shutdown(1L, TimeUnit.SECONDS);
+
+        Fixtures.delete(home);
+    }
+
+    @Benchmark
+    public BenchItem put()
+    {
+        return ds.create(null, NoCache.INSTANCE, BenchItem.of(nextId.getAndIncrement()));
+    }
+
+    @Benchmark
+    public BenchItem get()
+    {
+        return ds.fetchI(null, NoCache.INSTANCE, BenchItem.class,
+                (long) ThreadLocalRandom.current().nextInt(Fixtures.DATASET_SIZE));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Measurement(iterations = 20)
+    public void scan(final Blackhole bh) throws Exception
+    {
+        try (final Cursor<BenchItem> cursor = ds.cursorI(null, NoCache.INSTANCE, BenchItem.class))
+        {
+            for (final BenchItem bean : cursor)
+                bh.consume(bean);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * This file is part of UDAO 
+ * https://github.com/perbone/udao/
+ * 
+ * Copyright 2013-2018 Paulo Perbone
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package io.perbone.udao.benchmarks;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.sleepycat.je.Database;
+import com.sleepycat.je.DatabaseConfig;
+import com.sleepycat.je.DatabaseEntry;
+import com.sleepycat.je.Environment;
+import com.sleepycat.je.EnvironmentConfig;
+import com.sleepycat.je.LockMode;
+import com.sleepycat.je.OperationStatus;
+
+/**
+ * Compares a JE lookup on a database handle kept open against one that opens and closes the
+ * handle around every lookup, the way the JE provider fetched before it kept its handles.
+ * <p>
+ * It runs on JE directly so both sides read the same records; {@link JeDataSourceBenchmark}
+ * measures the provider <tt>fetchI</tt> on top of the kept handles.
+ * 
+ * @author Paulo Perbone <pauloperbone@yahoo.com>
+ * @since 0.17.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JeHandleBenchmark
+{
+    private static final String DATABASE = "bench";
+
+    @Param({ "kept", "reopened" })
+    public String handle;
+
+    private Path home;
+    private Environment env;
+    private DatabaseConfig config;
+    private Database db;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception
+    {
+        home = Files.createTempDirectory("udao-bench-je-handle");
+
+        env = new Environment(home.toFile(), new EnvironmentConfig().setAllowCreate(true));
+        config = new DatabaseConfig().setAllowCreate(true);
+        db = env.openDatabase(null, DATABASE, config);
+
+        final DatabaseEntry data = new DatabaseEntry(new byte[64]);
+
+        for (int i = 0; i < Fixtures.DATASET_SIZE; i++)
+            db.put(null, key(i), data);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception
+    {
+        db.close();
+        env.close();
+
+        Fixtures.delete(home);
+    }
+
+    @Benchmark
+    public OperationStatus get()
+    {
+        final DatabaseEntry key = key(ThreadLocalRandom.current().nextInt(Fixtures.DATASET_SIZE));
+        final DatabaseEntry data = new DatabaseEntry();
+
+        if ("kept".equals(handle))
+            return db.get(null, key, data, LockMode.DEFAULT);
+
+        final Database reopened = env.openDatabase(null, DATABASE, config);
+
+        try
+        {
+            return reopened.get(null, key, data, LockMode.DEFAULT);
+        }
+        finally
+        {
+            reopened.close();
+        }
+    }
+
+    private static DatabaseEntry key(final long id)
+    {
+        return new DatabaseEntry(ByteBuffer.allocate(Long.BYTES).putLong(id).array());
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * This file is part of UDAO 
+ * https://github.com/perbone/udao/
+ * 
+ * Copyright 2013-2018 Paulo Perbone
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package io.perbone.udao.benchmarks;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import io.perbone.udao.spi.Cache;
+
+/**
+ * A {@link Cache} that holds nothing, so the data source benchmarks always reach the back-end.
+ * 
+ * @author Paulo Perbone <pauloperbone@yahoo.com>
+ * @since 0.17.0
+ */
+final class NoCache implements Cache
+{
+    static final Cache INSTANCE = new NoCache();
+
+    private NoCache()
+    {
+        // Singleton
+    }
+
+    @Override
+    public void add(final Object bean)
+    {
+        // no operation method
+    }
+
+    @Override
+    public void add(final Object bean, final long ttl, final TimeUnit unit)
+    {
+        // no operation method
+    }
+
+    @Override
+    public void set(final Object bean)
+    {
+        // no operation method
+    }
+
+    @Override
+    public void set(final Object bean, final long ttl, final TimeUnit unit)
+    {
+        // no operation method
+    }
+
+    @Override
+    public <T> T getI(final Object id)
+    {
+        return null;
+    }
+
+    @Override
+    public <T> T getP(final Object... keys)
+    {
+        return null;
+    }
+
+    @Override
+    public <T> T getA(final String name, final Object... keys)
+    {
+        return null;
+    }
+
+    @Override
+    public <T> List<T> getAll()
+    {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public boolean contains(final Object bean)
+    {
+        return false;
+    }
+
+    @Override
+    public boolean containsI(final Object id)
+    {
+        return false;
+    }
+
+    @Override
+    public boolean containsP(final Object... keys)
+    {
+        return false;
+    }
+
+    @Override
+    public boolean containsA(final String name, final Object... keys)
+    {
+        return false;
+    }
+
+    @Override
+    public void delete(final Object bean)
+    {
+        // no operation method
+    }
+
+    @Override
+    public void deleteI(final Object id)
+    {
+        // no operation method
+    }
+
+    @Override
+    public void deleteP(final Object... keys)
+    {
+        // no operation method
+    }
+
+    @Override
+    public void deleteA(final String name, final Object... keys)
+    {
+        // no operation method
+    }
+
+    @Override
+    public <T> T removeI(final Object id)
+    {
+        return null;
+    }
+
+    @Override
+    public <T> T removeP(final Object... keys)
+    {
+        return null;
+    }
+
+    @Override
+    public <T> T removeA(final String name, final Object... keys)
+    {
+        return null;
+    }
+
+    @Override
+    public long count()
+    {
+        return 0L;
+    }
+
+    @Override
+    public void invalidate()
+    {
+        // no operation method
+    }
+
+    @Override
+    public void invalidate(final Object criteria)
+    {
+        // no operation method
+    }
+
+    @Override
+    public void prune(final Object criteria)
+    {
+        // no operation method
+    }
+
+    @Override
+    public void evict()
+    {
+        // no operation method
+    }
+}
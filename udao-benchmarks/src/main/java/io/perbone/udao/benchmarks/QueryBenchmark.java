@@ -0,0 +1,150 @@
+/*
+ * This file is part of UDAO 
+ * https://github.com/perbone/udao/
+ * 
+ * Copyright 2013-2018 Paulo Perbone
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package io.perbone.udao.benchmarks;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import io.perbone.udao.Cursor;
+import io.perbone.udao.provider.jdbc.JdbcDataProviderImpl;
+import io.perbone.udao.query.Query;
+import io.perbone.udao.spi.DataSource;
+
+/**
+ * Measures the hard parse cost saved by binding the query values, against an in-memory embedded
+ * Derby database.
+ * <p>
+ * Every call looks a bean up by a random code. With <tt>bound</tt> the query goes through the JDBC
+ * data source, which sends the same parameterized statement every time so Derby compiles it once.
+ * With <tt>literal</tt> the value is inlined in the SQL text, the way queries used to be built, so
+ * every distinct value is a new statement that Derby parses and compiles again. Only the bound path
+ * maps the rows to beans, so the gap understates the parse savings. PostgreSQL is not covered as it
+ * needs a running server.
+ * 
+ * @author Paulo Perbone <pauloperbone@yahoo.com>
+ * @since 0.17.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryBenchmark
+{
+    private static final String DRIVER = "org.apache.derby.jdbc.EmbeddedDriver";
+
+    @Param({ "bound", "literal" })
+    public String values;
+
+    private String uri;
+    private JdbcDataProviderImpl provider;
+    private DataSource ds;
+    private Connection conn;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception
+    {
+        uri = "jdbc:derby:memory:udao-bench-query-" + System.nanoTime();
+
+        Class.forName(DRIVER);
+
+        conn = DriverManager.getConnection(uri + ";create=true");
+
+        try (final Statement stmt = conn.createStatement())
+        {
+            stmt.execute(BenchItem.DDL);
+        }
+
+        provider = Fixtures.activate(new JdbcDataProviderImpl(), "driver", DRIVER, "uri", uri, "validation-query",
+                "VALUES 1", "max", "64");
+        ds = provider.openDataSource(BenchItem.class);
+
+        final List<BenchItem> beans = new ArrayList<>(Fixtures.DATASET_SIZE);
+
+        for (int i = 0; i < Fixtures.DATASET_SIZE; i++)
+            beans.add(BenchItem.of(i));
+
+        ds.create(null, NoCache.INSTANCE, beans);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception
+    {
+        conn.close();
+        provider.shutdown(1L, TimeUnit.SECONDS);
+
+        try
+        {
+            DriverManager.getConnection(uri + ";drop=true");
+        }
+        catch (final SQLException e)
+        {
+            // Derby always reports the drop as an exception
+        }
+    }
+
+    @Benchmark
+    public void query(final Blackhole bh) throws Exception
+    {
+        final String code = "C" + ThreadLocalRandom.current().nextInt(Fixtures.DATASET_SIZE);
+
+        if ("bound".equals(values))
+        {
+            try (final Cursor<BenchItem> cursor = ds.cursorQ(null, NoCache.INSTANCE, BenchItem.class,
+                    new Query().element("code").equal(code)))
+            {
+                for (final BenchItem bean : cursor)
+                    bh.consume(bean);
+            }
+        }
+        else
+        {
+            try (final Statement stmt = conn.createStatement();
+                    final ResultSet rs = stmt.executeQuery("SELECT * FROM BENCH_ITEM WHERE CODE = '" + code + "'"))
+            {
+                while (rs.next())
+                    bh.consume(rs.getString("NAME"));
+            }
+        }
+    }
+}
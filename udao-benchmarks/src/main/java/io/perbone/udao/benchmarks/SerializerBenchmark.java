@@ -0,0 +1,107 @@
+/*
+ * This file is part of UDAO 
+ * https://github.com/perbone/udao/
+ * 
+ * Copyright 2013-2018 Paulo Perbone
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package io.perbone.udao.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.perbone.toolbox.serialization.JSONSerializer;
+import io.perbone.toolbox.serialization.Serializer;
+import io.perbone.udao.util.BinarySerializer;
+
+/**
+ * Compares the JE record serializers: the compact {@link BinarySerializer}, with and without
+ * compression, against the legacy {@link JSONSerializer}.
+ * <p>
+ * Throughput is measured for both directions. The record size of each format is reported as the
+ * <tt>recordBytes</tt> secondary result of the deflate benchmark.
+ * 
+ * @author Paulo Perbone <pauloperbone@yahoo.com>
+ * @since 0.17.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializerBenchmark
+{
+    @Param({ "binary", "binary-compressed", "json" })
+    public String format;
+
+    private Serializer serializer;
+    private BenchItem bean;
+    private byte[] record;
+
+    @Setup
+    public void setup()
+    {
+        if ("json".equals(format))
+            serializer = new JSONSerializer();
+        else
+            serializer = new BinarySerializer("binary-compressed".equals(format), 0);
+
+        bean = BenchItem.of(42L);
+        record = serializer.deflate(bean);
+    }
+
+    @Benchmark
+    public byte[] deflate(final RecordSize size)
+    {
+        return serializer.deflate(bean);
+    }
+
+    @Benchmark
+    public BenchItem inflate()
+    {
+        return serializer.inflate(BenchItem.class, record);
+    }
+
+    /**
+     * Secondary result holding the size, in bytes, of the record written by the serializer under
+     * test.
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class RecordSize
+    {
+        public long recordBytes;
+
+        @Setup(Level.Iteration)
+        public void measure(final SerializerBenchmark benchmark)
+        {
+            recordBytes = benchmark.record.length;
+        }
+    }
+}
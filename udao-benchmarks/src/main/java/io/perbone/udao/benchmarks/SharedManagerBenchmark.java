@@ -0,0 +1,148 @@
+/*
+ * This file is part of UDAO 
+ * https://github.com/perbone/udao/
+ * 
+ * Copyright 2013-2018 Paulo Perbone
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package io.perbone.udao.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.perbone.udao.DataManager;
+import io.perbone.udao.internal.DataManagerFactoryImpl;
+
+/**
+ * Compares the multi-threaded throughput of one data manager shared by all the threads against a
+ * data manager created and destroyed for every request.
+ * <p>
+ * Uses the same settings and JE provider as {@link DataManagerBenchmark}.
+ * 
+ * @author Paulo Perbone <pauloperbone@yahoo.com>
+ * @since 0.17.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(8)
+@Fork(1)
+public class SharedManagerBenchmark
+{
+    @Param({ "true", "false" })
+    public boolean cacheable;
+
+    private Path home;
+    private Path settings;
+    private DataManagerFactoryImpl factory;
+    private DataManager shared;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception
+    {
+        home = Files.createTempDirectory("udao-bench-shared");
+        settings = Files.createTempFile("udao-bench", ".xml");
+
+        Files.write(settings,
+                String.format(DataManagerBenchmark.SETTINGS, BenchItem.class.getName(), cacheable,
+                        "io.perbone.udao.provider.je.JeDataProviderImpl", home.toString())
+                        .getBytes(StandardCharsets.UTF_8));
+
+        factory = new DataManagerFactoryImpl();
+        factory.loadSettings(settings.toString()).activate();
+
+        shared = factory.create();
+
+        for (int i = 0; i < Fixtures.DATASET_SIZE; i++)
+            shared.save(BenchItem.of(i));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception
+    {
+        shared.close();
+        factory.shutdown(1L, TimeUnit.SECONDS);
+
+        Fixtures.delete(home);
+        Files.deleteIfExists(settings);
+    }
+
+    @Benchmark
+    public BenchItem fetchShared()
+    {
+        return shared.fetchI(BenchItem.class, randomId());
+    }
+
+    @Benchmark
+    public BenchItem fetchPerRequest()
+    {
+        final DataManager dm = factory.create();
+
+        try
+        {
+            return dm.fetchI(BenchItem.class, randomId());
+        }
+        finally
+        {
+            factory.destroy(dm);
+        }
+    }
+
+    @Benchmark
+    public BenchItem saveShared()
+    {
+        return shared.save(BenchItem.of(randomId()));
+    }
+
+    @Benchmark
+    public BenchItem savePerRequest()
+    {
+        final DataManager dm = factory.create();
+
+        try
+        {
+            return dm.save(BenchItem.of(randomId()));
+        }
+        finally
+        {
+            factory.destroy(dm);
+        }
+    }
+
+    private static long randomId()
+    {
+        return ThreadLocalRandom.current().nextInt(Fixtures.DATASET_SIZE);
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * This file is part of UDAO 
+ * https://github.com/perbone/udao/
+ * 
+ * Copyright 2013-2018 Paulo Perbone
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package io.perbone.udao.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.perbone.udao.DataManager;
+import io.perbone.udao.internal.DataManagerFactoryImpl;
+
+/**
+ * Soak test of a shared data manager: millions of operations, checking that the heap stays flat.
+ * <p>
+ * Every iteration runs {@link #OPERATIONS} fetches and saves through the same settings and JE
+ * provider as {@link DataManagerBenchmark}. The heap in use after a full collection is reported as
+ * the <tt>heapInUseKb</tt> secondary result of every iteration; a heap that keeps growing from one
+ * iteration to the next is a leak, e.g. data sources or transactions tracked per call and never
+ * released.
+ * 
+ * @author Paulo Perbone <pauloperbone@yahoo.com>
+ * @since 0.17.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1, batchSize = SoakBenchmark.OPERATIONS)
+@Measurement(iterations = 10, batchSize = SoakBenchmark.OPERATIONS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx512m")
+public class SoakBenchmark
+{
+    static final int OPERATIONS = 1_000_000;
+
+    private Path home;
+    private Path settings;
+    private DataManagerFactoryImpl factory;
+    private DataManager dm;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception
+    {
+        home = Files.createTempDirectory("udao-bench-soak");
+        settings = Files.createTempFile("udao-bench", ".xml");
+
+        Files.write(settings,
+                String.format(DataManagerBenchmark.SETTINGS, BenchItem.class.getName(), false,
+                        "io.perbone.udao.provider.je.JeDataProviderImpl", home.toString())
+                        .getBytes(StandardCharsets.UTF_8));
+
+        factory = new DataManagerFactoryImpl();
+        factory.loadSettings(settings.toString()).activate();
+
+        dm = factory.create();
+
+        for (int i = 0; i < Fixtures.DATASET_SIZE; i++)
+            dm.save(BenchItem.of(i));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception
+    {
+        dm.close();
+        factory.shutdown(1L, TimeUnit.SECONDS);
+
+        Fixtures.delete(home);
+        Files.deleteIfExists(settings);
+    }
+
+    @Benchmark
+    public BenchItem operation(final Heap heap)
+    {
+        final long id = ThreadLocalRandom.current().nextInt(Fixtures.DATASET_SIZE);
+
+        return (id & 1L) == 0L ? dm.fetchI(BenchItem.class, id) : dm.save(BenchItem.of(id));
+    }
+
+    /**
+     * Secondary result holding the heap in use, in kilobytes, after a full collection. It is taken
+     * before each iteration runs, so it shows what the previous iterations left behind.
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Heap
+    {
+        public long heapInUseKb;
+
+        @Setup(Level.Iteration)
+        public void measure()
+        {
+            final Runtime runtime = Runtime.getRuntime();
+
+            System.gc();
+
+            heapInUseKb = (runtime.totalMemory() - runtime.freeMemory()) / 1024;
+        }
+    }
+}
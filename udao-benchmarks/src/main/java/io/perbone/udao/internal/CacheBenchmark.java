@@ -0,0 +1,150 @@
+/*
+ * This file is part of UDAO 
+ * https://github.com/perbone/udao/
+ * 
+ * Copyright 2013-2018 Paulo Perbone
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package io.perbone.udao.internal;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.perbone.mkey.CacheBuilder;
+import io.perbone.mkey.EvictionPolicy;
+import io.perbone.mkey.GarbagePolicy;
+import io.perbone.udao.benchmarks.BenchItem;
+
+/**
+ * Benchmarks the L1 cache under contention, from 1 to 64 threads.
+ * <p>
+ * It lives in the package of {@link CacheImpl} as the cache implementations are not public. The
+ * cache is shared by all the threads and preloaded with {@link #SIZE} beans so every get hits.
+ * 
+ * @author Paulo Perbone <pauloperbone@yahoo.com>
+ * @since 0.17.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CacheBenchmark
+{
+    static final int SIZE = 10_000;
+
+    private CacheImpl cache;
+    private BenchItem[] beans;
+
+    @Setup
+    public void setup()
+    {
+        cache = new CacheImpl(BenchItem.class,
+                CacheBuilder
+                        .newInstance()
+                        .hardLimitSize((long) SIZE * 2)
+                        .garbagePolicy(GarbagePolicy.TIME_TO_LIVE)
+                        .timeToLive(1L, TimeUnit.HOURS)
+                        .evictionPolicy(EvictionPolicy.LRU)
+                        .build());
+
+        beans = new BenchItem[SIZE];
+
+        for (int i = 0; i < SIZE; i++)
+        {
+            beans[i] = BenchItem.of(i);
+            cache.add(beans[i]);
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Object get01()
+    {
+        return get();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object get04()
+    {
+        return get();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public Object get16()
+    {
+        return get();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public Object get64()
+    {
+        return get();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void add01()
+    {
+        add();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void add04()
+    {
+        add();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public void add16()
+    {
+        add();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public void add64()
+    {
+        add();
+    }
+
+    private Object get()
+    {
+        return cache.getI((long) ThreadLocalRandom.current().nextInt(SIZE));
+    }
+
+    private void add()
+    {
+        cache.add(beans[ThreadLocalRandom.current().nextInt(SIZE)]);
+    }
+}
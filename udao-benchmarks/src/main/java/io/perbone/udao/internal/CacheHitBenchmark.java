@@ -0,0 +1,88 @@
+/*
+ * This file is part of UDAO 
+ * https://github.com/perbone/udao/
+ * 
+ * Copyright 2013-2018 Paulo Perbone
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package io.perbone.udao.internal;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.perbone.mkey.CacheBuilder;
+import io.perbone.mkey.EvictionPolicy;
+import io.perbone.mkey.GarbagePolicy;
+import io.perbone.udao.benchmarks.BenchItem;
+import io.perbone.udao.benchmarks.ImmutableBenchItem;
+
+/**
+ * Compares the cost of a L1 cache hit for a mutable type, which is handed out as a copy, against an
+ * immutable type with the same elements, which is handed out as is.
+ * <p>
+ * See {@link CacheBenchmark} for the contention figures.
+ * 
+ * @author Paulo Perbone <pauloperbone@yahoo.com>
+ * @since 0.17.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CacheHitBenchmark
+{
+    @Param({ "mutable", "immutable" })
+    public String type;
+
+    private CacheImpl cache;
+
+    @Setup
+    public void setup()
+    {
+        final boolean mutable = "mutable".equals(type);
+
+        cache = new CacheImpl(mutable ? BenchItem.class : ImmutableBenchItem.class,
+                CacheBuilder
+                        .newInstance()
+                        .hardLimitSize((long) CacheBenchmark.SIZE * 2)
+                        .garbagePolicy(GarbagePolicy.TIME_TO_LIVE)
+                        .timeToLive(1L, TimeUnit.HOURS)
+                        .evictionPolicy(EvictionPolicy.LRU)
+                        .build());
+
+        for (int i = 0; i < CacheBenchmark.SIZE; i++)
+            cache.add(mutable ? BenchItem.of(i) : ImmutableBenchItem.of(i));
+    }
+
+    @Benchmark
+    public Object get()
+    {
+        return cache.getI((long) ThreadLocalRandom.current().nextInt(CacheBenchmark.SIZE));
+    }
+}
@@ -40,6 +40,14 @@ public class CacheEntry
     private Long ttl;
     private TimeUnit unit;
     private EvictionPolicy evictionPolicy;
+    private Long capacity;
+    private String file;
+    private Boolean writeBehind;
+    private Integer flushSize;
+    private Long flushInterval;
+    private TimeUnit flushUnit;
+    private Long loadTimeout;
+    private TimeUnit loadTimeoutUnit;
     private Map<String, CacheNodeEntry> nodes;
 
     public CacheEntry()
@@ -52,6 +60,14 @@ public class CacheEntry
         ttl = null;
         unit = null;
         evictionPolicy = null;
+        capacity = null;
+        file = null;
+        writeBehind = false;
+        flushSize = null;
+        flushInterval = null;
+        flushUnit = null;
+        loadTimeout = null;
+        loadTimeoutUnit = null;
         nodes = new HashMap<>();
     }
 
@@ -132,6 +148,94 @@ public class CacheEntry
         return this;
     }
 
+    public Long capacity()
+    {
+        return capacity;
+    }
+
+    public CacheEntry capacity(Long capacity)
+    {
+        this.capacity = capacity;
+        return this;
+    }
+
+    public String file()
+    {
+        return file;
+    }
+
+    public CacheEntry file(String file)
+    {
+        this.file = file;
+        return this;
+    }
+
+    public Boolean writeBehind()
+    {
+        return writeBehind;
+    }
+
+    public CacheEntry writeBehind(Boolean writeBehind)
+    {
+        this.writeBehind = writeBehind;
+        return this;
+    }
+
+    public Integer flushSize()
+    {
+        return flushSize;
+    }
+
+    public CacheEntry flushSize(Integer flushSize)
+    {
+        this.flushSize = flushSize;
+        return this;
+    }
+
+    public Long flushInterval()
+    {
+        return flushInterval;
+    }
+
+    public CacheEntry flushInterval(Long flushInterval)
+    {
+        this.flushInterval = flushInterval;
+        return this;
+    }
+
+    public TimeUnit flushUnit()
+    {
+        return flushUnit;
+    }
+
+    public CacheEntry flushUnit(TimeUnit flushUnit)
+    {
+        this.flushUnit = flushUnit;
+        return this;
+    }
+
+    public Long loadTimeout()
+    {
+        return loadTimeout;
+    }
+
+    public CacheEntry loadTimeout(Long loadTimeout)
+    {
+        this.loadTimeout = loadTimeout;
+        return this;
+    }
+
+    public TimeUnit loadTimeoutUnit()
+    {
+        return loadTimeoutUnit;
+    }
+
+    public CacheEntry loadTimeoutUnit(TimeUnit loadTimeoutUnit)
+    {
+        this.loadTimeoutUnit = loadTimeoutUnit;
+        return this;
+    }
+
     public Map<String, CacheNodeEntry> nodes()
     {
         return nodes;
@@ -148,14 +252,22 @@ public class CacheEntry
     {
         final int prime = 31;
         int result = 1;
+        result = prime * result + ((capacity == null) ? 0 : capacity.hashCode());
         result = prime * result + ((defaultCache == null) ? 0 : defaultCache.hashCode());
         result = prime * result + ((evictionPolicy == null) ? 0 : evictionPolicy.hashCode());
+        result = prime * result + ((file == null) ? 0 : file.hashCode());
+        result = prime * result + ((flushInterval == null) ? 0 : flushInterval.hashCode());
+        result = prime * result + ((flushSize == null) ? 0 : flushSize.hashCode());
+        result = prime * result + ((flushUnit == null) ? 0 : flushUnit.hashCode());
         result = prime * result + ((hardLimitSize == null) ? 0 : hardLimitSize.hashCode());
         result = prime * result + ((id == null) ? 0 : id.hashCode());
         result = prime * result + ((level == null) ? 0 : level.hashCode());
+        result = prime * result + ((loadTimeout == null) ? 0 : loadTimeout.hashCode());
+        result = prime * result + ((loadTimeoutUnit == null) ? 0 : loadTimeoutUnit.hashCode());
         result = prime * result + ((nodes == null) ? 0 : nodes.hashCode());
         result = prime * result + ((ttl == null) ? 0 : ttl.hashCode());
         result = prime * result + ((unit == null) ? 0 : unit.hashCode());
+        result = prime * result + ((writeBehind == null) ? 0 : writeBehind.hashCode());
         return result;
     }
 
@@ -169,6 +281,13 @@ public class CacheEntry
         if (getClass() != obj.getClass())
             return false;
         CacheEntry other = (CacheEntry) obj;
+        if (capacity == null)
+        {
+            if (other.capacity != null)
+                return false;
+        }
+        else if (!capacity.equals(other.capacity))
+            return false;
         if (defaultCache == null)
         {
             if (other.defaultCache != null)
@@ -178,6 +297,29 @@ public class CacheEntry
             return false;
         if (evictionPolicy != other.evictionPolicy)
             return false;
+        if (file == null)
+        {
+            if (other.file != null)
+                return false;
+        }
+        else if (!file.equals(other.file))
+            return false;
+        if (flushInterval == null)
+        {
+            if (other.flushInterval != null)
+                return false;
+        }
+        else if (!flushInterval.equals(other.flushInterval))
+            return false;
+        if (flushSize == null)
+        {
+            if (other.flushSize != null)
+                return false;
+        }
+        else if (!flushSize.equals(other.flushSize))
+            return false;
+        if (flushUnit != other.flushUnit)
+            return false;
         if (hardLimitSize == null)
         {
             if (other.hardLimitSize != null)
@@ -199,6 +341,15 @@ public class CacheEntry
         }
         else if (!level.equals(other.level))
             return false;
+        if (loadTimeout == null)
+        {
+            if (other.loadTimeout != null)
+                return false;
+        }
+        else if (!loadTimeout.equals(other.loadTimeout))
+            return false;
+        if (loadTimeoutUnit != other.loadTimeoutUnit)
+            return false;
         if (nodes == null)
         {
             if (other.nodes != null)
@@ -215,6 +366,13 @@ public class CacheEntry
             return false;
         if (unit != other.unit)
             return false;
+        if (writeBehind == null)
+        {
+            if (other.writeBehind != null)
+                return false;
+        }
+        else if (!writeBehind.equals(other.writeBehind))
+            return false;
         return true;
     }
 
@@ -222,7 +380,9 @@ public class CacheEntry
     public String toString()
     {
         return "CacheEntry [id=" + id + ", level=" + level + ", defaultCache=" + defaultCache + ", hardLimitSize="
-                + hardLimitSize + ", ttl=" + ttl + ", unit=" + unit + ", evictionPolicy=" + evictionPolicy + ", nodes="
-                + nodes + "]";
+                + hardLimitSize + ", ttl=" + ttl + ", unit=" + unit + ", evictionPolicy=" + evictionPolicy
+                + ", capacity=" + capacity + ", file=" + file + ", writeBehind=" + writeBehind + ", flushSize="
+                + flushSize + ", flushInterval=" + flushInterval + ", flushUnit=" + flushUnit + ", loadTimeout="
+                + loadTimeout + ", loadTimeoutUnit=" + loadTimeoutUnit + ", nodes=" + nodes + "]";
     }
 }
\ No newline at end of file
@@ -19,6 +19,7 @@
 
 package io.perbone.udao.configuration;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Hashtable;
@@ -49,6 +50,7 @@ public class Configuration
     private final Map<String, ProviderEntry> providers;
     private final Map<String, StorageUnitEntry> units;
     private final Map<Integer, String> defaultCacheIds;
+    private final MetricsEntry metrics;
 
     /**
      * Creates a {@code StorageSettings} with default values.
@@ -60,6 +62,7 @@ public class Configuration
         providers = new ConcurrentHashMap<>();
         units = new ConcurrentHashMap<>();
         defaultCacheIds = new ConcurrentHashMap<>();
+        metrics = new MetricsEntry();
     }
 
     public CacheEntry cache(String id)
@@ -89,6 +92,11 @@ public class Configuration
         return Collections.unmodifiableCollection(schemas.values());
     }
 
+    public MetricsEntry metrics()
+    {
+        return metrics;
+    }
+
     /**
      * Loads the settings from the given store.
      * 
@@ -161,6 +169,16 @@ public class Configuration
     private final static String KEY_EXP_TTL_VALUE = "time-to-live";
     private final static String KEY_EXP_TTL_UNIT = "time-to-live[@unit]";
     private final static String KEY_EXP_EVICTION_POLICY = "eviction-policy";
+    private final static String KEY_EXP_CAPACITY = "capacity";
+    private final static String KEY_EXP_FILE = "file";
+    private final static String KEY_EXP_WRITE_BEHIND = "write-behind";
+    private final static String KEY_EXP_FLUSH_SIZE = "write-behind[@flush-size]";
+    private final static String KEY_EXP_FLUSH_INTERVAL = "write-behind[@flush-interval]";
+    private final static String KEY_EXP_FLUSH_UNIT = "write-behind[@unit]";
+    private final static String KEY_EXP_WRITE_BEHIND_ATTR = "[@write-behind]";
+    private final static String KEY_EXP_LOAD_TIMEOUT = "load-timeout";
+    private final static String KEY_EXP_NEGATIVE_TTL = "[@negative-ttl]";
+    private final static String KEY_EXP_LOAD_TIMEOUT_UNIT = "load-timeout[@unit]";
     private final static String KEY_EXP_LEVEL = "[@level]";
     private final static String KEY_EXP_URI = "[@uri]";
     private final static String KEY_EXP_DEFAULT = "[@default]";
@@ -176,7 +194,18 @@ public class Configuration
     private final static String KEY_EXP_READ_ONLY = "[@read-only]";
     private final static String KEY_EXP_MANAGED_BEANS_ONLY = "[@managed-beans-only]";
     private final static String KEY_EXP_CACHE_ID = "[@cache-id]";
+    private final static String KEY_EXP_ASYNC_THREADS = "[@async-threads]";
+    private final static String KEY_EXP_WEIGHT = "[@weight]";
+    private final static String KEY_EXP_SELECTOR = "[@selector]";
+    private final static String KEY_EXP_STICKY_WINDOW = "read-your-writes[@window]";
+    private final static String KEY_EXP_STICKY_UNIT = "read-your-writes[@unit]";
     private final static String KEY_EXP_STORAGE_UNITS = "storage-units.storage-unit";
+    private final static String KEY_EXP_METRICS = "metrics";
+    private final static String KEY_EXP_ENABLED = "[@enabled]";
+    private final static String KEY_EXP_JMX_ENABLED = "[@jmx-enabled]";
+    private final static String KEY_EXP_REPORT_INTERVAL = "[@report-interval]";
+    private final static String KEY_EXP_UNIT = "[@unit]";
+    private final static String KEY_EXP_REPORTERS = "reporter";
 
     /**
      * Parses the settings an populates the internal state.
@@ -201,6 +230,9 @@ public class Configuration
 
             /* First level storage units */
             parseStorageUnitEntries(config.configurationsAt(KEY_EXP_STORAGE_UNITS));
+
+            /* Metrics */
+            parseMetricsEntry(config.configurationsAt(KEY_EXP_METRICS));
         }
         catch (Exception e)
         {
@@ -247,6 +279,26 @@ public class Configuration
             EvictionPolicy evictionPolicy = cacheNode.containsKey(KEY_EXP_EVICTION_POLICY)
                     ? EvictionPolicy.valueOf(EvictionPolicy.class, cacheNode.getString(KEY_EXP_EVICTION_POLICY))
                     : cacheEntry.evictionPolicy();
+            Long capacity = cacheNode.containsKey(KEY_EXP_CAPACITY) ? (Long) cacheNode.getLong(KEY_EXP_CAPACITY)
+                    : cacheEntry.capacity();
+            String file = cacheNode.containsKey(KEY_EXP_FILE) ? cacheNode.getString(KEY_EXP_FILE) : cacheEntry.file();
+            Boolean writeBehind = cacheNode.containsKey(KEY_EXP_WRITE_BEHIND)
+                    ? Boolean.valueOf(cacheNode.getString(KEY_EXP_WRITE_BEHIND))
+                    : cacheEntry.writeBehind();
+            Integer flushSize = cacheNode.containsKey(KEY_EXP_FLUSH_SIZE) ? cacheNode.getInt(KEY_EXP_FLUSH_SIZE)
+                    : cacheEntry.flushSize();
+            Long flushInterval = cacheNode.containsKey(KEY_EXP_FLUSH_INTERVAL)
+                    ? (Long) cacheNode.getLong(KEY_EXP_FLUSH_INTERVAL)
+                    : cacheEntry.flushInterval();
+            TimeUnit flushUnit = cacheNode.containsKey(KEY_EXP_FLUSH_UNIT)
+                    ? TimeUnit.valueOf(cacheNode.getString(KEY_EXP_FLUSH_UNIT))
+                    : cacheEntry.flushUnit();
+            Long loadTimeout = cacheNode.containsKey(KEY_EXP_LOAD_TIMEOUT)
+                    ? (Long) cacheNode.getLong(KEY_EXP_LOAD_TIMEOUT)
+                    : cacheEntry.loadTimeout();
+            TimeUnit loadTimeoutUnit = cacheNode.containsKey(KEY_EXP_LOAD_TIMEOUT_UNIT)
+                    ? TimeUnit.valueOf(cacheNode.getString(KEY_EXP_LOAD_TIMEOUT_UNIT))
+                    : cacheEntry.loadTimeoutUnit();
 
             /* Parses child nodes */
             Map<String, CacheNodeEntry> nodes = parseNodeEntries(cacheNode, cacheEntry.nodes());
@@ -259,6 +311,14 @@ public class Configuration
                     .ttl(ttl)
                     .unit(unit)
                     .evictionPolicy(evictionPolicy)
+                    .capacity(capacity)
+                    .file(file)
+                    .writeBehind(writeBehind)
+                    .flushSize(flushSize)
+                    .flushInterval(flushInterval)
+                    .flushUnit(flushUnit)
+                    .loadTimeout(loadTimeout)
+                    .loadTimeoutUnit(loadTimeoutUnit)
                     .nodes(nodes);
 
             /* Updates caches set */
@@ -276,6 +336,57 @@ public class Configuration
         }
     }
 
+    /**
+     * Parses the metrics entry.
+     * <p>
+     * Missing property will keep the value previously loaded or the default one coming from
+     * {@link MetricsEntry#MetricsEntry()} constructor.
+     * 
+     * @param metricsNodes
+     *            metrics nodes to be parsed; only one is expected
+     * 
+     * @throws InvalidSettingsException
+     *             if the nodes contains invalid settings
+     */
+    private void parseMetricsEntry(List<?> metricsNodes) throws InvalidSettingsException
+    {
+        for (Iterator<?> it = metricsNodes.iterator(); it.hasNext();)
+        {
+            HierarchicalConfiguration metricsNode = (HierarchicalConfiguration) it.next();
+
+            Boolean enabled = metricsNode.containsKey(KEY_EXP_ENABLED)
+                    ? Boolean.valueOf(metricsNode.getString(KEY_EXP_ENABLED))
+                    : metrics.enabled();
+            Boolean jmxEnabled = metricsNode.containsKey(KEY_EXP_JMX_ENABLED)
+                    ? Boolean.valueOf(metricsNode.getString(KEY_EXP_JMX_ENABLED))
+                    : metrics.jmxEnabled();
+            Long reportInterval = metricsNode.containsKey(KEY_EXP_REPORT_INTERVAL)
+                    ? (Long) metricsNode.getLong(KEY_EXP_REPORT_INTERVAL)
+                    : metrics.reportInterval();
+            TimeUnit unit = metricsNode.containsKey(KEY_EXP_UNIT)
+                    ? TimeUnit.valueOf(metricsNode.getString(KEY_EXP_UNIT))
+                    : metrics.unit();
+
+            List<String> reporters = new ArrayList<>(metrics.reporters());
+
+            for (Iterator<?> rit = metricsNode.configurationsAt(KEY_EXP_REPORTERS).iterator(); rit.hasNext();)
+            {
+                String type = ((HierarchicalConfiguration) rit.next()).getString(KEY_EXP_TYPE);
+                if (type == null)
+                    throw new InvalidSettingsException("Metrics reporter type is missing");
+                if (!reporters.contains(type))
+                    reporters.add(type);
+            }
+
+            metrics
+                    .enabled(enabled)
+                    .jmxEnabled(jmxEnabled)
+                    .reportInterval(reportInterval)
+                    .unit(unit)
+                    .reporters(reporters);
+        }
+    }
+
     /**
      * Parses property entries.
      * 
@@ -387,7 +498,22 @@ public class Configuration
             String cacheId = entityNode.containsKey(KEY_EXP_CACHE_ID) ? entityNode.getString(KEY_EXP_CACHE_ID)
                     : entityEntry.cacheId();
 
-            entityEntry.id(id).type(type).dirtyChecking(dirtyChecking).cacheable(cacheable).cacheId(cacheId);
+            Boolean writeBehind = entityNode.containsKey(KEY_EXP_WRITE_BEHIND_ATTR)
+                    ? Boolean.valueOf(entityNode.getString(KEY_EXP_WRITE_BEHIND_ATTR))
+                    : entityEntry.writeBehind();
+
+            Long negativeTtl = entityNode.containsKey(KEY_EXP_NEGATIVE_TTL)
+                    ? (Long) entityNode.getLong(KEY_EXP_NEGATIVE_TTL)
+                    : entityEntry.negativeTtl();
+
+            entityEntry
+                    .id(id)
+                    .type(type)
+                    .dirtyChecking(dirtyChecking)
+                    .cacheable(cacheable)
+                    .cacheId(cacheId)
+                    .writeBehind(writeBehind)
+                    .negativeTtl(negativeTtl);
 
             entities.put(id, entityEntry);
         }
@@ -471,6 +597,12 @@ public class Configuration
                             : Boolean.valueOf(providerEntry.managedBeansOnly()));
             String cacheId = providerNode.containsKey(KEY_EXP_CACHE_ID) ? providerNode.getString(KEY_EXP_CACHE_ID)
                     : providerEntry.cacheId();
+            Integer asyncThreads = providerNode.containsKey(KEY_EXP_ASYNC_THREADS)
+                    ? Integer.valueOf(providerNode.getString(KEY_EXP_ASYNC_THREADS))
+                    : providerEntry.asyncThreads();
+            Integer weight = providerNode.containsKey(KEY_EXP_WEIGHT)
+                    ? Integer.valueOf(providerNode.getString(KEY_EXP_WEIGHT))
+                    : providerEntry.weight();
             /* Parses child properties */
             Map<String, String> properties = parsePropertyEntries(providerNode, providerEntry.properties());
 
@@ -481,6 +613,8 @@ public class Configuration
                     .readOnly(readOnly)
                     .managedBeansOnly(managedBeansOnly)
                     .cacheId(cacheId)
+                    .asyncThreads(asyncThreads)
+                    .weight(weight)
                     .properties(properties);
 
             unitProviders.put(id, providerEntry);
@@ -517,6 +651,14 @@ public class Configuration
                     : unitEntry.defaultUnit();
             String cacheId = unitNode.containsKey(KEY_EXP_CACHE_ID) ? unitNode.getString(KEY_EXP_CACHE_ID)
                     : unitEntry.cacheId();
+            String selector = unitNode.containsKey(KEY_EXP_SELECTOR) ? unitNode.getString(KEY_EXP_SELECTOR)
+                    : unitEntry.selector();
+            Long stickyWindow = unitNode.containsKey(KEY_EXP_STICKY_WINDOW)
+                    ? (Long) unitNode.getLong(KEY_EXP_STICKY_WINDOW)
+                    : unitEntry.stickyWindow();
+            TimeUnit stickyUnit = unitNode.containsKey(KEY_EXP_STICKY_UNIT)
+                    ? TimeUnit.valueOf(unitNode.getString(KEY_EXP_STICKY_UNIT))
+                    : unitEntry.stickyUnit();
 
             /* Parses child schemas */
             Map<String, SchemaEntry> schemas = parseSchemaEntries(unitNode.configurationsAt(KEY_EXP_SCHEMAS));
@@ -524,7 +666,8 @@ public class Configuration
             Map<String, ProviderEntry> providers = parseProviderEntries(unitNode.configurationsAt(KEY_EXP_PROVIDERS),
                     unitEntry.providers());
 
-            unitEntry.id(id).uri(uri).defaultUnit(defaultUnit).cacheId(cacheId).schemas(schemas).providers(providers);
+            unitEntry.id(id).uri(uri).defaultUnit(defaultUnit).cacheId(cacheId).selector(selector)
+                    .stickyWindow(stickyWindow).stickyUnit(stickyUnit).schemas(schemas).providers(providers);
 
             /* Updates storage units set */
             units.put(id, unitEntry);
@@ -32,6 +32,8 @@ public class EntityEntry
     private Boolean dirtyChecking;
     private Boolean cacheable;
     private String cacheId;
+    private Boolean writeBehind;
+    private Long negativeTtl;
 
     public EntityEntry()
     {
@@ -40,6 +42,8 @@ public class EntityEntry
         dirtyChecking = null;
         cacheable = null;
         cacheId = null;
+        writeBehind = null;
+        negativeTtl = null;
     }
 
     public String id()
@@ -97,6 +101,28 @@ public class EntityEntry
         return this;
     }
 
+    public Boolean writeBehind()
+    {
+        return writeBehind;
+    }
+
+    public EntityEntry writeBehind(Boolean writeBehind)
+    {
+        this.writeBehind = writeBehind;
+        return this;
+    }
+
+    public Long negativeTtl()
+    {
+        return negativeTtl;
+    }
+
+    public EntityEntry negativeTtl(Long negativeTtl)
+    {
+        this.negativeTtl = negativeTtl;
+        return this;
+    }
+
     @Override
     public int hashCode()
     {
@@ -105,7 +131,9 @@ public class EntityEntry
         result = prime * result + ((cacheId == null) ? 0 : cacheId.hashCode());
         result = prime * result + ((cacheable == null) ? 0 : cacheable.hashCode());
         result = prime * result + ((id == null) ? 0 : id.hashCode());
+        result = prime * result + ((negativeTtl == null) ? 0 : negativeTtl.hashCode());
         result = prime * result + ((type == null) ? 0 : type.hashCode());
+        result = prime * result + ((writeBehind == null) ? 0 : writeBehind.hashCode());
         return result;
     }
 
@@ -140,6 +168,13 @@ public class EntityEntry
         }
         else if (!id.equals(other.id))
             return false;
+        if (negativeTtl == null)
+        {
+            if (other.negativeTtl != null)
+                return false;
+        }
+        else if (!negativeTtl.equals(other.negativeTtl))
+            return false;
         if (type == null)
         {
             if (other.type != null)
@@ -147,12 +182,20 @@ public class EntityEntry
         }
         else if (!type.equals(other.type))
             return false;
+        if (writeBehind == null)
+        {
+            if (other.writeBehind != null)
+                return false;
+        }
+        else if (!writeBehind.equals(other.writeBehind))
+            return false;
         return true;
     }
 
     @Override
     public String toString()
     {
-        return "EntityEntry [id=" + id + ", type=" + type + ", cacheable=" + cacheable + ", cacheId=" + cacheId + "]";
+        return "EntityEntry [id=" + id + ", type=" + type + ", cacheable=" + cacheable + ", cacheId=" + cacheId
+                + ", writeBehind=" + writeBehind + ", negativeTtl=" + negativeTtl + "]";
     }
 }
\ No newline at end of file
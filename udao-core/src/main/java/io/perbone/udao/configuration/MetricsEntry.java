@@ -0,0 +1,166 @@
+/*
+ * This file is part of UDAO 
+ * https://github.com/perbone/udao/
+ * 
+ * Copyright 2013-2018 Paulo Perbone
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package io.perbone.udao.configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Metrics setting entry.
+ * 
+ * @author Paulo Perbone <pauloperbone@yahoo.com>
+ * @since 0.17.0
+ */
+public class MetricsEntry
+{
+    private Boolean enabled;
+    private Boolean jmxEnabled;
+    private Long reportInterval;
+    private TimeUnit unit;
+    private List<String> reporters;
+
+    public MetricsEntry()
+    {
+        enabled = true;
+        jmxEnabled = false;
+        reportInterval = 60L;
+        unit = TimeUnit.SECONDS;
+        reporters = new ArrayList<>();
+    }
+
+    public Boolean enabled()
+    {
+        return enabled;
+    }
+
+    public MetricsEntry enabled(Boolean enabled)
+    {
+        this.enabled = enabled;
+        return this;
+    }
+
+    public Boolean jmxEnabled()
+    {
+        return jmxEnabled;
+    }
+
+    public MetricsEntry jmxEnabled(Boolean jmxEnabled)
+    {
+        this.jmxEnabled = jmxEnabled;
+        return this;
+    }
+
+    public Long reportInterval()
+    {
+        return reportInterval;
+    }
+
+    public MetricsEntry reportInterval(Long reportInterval)
+    {
+        this.reportInterval = reportInterval;
+        return this;
+    }
+
+    public TimeUnit unit()
+    {
+        return unit;
+    }
+
+    public MetricsEntry unit(TimeUnit unit)
+    {
+        this.unit = unit;
+        return this;
+    }
+
+    public List<String> reporters()
+    {
+        return reporters;
+    }
+
+    public MetricsEntry reporters(List<String> reporters)
+    {
+        this.reporters = reporters;
+        return this;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + ((enabled == null) ? 0 : enabled.hashCode());
+        result = prime * result + ((jmxEnabled == null) ? 0 : jmxEnabled.hashCode());
+        result = prime * result + ((reportInterval == null) ? 0 : reportInterval.hashCode());
+        result = prime * result + ((reporters == null) ? 0 : reporters.hashCode());
+        result = prime * result + ((unit == null) ? 0 : unit.hashCode());
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        if (this == obj)
+            return true;
+        if (obj == null)
+            return false;
+        if (getClass() != obj.getClass())
+            return false;
+        MetricsEntry other = (MetricsEntry) obj;
+        if (enabled == null)
+        {
+            if (other.enabled != null)
+                return false;
+        }
+        else if (!enabled.equals(other.enabled))
+            return false;
+        if (jmxEnabled == null)
+        {
+            if (other.jmxEnabled != null)
+                return false;
+        }
+        else if (!jmxEnabled.equals(other.jmxEnabled))
+            return false;
+        if (reportInterval == null)
+        {
+            if (other.reportInterval != null)
+                return false;
+        }
+        else if (!reportInterval.equals(other.reportInterval))
+            return false;
+        if (reporters == null)
+        {
+            if (other.reporters != null)
+                return false;
+        }
+        else if (!reporters.equals(other.reporters))
+            return false;
+        if (unit != other.unit)
+            return false;
+        return true;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "MetricsEntry [enabled=" + enabled + ", jmxEnabled=" + jmxEnabled + ", reportInterval="
+                + reportInterval + ", unit=" + unit + ", reporters=" + reporters + "]";
+    }
+}
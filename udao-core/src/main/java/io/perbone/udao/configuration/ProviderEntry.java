@@ -36,6 +36,8 @@ public class ProviderEntry
     private Boolean readOnly;
     private Boolean managedBeansOnly;
     private String cacheId;
+    private Integer asyncThreads;
+    private Integer weight;
     private Map<String, String> properties;
 
     public ProviderEntry()
@@ -45,6 +47,8 @@ public class ProviderEntry
         readOnly = null;
         managedBeansOnly = null;
         cacheId = null;
+        asyncThreads = null;
+        weight = null;
         properties = new HashMap<>();
     }
 
@@ -114,6 +118,28 @@ public class ProviderEntry
         return this;
     }
 
+    public Integer asyncThreads()
+    {
+        return asyncThreads;
+    }
+
+    public ProviderEntry asyncThreads(Integer asyncThreads)
+    {
+        this.asyncThreads = asyncThreads;
+        return this;
+    }
+
+    public Integer weight()
+    {
+        return weight;
+    }
+
+    public ProviderEntry weight(Integer weight)
+    {
+        this.weight = weight;
+        return this;
+    }
+
     public Map<String, String> properties()
     {
         return properties;
@@ -130,12 +156,14 @@ public class ProviderEntry
     {
         final int prime = 31;
         int result = 1;
+        result = prime * result + ((asyncThreads == null) ? 0 : asyncThreads.hashCode());
         result = prime * result + ((cacheId == null) ? 0 : cacheId.hashCode());
         result = prime * result + ((id == null) ? 0 : id.hashCode());
         result = prime * result + ((managedBeansOnly == null) ? 0 : managedBeansOnly.hashCode());
         result = prime * result + ((properties == null) ? 0 : properties.hashCode());
         result = prime * result + ((readOnly == null) ? 0 : readOnly.hashCode());
         result = prime * result + ((type == null) ? 0 : type.hashCode());
+        result = prime * result + ((weight == null) ? 0 : weight.hashCode());
         return result;
     }
 
@@ -149,6 +177,13 @@ public class ProviderEntry
         if (getClass() != obj.getClass())
             return false;
         ProviderEntry other = (ProviderEntry) obj;
+        if (asyncThreads == null)
+        {
+            if (other.asyncThreads != null)
+                return false;
+        }
+        else if (!asyncThreads.equals(other.asyncThreads))
+            return false;
         if (cacheId == null)
         {
             if (other.cacheId != null)
@@ -191,6 +226,13 @@ public class ProviderEntry
         }
         else if (!type.equals(other.type))
             return false;
+        if (weight == null)
+        {
+            if (other.weight != null)
+                return false;
+        }
+        else if (!weight.equals(other.weight))
+            return false;
         return true;
     }
 
@@ -198,7 +240,7 @@ public class ProviderEntry
     public String toString()
     {
         return "ProviderEntry [id=" + id + ", backendName=" + backendName + ", type=" + type + ", readOnly=" + readOnly
-                + ", managedBeansOnly=" + managedBeansOnly + ", cacheId=" + cacheId + ", properties=" + properties
-                + "]";
+                + ", managedBeansOnly=" + managedBeansOnly + ", cacheId=" + cacheId + ", asyncThreads=" + asyncThreads
+                + ", weight=" + weight + ", properties=" + properties + "]";
     }
 }
\ No newline at end of file
@@ -21,6 +21,7 @@ package io.perbone.udao.configuration;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Storage unit setting entry.
@@ -34,6 +35,9 @@ public class StorageUnitEntry
     private String uri;
     private Boolean defaultUnit;
     private String cacheId;
+    private String selector;
+    private Long stickyWindow;
+    private TimeUnit stickyUnit;
     private Map<String, SchemaEntry> schemas;
     private Map<String, ProviderEntry> providers;
 
@@ -43,6 +47,9 @@ public class StorageUnitEntry
         uri = null;
         defaultUnit = false;
         cacheId = null;
+        selector = null;
+        stickyWindow = null;
+        stickyUnit = null;
         schemas = new HashMap<>();
         providers = new HashMap<>();
     }
@@ -91,6 +98,39 @@ public class StorageUnitEntry
         return this;
     }
 
+    public String selector()
+    {
+        return selector;
+    }
+
+    public StorageUnitEntry selector(String selector)
+    {
+        this.selector = selector;
+        return this;
+    }
+
+    public Long stickyWindow()
+    {
+        return stickyWindow;
+    }
+
+    public StorageUnitEntry stickyWindow(Long stickyWindow)
+    {
+        this.stickyWindow = stickyWindow;
+        return this;
+    }
+
+    public TimeUnit stickyUnit()
+    {
+        return stickyUnit;
+    }
+
+    public StorageUnitEntry stickyUnit(TimeUnit stickyUnit)
+    {
+        this.stickyUnit = stickyUnit;
+        return this;
+    }
+
     public Map<String, SchemaEntry> schemas()
     {
         return schemas;
@@ -123,6 +163,9 @@ public class StorageUnitEntry
         result = prime * result + ((id == null) ? 0 : id.hashCode());
         result = prime * result + ((providers == null) ? 0 : providers.hashCode());
         result = prime * result + ((schemas == null) ? 0 : schemas.hashCode());
+        result = prime * result + ((selector == null) ? 0 : selector.hashCode());
+        result = prime * result + ((stickyUnit == null) ? 0 : stickyUnit.hashCode());
+        result = prime * result + ((stickyWindow == null) ? 0 : stickyWindow.hashCode());
         result = prime * result + ((uri == null) ? 0 : uri.hashCode());
         return result;
     }
@@ -172,6 +215,22 @@ public class StorageUnitEntry
         }
         else if (!schemas.equals(other.schemas))
             return false;
+        if (selector == null)
+        {
+            if (other.selector != null)
+                return false;
+        }
+        else if (!selector.equals(other.selector))
+            return false;
+        if (stickyUnit != other.stickyUnit)
+            return false;
+        if (stickyWindow == null)
+        {
+            if (other.stickyWindow != null)
+                return false;
+        }
+        else if (!stickyWindow.equals(other.stickyWindow))
+            return false;
         if (uri == null)
         {
             if (other.uri != null)
@@ -186,6 +245,7 @@ public class StorageUnitEntry
     public String toString()
     {
         return "StorageUnitEntry [id=" + id + ", uri=" + uri + ", defaultUnit=" + defaultUnit + ", cacheId=" + cacheId
+                + ", selector=" + selector + ", stickyWindow=" + stickyWindow + ", stickyUnit=" + stickyUnit
                 + ", schemas=" + schemas + ", providers=" + providers + "]";
     }
 }
\ No newline at end of file
@@ -0,0 +1,261 @@
+/*
+ * This file is part of UDAO 
+ * https://github.com/perbone/udao/
+ * 
+ * Copyright 2013-2018 Paulo Perbone
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package io.perbone.udao.internal;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+import io.perbone.udao.AsyncDataManager;
+import io.perbone.udao.Cursor;
+import io.perbone.udao.DataException;
+import io.perbone.udao.query.Query;
+import io.perbone.udao.spi.internal.SimpleCursor;
+
+/**
+ * Concrete implementation of {@link AsyncDataManager} interface.
+ * <p>
+ * Operations are delegated to a private non transactional {@link DataManagerImpl} and run on the
+ * storage unit executor. Fetches by key first probe the cache on the calling thread.
+ * <p>
+ * Cursors are read to the end on the executor thread that opens them and handed over as an in
+ * memory {@link SimpleCursor}; forward only provider cursors are bound to the thread that opened
+ * them and cannot be iterated by the caller. Use {@link io.perbone.udao.DataManager} cursors to
+ * stream large results.
+ * 
+ * @author Paulo Perbone <pauloperbone@yahoo.com>
+ * @since 0.17.0
+ */
+final class AsyncDataManagerImpl implements AsyncDataManager
+{
+    private final DataManagerImpl dm;
+
+    private final Executor executor;
+
+    /**
+     * Creates an {@code AsyncDataManagerImpl} object.
+     * 
+     * @param dm
+     *            the data manager running the operations
+     * @param executor
+     *            the executor for the operations
+     */
+    AsyncDataManagerImpl(final DataManagerImpl dm, final Executor executor)
+    {
+        this.dm = dm;
+        this.executor = executor;
+    }
+
+    @Override
+    public <T> CompletableFuture<T> create(final T bean)
+    {
+        return supply(() -> dm.create(bean));
+    }
+
+    @Override
+    public <T> CompletableFuture<List<T>> create(final List<T> beans)
+    {
+        return supply(() -> dm.create(beans));
+    }
+
+    @Override
+    public <T> CompletableFuture<T> save(final T bean)
+    {
+        return supply(() -> dm.save(bean));
+    }
+
+    @Override
+    public <T> CompletableFuture<List<T>> save(final List<T> beans)
+    {
+        return supply(() -> dm.save(beans));
+    }
+
+    @Override
+    public <T> CompletableFuture<T> fetchI(final Class<T> type, final Object id)
+    {
+        return cachedOrSupply(() -> dm.cachedI(type, id), () -> dm.fetchI(type, id));
+    }
+
+    @Override
+    public <T> CompletableFuture<List<T>> fetchI(final Class<T> type, final Object... ids)
+    {
+        return supply(() -> dm.fetchI(type, ids));
+    }
+
+    @Override
+    public <T> CompletableFuture<T> fetchP(final Class<T> type, final Object... keys)
+    {
+        return cachedOrSupply(() -> dm.cachedP(type, keys), () -> dm.fetchP(type, keys));
+    }
+
+    @Override
+    public <T> CompletableFuture<T> fetchA(final Class<T> type, final String name, final Object... keys)
+    {
+        return cachedOrSupply(() -> dm.cachedA(type, name, keys), () -> dm.fetchA(type, name, keys));
+    }
+
+    @Override
+    public <T> CompletableFuture<T> updateI(final T bean, final Object id)
+    {
+        return supply(() -> dm.updateI(bean, id));
+    }
+
+    @Override
+    public <T> CompletableFuture<T> updateP(final T bean, final Object... keys)
+    {
+        return supply(() -> dm.updateP(bean, keys));
+    }
+
+    @Override
+    public <T> CompletableFuture<List<T>> update(final List<T> beans)
+    {
+        return supply(() -> dm.update(beans));
+    }
+
+    @Override
+    public <T> CompletableFuture<T> patchI(final T bean, final Object id)
+    {
+        return supply(() -> dm.patchI(bean, id));
+    }
+
+    @Override
+    public <T> CompletableFuture<T> patchP(final T bean, final Object... keys)
+    {
+        return supply(() -> dm.patchP(bean, keys));
+    }
+
+    @Override
+    public <T> CompletableFuture<List<T>> patch(final List<T> beans)
+    {
+        return supply(() -> dm.patch(beans));
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteI(final Class<?> type, final Object id)
+    {
+        return CompletableFuture.runAsync(() -> dm.deleteI(type, id), executor);
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteP(final Class<?> type, final Object... keys)
+    {
+        return CompletableFuture.runAsync(() -> dm.deleteP(type, keys), executor);
+    }
+
+    @Override
+    public <T> CompletableFuture<Void> delete(final List<T> beans)
+    {
+        return CompletableFuture.runAsync(() -> dm.delete(beans), executor);
+    }
+
+    @Override
+    public <T> CompletableFuture<Cursor<T>> cursorI(final Class<T> type)
+    {
+        return materialize(() -> dm.cursorI(type));
+    }
+
+    @Override
+    public <T> CompletableFuture<Cursor<T>> cursorQ(final Class<T> type, final Query query)
+    {
+        return materialize(() -> dm.cursorQ(type, query));
+    }
+
+    @Override
+    public CompletableFuture<Long> count(final Class<?> type)
+    {
+        return supply(() -> dm.count(type));
+    }
+
+    @Override
+    public CompletableFuture<Long> countQ(final Class<?> type, final Query query)
+    {
+        return supply(() -> dm.countQ(type, query));
+    }
+
+    @Override
+    public boolean isOpen()
+    {
+        return dm.isOpen();
+    }
+
+    @Override
+    public void close() throws DataException
+    {
+        dm.close();
+    }
+
+    private <T> CompletableFuture<T> supply(final Supplier<T> operation)
+    {
+        return CompletableFuture.supplyAsync(operation, executor);
+    }
+
+    /**
+     * Opens and reads the cursor on a single executor thread, returning its beans in memory.
+     * 
+     * @param opener
+     *            the cursor operation
+     * 
+     * @return the cursor future
+     */
+    private <T> CompletableFuture<Cursor<T>> materialize(final Supplier<Cursor<T>> opener)
+    {
+        return supply(() ->
+        {
+            final Cursor<T> cursor = opener.get();
+
+            if (cursor instanceof SimpleCursor)
+                return cursor;
+
+            try (final Cursor<T> opened = cursor)
+            {
+                return new SimpleCursor<T>(opened.toArray());
+            }
+        });
+    }
+
+    /**
+     * Completes at once with the cached bean; only a cache miss goes to the executor.
+     * 
+     * @param cached
+     *            the cache probe; returns <tt>null</tt> on a miss
+     * @param operation
+     *            the fetch operation
+     * 
+     * @return the bean future
+     */
+    private <T> CompletableFuture<T> cachedOrSupply(final Supplier<T> cached, final Supplier<T> operation)
+    {
+        final T bean;
+
+        try
+        {
+            bean = cached.get();
+        }
+        catch (final RuntimeException e)
+        {
+            final CompletableFuture<T> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+
+        return bean == null ? supply(operation) : CompletableFuture.completedFuture(bean);
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * This file is part of UDAO 
+ * https://github.com/perbone/udao/
+ * 
+ * Copyright 2013-2018 Paulo Perbone
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package io.perbone.udao.internal;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Builds the executors running the {@link AsyncDataManagerImpl} operations.
+ * <p>
+ * Each executor has a fixed number of threads so no more operations than its providers can serve
+ * are in flight. On runtimes with virtual threads those threads are virtual, so an operation
+ * blocked on the backend does not hold a platform thread; otherwise they are daemon platform
+ * threads.
+ * 
+ * @author Paulo Perbone <pauloperbone@yahoo.com>
+ * @since 0.17.0
+ */
+final class AsyncExecutors
+{
+    private AsyncExecutors()
+    {
+        // Not instantiable
+    }
+
+    /**
+     * Creates a new executor.
+     * 
+     * @param name
+     *            the thread name prefix
+     * @param threads
+     *            the number of threads
+     * 
+     * @return the executor
+     * 
+     * @throws IllegalArgumentException
+     *             if the number of threads is not positive
+     */
+    static ExecutorService newExecutor(final String name, final int threads) throws IllegalArgumentException
+    {
+        if (threads <= 0)
+            throw new IllegalArgumentException(String.format("Invalid number of async threads [%d]", threads));
+
+        final ThreadFactory factory = virtualThreadFactory(name);
+
+        return Executors.newFixedThreadPool(threads, factory == null ? platformThreadFactory(name) : factory);
+    }
+
+    /**
+     * Returns a virtual thread factory, looked up reflectively as the code targets Java 8.
+     * 
+     * @return the factory or <tt>null</tt> if the runtime has no virtual threads
+     */
+    private static ThreadFactory virtualThreadFactory(final String name)
+    {
+        try
+        {
+            final Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            final Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+
+            builderType.getMethod("name", String.class, long.class).invoke(builder, name + "-", 0L);
+
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        }
+        catch (final ReflectiveOperationException e)
+        {
+            return null;
+        }
+    }
+
+    private static ThreadFactory platformThreadFactory(final String name)
+    {
+        final AtomicLong count = new AtomicLong();
+
+        return r ->
+        {
+            final Thread thread = new Thread(r, name + "-" + count.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * This file is part of UDAO 
+ * https://github.com/perbone/udao/
+ * 
+ * Copyright 2013-2018 Paulo Perbone
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package io.perbone.udao.internal;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lookup and write counters of one cache, shared by all the {@link io.perbone.udao.spi.Cache}
+ * views of it.
+ * 
+ * @author Paulo Perbone <pauloperbone@yahoo.com>
+ * @since 0.17.0
+ */
+final class CacheCounters
+{
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder inserts = new LongAdder();
+    private final LongAdder removals = new LongAdder();
+
+    void hit()
+    {
+        hits.increment();
+    }
+
+    void miss()
+    {
+        misses.increment();
+    }
+
+    /**
+     * Counts a bean that was not in the cache being added to it.
+     */
+    void insert()
+    {
+        inserts.increment();
+    }
+
+    /**
+     * Counts beans explicitly removed from the cache.
+     * 
+     * @param count
+     *            the number of removed beans
+     */
+    void remove(final long count)
+    {
+        removals.add(count);
+    }
+
+    long hits()
+    {
+        return hits.sum();
+    }
+
+    long misses()
+    {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the number of beans the cache dropped by itself given its current size.
+     * <p>
+     * It is derived from the beans that went in and out through this counters, so it is exact only
+     * when the cache is quiescent.
+     * 
+     * @param size
+     *            the current cache size
+     * 
+     * @return the eviction count
+     */
+    long evictions(final long size)
+    {
+        return Math.max(0L, inserts.sum() - removals.sum() - size);
+    }
+}
@@ -24,10 +24,19 @@ import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import io.perbone.udao.spi.Cache;
+import io.perbone.udao.util.EntityKey;
 import io.perbone.udao.util.EntityUtils;
+import io.perbone.udao.util.KeyCodec;
 
 /**
  * Concrete {@link Cache} implementation for cacheable bean types.
+ * <p>
+ * Beans added with their own time to live are held together with their expiration time, which is
+ * checked on every read since the backing store only expires entries by the cache time to live.
+ * <p>
+ * Beans are copied on the way in and on the way out so callers never share the cached instance,
+ * except for immutable types (<tt>@Storable(mutable=false)</tt> or <tt>@Immutable</tt>) whose
+ * instance is stored and returned as is.
  * 
  * @author Paulo Perbone <pauloperbone@yahoo.com>
  * @since 0.1.0
@@ -36,56 +45,106 @@ final class CacheImpl implements Cache
 {
     private final Class<?> type;
     private final io.perbone.mkey.Cache cache; // The backing cache store
+    private final KeyCodec codec;
+    private final boolean immutable;
+    private final CacheCounters counters;
 
     public CacheImpl(final Class<?> type, final io.perbone.mkey.Cache cache) throws IllegalArgumentException
+    {
+        this(type, cache, new CacheCounters());
+    }
+
+    public CacheImpl(final Class<?> type, final io.perbone.mkey.Cache cache, final CacheCounters counters)
+            throws IllegalArgumentException
+    {
+        this(type, cache, EntityUtils.keyCodec(), counters);
+    }
+
+    public CacheImpl(final Class<?> type, final io.perbone.mkey.Cache cache, final KeyCodec codec,
+            final CacheCounters counters) throws IllegalArgumentException
     {
         if (!EntityUtils.isStorable(type))
             throw new IllegalArgumentException("Not a storable bean type");
         if (cache == null)
             throw new IllegalArgumentException("Cache must not be null");
+        if (codec == null)
+            throw new IllegalArgumentException("Key codec must not be null");
+        if (counters == null)
+            throw new IllegalArgumentException("Counters must not be null");
 
         this.type = type;
         this.cache = cache;
+        this.codec = codec;
+        this.counters = counters;
+        this.immutable = Boolean.TRUE.equals(EntityUtils.info(type).immutable());
     }
 
     @Override
     public void add(final Object bean) throws IllegalArgumentException
+    {
+        add(bean, 0L, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * A time to live of zero or less means the cache time to live.
+     */
+    @Override
+    public void add(final Object bean, final long ttl, final TimeUnit unit) throws IllegalArgumentException
     {
         if (bean == null)
             throw new IllegalArgumentException("Cannot cache a null bean");
+        if (unit == null)
+            throw new IllegalArgumentException("Time unit must not be null");
 
-        final String skey = EntityUtils.surrogateKeyHash(bean);
-        final String pkey = EntityUtils.primaryKeyHash(bean);
-        final List<String> akeys = EntityUtils.alternateKeyHashes(bean);
+        final EntityKey skey = codec.surrogateKey(bean);
+        final EntityKey pkey = codec.primaryKey(bean);
+        final List<EntityKey> akeys = codec.alternateKeys(bean);
 
-        final List<String> keys = new ArrayList<String>();
+        final List<EntityKey> keys = new ArrayList<EntityKey>();
 
         if (skey != null)
             keys.add(skey);
         if (pkey != null)
             keys.add(pkey);
-        for (String akey : akeys)
+        for (final EntityKey akey : akeys)
             keys.add(akey);
 
-        cache.put(EntityUtils.clone(bean), keys.toArray());
-    }
+        final Object value = copy(bean);
 
-    @Override
-    public void add(final Object bean, final long ttl, final TimeUnit unit) throws IllegalArgumentException
-    {
-        throw new UnsupportedOperationException("Operation not supported by this implementation");
+        if (!keys.isEmpty() && !cache.contains(keys.get(0)))
+            counters.insert();
+
+        cache.put(ttl > 0 ? new Expiring(value, System.nanoTime() + unit.toNanos(ttl)) : value, keys.toArray());
     }
 
     @Override
     public void set(final Object bean) throws IllegalArgumentException
     {
-        throw new UnsupportedOperationException("Operation not supported by this implementation");
+        set(bean, 0L, TimeUnit.NANOSECONDS);
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The keys of the bean currently cached are dropped first since its alternate keys may have
+     * changed. A time to live of zero or less means the cache time to live.
+     */
     @Override
     public void set(final Object bean, final long ttl, final TimeUnit unit) throws IllegalArgumentException
     {
-        throw new UnsupportedOperationException("Operation not supported by this implementation");
+        if (bean == null)
+            throw new IllegalArgumentException("Cannot cache a null bean");
+
+        final EntityKey skey = codec.surrogateKey(bean);
+        final EntityKey key = skey == null ? codec.primaryKey(bean) : skey;
+        final Object current = key == null ? null : unwrap(cache.get(key));
+
+        if (current != null)
+            delete(current);
+
+        add(bean, ttl, unit);
     }
 
     @Override
@@ -94,7 +153,7 @@ final class CacheImpl implements Cache
         if (id == null)
             throw new IllegalArgumentException("ID must not be null");
 
-        final String skey = EntityUtils.surrogateKeyHash(type, id);
+        final EntityKey skey = codec.surrogateKey(type, id);
 
         return get(skey);
     }
@@ -105,7 +164,7 @@ final class CacheImpl implements Cache
         if (keys.length == 0)
             throw new IllegalArgumentException("Primary key must not be empty neither null");
 
-        final String pkey = EntityUtils.primaryKeyHash(type, keys);
+        final EntityKey pkey = codec.primaryKey(type, keys);
 
         return get(pkey);
     }
@@ -118,7 +177,7 @@ final class CacheImpl implements Cache
         if (keys.length == 0)
             throw new IllegalArgumentException("Alternate keys must not be empty neither null");
 
-        final String akey = EntityUtils.alternateKeyHash(type, name, keys);
+        final EntityKey akey = codec.alternateKey(type, name, keys);
 
         return get(akey);
     }
@@ -132,23 +191,23 @@ final class CacheImpl implements Cache
     @Override
     public boolean contains(final Object bean)
     {
-        final String skey;
-        final String pkey;
-        final List<String> akeys;
+        final EntityKey skey;
+        final EntityKey pkey;
+        final List<EntityKey> akeys;
 
-        if ((skey = EntityUtils.surrogateKeyHash(bean)) != null)
+        if ((skey = codec.surrogateKey(bean)) != null)
         {
-            return cache.contains(skey);
+            return present(skey);
         }
-        else if ((pkey = EntityUtils.primaryKeyHash(bean)) != null)
+        else if ((pkey = codec.primaryKey(bean)) != null)
         {
-            return cache.contains(pkey);
+            return present(pkey);
         }
-        else if (!(akeys = EntityUtils.alternateKeyHashes(bean)).isEmpty())
+        else if (!(akeys = codec.alternateKeys(bean)).isEmpty())
         {
-            for (final String akey : akeys)
+            for (final EntityKey akey : akeys)
             {
-                if (cache.contains(akey))
+                if (present(akey))
                     return true;
             }
 
@@ -163,25 +222,25 @@ final class CacheImpl implements Cache
     @Override
     public boolean containsI(final Object id)
     {
-        final String skey = EntityUtils.surrogateKeyHash(type, id);
+        final EntityKey skey = codec.surrogateKey(type, id);
 
-        return skey == null ? false : cache.contains(skey);
+        return skey == null ? false : present(skey);
     }
 
     @Override
     public boolean containsP(final Object... keys)
     {
-        final String pkey = EntityUtils.primaryKeyHash(type, keys);
+        final EntityKey pkey = codec.primaryKey(type, keys);
 
-        return pkey == null ? false : cache.contains(pkey);
+        return pkey == null ? false : present(pkey);
     }
 
     @Override
     public boolean containsA(final String name, final Object... keys)
     {
-        final String akey = EntityUtils.alternateKeyHash(type, name, keys);
+        final EntityKey akey = codec.alternateKey(type, name, keys);
 
-        return akey == null ? false : cache.contains(akey);
+        return akey == null ? false : present(akey);
     }
 
     @Override
@@ -190,16 +249,16 @@ final class CacheImpl implements Cache
         if (bean == null)
             throw new IllegalArgumentException("Bean must not be null");
 
-        final String skey = EntityUtils.surrogateKeyHash(bean);
-        final String pkey = EntityUtils.primaryKeyHash(bean);
-        final List<String> akeys = EntityUtils.alternateKeyHashes(bean);
+        final EntityKey skey = codec.surrogateKey(bean);
+        final EntityKey pkey = codec.primaryKey(bean);
+        final List<EntityKey> akeys = codec.alternateKeys(bean);
 
         if (skey != null)
-            cache.remove(skey);
+            removed(cache.remove(skey));
         if (pkey != null)
-            cache.remove(pkey);
-        for (final String akey : akeys)
-            cache.remove(akey);
+            removed(cache.remove(pkey));
+        for (final EntityKey akey : akeys)
+            removed(cache.remove(akey));
     }
 
     @Override
@@ -208,9 +267,9 @@ final class CacheImpl implements Cache
         if (id == null)
             throw new IllegalArgumentException("ID must not be null");
 
-        final String skey = EntityUtils.surrogateKeyHash(type, id);
+        final EntityKey skey = codec.surrogateKey(type, id);
 
-        cache.remove(skey);
+        removed(cache.remove(skey));
     }
 
     @Override
@@ -219,9 +278,9 @@ final class CacheImpl implements Cache
         if (keys.length == 0)
             throw new IllegalArgumentException("Primary key must not be empty neither null");
 
-        final String pkey = EntityUtils.primaryKeyHash(type, keys);
+        final EntityKey pkey = codec.primaryKey(type, keys);
 
-        cache.remove(pkey);
+        removed(cache.remove(pkey));
     }
 
     @Override
@@ -232,9 +291,9 @@ final class CacheImpl implements Cache
         if (keys.length == 0)
             throw new IllegalArgumentException("Alternate keys must not be empty neither null");
 
-        final String akey = EntityUtils.alternateKeyHash(type, name, keys);
+        final EntityKey akey = codec.alternateKey(type, name, keys);
 
-        cache.remove(akey);
+        removed(cache.remove(akey));
     }
 
     @Override
@@ -243,9 +302,9 @@ final class CacheImpl implements Cache
         if (id == null)
             throw new IllegalArgumentException("ID must not be null");
 
-        final String skey = EntityUtils.surrogateKeyHash(type, id);
+        final EntityKey skey = codec.surrogateKey(type, id);
 
-        return cache.remove(skey);
+        return live(removed(cache.remove(skey)));
     }
 
     @Override
@@ -254,9 +313,9 @@ final class CacheImpl implements Cache
         if (keys.length == 0)
             throw new IllegalArgumentException("Primary key must not be empty neither null");
 
-        final String pkey = EntityUtils.primaryKeyHash(type, keys);
+        final EntityKey pkey = codec.primaryKey(type, keys);
 
-        return cache.remove(pkey);
+        return live(removed(cache.remove(pkey)));
     }
 
     @Override
@@ -267,14 +326,15 @@ final class CacheImpl implements Cache
         if (keys.length == 0)
             throw new IllegalArgumentException("Alternate keys must not be empty neither null");
 
-        final String akey = EntityUtils.alternateKeyHash(type, name, keys);
+        final EntityKey akey = codec.alternateKey(type, name, keys);
 
-        return cache.remove(akey);
+        return live(removed(cache.remove(akey)));
     }
 
     @Override
     public void invalidate()
     {
+        counters.remove(cache.size());
         cache.clear();
     }
 
@@ -308,13 +368,97 @@ final class CacheImpl implements Cache
      * @param key
      *            the bean key
      * 
-     * @return a clone of the bean from the cache; null if the cache does not contains it
+     * @return a clone of the bean from the cache, or the bean itself for immutable types; null if
+     *         the cache does not contains it
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T get(final EntityKey key)
+    {
+        final Object bean = live(cache.get(key));
+
+        if (bean == null)
+        {
+            counters.miss();
+            return null;
+        }
+
+        counters.hit();
+
+        return (T) copy(bean);
+    }
+
+    /**
+     * Counts the removal of the given bean, if any.
+     */
+    private <T> T removed(final T bean)
+    {
+        if (bean != null)
+            counters.remove(1L);
+
+        return bean;
+    }
+
+    /**
+     * Tells whether the cache holds a live bean with the given key.
+     */
+    private boolean present(final EntityKey key)
+    {
+        return cache.contains(key) && live(cache.get(key)) != null;
+    }
+
+    /**
+     * Returns the bean held by the given cache value, dropping it from the cache when its own time to
+     * live has passed.
+     * 
+     * @param value
+     *            the value from the backing cache store
+     * 
+     * @return the bean; null if there is none or it has expired
      */
     @SuppressWarnings("unchecked")
-    private <T> T get(final String key)
+    private <T> T live(final Object value)
     {
-        final Object bean = cache.get(key);
+        if (!(value instanceof Expiring))
+            return (T) value;
+
+        final Expiring entry = (Expiring) value;
+
+        if (System.nanoTime() - entry.expiresAt < 0L)
+            return (T) entry.bean;
+
+        delete(entry.bean);
 
-        return (T) (bean == null ? null : EntityUtils.clone(bean));
+        return null;
+    }
+
+    /**
+     * Returns the bean held by the given cache value, whether expired or not.
+     */
+    private static Object unwrap(final Object value)
+    {
+        return value instanceof Expiring ? ((Expiring) value).bean : value;
+    }
+
+    /**
+     * Returns the bean itself for immutable types; a clone of it otherwise.
+     */
+    private Object copy(final Object bean)
+    {
+        return immutable ? bean : EntityUtils.clone(bean);
+    }
+
+    /**
+     * A cached bean with its own expiration time.
+     */
+    private static final class Expiring
+    {
+        final Object bean;
+        final long expiresAt; // System.nanoTime() based
+
+        Expiring(final Object bean, final long expiresAt)
+        {
+            this.bean = bean;
+            this.expiresAt = expiresAt;
+        }
     }
 }
\ No newline at end of file
@@ -19,13 +19,21 @@
 
 package io.perbone.udao.internal;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
 
 import io.perbone.mkey.CacheBuilder;
 import io.perbone.mkey.GarbagePolicy;
+import io.perbone.toolbox.serialization.Serializer;
 import io.perbone.udao.configuration.CacheEntry;
+import io.perbone.udao.metrics.CacheMetrics;
 import io.perbone.udao.spi.Cache;
+import io.perbone.udao.util.EntityKey;
+import io.perbone.udao.util.BinarySerializer;
 
 /**
  * Cache pool is factory of {@link Cache} concrete implementations.
@@ -35,12 +43,34 @@ import io.perbone.udao.spi.Cache;
  */
 final class CachePool
 {
+    private static final long DEFAULT_LOAD_TIMEOUT = 30L;
+    private static final TimeUnit DEFAULT_LOAD_TIMEOUT_UNIT = TimeUnit.SECONDS;
+
     private final AtomicBoolean open = new AtomicBoolean(true);
 
     private final ConcurrentHashMap<String, io.perbone.mkey.Cache> caches = new ConcurrentHashMap<>();
 
     private final ConcurrentHashMap<Class<?>, String> types = new ConcurrentHashMap<>();
 
+    private final ConcurrentHashMap<String, CacheEntry> entries = new ConcurrentHashMap<>();
+
+    /* Types whose mutations are buffered and written behind */
+    private final ConcurrentHashMap<Class<?>, Boolean> writeBehindTypes = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<String, OffHeapStore> stores = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<Class<?>, String> l2Types = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<String, CacheCounters> counters = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<String, CacheCounters> l2Counters = new ConcurrentHashMap<>();
+
+    private final Serializer serializer = new BinarySerializer(false, 0);
+
+    private final SingleFlight singleFlight = new SingleFlight();
+
+    private final NegativeCache negatives = new NegativeCache();
+
     public CachePool()
     {
         // do nothing
@@ -71,6 +101,30 @@ final class CachePool
                 .build();
 
         caches.put(centry.id(), cache);
+        entries.put(centry.id(), centry);
+        counters.put(centry.id(), new CacheCounters());
+    }
+
+    /**
+     * Allocates a new L2 {@link OffHeapStore} instance into the pool.
+     * 
+     * @param centry
+     *            the cache definition
+     * 
+     * @throws IllegalStateException
+     *             if this cache pool is closed
+     * @throws IllegalArgumentException
+     *             if the cache definition is invalid
+     */
+    public void allocateL2(final CacheEntry centry) throws IllegalStateException, IllegalArgumentException
+    {
+        checkOpen();
+
+        if (stores.containsKey(centry.id()))
+            return;
+
+        stores.put(centry.id(), new OffHeapStore(centry));
+        l2Counters.put(centry.id(), new CacheCounters());
     }
 
     /**
@@ -95,8 +149,74 @@ final class CachePool
         types.put(type, cacheId);
     }
 
+    /**
+     * Attaches the given bean type to the given L2 cache id.
+     * <p>
+     * The cache id must be mapped to a previously allocated L2 store.
+     * 
+     * @param type
+     *            the bean type
+     * @param cacheId
+     *            the L2 cache id
+     * @throws IllegalStateException
+     *             if this cache pool is closed or if there is no store mapped to the given cache id
+     */
+    public <T> void attachL2(final Class<T> type, final String cacheId) throws IllegalStateException
+    {
+        checkOpen();
+
+        if (!stores.containsKey(cacheId))
+            throw new IllegalStateException("Cache id matches no L2 cache instance");
+
+        l2Types.put(type, cacheId);
+    }
+
+    /**
+     * Sets whether or not the mutations of the given bean type are written behind.
+     * <p>
+     * Write-behind requires the type to be attached to an L1 cache.
+     * 
+     * @param type
+     *            the bean type
+     * @param writeBehind
+     *            <tt>true</tt> to buffer the mutations; <tt>false</tt> to write them through
+     * 
+     * @throws IllegalStateException
+     *             if this cache pool is closed or if the type is not attached to an L1 cache
+     */
+    public void writeBehind(final Class<?> type, final boolean writeBehind) throws IllegalStateException
+    {
+        checkOpen();
+
+        if (!writeBehind)
+        {
+            writeBehindTypes.remove(type);
+            return;
+        }
+
+        if (!types.containsKey(type))
+            throw new IllegalStateException("Write-behind requires an L1 cache");
+
+        writeBehindTypes.put(type, Boolean.TRUE);
+    }
+
+    /**
+     * Returns the write-behind settings for the given bean type.
+     * 
+     * @param type
+     *            the bean type
+     * 
+     * @return the definition of the L1 cache of the type or null if the type is written through
+     */
+    public CacheEntry writeBehind(final Class<?> type)
+    {
+        return writeBehindTypes.containsKey(type) ? entries.get(types.get(type)) : null;
+    }
+
     /**
      * Retrieves a {@link Cache} instance compatible with the given bean type.
+     * <p>
+     * When the type is attached to both an L1 and an L2 cache the returned instance chains them.
      * 
      * @param type
      *            the bean type
@@ -111,11 +231,113 @@ final class CachePool
         checkOpen();
 
         final String cacheId = types.get(type);
+        final String l2CacheId = l2Types.get(type);
 
-        if (cacheId == null)
+        if (cacheId == null && l2CacheId == null)
             return new NoCacheImpl();
+        else if (l2CacheId == null)
+            return new CacheImpl(type, caches.get(cacheId), counters.get(cacheId));
+        else if (cacheId == null)
+            return new OffHeapCacheImpl(type, stores.get(l2CacheId), serializer, l2Counters.get(l2CacheId));
+        else
+            return new TieredCacheImpl(new CacheImpl(type, caches.get(cacheId), counters.get(cacheId)),
+                    new OffHeapCacheImpl(type, stores.get(l2CacheId), serializer, l2Counters.get(l2CacheId)));
+    }
+
+    /**
+     * Returns the statistics of all the allocated caches.
+     * <p>
+     * The L1 evictions are derived from the beans added and removed through this pool, as the
+     * backing store does not count them; the L2 evictions are counted by the store itself.
+     * 
+     * @return the cache statistics
+     */
+    public List<CacheMetrics> metrics()
+    {
+        final List<CacheMetrics> metrics = new ArrayList<>();
+
+        for (final String cacheId : caches.keySet())
+        {
+            final io.perbone.mkey.Cache cache = caches.get(cacheId);
+            final CacheCounters c = counters.get(cacheId);
+
+            if (cache != null && c != null)
+            {
+                final long size = cache.size();
+                metrics.add(new CacheMetrics(cacheId, 1, size, c.hits(), c.misses(), c.evictions(size)));
+            }
+        }
+
+        for (final String cacheId : stores.keySet())
+        {
+            final OffHeapStore store = stores.get(cacheId);
+            final CacheCounters c = l2Counters.get(cacheId);
+
+            if (store != null && c != null)
+                metrics.add(new CacheMetrics(cacheId, 2, store.size(), c.hits(), c.misses(), store.evictions()));
+        }
+
+        return metrics;
+    }
+
+    /**
+     * Sets the time to live of the remembered lookup misses of the given bean type.
+     * 
+     * @param type
+     *            the bean type
+     * @param ttl
+     *            the time to live in milliseconds; null or zero to not remember the misses
+     * 
+     * @throws IllegalStateException
+     *             if this cache pool is closed
+     */
+    public void negativeCaching(final Class<?> type, final Long ttl) throws IllegalStateException
+    {
+        checkOpen();
+
+        negatives.enable(type, ttl == null ? 0L : ttl, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns the cache of the lookup misses.
+     * 
+     * @return the negative cache
+     */
+    public NegativeCache negatives()
+    {
+        return negatives;
+    }
+
+    /**
+     * Loads a bean missed by the cache sharing the load with the concurrent misses of the same key.
+     * <p>
+     * The waiting callers give up after the <tt>load-timeout</tt> of the type's L1 cache, in seconds
+     * unless the entry gives a unit.
+     * 
+     * @param type
+     *            the bean type
+     * @param key
+     *            the bean key
+     * @param loader
+     *            the provider load
+     * 
+     * @return the loaded bean
+     * 
+     * @throws IllegalStateException
+     *             if this cache pool is closed
+     */
+    public <T> T load(final Class<?> type, final EntityKey key, final Supplier<T> loader) throws IllegalStateException
+    {
+        checkOpen();
+
+        final String cacheId = types.get(type);
+        final CacheEntry centry = cacheId == null ? null : entries.get(cacheId);
+
+        if (centry == null || centry.loadTimeout() == null || centry.loadTimeout() <= 0)
+            return singleFlight.load(key, loader, DEFAULT_LOAD_TIMEOUT, DEFAULT_LOAD_TIMEOUT_UNIT);
         else
-            return new CacheImpl(type, caches.get(cacheId));
+            return singleFlight.load(key, loader, centry.loadTimeout(),
+                    centry.loadTimeoutUnit() == null ? DEFAULT_LOAD_TIMEOUT_UNIT : centry.loadTimeoutUnit());
     }
 
     /**
@@ -140,8 +362,18 @@ final class CachePool
             for (final io.perbone.mkey.Cache cache : caches.values())
                 cache.clear();
 
+            for (final OffHeapStore store : stores.values())
+                store.close();
+
             types.clear();
             caches.clear();
+            entries.clear();
+            negatives.clear();
+            writeBehindTypes.clear();
+            l2Types.clear();
+            stores.clear();
+            counters.clear();
+            l2Counters.clear();
         }
     }
 
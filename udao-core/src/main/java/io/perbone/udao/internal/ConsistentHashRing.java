@@ -0,0 +1,230 @@
+/*
+ * This file is part of UDAO 
+ * https://github.com/perbone/udao/
+ * 
+ * Copyright 2013-2018 Paulo Perbone
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package io.perbone.udao.internal;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.perbone.udao.spi.DataProvider;
+import io.perbone.udao.util.EntityKey;
+
+/**
+ * Immutable consistent hash ring of data providers.
+ * <p>
+ * Every provider owns <tt>weight x 160</tt> virtual nodes whose positions depend only on the
+ * provider name and the node index. A key belongs to the first virtual node at or after the key
+ * hash, so adding or removing a provider only remaps the keys of the nodes that provider gains or
+ * loses; all the other keys stay where they were.
+ * 
+ * @author Paulo Perbone <pauloperbone@yahoo.com>
+ * @since 0.17.0
+ */
+final class ConsistentHashRing
+{
+    /** Virtual nodes per unit of weight */
+    static final int POINTS_PER_WEIGHT = 160;
+
+    private static final ConsistentHashRing EMPTY = new ConsistentHashRing(Collections.<String, Node> emptyMap());
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final Map<String, Node> nodes;
+
+    /* Virtual node positions in ascending order and their owners */
+    private final long[] points;
+    private final DataProvider[] owners;
+
+    private ConsistentHashRing(final Map<String, Node> nodes)
+    {
+        this.nodes = nodes;
+
+        final List<Point> all = new ArrayList<>();
+
+        for (final Node node : nodes.values())
+        {
+            for (int i = 0; i < node.weight * POINTS_PER_WEIGHT; i++)
+                all.add(new Point(hash((node.name + "#" + i).getBytes(StandardCharsets.UTF_8)), node));
+        }
+
+        /* Ties are broken by name so the ring does not depend on the insertion order */
+        Collections.sort(all, (a, b) -> a.hash != b.hash ? Long.compare(a.hash, b.hash)
+                : a.node.name.compareTo(b.node.name));
+
+        this.points = new long[all.size()];
+        this.owners = new DataProvider[all.size()];
+
+        for (int i = 0; i < all.size(); i++)
+        {
+            points[i] = all.get(i).hash;
+            owners[i] = all.get(i).node.provider;
+        }
+    }
+
+    /**
+     * Returns an empty ring.
+     * 
+     * @return the empty ring
+     */
+    static ConsistentHashRing empty()
+    {
+        return EMPTY;
+    }
+
+    /**
+     * Returns a new ring with the given provider added, or re-weighted if the name is already on
+     * this ring.
+     * 
+     * @param name
+     *            the provider name; its virtual node positions derive from it
+     * @param provider
+     *            the provider
+     * @param weight
+     *            the provider weight
+     * 
+     * @return the new ring
+     * 
+     * @throws IllegalArgumentException
+     *             if the name or provider is null or the weight is not positive
+     */
+    ConsistentHashRing with(final String name, final DataProvider provider, final int weight)
+            throws IllegalArgumentException
+    {
+        if (name == null || provider == null)
+            throw new IllegalArgumentException("Provider and its name must not be null");
+        if (weight <= 0)
+            throw new IllegalArgumentException(String.format("Invalid weight [%d]; must be positive", weight));
+
+        final Map<String, Node> copy = new LinkedHashMap<>(nodes);
+        copy.put(name, new Node(name, provider, weight));
+
+        return new ConsistentHashRing(Collections.unmodifiableMap(copy));
+    }
+
+    /**
+     * Returns a new ring without the given provider.
+     * 
+     * @param provider
+     *            the provider
+     * 
+     * @return the new ring or this one if the provider is not on it
+     */
+    ConsistentHashRing without(final DataProvider provider)
+    {
+        final Map<String, Node> copy = new LinkedHashMap<>(nodes);
+
+        if (!copy.values().removeIf(node -> node.provider == provider))
+            return this;
+
+        return copy.isEmpty() ? EMPTY : new ConsistentHashRing(Collections.unmodifiableMap(copy));
+    }
+
+    /**
+     * Returns the provider owning the given key.
+     * 
+     * @param key
+     *            the partition key
+     * 
+     * @return the owner provider or null if the ring is empty
+     */
+    DataProvider lookup(final EntityKey key)
+    {
+        if (points.length == 0)
+            return null;
+
+        int idx = Arrays.binarySearch(points, hash(key.bytes()));
+
+        if (idx < 0)
+            idx = -idx - 1;
+        if (idx == points.length)
+            idx = 0; // wraps around
+
+        return owners[idx];
+    }
+
+    boolean isEmpty()
+    {
+        return points.length == 0;
+    }
+
+    /**
+     * Returns the number of distinct providers on this ring.
+     * 
+     * @return the provider count
+     */
+    int size()
+    {
+        return nodes.size();
+    }
+
+    /**
+     * FNV-1a over the bytes followed by a 64-bit finalizer so close inputs spread over the ring.
+     * Depends only on the bytes, so every JVM maps a key to the same provider.
+     */
+    static long hash(final byte[] bytes)
+    {
+        long h = FNV_OFFSET;
+
+        for (final byte b : bytes)
+        {
+            h ^= b & 0xff;
+            h *= FNV_PRIME;
+        }
+
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+
+        return h;
+    }
+
+    private static final class Node
+    {
+        final String name;
+        final DataProvider provider;
+        final int weight;
+
+        Node(final String name, final DataProvider provider, final int weight)
+        {
+            this.name = name;
+            this.provider = provider;
+            this.weight = weight;
+        }
+    }
+
+    private static final class Point
+    {
+        final long hash;
+        final Node node;
+
+        Point(final long hash, final Node node)
+        {
+            this.hash = hash;
+            this.node = node;
+        }
+    }
+}
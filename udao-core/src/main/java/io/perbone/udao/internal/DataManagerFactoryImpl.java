@@ -20,31 +20,47 @@
 package io.perbone.udao.internal;
 
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.net.URL;
 import java.util.Enumeration;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import io.perbone.toolbox.provider.NotEnoughResourceException;
 import io.perbone.toolbox.settings.BackingStoreException;
 import io.perbone.toolbox.settings.InvalidSettingsException;
 import io.perbone.toolbox.settings.Settings;
 import io.perbone.toolbox.validation.StringValidations;
+import io.perbone.udao.AsyncDataManager;
 import io.perbone.udao.DataException;
 import io.perbone.udao.DataManager;
 import io.perbone.udao.DataManagerFactory;
 import io.perbone.udao.configuration.CacheEntry;
 import io.perbone.udao.configuration.Configuration;
 import io.perbone.udao.configuration.EntityEntry;
+import io.perbone.udao.configuration.MetricsEntry;
 import io.perbone.udao.configuration.ProviderEntry;
 import io.perbone.udao.configuration.SchemaEntry;
 import io.perbone.udao.configuration.StorageUnitEntry;
 import io.perbone.udao.spi.DataProvider;
+import io.perbone.udao.metrics.MetricsSnapshot;
 import io.perbone.udao.spi.DataProviderException;
+import io.perbone.udao.spi.MetricsReporter;
+import io.perbone.udao.spi.ProviderSelector;
 import io.perbone.udao.util.EntityUtils;
 
 /**
@@ -55,6 +71,8 @@ import io.perbone.udao.util.EntityUtils;
  */
 public final class DataManagerFactoryImpl implements DataManagerFactory<DataManager>
 {
+    private static final Logger logger = LoggerFactory.getLogger(DataManagerFactoryImpl.class);
+
     private static final String DEFAULT_SETTINGNS_URI = "META-INF/udao.xml";
     private final static String DEFAULT_STORAGE_UNIT_KEY = "__DefaultProviderKey";
 
@@ -73,8 +91,27 @@ public final class DataManagerFactoryImpl implements DataManagerFactory<DataMana
     /** List of attached units and its providers */
     private final Map<String, Set<DataProvider>> units = new ConcurrentHashMap<>();
 
+    /** Provider routers; one per storage unit */
+    private final Map<String, ProviderRouter> routers = new ConcurrentHashMap<>();
+
+    /** Executors of the asynchronous data managers; one per storage unit */
+    private final Map<String, ExecutorService> executors = new ConcurrentHashMap<>();
+
+    /** Write-behind buffers; one per storage unit */
+    private final Map<String, WriteBehindBuffer> writeBehinds = new ConcurrentHashMap<>();
+
     private final CachePool cachePool = new CachePool();
 
+    private final MetricsRegistry metricsRegistry = new MetricsRegistry();
+
+    private final List<MetricsReporter> reporters = new CopyOnWriteArrayList<>();
+
+    /* Runs the reporters; null when there is none */
+    private volatile ScheduledExecutorService reporting = null;
+
+    /* The registered metrics MBean name; null when JMX is disabled */
+    private volatile ObjectName mbeanName = null;
+
     public DataManagerFactoryImpl()
     {
         // do nothing
@@ -158,9 +195,9 @@ public final class DataManagerFactoryImpl implements DataManagerFactory<DataMana
         if (!units.containsKey(DEFAULT_STORAGE_UNIT_KEY))
             throw new IllegalStateException("Default data provider not available");//
 
-        final Set<DataProvider> providers = units.get(DEFAULT_STORAGE_UNIT_KEY);
+        final ProviderRouter router = routers.get(DEFAULT_STORAGE_UNIT_KEY);
 
-        return new DataManagerImpl(providers, cachePool);
+        return new DataManagerImpl(router, cachePool, writeBehinds.get(DEFAULT_STORAGE_UNIT_KEY), metering());
 
     }
 
@@ -178,9 +215,46 @@ public final class DataManagerFactoryImpl implements DataManagerFactory<DataMana
         if (!units.containsKey(key))
             throw new IllegalStateException("Storage unit id does not match any provider");
 
-        final Set<DataProvider> providers = units.get(key);
+        final ProviderRouter router = routers.get(key);
 
-        return new DataManagerImpl(providers, cachePool);
+        return new DataManagerImpl(router, cachePool, writeBehinds.get(key), metering());
+    }
+
+    @Override
+    public AsyncDataManager createAsync() throws IllegalStateException, DataException
+    {
+        checkActive();
+        checkShutdownInProgress();
+
+        if (!units.containsKey(DEFAULT_STORAGE_UNIT_KEY))
+            throw new IllegalStateException("Default data provider not available");
+
+        final ProviderRouter router = routers.get(DEFAULT_STORAGE_UNIT_KEY);
+
+        return new AsyncDataManagerImpl(
+                new DataManagerImpl(router, cachePool, writeBehinds.get(DEFAULT_STORAGE_UNIT_KEY), metering()),
+                executors.get(DEFAULT_STORAGE_UNIT_KEY));
+    }
+
+    @Override
+    public AsyncDataManager createAsync(final String unitId)
+            throws IllegalStateException, IllegalArgumentException, DataException
+    {
+        checkActive();
+        checkShutdownInProgress();
+
+        if (!StringValidations.isValid(unitId))
+            throw new IllegalArgumentException("Invalid storage unit id");
+
+        final String key = unitId.toLowerCase();
+
+        if (!units.containsKey(key))
+            throw new IllegalStateException("Storage unit id does not match any provider");
+
+        final ProviderRouter router = routers.get(key);
+
+        return new AsyncDataManagerImpl(new DataManagerImpl(router, cachePool, writeBehinds.get(key), metering()),
+                executors.get(key));
     }
 
     @Override
@@ -196,6 +270,34 @@ public final class DataManagerFactoryImpl implements DataManagerFactory<DataMana
             dm.close();
     }
 
+    @Override
+    public MetricsSnapshot metrics() throws IllegalStateException
+    {
+        checkActive();
+
+        return snapshot();
+    }
+
+    /**
+     * Takes a snapshot of the metrics whatever the state of this factory.
+     * 
+     * @return the current metrics
+     */
+    private MetricsSnapshot snapshot()
+    {
+        long writeBehindDepth = 0L;
+        long writeBehindDeadLetters = 0L;
+
+        for (final WriteBehindBuffer writeBehind : new HashSet<>(writeBehinds.values()))
+        {
+            writeBehindDepth += writeBehind.depth();
+            writeBehindDeadLetters += writeBehind.deadLettered();
+        }
+
+        return metricsRegistry.snapshot(cachePool.metrics(), cachePool.negatives(), writeBehindDepth,
+                writeBehindDeadLetters);
+    }
+
     @Override
     public DataManagerFactory<DataManager> activate()
             throws IllegalStateException, NotEnoughResourceException, DataException
@@ -215,7 +317,7 @@ public final class DataManagerFactoryImpl implements DataManagerFactory<DataMana
                     }
                     else if (centry.level() == CACHE_LEVEL_L2)
                     {
-                        // TODO initialize L2 caches
+                        cachePool.allocateL2(centry);
                     }
                     else if (centry.level() == CACHE_LEVEL_L3)
                     {
@@ -240,9 +342,14 @@ public final class DataManagerFactoryImpl implements DataManagerFactory<DataMana
                     {
                         final Object entity = loadType(eentry.type());
                         final String cacheId = parseL1CacheId(entity.getClass(), eentry, sentry, null, null);
+                        final String l2CacheId = parseL2CacheId(entity.getClass(), eentry);
 
                         if (cacheId != null)
                             cachePool.attach(entity.getClass(), cacheId);
+                        cachePool.writeBehind(entity.getClass(), parseWriteBehind(cacheId, eentry));
+                        cachePool.negativeCaching(entity.getClass(), eentry.negativeTtl());
+                        if (l2CacheId != null)
+                            cachePool.attachL2(entity.getClass(), l2CacheId);
                     }
                 }
             }
@@ -260,6 +367,15 @@ public final class DataManagerFactoryImpl implements DataManagerFactory<DataMana
                 {
                     final Set<DataProvider> unitProviders = units.containsKey(suentry.id()) ? units.get(suentry.id())
                             : new HashSet<DataProvider>();
+                    final ProviderRouter router = routers.computeIfAbsent(suentry.id().toLowerCase(),
+                            k -> new ProviderRouter());
+                    if (suentry.selector() != null)
+                        router.selector(createSelector(suentry.selector()));
+                    if (suentry.stickyWindow() != null)
+                        router.stickyWindow(suentry.stickyWindow(),
+                                suentry.stickyUnit() == null ? TimeUnit.MILLISECONDS : suentry.stickyUnit());
+
+                    int asyncThreads = 0;
 
                     /* PROVIDERS initialization */
                     for (final ProviderEntry pentry : suentry.providers().values())
@@ -269,9 +385,15 @@ public final class DataManagerFactoryImpl implements DataManagerFactory<DataMana
                         injectProperties(provider, pentry.properties());
 
                         provider.setReadOnly(pentry.readOnly());
+                        if (metering() != null)
+                            provider.setPoolWaitListener(metricsRegistry.poolWaitListener(provider.id()));
                         provider.activate();
 
                         unitProviders.add(provider);
+                        router.add(pentry.id(), provider, pentry.weight() == null ? 1 : pentry.weight());
+
+                        asyncThreads += pentry.asyncThreads() == null ? Runtime.getRuntime().availableProcessors()
+                                : pentry.asyncThreads();
 
                         /* Cache id override */
                         for (final SchemaEntry sentry : suentry.schemas().values())
@@ -281,17 +403,35 @@ public final class DataManagerFactoryImpl implements DataManagerFactory<DataMana
                                 final Object entity = loadType(eentry.type());
                                 final String cacheId = parseL1CacheId(entity.getClass(), eentry, sentry, suentry,
                                         pentry);
+                                final String l2CacheId = parseL2CacheId(entity.getClass(), eentry);
 
                                 if (cacheId != null)
                                     cachePool.attach(entity.getClass(), cacheId);
+                                cachePool.writeBehind(entity.getClass(), parseWriteBehind(cacheId, eentry));
+                                cachePool.negativeCaching(entity.getClass(), eentry.negativeTtl());
+                                if (l2CacheId != null)
+                                    cachePool.attachL2(entity.getClass(), l2CacheId);
                             }
                         }
                     }
 
                     units.put(suentry.id().toLowerCase(), unitProviders);
 
+                    final ExecutorService executor = AsyncExecutors.newExecutor("udao-async-" + suentry.id(),
+                            Math.max(1, asyncThreads));
+                    executors.put(suentry.id().toLowerCase(), executor);
+
+                    final WriteBehindBuffer writeBehind = new WriteBehindBuffer(suentry.id(),
+                            new DataManagerImpl(router, cachePool, null, metering()), cachePool);
+                    writeBehinds.put(suentry.id().toLowerCase(), writeBehind);
+
                     if (suentry.defaultUnit()) // Put again with the alias 'default'
+                    {
                         units.put(DEFAULT_STORAGE_UNIT_KEY, unitProviders);
+                        routers.put(DEFAULT_STORAGE_UNIT_KEY, router);
+                        executors.put(DEFAULT_STORAGE_UNIT_KEY, executor);
+                        writeBehinds.put(DEFAULT_STORAGE_UNIT_KEY, writeBehind);
+                    }
                 }
             }
             catch (final Exception e)
@@ -300,6 +440,18 @@ public final class DataManagerFactoryImpl implements DataManagerFactory<DataMana
 
                 throw new DataException("The underlying provider failed on activate; operation aborted", e);
             }
+
+            /* METRICS initialization */
+            try
+            {
+                startMetrics(configuration.metrics());
+            }
+            catch (final Exception e)
+            {
+                abortActivation();
+
+                throw new DataException("Could not initialize the metrics; activation aborted", e);
+            }
         }
         else
         {
@@ -323,6 +475,10 @@ public final class DataManagerFactoryImpl implements DataManagerFactory<DataMana
 
         if (shutdownInProgress.compareAndSet(false, true))
         {
+            stopMetrics(graceTime, unit); // reports before the caches and providers go down
+            shutdownExecutors(graceTime, unit);
+            final long lost = closeWriteBehinds(graceTime, unit); // flushes before the providers go down
+
             try
             {
                 for (final Set<DataProvider> providers : units.values())
@@ -344,6 +500,11 @@ public final class DataManagerFactoryImpl implements DataManagerFactory<DataMana
             cachePool.close();
 
             active.set(false);
+
+            if (lost > 0L)
+                throw new DataException(String.format(
+                        "Factory shut down but [%d] write-behind beans were never written; see the log for their keys",
+                        lost));
         }
 
         return this;
@@ -433,6 +594,55 @@ public final class DataManagerFactoryImpl implements DataManagerFactory<DataMana
         return cacheable && cacheId == null ? configuration.defaultCaheId(CACHE_LEVEL_L1) : cacheId;
     }
 
+    /**
+     * Tells whether or not the mutations of the given type are written behind.
+     * <p>
+     * The entity setting overrides the setting of its L1 cache; types with no L1 cache are always
+     * written through.
+     * 
+     * @param cacheId
+     *            the L1 cache id of the type
+     * @param eentry
+     *            the entity settings
+     * 
+     * @return <tt>true</tt> if the type is written behind
+     */
+    private boolean parseWriteBehind(final String cacheId, final EntityEntry eentry)
+    {
+        if (cacheId == null)
+            return false;
+
+        if (eentry != null && eentry.writeBehind() != null)
+            return eentry.writeBehind();
+
+        final Boolean writeBehind = configuration.cache(cacheId).writeBehind();
+
+        return writeBehind != null && writeBehind;
+    }
+
+    /**
+     * Returns the L2 cache id for the given type.
+     * <p>
+     * Cacheable types are chained to the default L2 cache, if any; the cache id overrides select
+     * only L1 caches.
+     * 
+     * @param type
+     *            the bean type
+     * @param eentry
+     *            the entity settings
+     * 
+     * @return the L2 cache id or null if the type has no L2 cache
+     */
+    private String parseL2CacheId(final Class<?> type, final EntityEntry eentry)
+    {
+        boolean cacheable = EntityUtils.info(type).cacheable();
+
+        if (eentry != null && eentry.cacheable() != null)
+            cacheable = eentry.cacheable();
+
+        return cacheable ? configuration.defaultCaheId(CACHE_LEVEL_L2) : null;
+    }
+
     /**
      * Creates a new concrete {@link StorageProvider} object based on the given settings.
      * 
@@ -454,6 +664,24 @@ public final class DataManagerFactoryImpl implements DataManagerFactory<DataMana
         return provider;
     }
 
+    /**
+     * Creates the provider selector of a storage unit.
+     * 
+     * @param name
+     *            a built-in strategy name or a {@link ProviderSelector} class name
+     * 
+     * @return the provider selector
+     * 
+     * @throws IllegalAccessException
+     *             if the selector class cannot be loaded
+     */
+    private ProviderSelector createSelector(final String name) throws IllegalAccessException
+    {
+        final ProviderSelector selector = ProviderSelectors.named(name);
+
+        return selector == null ? (ProviderSelector) loadType(name) : selector;
+    }
+
     private Object loadType(final String name) throws IllegalAccessException
     {
         Object instance;
@@ -503,6 +731,10 @@ public final class DataManagerFactoryImpl implements DataManagerFactory<DataMana
      */
     private void abortActivation()
     {
+        stopMetrics(1L, TimeUnit.SECONDS);
+        shutdownExecutors(1L, TimeUnit.SECONDS);
+        closeWriteBehinds(1L, TimeUnit.SECONDS);
+
         try
         {
             for (final Set<DataProvider> providers : units.values())
@@ -524,4 +756,201 @@ public final class DataManagerFactoryImpl implements DataManagerFactory<DataMana
             throw new DataProviderException("Cannot shutdown this factory", e);
         }
     }
+
+    /**
+     * Shuts down all the asynchronous executors waiting for the running operations to finish.
+     * 
+     * @param graceTime
+     *            the maximum time to wait for each executor
+     * @param unit
+     *            the grace time unit
+     */
+    private void shutdownExecutors(final long graceTime, final TimeUnit unit)
+    {
+        for (final ExecutorService executor : new HashSet<>(executors.values()))
+        {
+            executor.shutdown();
+
+            try
+            {
+                if (!executor.awaitTermination(graceTime, unit))
+                    executor.shutdownNow();
+            }
+            catch (final InterruptedException e)
+            {
+                executor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        executors.clear();
+    }
+
+    /**
+     * Closes all the write-behind buffers writing their pending beans.
+     * 
+     * @param graceTime
+     *            the maximum time to wait for each running flush
+     * @param unit
+     *            the grace time unit
+     * 
+     * @return the number of beans never written
+     */
+    private long closeWriteBehinds(final long graceTime, final TimeUnit unit)
+    {
+        long lost = 0L;
+
+        for (final WriteBehindBuffer writeBehind : new HashSet<>(writeBehinds.values()))
+            lost += writeBehind.close(graceTime, unit);
+
+        writeBehinds.clear();
+
+        return lost;
+    }
+
+    /**
+     * Returns the registry metering the data source operations.
+     * 
+     * @return the metrics registry or null if metrics are disabled
+     */
+    private MetricsRegistry metering()
+    {
+        final Boolean enabled = configuration.metrics().enabled();
+
+        return enabled == null || enabled ? metricsRegistry : null;
+    }
+
+    /**
+     * Registers the metrics MBean and starts the configured reporters.
+     * 
+     * @param mentry
+     *            the metrics settings
+     * 
+     * @throws Exception
+     *             if the MBean cannot be registered or a reporter cannot be created
+     */
+    private void startMetrics(final MetricsEntry mentry) throws Exception
+    {
+        if (metering() == null)
+            return;
+
+        if (mentry.jmxEnabled() != null && mentry.jmxEnabled())
+        {
+            final ObjectName name = new ObjectName(
+                    "io.perbone.udao:type=Metrics,name=udao-" + Integer.toHexString(System.identityHashCode(this)));
+
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new MetricsMBean(this::snapshot), name);
+            mbeanName = name;
+        }
+
+        for (final String type : mentry.reporters())
+            reporters.add((MetricsReporter) loadType(type));
+
+        if (reporters.isEmpty())
+            return;
+
+        final long interval = mentry.reportInterval() == null || mentry.reportInterval() <= 0 ? 60L
+                : mentry.reportInterval();
+        final TimeUnit unit = mentry.unit() == null ? TimeUnit.SECONDS : mentry.unit();
+
+        reporting = Executors.newSingleThreadScheduledExecutor(r ->
+        {
+            final Thread thread = new Thread(r, "udao-metrics-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reporting.scheduleAtFixedRate(this::report, interval, interval, unit);
+    }
+
+    /**
+     * Stops the reporters, after a last report, and unregisters the metrics MBean.
+     * 
+     * @param graceTime
+     *            the maximum time to wait for a running report
+     * @param unit
+     *            the grace time unit
+     */
+    private void stopMetrics(final long graceTime, final TimeUnit unit)
+    {
+        final ScheduledExecutorService executor = reporting;
+
+        if (executor != null)
+        {
+            reporting = null;
+            executor.shutdown();
+
+            try
+            {
+                if (!executor.awaitTermination(graceTime, unit))
+                    executor.shutdownNow();
+            }
+            catch (final InterruptedException e)
+            {
+                executor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+
+            report();
+        }
+
+        for (final MetricsReporter reporter : reporters)
+        {
+            try
+            {
+                reporter.close();
+            }
+            catch (final Exception e)
+            {
+                logger.warn("Metrics reporter [{}] failed on close", reporter.getClass().getName(), e);
+            }
+        }
+
+        reporters.clear();
+
+        final ObjectName name = mbeanName;
+
+        if (name != null)
+        {
+            mbeanName = null;
+
+            try
+            {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+            }
+            catch (final Exception e)
+            {
+                logger.warn("Could not unregister the metrics MBean [{}]", name, e);
+            }
+        }
+    }
+
+    /**
+     * Hands a new snapshot to every reporter; a failing reporter does not affect the others.
+     */
+    private void report()
+    {
+        final MetricsSnapshot snapshot;
+
+        try
+        {
+            snapshot = snapshot();
+        }
+        catch (final Exception e)
+        {
+            logger.warn("Could not take the metrics snapshot", e);
+            return;
+        }
+
+        for (final MetricsReporter reporter : reporters)
+        {
+            try
+            {
+                reporter.report(snapshot);
+            }
+            catch (final Exception e)
+            {
+                logger.warn("Metrics reporter [{}] failed", reporter.getClass().getName(), e);
+            }
+        }
+    }
 }
\ No newline at end of file
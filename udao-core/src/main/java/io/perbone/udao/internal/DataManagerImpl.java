@@ -19,15 +19,24 @@
 
 package io.perbone.udao.internal;
 
-import java.lang.reflect.Field;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.Date;
-import java.util.HashSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
 
 import javax.validation.ConstraintViolationException;
 
@@ -38,7 +47,6 @@ import io.perbone.toolbox.annotation.AnnotationScanner;
 import io.perbone.toolbox.id.IdFactory;
 import io.perbone.toolbox.provider.NotEnoughResourceException;
 import io.perbone.toolbox.provider.OperationTimeoutException;
-import io.perbone.toolbox.security.Fortuna;
 import io.perbone.toolbox.validation.StringValidations;
 import io.perbone.udao.Cursor;
 import io.perbone.udao.DataConstraintViolationException;
@@ -46,6 +54,7 @@ import io.perbone.udao.DataException;
 import io.perbone.udao.DataManager;
 import io.perbone.udao.KeyViolationException;
 import io.perbone.udao.NotFoundException;
+import io.perbone.udao.SessionToken;
 import io.perbone.udao.annotation.AlternateKey;
 import io.perbone.udao.annotation.AlternateKeys;
 import io.perbone.udao.annotation.DataType;
@@ -64,12 +73,19 @@ import io.perbone.udao.spi.DataSource;
 import io.perbone.udao.transaction.InvalidTransactionException;
 import io.perbone.udao.transaction.Transaction;
 import io.perbone.udao.transaction.TransactionException;
+import io.perbone.udao.util.BeanAccessor;
 import io.perbone.udao.util.ElementInfo;
+import io.perbone.udao.util.EntityKey;
 import io.perbone.udao.util.EntityUtils;
 import io.perbone.udao.util.StorableInfo;
 
 /**
  * Concrete implementation of {@link DataManager} interface.
+ * <p>
+ * A manager is thread safe and can be shared by concurrent units of work. Transactions are bound
+ * to the calling thread, or to the scope object of a view created by {@link #scope(Object)}; each
+ * thread or scope sees only its own transaction. Operations outside a transaction take no lock:
+ * they only check, without locking, that there is no transaction in progress at all.
  * 
  * @author Paulo Perbone <pauloperbone@yahoo.com>
  * @since 0.1.0
@@ -80,26 +96,35 @@ public final class DataManagerImpl implements DataManager
 
     private final String MESSAGE_FAIL_UNSUPPORTED_OPERATION = "Data manager feature not supported by this implementation";
 
-    private AtomicBoolean closed = new AtomicBoolean(false);
+    /** Per thread scope key; the transactions map never holds the threads themselves */
+    private static final ThreadLocal<Object> THREAD_SCOPE = ThreadLocal.withInitial(Object::new);
 
-    /** READ-WRITE providers for this manager */
-    private final List<DataProvider> rwProviders = new ArrayList<>();
+    private final AtomicBoolean closed;
 
-    /** READ-ONLY providers for this manager */
-    private final List<DataProvider> roProviders = new ArrayList<>();
+    /** Routes the operations to the READ-WRITE and READ-ONLY providers of the storage unit */
+    private final ProviderRouter router;
 
-    /** Place holder for all active data sources */
-    private final Set<DataSource> activeDataSources = Collections.synchronizedSet(new HashSet<DataSource>());
+    /** Transactions in progress by scope: the scope object of a view or else the calling thread key */
+    private final ConcurrentMap<Object, TransactionContext> transactions;
 
-    /** Controls the transaction in progress */
-    private final AtomicBoolean transactionInProgress = new AtomicBoolean(false);
-    private final AtomicBoolean transactionEnding = new AtomicBoolean(false);
-    private DataProvider txnProvider;
-    private Transaction txn = null;
+    /** Scope of the transactions of this view; null to bind them to the calling thread */
+    private final Object scope;
+
+    /** Read-your-writes sessions of the calling threads; shared with the views */
+    private final ThreadLocal<SessionToken> threadSessions;
+
+    /** Read-your-writes session of this view; null to record the writes on the calling thread session */
+    private final SessionToken session;
 
     /** Cache pool to be used for all data sources */
     private final CachePool cachePool;
 
+    /** Write-behind buffer of the storage unit; null when writes always go through */
+    private final WriteBehindBuffer writeBehind;
+
+    /** Operation metrics of the factory; null when metrics are disabled */
+    private final MetricsRegistry metrics;
+
     /**
      * Creates a {@code DataManagerImpl} object.
      * 
@@ -110,18 +135,75 @@ public final class DataManagerImpl implements DataManager
      */
     DataManagerImpl(final Set<DataProvider> providers, final CachePool cachePool)
     {
-        if (providers.isEmpty())
-            throw new IllegalArgumentException("Data Providers set is empty");
+        this(providers, cachePool, null);
+    }
 
-        for (DataProvider provider : providers)
-        {
-            if (provider.isReadOnly())
-                roProviders.add(provider);
-            else
-                rwProviders.add(provider);
-        }
+    /**
+     * Creates a {@code DataManagerImpl} object.
+     * 
+     * @param providers
+     *            the set of providers to be used by this storage manager
+     * @param cachePool
+     *            the cache pool to be used ny this manager
+     * @param writeBehind
+     *            the write-behind buffer of the storage unit; may be null
+     */
+    DataManagerImpl(final Set<DataProvider> providers, final CachePool cachePool, final WriteBehindBuffer writeBehind)
+    {
+        this(ProviderRouter.of(providers), cachePool, writeBehind, null);
+    }
+
+    /**
+     * Creates a {@code DataManagerImpl} object.
+     * 
+     * @param router
+     *            the router of the storage unit providers
+     * @param cachePool
+     *            the cache pool to be used ny this manager
+     * @param writeBehind
+     *            the write-behind buffer of the storage unit; may be null
+     * @param metrics
+     *            the registry metering the data source operations; may be null
+     */
+    DataManagerImpl(final ProviderRouter router, final CachePool cachePool, final WriteBehindBuffer writeBehind,
+            final MetricsRegistry metrics)
+    {
+        if (router == null)
+            throw new IllegalArgumentException("Provider router must not be null");
 
+        this.router = router;
         this.cachePool = cachePool;
+        this.writeBehind = writeBehind;
+        this.metrics = metrics;
+        this.closed = new AtomicBoolean(false);
+        this.transactions = new ConcurrentHashMap<>();
+        this.scope = null;
+        this.threadSessions = ThreadLocal.withInitial(SessionToken::new);
+        this.session = null;
+    }
+
+    /**
+     * Creates a view of the given manager whose transactions are bound to the given scope and whose
+     * writes are recorded on the given session.
+     * 
+     * @param manager
+     *            the viewed manager
+     * @param scope
+     *            the transaction scope; null to bind the transactions to the calling thread
+     * @param session
+     *            the read-your-writes session of the view
+     */
+    private DataManagerImpl(final DataManagerImpl manager, final Object scope, final SessionToken session)
+    {
+        this.router = manager.router;
+        this.cachePool = manager.cachePool;
+        this.writeBehind = manager.writeBehind;
+        this.metrics = manager.metrics;
+        this.closed = manager.closed;
+        this.transactions = manager.transactions;
+        this.scope = scope;
+        this.threadSessions = manager.threadSessions;
+        this.session = session;
     }
 
     @Override
@@ -138,18 +220,23 @@ public final class DataManagerImpl implements DataManager
 
         enforceAnnotationsOnCreation(bean);
 
-        final DataSource ds = openDataSource(type, true);
+        final DataProvider provider = provider(true, partitionKey(bean));
+        final DataSource ds = openDataSource(type, provider, true);
         final Cache cache = cachePool.get(bean);
 
         try
         {
-            result = ds.create(txn, cache, bean);
+            result = ds.create(transaction(), cache, bean);
         }
         finally
         {
             closeDataSource(ds);
         }
 
+        wrote(provider);
+
+        forgetMisses(result);
+
         return result;
     }
 
@@ -169,18 +256,23 @@ public final class DataManagerImpl implements DataManager
 
         enforceAnnotationsOnCreation(bean);
 
-        final DataSource ds = openDataSource(type, true);
+        final DataProvider provider = provider(true, partitionKey(bean));
+        final DataSource ds = openDataSource(type, provider, true);
         final Cache cache = cachePool.get(bean);
 
         try
         {
-            result = ds.create(txn, cache, bean, ttl, unit);
+            result = ds.create(transaction(), cache, bean, ttl, unit);
         }
         finally
         {
             closeDataSource(ds);
         }
 
+        wrote(provider);
+
+        forgetMisses(result);
+
         return result;
     }
 
@@ -199,17 +291,11 @@ public final class DataManagerImpl implements DataManager
         for (T bean : beans)
             enforceAnnotationsOnCreation(bean);
 
-        final DataSource ds = openDataSource(type, true);
         final Cache cache = cachePool.get(beans);
 
-        try
-        {
-            result = ds.create(txn, cache, beans);
-        }
-        finally
-        {
-            closeDataSource(ds);
-        }
+        result = writePartitioned(type, beans, (ds, part) -> ds.create(transaction(), cache, part));
+
+        forgetMisses(result);
 
         return result;
     }
@@ -232,17 +318,11 @@ public final class DataManagerImpl implements DataManager
         for (T bean : beans)
             enforceAnnotationsOnCreation(bean);
 
-        final DataSource ds = openDataSource(type, true);
         final Cache cache = cachePool.get(beans);
 
-        try
-        {
-            result = ds.create(txn, cache, beans, ttl, unit);
-        }
-        finally
-        {
-            closeDataSource(ds);
-        }
+        result = writePartitioned(type, beans, (ds, part) -> ds.create(transaction(), cache, part, ttl, unit));
+
+        forgetMisses(result);
 
         return result;
     }
@@ -252,8 +332,6 @@ public final class DataManagerImpl implements DataManager
             IllegalArgumentException, TransactionException, KeyViolationException, DataConstraintViolationException,
             OperationTimeoutException, NotEnoughResourceException, DataException
     {
-        // FIXME should create or update
-
         checkOpen();
         checkManagedType(bean);
 
@@ -263,18 +341,26 @@ public final class DataManagerImpl implements DataManager
 
         enforceAnnotationsOnCreation(bean);
 
-        final DataSource ds = openDataSource(type, true);
+        if (writeBehind(bean, null, 0L, null, false))
+            return bean;
+
+        final DataProvider provider = provider(true, partitionKey(bean));
+        final DataSource ds = openDataSource(type, provider, true);
         final Cache cache = cachePool.get(bean);
 
         try
         {
-            result = ds.save(txn, cache, bean);
+            result = ds.save(transaction(), cache, bean);
         }
         finally
         {
             closeDataSource(ds);
         }
 
+        wrote(provider);
+
+        forgetMisses(result);
+
         return result;
     }
 
@@ -284,7 +370,6 @@ public final class DataManagerImpl implements DataManager
             DataConstraintViolationException, OperationTimeoutException, NotEnoughResourceException, DataException
     {
         // FIXME should enforce ttl
-        // FIXME should create or update
 
         checkOpen();
         checkManagedType(bean);
@@ -295,18 +380,26 @@ public final class DataManagerImpl implements DataManager
 
         enforceAnnotationsOnCreation(bean);
 
-        final DataSource ds = openDataSource(type, true);
+        if (writeBehind(bean, null, ttl, unit, false))
+            return bean;
+
+        final DataProvider provider = provider(true, partitionKey(bean));
+        final DataSource ds = openDataSource(type, provider, true);
         final Cache cache = cachePool.get(bean);
 
         try
         {
-            result = ds.save(txn, cache, bean, ttl, unit);
+            result = ds.save(transaction(), cache, bean, ttl, unit);
         }
         finally
         {
             closeDataSource(ds);
         }
 
+        wrote(provider);
+
+        forgetMisses(result);
+
         return result;
     }
 
@@ -315,29 +408,23 @@ public final class DataManagerImpl implements DataManager
             IllegalArgumentException, TransactionException, KeyViolationException, DataConstraintViolationException,
             OperationTimeoutException, NotEnoughResourceException, DataException
     {
-        // FIXME should create or update
-
         checkOpen();
-        checkManagedType(beans.toArray());
 
-        List<T> result;
+        final Class<?> type = checkBulk(beans);
 
-        final Class<?> type = beans.get(0).getClass();
+        List<T> result;
 
         for (T bean : beans)
             enforceAnnotationsOnCreation(bean);
 
-        final DataSource ds = openDataSource(type, true);
-        final Cache cache = cachePool.get(beans);
+        if (writeBehind(beans, 0L, null, false))
+            return beans;
 
-        try
-        {
-            result = ds.save(txn, cache, beans);
-        }
-        finally
-        {
-            closeDataSource(ds);
-        }
+        final Cache cache = cachePool.get(type);
+
+        result = writePartitioned(type, beans, (ds, part) -> ds.save(transaction(), cache, part));
+
+        forgetMisses(result);
 
         return result;
     }
@@ -349,29 +436,24 @@ public final class DataManagerImpl implements DataManager
             NotEnoughResourceException, DataException
     {
         // FIXME should enforce ttl
-        // FIXME should create or update
 
         checkOpen();
-        checkManagedType(beans.toArray());
 
-        List<T> result;
+        final Class<?> type = checkBulk(beans);
 
-        final Class<?> type = beans.get(0).getClass();
+        List<T> result;
 
         for (T bean : beans)
             enforceAnnotationsOnCreation(bean);
 
-        final DataSource ds = openDataSource(type, true);
-        final Cache cache = cachePool.get(beans);
+        if (writeBehind(beans, ttl, unit, false))
+            return beans;
 
-        try
-        {
-            result = ds.save(txn, cache, beans, ttl, unit);
-        }
-        finally
-        {
-            closeDataSource(ds);
-        }
+        final Cache cache = cachePool.get(type);
+
+        result = writePartitioned(type, beans, (ds, part) -> ds.save(transaction(), cache, part, ttl, unit));
+
+        forgetMisses(result);
 
         return result;
     }
@@ -385,14 +467,35 @@ public final class DataManagerImpl implements DataManager
         checkManagedType(type);
         checkSurrogateKey(type, id);
 
+        if (writeBehind != null)
+        {
+            final T pending = writeBehind.pendingI(type, id);
+            if (pending != null)
+                return pending;
+        }
+
+        if (!inTransaction() && cachePool.negatives().containsI(type, id))
+            throw new NotFoundException("The surrogate key did not match any bean");
+
         T result;
 
-        final DataSource ds = openDataSource(type, false);
+        final DataSource ds = openDataSource(type, false, partitionKeyI(type, id));
         final Cache cache = cachePool.get(type);
 
         try
         {
-            result = ds.fetchI(txn, cache, type, id);
+            if (inTransaction())
+            {
+                result = ds.fetchI(transaction(), cache, type, id);
+            }
+            else
+            {
+                /* Concurrent misses of the same key share one load */
+                result = cache.getI(id);
+                if (result == null)
+                    result = loadRemembering(type, EntityUtils.keyCodec().surrogateKey(type, id),
+                            () -> ds.fetchI(null, cache, type, id), g -> cachePool.negatives().putI(type, g, id));
+            }
         }
         finally
         {
@@ -411,18 +514,65 @@ public final class DataManagerImpl implements DataManager
         checkManagedType(type);
         checkSurrogateKey(type, ids);
 
-        List<T> result;
+        final Map<EntityKey, T> found = new HashMap<>();
+        final List<Object> misses = new ArrayList<>(ids.length);
+
+        /* Beans pending on the write-behind buffer are newer than the provider state */
+        for (final Object id : ids)
+        {
+            final T pending = writeBehind == null ? null : writeBehind.pendingI(type, id);
+
+            if (pending == null)
+                misses.add(id);
+            else
+                found.put(EntityUtils.keyCodec().surrogateKey(type, id), pending);
+        }
 
-        final DataSource ds = openDataSource(type, false);
         final Cache cache = cachePool.get(type);
+        final Map<DataProvider, List<Integer>> groups = partition(false, misses, id -> partitionKeyI(type, id));
 
-        try
+        if (found.isEmpty() && groups.size() == 1)
         {
-            result = ds.fetchI(txn, cache, type, ids);
+            final DataSource ds = openDataSource(type, groups.keySet().iterator().next(), false);
+
+            try
+            {
+                return ds.fetchI(transaction(), cache, type, ids);
+            }
+            finally
+            {
+                closeDataSource(ds);
+            }
         }
-        finally
+
+        /* Each owner fetches its own ids; the beans found are merged back in ids order */
+        for (final Map.Entry<DataProvider, List<Integer>> group : groups.entrySet())
         {
-            closeDataSource(ds);
+            if (group.getValue().isEmpty()) // all the ids were pending
+                continue;
+
+            final Object[] part = group.getValue().stream().map(misses::get).toArray();
+
+            final DataSource ds = openDataSource(type, group.getKey(), false);
+
+            try
+            {
+                for (final T bean : ds.fetchI(transaction(), cache, type, part))
+                    found.put(EntityUtils.keyCodec().surrogateKey(bean), bean);
+            }
+            finally
+            {
+                closeDataSource(ds);
+            }
+        }
+
+        final List<T> result = new ArrayList<>(ids.length);
+
+        for (final Object id : ids)
+        {
+            final T bean = found.get(EntityUtils.keyCodec().surrogateKey(type, id));
+            if (bean != null)
+                result.add(bean);
         }
 
         return result;
@@ -437,14 +587,35 @@ public final class DataManagerImpl implements DataManager
         checkManagedType(type);
         checkPrimaryKey(type, keys);
 
+        if (writeBehind != null)
+        {
+            final T pending = writeBehind.pendingP(type, keys);
+            if (pending != null)
+                return pending;
+        }
+
+        if (!inTransaction() && cachePool.negatives().containsP(type, keys))
+            throw new NotFoundException("The primary key did not match any bean");
+
         T result;
 
-        final DataSource ds = openDataSource(type, false);
+        final DataSource ds = openDataSource(type, false, partitionKeyP(type, keys));
         final Cache cache = cachePool.get(type);
 
         try
         {
-            result = ds.fetchP(txn, cache, type, keys);
+            if (inTransaction())
+            {
+                result = ds.fetchP(transaction(), cache, type, keys);
+            }
+            else
+            {
+                /* Concurrent misses of the same key share one load */
+                result = cache.getP(keys);
+                if (result == null)
+                    result = loadRemembering(type, EntityUtils.keyCodec().primaryKey(type, keys),
+                            () -> ds.fetchP(null, cache, type, keys), g -> cachePool.negatives().putP(type, g, keys));
+            }
         }
         finally
         {
@@ -463,6 +634,16 @@ public final class DataManagerImpl implements DataManager
         checkManagedType(type);
         checkAlternateKey(type, name, keys);
 
+        if (writeBehind != null)
+        {
+            final T pending = writeBehind.pendingA(type, name, keys);
+            if (pending != null)
+                return pending;
+        }
+
+        if (!inTransaction() && cachePool.negatives().containsA(type, name, keys))
+            throw new NotFoundException("The alternate key did not match any bean");
+
         T result;
 
         final DataSource ds = openDataSource(type, false);
@@ -470,7 +651,19 @@ public final class DataManagerImpl implements DataManager
 
         try
         {
-            result = ds.fetchA(txn, cache, type, name, keys);
+            if (inTransaction())
+            {
+                result = ds.fetchA(transaction(), cache, type, name, keys);
+            }
+            else
+            {
+                /* Concurrent misses of the same key share one load */
+                result = cache.getA(name, keys);
+                if (result == null)
+                    result = loadRemembering(type, EntityUtils.keyCodec().alternateKey(type, name, keys),
+                            () -> ds.fetchA(null, cache, type, name, keys),
+                            g -> cachePool.negatives().putA(type, g, name, keys));
+            }
         }
         finally
         {
@@ -480,6 +673,66 @@ public final class DataManagerImpl implements DataManager
         return result;
     }
 
+    /**
+     * Probes only the cache for the bean with the given surrogate key.
+     * 
+     * @param type
+     *            the bean type
+     * @param id
+     *            the surrogate key
+     * 
+     * @return the cached bean or <tt>null</tt> if there is none
+     */
+    <T> T cachedI(final Class<T> type, final Object id) throws IllegalStateException, IllegalArgumentException
+    {
+        checkOpen();
+        checkManagedType(type);
+        checkSurrogateKey(type, id);
+
+        return cachePool.get(type).getI(id);
+    }
+
+    /**
+     * Probes only the cache for the bean with the given primary key.
+     * 
+     * @param type
+     *            the bean type
+     * @param keys
+     *            the primary key values
+     * 
+     * @return the cached bean or <tt>null</tt> if there is none
+     */
+    <T> T cachedP(final Class<T> type, final Object... keys) throws IllegalStateException, IllegalArgumentException
+    {
+        checkOpen();
+        checkManagedType(type);
+        checkPrimaryKey(type, keys);
+
+        return cachePool.get(type).getP(keys);
+    }
+
+    /**
+     * Probes only the cache for the bean with the given alternate key.
+     * 
+     * @param type
+     *            the bean type
+     * @param name
+     *            the alternate key name
+     * @param keys
+     *            the alternate key values
+     * 
+     * @return the cached bean or <tt>null</tt> if there is none
+     */
+    <T> T cachedA(final Class<T> type, final String name, final Object... keys)
+            throws IllegalStateException, IllegalArgumentException
+    {
+        checkOpen();
+        checkManagedType(type);
+        checkAlternateKey(type, name, keys);
+
+        return cachePool.get(type).getA(name, keys);
+    }
+
     @Override
     public boolean containsI(final Class<?> type, final Object id)
             throws UnsupportedOperationException, IllegalStateException, IllegalArgumentException, TransactionException,
@@ -489,20 +742,28 @@ public final class DataManagerImpl implements DataManager
         checkManagedType(type);
         checkSurrogateKey(type, id);
 
+        if (!inTransaction() && cachePool.negatives().containsI(type, id))
+            return false;
+
+        final long generation = cachePool.negatives().generation();
+
         boolean result = false;
 
-        final DataSource ds = openDataSource(type, false);
+        final DataSource ds = openDataSource(type, false, partitionKeyI(type, id));
         final Cache cache = cachePool.get(type);
 
         try
         {
-            result = ds.containsI(txn, cache, type, id);
+            result = ds.containsI(transaction(), cache, type, id);
         }
         finally
         {
             closeDataSource(ds);
         }
 
+        if (!result && !inTransaction())
+            cachePool.negatives().putI(type, generation, id);
+
         return result;
     }
 
@@ -515,20 +776,28 @@ public final class DataManagerImpl implements DataManager
         checkManagedType(type);
         checkPrimaryKey(type, keys);
 
+        if (!inTransaction() && cachePool.negatives().containsP(type, keys))
+            return false;
+
+        final long generation = cachePool.negatives().generation();
+
         boolean result = false;
 
-        final DataSource ds = openDataSource(type, false);
+        final DataSource ds = openDataSource(type, false, partitionKeyP(type, keys));
         final Cache cache = cachePool.get(type);
 
         try
         {
-            result = ds.containsP(txn, cache, type, keys);
+            result = ds.containsP(transaction(), cache, type, keys);
         }
         finally
         {
             closeDataSource(ds);
         }
 
+        if (!result && !inTransaction())
+            cachePool.negatives().putP(type, generation, keys);
+
         return result;
     }
 
@@ -541,6 +810,11 @@ public final class DataManagerImpl implements DataManager
         checkManagedType(type);
         checkAlternateKey(type, name, keys);
 
+        if (!inTransaction() && cachePool.negatives().containsA(type, name, keys))
+            return false;
+
+        final long generation = cachePool.negatives().generation();
+
         boolean result = false;
 
         final DataSource ds = openDataSource(type, false);
@@ -548,13 +822,16 @@ public final class DataManagerImpl implements DataManager
 
         try
         {
-            result = ds.containsA(txn, cache, type, name, keys);
+            result = ds.containsA(transaction(), cache, type, name, keys);
         }
         finally
         {
             closeDataSource(ds);
         }
 
+        if (!result && !inTransaction())
+            cachePool.negatives().putA(type, generation, name, keys);
+
         return result;
     }
 
@@ -576,20 +853,28 @@ public final class DataManagerImpl implements DataManager
         if (!isDirty(bean))
             return bean;
 
+        if (writeBehind(bean, EntityUtils.keyCodec().surrogateKey(type, id), 0L, null, true))
+            return bean;
+
         T result;
 
-        final DataSource ds = openDataSource(type, true);
+        final DataProvider provider = provider(true, partitionKeyI(type, id));
+        final DataSource ds = openDataSource(type, provider, true);
         final Cache cache = cachePool.get(bean);
 
         try
         {
-            result = ds.updateI(txn, cache, bean, id);
+            result = ds.updateI(transaction(), cache, bean, id);
         }
         finally
         {
             closeDataSource(ds);
         }
 
+        wrote(provider);
+
+        forgetMisses(result);
+
         return result;
     }
 
@@ -612,20 +897,28 @@ public final class DataManagerImpl implements DataManager
         if (!isDirty(bean))
             return bean;
 
+        if (writeBehind(bean, EntityUtils.keyCodec().surrogateKey(type, id), ttl, unit, true))
+            return bean;
+
         T result;
 
-        final DataSource ds = openDataSource(type, true);
+        final DataProvider provider = provider(true, partitionKeyI(type, id));
+        final DataSource ds = openDataSource(type, provider, true);
         final Cache cache = cachePool.get(bean);
 
         try
         {
-            result = ds.updateI(txn, cache, bean, ttl, unit, id);
+            result = ds.updateI(transaction(), cache, bean, ttl, unit, id);
         }
         finally
         {
             closeDataSource(ds);
         }
 
+        wrote(provider);
+
+        forgetMisses(result);
+
         return result;
     }
 
@@ -648,20 +941,28 @@ public final class DataManagerImpl implements DataManager
         if (!isDirty(bean))
             return bean;
 
+        if (writeBehind(bean, EntityUtils.keyCodec().primaryKey(type, keys), 0L, null, true))
+            return bean;
+
         T result;
 
-        final DataSource ds = openDataSource(type, true);
+        final DataProvider provider = provider(true, partitionKeyP(type, keys));
+        final DataSource ds = openDataSource(type, provider, true);
         final Cache cache = cachePool.get(bean);
 
         try
         {
-            result = ds.updateP(txn, cache, bean, keys);
+            result = ds.updateP(transaction(), cache, bean, keys);
         }
         finally
         {
             closeDataSource(ds);
         }
 
+        wrote(provider);
+
+        forgetMisses(result);
+
         return result;
     }
 
@@ -684,20 +985,28 @@ public final class DataManagerImpl implements DataManager
         if (!isDirty(bean))
             return bean;
 
+        if (writeBehind(bean, EntityUtils.keyCodec().primaryKey(type, keys), ttl, unit, true))
+            return bean;
+
         T result;
 
-        final DataSource ds = openDataSource(type, true);
+        final DataProvider provider = provider(true, partitionKeyP(type, keys));
+        final DataSource ds = openDataSource(type, provider, true);
         final Cache cache = cachePool.get(bean);
 
         try
         {
-            result = ds.updateP(txn, cache, bean, ttl, unit, keys);
+            result = ds.updateP(transaction(), cache, bean, ttl, unit, keys);
         }
         finally
         {
             closeDataSource(ds);
         }
 
+        wrote(provider);
+
+        forgetMisses(result);
+
         return result;
     }
 
@@ -722,18 +1031,23 @@ public final class DataManagerImpl implements DataManager
 
         T result;
 
-        final DataSource ds = openDataSource(type, true);
+        final DataProvider provider = provider(true, null);
+        final DataSource ds = openDataSource(type, provider, true);
         final Cache cache = cachePool.get(bean);
 
         try
         {
-            result = ds.updateA(txn, cache, bean, name, keys);
+            result = ds.updateA(transaction(), cache, bean, name, keys);
         }
         finally
         {
             closeDataSource(ds);
         }
 
+        wrote(provider);
+
+        forgetMisses(result);
+
         return result;
     }
 
@@ -758,18 +1072,23 @@ public final class DataManagerImpl implements DataManager
 
         T result;
 
-        final DataSource ds = openDataSource(type, true);
+        final DataProvider provider = provider(true, null);
+        final DataSource ds = openDataSource(type, provider, true);
         final Cache cache = cachePool.get(bean);
 
         try
         {
-            result = ds.updateA(txn, cache, bean, ttl, unit, name, keys);
+            result = ds.updateA(transaction(), cache, bean, ttl, unit, name, keys);
         }
         finally
         {
             closeDataSource(ds);
         }
 
+        wrote(provider);
+
+        forgetMisses(result);
+
         return result;
     }
 
@@ -793,18 +1112,23 @@ public final class DataManagerImpl implements DataManager
 
         T result;
 
-        final DataSource ds = openDataSource(type, true);
+        final DataProvider provider = provider(true, partitionKeyI(type, id));
+        final DataSource ds = openDataSource(type, provider, true);
         final Cache cache = cachePool.get(bean);
 
         try
         {
-            result = ds.patchI(txn, cache, bean, id);
+            result = ds.patchI(transaction(), cache, bean, id);
         }
         finally
         {
             closeDataSource(ds);
         }
 
+        wrote(provider);
+
+        forgetMisses(result);
+
         return result;
     }
 
@@ -829,18 +1153,23 @@ public final class DataManagerImpl implements DataManager
 
         T result;
 
-        final DataSource ds = openDataSource(type, true);
+        final DataProvider provider = provider(true, partitionKeyI(type, id));
+        final DataSource ds = openDataSource(type, provider, true);
         final Cache cache = cachePool.get(bean);
 
         try
         {
-            result = ds.patchI(txn, cache, bean, ttl, unit, id);
+            result = ds.patchI(transaction(), cache, bean, ttl, unit, id);
         }
         finally
         {
             closeDataSource(ds);
         }
 
+        wrote(provider);
+
+        forgetMisses(result);
+
         return result;
     }
 
@@ -864,18 +1193,23 @@ public final class DataManagerImpl implements DataManager
 
         T result;
 
-        final DataSource ds = openDataSource(type, true);
+        final DataProvider provider = provider(true, partitionKeyP(type, keys));
+        final DataSource ds = openDataSource(type, provider, true);
         final Cache cache = cachePool.get(bean);
 
         try
         {
-            result = ds.patchP(txn, cache, bean, keys);
+            result = ds.patchP(transaction(), cache, bean, keys);
         }
         finally
         {
             closeDataSource(ds);
         }
 
+        wrote(provider);
+
+        forgetMisses(result);
+
         return result;
     }
 
@@ -900,18 +1234,23 @@ public final class DataManagerImpl implements DataManager
 
         T result;
 
-        final DataSource ds = openDataSource(type, true);
+        final DataProvider provider = provider(true, partitionKeyP(type, keys));
+        final DataSource ds = openDataSource(type, provider, true);
         final Cache cache = cachePool.get(bean);
 
         try
         {
-            result = ds.patchP(txn, cache, bean, ttl, unit, keys);
+            result = ds.patchP(transaction(), cache, bean, ttl, unit, keys);
         }
         finally
         {
             closeDataSource(ds);
         }
 
+        wrote(provider);
+
+        forgetMisses(result);
+
         return result;
     }
 
@@ -936,18 +1275,23 @@ public final class DataManagerImpl implements DataManager
 
         T result;
 
-        final DataSource ds = openDataSource(type, true);
+        final DataProvider provider = provider(true, null);
+        final DataSource ds = openDataSource(type, provider, true);
         final Cache cache = cachePool.get(bean);
 
         try
         {
-            result = ds.patchA(txn, cache, bean, name, keys);
+            result = ds.patchA(transaction(), cache, bean, name, keys);
         }
         finally
         {
             closeDataSource(ds);
         }
 
+        wrote(provider);
+
+        forgetMisses(result);
+
         return result;
     }
 
@@ -972,44 +1316,107 @@ public final class DataManagerImpl implements DataManager
 
         T result;
 
-        final DataSource ds = openDataSource(type, true);
+        final DataProvider provider = provider(true, null);
+        final DataSource ds = openDataSource(type, provider, true);
         final Cache cache = cachePool.get(bean);
 
         try
         {
-            result = ds.patchA(txn, cache, bean, ttl, unit, name, keys);
+            result = ds.patchA(transaction(), cache, bean, ttl, unit, name, keys);
         }
         finally
         {
             closeDataSource(ds);
         }
 
+        wrote(provider);
+
+        forgetMisses(result);
+
         return result;
     }
 
     @Override
-    public void touchI(final Class<?> type, final Object id) throws UnsupportedOperationException,
-            IllegalStateException, IllegalArgumentException, TransactionException, NotFoundException,
-            DataConstraintViolationException, OperationTimeoutException, NotEnoughResourceException, DataException
+    public <T> List<T> update(final List<T> beans)
+            throws UnsupportedOperationException, IllegalStateException, IllegalArgumentException, TransactionException,
+            NotFoundException, KeyViolationException, DataConstraintViolationException, OperationTimeoutException,
+            NotEnoughResourceException, DataException
     {
         checkOpen();
-        checkManagedType(type);
+
+        final Class<?> type = checkBulk(beans);
+
         checkMutable(type);
-        checkSurrogateKey(type, id);
 
-        // FIXME needs to enforce metadata update
+        for (final T bean : beans)
+            enforceAnnotationsOnMutation(bean);
+
+        if (writeBehind(beans, 0L, null, true))
+            return beans;
+
+        List<T> result;
 
-        final DataSource ds = openDataSource(type, true);
         final Cache cache = cachePool.get(type);
 
-        try
-        {
-            ds.touchI(txn, cache, type, id);
+        result = writePartitioned(type, beans, (ds, part) -> ds.update(transaction(), cache, part));
+
+        forgetMisses(result);
+
+        return result;
+    }
+
+    @Override
+    public <T> List<T> patch(final List<T> beans)
+            throws UnsupportedOperationException, IllegalStateException, IllegalArgumentException, TransactionException,
+            NotFoundException, KeyViolationException, DataConstraintViolationException, OperationTimeoutException,
+            NotEnoughResourceException, DataException
+    {
+        checkOpen();
+
+        final Class<?> type = checkBulk(beans);
+
+        checkMutable(type);
+
+        for (final T bean : beans)
+            enforceAnnotationsOnMutation(bean);
+
+        List<T> result;
+
+        final Cache cache = cachePool.get(type);
+
+        result = writePartitioned(type, beans, (ds, part) -> ds.patch(transaction(), cache, part));
+
+        forgetMisses(result);
+
+        return result;
+    }
+
+    @Override
+    public void touchI(final Class<?> type, final Object id) throws UnsupportedOperationException,
+            IllegalStateException, IllegalArgumentException, TransactionException, NotFoundException,
+            DataConstraintViolationException, OperationTimeoutException, NotEnoughResourceException, DataException
+    {
+        checkOpen();
+        checkManagedType(type);
+        checkMutable(type);
+        checkSurrogateKey(type, id);
+
+        // FIXME needs to enforce metadata update
+
+        final DataProvider provider = provider(true, partitionKeyI(type, id));
+        final DataSource ds = openDataSource(type, provider, true);
+        final Cache cache = cachePool.get(type);
+
+        try
+        {
+            ds.touchI(transaction(), cache, type, id);
         }
         finally
         {
             closeDataSource(ds);
         }
+
+        wrote(provider);
     }
 
     @Override
@@ -1025,17 +1432,20 @@ public final class DataManagerImpl implements DataManager
 
         // FIXME needs to enforce metadata update
 
-        final DataSource ds = openDataSource(type, true);
+        final DataProvider provider = provider(true, partitionKeyI(type, id));
+        final DataSource ds = openDataSource(type, provider, true);
         final Cache cache = cachePool.get(type);
 
         try
         {
-            ds.touchI(txn, cache, type, ttl, unit, id);
+            ds.touchI(transaction(), cache, type, ttl, unit, id);
         }
         finally
         {
             closeDataSource(ds);
         }
+
+        wrote(provider);
     }
 
     @Override
@@ -1050,17 +1460,20 @@ public final class DataManagerImpl implements DataManager
 
         // FIXME needs to enforce metadata update
 
-        final DataSource ds = openDataSource(type, true);
+        final DataProvider provider = provider(true, partitionKeyP(type, keys));
+        final DataSource ds = openDataSource(type, provider, true);
         final Cache cache = cachePool.get(type);
 
         try
         {
-            ds.touchP(txn, cache, type, keys);
+            ds.touchP(transaction(), cache, type, keys);
         }
         finally
         {
             closeDataSource(ds);
         }
+
+        wrote(provider);
     }
 
     @Override
@@ -1076,17 +1489,20 @@ public final class DataManagerImpl implements DataManager
 
         // FIXME needs to enforce metadata update
 
-        final DataSource ds = openDataSource(type, true);
+        final DataProvider provider = provider(true, partitionKeyP(type, keys));
+        final DataSource ds = openDataSource(type, provider, true);
         final Cache cache = cachePool.get(type);
 
         try
         {
-            ds.touchP(txn, cache, type, ttl, unit, keys);
+            ds.touchP(transaction(), cache, type, ttl, unit, keys);
         }
         finally
         {
             closeDataSource(ds);
         }
+
+        wrote(provider);
     }
 
     @Override
@@ -1102,17 +1518,20 @@ public final class DataManagerImpl implements DataManager
 
         // FIXME needs to enforce metadata update
 
-        final DataSource ds = openDataSource(type, true);
+        final DataProvider provider = provider(true, null);
+        final DataSource ds = openDataSource(type, provider, true);
         final Cache cache = cachePool.get(type);
 
         try
         {
-            ds.touchA(txn, cache, type, name, keys);
+            ds.touchA(transaction(), cache, type, name, keys);
         }
         finally
         {
             closeDataSource(ds);
         }
+
+        wrote(provider);
     }
 
     @Override
@@ -1128,17 +1547,20 @@ public final class DataManagerImpl implements DataManager
 
         // FIXME needs to enforce metadata update
 
-        final DataSource ds = openDataSource(type, true);
+        final DataProvider provider = provider(true, null);
+        final DataSource ds = openDataSource(type, provider, true);
         final Cache cache = cachePool.get(type);
 
         try
         {
-            ds.touchA(txn, cache, type, ttl, unit, name, keys);
+            ds.touchA(transaction(), cache, type, ttl, unit, name, keys);
         }
         finally
         {
             closeDataSource(ds);
         }
+
+        wrote(provider);
     }
 
     @Override
@@ -1151,17 +1573,20 @@ public final class DataManagerImpl implements DataManager
         checkManagedType(type);
         checkSurrogateKey(type, id);
 
-        final DataSource ds = openDataSource(type, true);
+        final DataProvider provider = provider(true, partitionKeyI(type, id));
+        final DataSource ds = openDataSource(type, provider, true);
         final Cache cache = cachePool.get(type);
 
         try
         {
-            ds.deleteI(txn, cache, type, id);
+            ds.deleteI(transaction(), cache, type, id);
         }
         finally
         {
             closeDataSource(ds);
         }
+
+        wrote(provider);
     }
 
     @Override
@@ -1174,17 +1599,20 @@ public final class DataManagerImpl implements DataManager
         checkManagedType(type);
         checkPrimaryKey(type, keys);
 
-        final DataSource ds = openDataSource(type, true);
+        final DataProvider provider = provider(true, partitionKeyP(type, keys));
+        final DataSource ds = openDataSource(type, provider, true);
         final Cache cache = cachePool.get(type);
 
         try
         {
-            ds.deleteP(txn, cache, type, keys);
+            ds.deleteP(transaction(), cache, type, keys);
         }
         finally
         {
             closeDataSource(ds);
         }
+
+        wrote(provider);
     }
 
     @Override
@@ -1197,17 +1625,20 @@ public final class DataManagerImpl implements DataManager
         checkManagedType(type);
         checkAlternateKey(type, name, keys);
 
-        final DataSource ds = openDataSource(type, true);
+        final DataProvider provider = provider(true, null);
+        final DataSource ds = openDataSource(type, provider, true);
         final Cache cache = cachePool.get(type);
 
         try
         {
-            ds.deleteA(txn, cache, type, name, keys);
+            ds.deleteA(transaction(), cache, type, name, keys);
         }
         finally
         {
             closeDataSource(ds);
         }
+
+        wrote(provider);
     }
 
     @Override
@@ -1220,17 +1651,61 @@ public final class DataManagerImpl implements DataManager
         checkManagedType(type);
         checkByExample(type, beans);
 
-        final DataSource ds = openDataSource(type, true);
+        final DataProvider provider = provider(true, null);
+        final DataSource ds = openDataSource(type, provider, true);
         final Cache cache = cachePool.get(type);
 
         try
         {
-            ds.deleteX(txn, cache, type, beans);
+            ds.deleteX(transaction(), cache, type, beans);
         }
         finally
         {
             closeDataSource(ds);
         }
+
+        wrote(provider);
+    }
+
+    @Override
+    public void deleteI(final Class<?> type, final Object... ids)
+            throws UnsupportedOperationException, IllegalStateException, IllegalArgumentException, TransactionException,
+            NotFoundException, KeyViolationException, DataConstraintViolationException, OperationTimeoutException,
+            NotEnoughResourceException, DataException
+    {
+        checkOpen();
+        checkManagedType(type);
+        checkSurrogateKey(type, ids);
+
+        if (ids.length == 0)
+            return;
+
+        final Cache cache = cachePool.get(type);
+
+        writePartitioned(type, Arrays.asList(ids), id -> partitionKeyI(type, id), (ds, part) ->
+        {
+            ds.deleteI(transaction(), cache, type, part.toArray());
+            return part;
+        });
+    }
+
+    @Override
+    public <T> void delete(final List<T> beans)
+            throws UnsupportedOperationException, IllegalStateException, IllegalArgumentException, TransactionException,
+            NotFoundException, KeyViolationException, DataConstraintViolationException, OperationTimeoutException,
+            NotEnoughResourceException, DataException
+    {
+        checkOpen();
+
+        final Class<?> type = checkBulk(beans);
+
+        final Cache cache = cachePool.get(type);
+
+        writePartitioned(type, beans, (ds, part) ->
+        {
+            ds.delete(transaction(), cache, part);
+            return part;
+        });
     }
 
     @Override
@@ -1245,18 +1720,21 @@ public final class DataManagerImpl implements DataManager
 
         T result;
 
-        final DataSource ds = openDataSource(type, true);
+        final DataProvider provider = provider(true, partitionKeyI(type, id));
+        final DataSource ds = openDataSource(type, provider, true);
         final Cache cache = cachePool.get(type);
 
         try
         {
-            result = ds.removeI(txn, cache, type, id);
+            result = ds.removeI(transaction(), cache, type, id);
         }
         finally
         {
             closeDataSource(ds);
         }
 
+        wrote(provider);
+
         return result;
     }
 
@@ -1272,18 +1750,21 @@ public final class DataManagerImpl implements DataManager
 
         T result;
 
-        final DataSource ds = openDataSource(type, true);
+        final DataProvider provider = provider(true, partitionKeyP(type, keys));
+        final DataSource ds = openDataSource(type, provider, true);
         final Cache cache = cachePool.get(type);
 
         try
         {
-            result = ds.removeP(txn, cache, type, keys);
+            result = ds.removeP(transaction(), cache, type, keys);
         }
         finally
         {
             closeDataSource(ds);
         }
 
+        wrote(provider);
+
         return result;
     }
 
@@ -1299,18 +1780,21 @@ public final class DataManagerImpl implements DataManager
 
         T result;
 
-        final DataSource ds = openDataSource(type, true);
+        final DataProvider provider = provider(true, null);
+        final DataSource ds = openDataSource(type, provider, true);
         final Cache cache = cachePool.get(type);
 
         try
         {
-            result = ds.removeA(txn, cache, type, name, keys);
+            result = ds.removeA(transaction(), cache, type, name, keys);
         }
         finally
         {
             closeDataSource(ds);
         }
 
+        wrote(provider);
+
         return result;
     }
 
@@ -1333,7 +1817,7 @@ public final class DataManagerImpl implements DataManager
 
         try
         {
-            result = ds.cursorI(txn, cache, type);
+            result = ds.cursorI(transaction(), cache, type);
         }
         finally
         {
@@ -1362,7 +1846,7 @@ public final class DataManagerImpl implements DataManager
 
         try
         {
-            result = ds.cursorP(txn, cache, type);
+            result = ds.cursorP(transaction(), cache, type);
         }
         finally
         {
@@ -1390,7 +1874,7 @@ public final class DataManagerImpl implements DataManager
 
         try
         {
-            result = ds.cursorA(txn, cache, type, name);
+            result = ds.cursorA(transaction(), cache, type, name);
         }
         finally
         {
@@ -1416,7 +1900,7 @@ public final class DataManagerImpl implements DataManager
 
         try
         {
-            result = ds.cursorX(txn, cache, type, beans);
+            result = ds.cursorX(transaction(), cache, type, beans);
         }
         finally
         {
@@ -1442,7 +1926,7 @@ public final class DataManagerImpl implements DataManager
 
         try
         {
-            result = ds.cursorQ(txn, cache, type, query);
+            result = ds.cursorQ(transaction(), cache, type, query);
         }
         finally
         {
@@ -1470,7 +1954,7 @@ public final class DataManagerImpl implements DataManager
 
         try
         {
-            result = ds.cursorN(txn, cache, type, nquery);
+            result = ds.cursorN(transaction(), cache, type, nquery);
         }
         finally
         {
@@ -1505,7 +1989,7 @@ public final class DataManagerImpl implements DataManager
 
         try
         {
-            result = ds.count(txn, cache, type);
+            result = ds.count(transaction(), cache, type);
         }
         finally
         {
@@ -1533,7 +2017,7 @@ public final class DataManagerImpl implements DataManager
 
         try
         {
-            result = ds.countX(txn, cache, type, beans);
+            result = ds.countX(transaction(), cache, type, beans);
         }
         finally
         {
@@ -1561,7 +2045,7 @@ public final class DataManagerImpl implements DataManager
 
         try
         {
-            result = ds.countQ(txn, cache, type, query);
+            result = ds.countQ(transaction(), cache, type, query);
         }
         finally
         {
@@ -1588,7 +2072,7 @@ public final class DataManagerImpl implements DataManager
 
         try
         {
-            result = ds.countN(txn, cache, type, nquery);
+            result = ds.countN(transaction(), cache, type, nquery);
         }
         finally
         {
@@ -1615,7 +2099,7 @@ public final class DataManagerImpl implements DataManager
 
         try
         {
-            result = ds.countN(txn, cache, type, nquery);
+            result = ds.countN(transaction(), cache, type, nquery);
         }
         finally
         {
@@ -1631,28 +2115,24 @@ public final class DataManagerImpl implements DataManager
     {
         checkOpen();
 
-        if (transactionInProgress.compareAndSet(false, true))
-        {
-            try
-            {
-                final String id = IdFactory.uuid();
+        final Object key = scopeKey();
 
-                txnProvider = getProvider(true);
-                txn = txnProvider.begin(id);
+        if (transactions.containsKey(key))
+            throw new IllegalStateException("A transaction is already in progress");
 
-                return txn;
-            }
-            catch (final DataProviderException e)
-            {
-                transactionInProgress.set(false);
+        final String id = IdFactory.uuid();
 
-                throw e;
-            }
-        }
-        else
+        final DataProvider provider = getProvider(true, null);
+        final Transaction txn = provider.begin(id);
+
+        if (transactions.putIfAbsent(key, new TransactionContext(txn, provider)) != null)
         {
+            provider.rollback(txn); // lost the race against a concurrent begin on the same scope
+
             throw new IllegalStateException("A transaction is already in progress");
         }
+
+        return txn;
     }
 
     @Override
@@ -1660,9 +2140,12 @@ public final class DataManagerImpl implements DataManager
             OperationTimeoutException, NotEnoughResourceException, DataException
     {
         checkOpen();
-        checkTransaction(txn);
 
-        return txn;
+        final TransactionContext context = context();
+
+        checkTransaction(context, context == null ? null : context.txn);
+
+        return context.txn;
     }
 
     @Override
@@ -1671,24 +2154,35 @@ public final class DataManagerImpl implements DataManager
             OperationTimeoutException, NotEnoughResourceException, DataException
     {
         checkOpen();
-        checkTransaction(txn);
 
-        if (transactionEnding.compareAndSet(false, true))
+        final TransactionContext context = context();
+
+        checkTransaction(context, txn);
+
+        if (context.ending.compareAndSet(false, true))
         {
+            boolean committed = false;
+
             try
             {
-                txnProvider.commit(txn);
-                this.txn = null;
-                txnProvider = null;
-                transactionInProgress.set(false);
-            }
-            catch (final DataProviderException e)
-            {
-                throw e;
+                context.provider.commit(txn);
+                committed = true;
+
+                /* A load racing the transaction may have remembered a miss of a key it wrote */
+                for (final Object bean : context.written)
+                    cachePool.negatives().forget(bean);
+
+                stick(context.provider); // the committed writes become visible from now on
             }
             finally
             {
-                transactionEnding.set(false);
+                /* A failed commit ends the transaction as well; roll back whatever the provider left open */
+                if (!committed)
+                    rollbackQuietly(context);
+
+                transactions.remove(scopeKey(), context);
+
+                context.ending.set(false);
             }
         }
         else
@@ -1703,13 +2197,16 @@ public final class DataManagerImpl implements DataManager
             OperationTimeoutException, NotEnoughResourceException, DataException
     {
         checkOpen();
-        checkTransaction(txn);
 
-        if (transactionEnding.compareAndSet(false, true))
+        final TransactionContext context = context();
+
+        checkTransaction(context, txn);
+
+        if (context.ending.compareAndSet(false, true))
         {
             try
             {
-                txnProvider.rollback(txn);
+                context.provider.rollback(txn);
             }
             catch (final DataProviderException e)
             {
@@ -1722,11 +2219,9 @@ public final class DataManagerImpl implements DataManager
             finally
             {
                 /* We assume everything happens evenly */
-                this.txn = null;
-                txnProvider = null;
-                transactionInProgress.set(false);
+                transactions.remove(scopeKey(), context);
 
-                transactionEnding.set(false);
+                context.ending.set(false);
             }
         }
         else
@@ -1735,6 +2230,37 @@ public final class DataManagerImpl implements DataManager
         }
     }
 
+    @Override
+    public SessionToken session() throws IllegalStateException
+    {
+        checkOpen();
+
+        return sessionToken();
+    }
+
+    @Override
+    public DataManager session(final SessionToken token) throws IllegalStateException, IllegalArgumentException
+    {
+        checkOpen();
+
+        if (token == null)
+            throw new IllegalArgumentException("Session token must not be null");
+
+        return new DataManagerImpl(this, scope, token);
+    }
+
+    @Override
+    public DataManager scope(final Object scope) throws IllegalStateException, IllegalArgumentException
+    {
+        checkOpen();
+
+        if (scope == null)
+            throw new IllegalArgumentException("Scope must not be null");
+
+        /* A scope spans threads, so it gets a session of its own */
+        return new DataManagerImpl(this, scope, session != null ? session : new SessionToken());
+    }
+
     @Override
     public boolean isOpen()
     {
@@ -1744,43 +2270,92 @@ public final class DataManagerImpl implements DataManager
     @Override
     public void close() throws DataException
     {
-        if (closed.compareAndSet(false, true))
+        if (session != null) // a view only ends the transaction of its scope
         {
-            if (transactionInProgress.get())
-            {
-                try
-                {
-                    txnProvider.rollback(txn);
-                }
-                catch (final DataException e)
-                {
-                    // Close quietly
-                    logger.warn("Unable to rollback the last pending transaction; " + e.getMessage());
-                }
-
-                txn = null;
-                txnProvider = null;
-                transactionInProgress.set(false);
-            }
+            final TransactionContext context = scope == null ? null : transactions.remove(scope);
 
-            /* Release all active data sources */
-            for (DataSource ds : activeDataSources)
+            if (context != null)
+                rollbackQuietly(context);
+        }
+        else if (closed.compareAndSet(false, true))
+        {
+            for (final Object key : transactions.keySet())
             {
-                try
-                {
-                    ds.close();
-                }
-                catch (final DataException e)
-                {
-                    // Close quietly
-                    logger.warn("Could not close the data manager properly; " + e.getMessage());
-                }
+                final TransactionContext context = transactions.remove(key);
+
+                if (context != null)
+                    rollbackQuietly(context);
             }
+        }
+    }
 
-            activeDataSources.clear();
+    /**
+     * Rolls back a pending transaction on close or after a failed commit.
+     * 
+     * @param context
+     *            the pending transaction
+     */
+    private void rollbackQuietly(final TransactionContext context)
+    {
+        try
+        {
+            context.provider.rollback(context.txn);
+        }
+        catch (final RuntimeException e)
+        {
+            // Close quietly
+            logger.warn("Unable to rollback the last pending transaction; " + e.getMessage());
         }
     }
 
+    /**
+     * Returns the key the transaction of the caller is bound to.
+     * 
+     * @return the scope of this view or else the key of the calling thread
+     */
+    private Object scopeKey()
+    {
+        return scope == null ? THREAD_SCOPE.get() : scope;
+    }
+
+    /**
+     * Returns the read-your-writes session of the caller.
+     * 
+     * @return the session of this view or else the session of the calling thread
+     */
+    private SessionToken sessionToken()
+    {
+        return session == null ? threadSessions.get() : session;
+    }
+
+    /**
+     * Returns the transaction in progress for the caller.
+     * 
+     * @return the transaction context or null if there is none
+     */
+    private TransactionContext context()
+    {
+        /* Outside transactions nothing is looked up; the emptiness check takes no lock */
+        return transactions.isEmpty() ? null : transactions.get(scopeKey());
+    }
+
+    private boolean inTransaction()
+    {
+        return context() != null;
+    }
+
+    /**
+     * Returns the transaction to hand over to the data source operations.
+     * 
+     * @return the transaction in progress for the caller or null if there is none
+     */
+    private Transaction transaction()
+    {
+        final TransactionContext context = context();
+
+        return context == null ? null : context.txn;
+    }
+
     /**
      * Checks if this manager is currently open.
      * 
@@ -1866,6 +2441,36 @@ public final class DataManagerImpl implements DataManager
             checkManagedType(bean.getClass());
     }
 
+    /**
+     * Checks the bean list of a bulk operation.
+     * 
+     * @param beans
+     *            the bean list
+     * 
+     * @return the bean type shared by all the list
+     * 
+     * @throws IllegalArgumentException
+     *             if the list is empty, any bean type is unknown to this manager or the beans are not
+     *             all the same type
+     */
+    private Class<?> checkBulk(final List<?> beans) throws IllegalArgumentException
+    {
+        if (beans == null || beans.isEmpty())
+            throw new IllegalArgumentException("Beans cannot be null neither empty");
+
+        checkManagedType(beans.toArray());
+
+        final Class<?> type = beans.get(0).getClass();
+
+        for (final Object bean : beans)
+        {
+            if (!type.equals(bean.getClass()))
+                throw new IllegalArgumentException("All beans have to be the same type");
+        }
+
+        return type;
+    }
+
     /**
      * Checks if the given query is valid.
      * 
@@ -1983,6 +2588,8 @@ public final class DataManagerImpl implements DataManager
 
         final StorableInfo sinfo = EntityUtils.info(type);
 
+        final BeanAccessor accessor = sinfo.accessor();
+
         final long now = System.currentTimeMillis();
 
         /**
@@ -1990,16 +2597,16 @@ public final class DataManagerImpl implements DataManager
          */
         final ElementInfo einfo = sinfo.surrogateKey();
 
-        if (einfo != null && EntityUtils.value(bean, einfo.name()) == null)
+        if (einfo != null && accessor.get(bean, einfo) == null)
         {
             if (einfo.dataType() == DataType.STRING)
             {
-                EntityUtils.value(bean, einfo.name(), IdFactory.uuid());
+                accessor.set(bean, einfo, IdFactory.uuid());
             }
             else if (einfo.dataType() == DataType.LONG)
             {
                 // FIXME should use id(divisor) method
-                EntityUtils.value(bean, einfo.name(), IdFactory.id());
+                accessor.set(bean, einfo, IdFactory.id());
             }
             else
             {
@@ -2012,35 +2619,38 @@ public final class DataManagerImpl implements DataManager
         /**
          * Meta-data info.
          */
-        for (final Field field : AnnotationScanner.scanFields(type, Metadata.class))
+        for (final ElementInfo element : sinfo.elements())
         {
-            final Class<?> ftype = field.getType();
-            final Object value = EntityUtils.value(bean, field.getName());
+            if (!element.metadata())
+                continue;
+
+            final Class<?> ftype = element.type();
+            final Object value = accessor.get(bean, element);
 
-            final Metadata.MetadataType mtype = field.getAnnotation(Metadata.class).value();
+            final Metadata.MetadataType mtype = element.metadataType();
 
             /* CREATION_DATE */
             if (mtype == MetadataType.CREATED_DATE && value == null)
             {
-                checkSupportedTypes(field, mtype, Date.class, Long.class);
+                checkSupportedTypes(element, mtype, Date.class, Long.class);
 
                 if (ftype.equals(Date.class))
-                    EntityUtils.value(bean, field.getName(), new Date(now));
+                    accessor.set(bean, element, new Date(now));
                 else if (ftype.equals(Long.class))
-                    EntityUtils.value(bean, field.getName(), now);
+                    accessor.set(bean, element, now);
             }
             /* CREATION_AGENT */
             else if (mtype == MetadataType.CREATED_SERVICE && value == null)
             {
-                checkSupportedTypes(field, mtype, String.class);
+                checkSupportedTypes(element, mtype, String.class);
 
                 if (ftype.equals(String.class))
-                    EntityUtils.value(bean, field.getName(), EntityUtils.hostName());
+                    accessor.set(bean, element, EntityUtils.hostName());
             }
             /* EXPIRES */
             else if (mtype == MetadataType.EXPIRES && EntityUtils.hasTimeToLive(bean))
             {
-                checkSupportedTypes(field, mtype, Date.class, Long.class);
+                checkSupportedTypes(element, mtype, Date.class, Long.class);
 
                 Long ttl = EntityUtils.timeToLive(bean);
                 if (ttl != null)
@@ -2054,9 +2664,9 @@ public final class DataManagerImpl implements DataManager
                     long expires = now + TimeUnit.MILLISECONDS.convert(ttl, unit);
 
                     if (ftype.equals(Date.class))
-                        EntityUtils.value(bean, field.getName(), new Date(expires));
+                        accessor.set(bean, element, new Date(expires));
                     else if (ftype.equals(Long.class))
-                        EntityUtils.value(bean, field.getName(), expires);
+                        accessor.set(bean, element, expires);
                 }
             }
         }
@@ -2073,34 +2683,41 @@ public final class DataManagerImpl implements DataManager
     {
         final Class<?> type = bean.getClass();
 
+        final StorableInfo sinfo = EntityUtils.info(type);
+
+        final BeanAccessor accessor = sinfo.accessor();
+
         final long now = System.currentTimeMillis();
 
         /**
          * Meta-data info.
          */
-        for (final Field field : AnnotationScanner.scanFields(type, Metadata.class))
+        for (final ElementInfo element : sinfo.elements())
         {
-            final Class<?> ftype = field.getType();
+            if (!element.metadata())
+                continue;
 
-            final Metadata.MetadataType mtype = field.getAnnotation(Metadata.class).value();
+            final Class<?> ftype = element.type();
+
+            final Metadata.MetadataType mtype = element.metadataType();
 
             /* LAST_ACCESS_DATE */
             if (mtype == MetadataType.LAST_ACCESS_DATE)
             {
-                checkSupportedTypes(field, mtype, Date.class, Long.class);
+                checkSupportedTypes(element, mtype, Date.class, Long.class);
 
                 if (ftype.equals(Date.class))
-                    EntityUtils.value(bean, field.getName(), new Date(now));
+                    accessor.set(bean, element, new Date(now));
                 else if (ftype.equals(Long.class))
-                    EntityUtils.value(bean, field.getName(), now);
+                    accessor.set(bean, element, now);
             }
             /* LAST_ACCESS_AGENT */
             else if (mtype == MetadataType.LAST_ACCESS_SERVICE)
             {
-                checkSupportedTypes(field, mtype, String.class);
+                checkSupportedTypes(element, mtype, String.class);
 
                 if (ftype.equals(String.class))
-                    EntityUtils.value(bean, field.getName(), EntityUtils.hostName());
+                    accessor.set(bean, element, EntityUtils.hostName());
             }
         }
     }
@@ -2115,40 +2732,47 @@ public final class DataManagerImpl implements DataManager
     {
         final Class<?> type = bean.getClass();
 
+        final StorableInfo sinfo = EntityUtils.info(type);
+
+        final BeanAccessor accessor = sinfo.accessor();
+
         final long now = System.currentTimeMillis();
 
         /**
          * Meta-data info.
          */
-        for (final Field field : AnnotationScanner.scanFields(type, Metadata.class))
+        for (final ElementInfo element : sinfo.elements())
         {
-            final Class<?> ftype = field.getType();
-            final Object value = EntityUtils.value(bean, field.getName());
+            if (!element.metadata())
+                continue;
 
-            final Metadata.MetadataType mtype = field.getAnnotation(Metadata.class).value();
+            final Class<?> ftype = element.type();
+            final Object value = accessor.get(bean, element);
+
+            final Metadata.MetadataType mtype = element.metadataType();
 
             /* LAST_MODIFIED_DATE */
             if (mtype == MetadataType.LAST_MODIFIED_DATE && value == null)
             {
-                checkSupportedTypes(field, mtype, Date.class, Long.class);
+                checkSupportedTypes(element, mtype, Date.class, Long.class);
 
                 if (ftype.equals(Date.class))
-                    EntityUtils.value(bean, field.getName(), new Date(now));
+                    accessor.set(bean, element, new Date(now));
                 else if (ftype.equals(Long.class))
-                    EntityUtils.value(bean, field.getName(), now);
+                    accessor.set(bean, element, now);
             }
             /* LAST_MODIFIED_AGENT */
             else if (mtype == MetadataType.LAST_MODIFIED_SERVICE && value == null)
             {
-                checkSupportedTypes(field, mtype, String.class);
+                checkSupportedTypes(element, mtype, String.class);
 
                 if (ftype.equals(String.class))
-                    EntityUtils.value(bean, field.getName(), EntityUtils.hostName());
+                    accessor.set(bean, element, EntityUtils.hostName());
             }
             /* EXPIRES */
             else if (mtype == MetadataType.EXPIRES && EntityUtils.hasTimeToLive(bean))
             {
-                checkSupportedTypes(field, mtype, Date.class, Long.class);
+                checkSupportedTypes(element, mtype, Date.class, Long.class);
 
                 final Long ttl = EntityUtils.timeToLive(bean);
 
@@ -2165,48 +2789,50 @@ public final class DataManagerImpl implements DataManager
                     final long expires = now + TimeUnit.MILLISECONDS.convert(ttl, unit);
 
                     if (ftype.equals(Date.class))
-                        EntityUtils.value(bean, field.getName(), new Date(expires));
+                        accessor.set(bean, element, new Date(expires));
                     else if (ftype.equals(Long.class))
-                        EntityUtils.value(bean, field.getName(), expires);
+                        accessor.set(bean, element, expires);
                 }
             }
         }
     }
 
     /**
-     * Checks if the given field type is as expected for the meta-data annotation.
+     * Checks if the given element type is as expected for the meta-data annotation.
      * 
-     * @param field
-     *            the field to check
+     * @param element
+     *            the element to check
      * @param mtype
      *            the meta-data type
      * @param types
      *            the supported types
      * 
      * @throws UnsupportedOperationException
-     *             if the field has an unsupported type
+     *             if the element has an unsupported type
      */
-    private void checkSupportedTypes(final Field field, final MetadataType mtype, final Class<?>... types)
+    private void checkSupportedTypes(final ElementInfo element, final MetadataType mtype, final Class<?>... types)
             throws UnsupportedOperationException
     {
         String names = null;
 
         for (final Class<?> type : types)
         {
-            if (field.getType().equals(type))
+            if (element.type().equals(type))
                 return;
 
             names = (names == null ? type.getName() : names + ", " + type.getName());
         }
 
         throw new UnsupportedOperationException(
-                String.format("Unsupported type [%s] for Metadata.%s. Expecting types [%s]", field.getType().getName(),
+                String.format("Unsupported type [%s] for Metadata.%s. Expecting types [%s]", element.type().getName(),
                         mtype, names));
     }
 
     /**
      * Checks if the given transaction is valid.
      * 
+     * @param context
+     *            the transaction in progress for the caller; null if there is none
      * @param txn
      *            the transaction
      * @throws IllegalStateException
@@ -2214,13 +2840,14 @@ public final class DataManagerImpl implements DataManager
      * @throws InvalidTransactionException
      *             if the transaction id is invalid
      */
-    private void checkTransaction(Transaction txn) throws IllegalStateException, InvalidTransactionException
+    private void checkTransaction(final TransactionContext context, final Transaction txn)
+            throws IllegalStateException, InvalidTransactionException
     {
-        if (!transactionInProgress.get())
+        if (context == null)
             throw new IllegalStateException("There is no transaction in progress");
         if (txn == null)
             throw new InvalidTransactionException("Invalid transaction; object is null");
-        if (!this.txn.getId().equals(txn.getId()))
+        if (!context.txn.getId().equals(txn.getId()))
             throw new InvalidTransactionException("Invalid transaction; object is unknown");
         if (!txn.isActive())
             throw new InvalidTransactionException("Invalid transaction; object is no longer active");
@@ -2254,23 +2881,351 @@ public final class DataManagerImpl implements DataManager
      * @throws IllegalArgumentException
      *             of the bean type has no match provider
      */
-    // FIXME currently the parameter type is ignored
     private DataSource openDataSource(final Class<?> type, final boolean readWrite) throws IllegalArgumentException
     {
-        // FIXME after a transaction commit it can be good to peek the same provider for the next
-        // operations to avoid missing records due replication delay between replicas. Let's user
-        // settings control this behavior.
-        DataProvider provider = transactionInProgress.get() && !transactionEnding.get() ? txnProvider
-                : getProvider(readWrite);
+        return openDataSource(type, readWrite, null);
+    }
+
+    /**
+     * Opens a concrete {@link DataSource} implementation that matches the given bean type on the
+     * provider owning the given partition key.
+     * 
+     * @param type
+     *            the bean type
+     * @param readWrite
+     *            the kind of operation
+     * @param key
+     *            the operation partition key or null if the operation is not addressed by key
+     * 
+     * @return a {@link DataSource} implementation object
+     * 
+     * @throws IllegalArgumentException
+     *             of the bean type has no match provider
+     */
+    // FIXME currently the parameter type is ignored
+    private DataSource openDataSource(final Class<?> type, final boolean readWrite, final EntityKey key)
+            throws IllegalArgumentException
+    {
+        return openDataSource(type, provider(readWrite, key), readWrite);
+    }
+
+    /**
+     * Opens a concrete {@link DataSource} implementation that matches the given bean type on the
+     * given provider.
+     * 
+     * @param type
+     *            the bean type
+     * @param provider
+     *            the provider resolved for the operation
+     * @param readWrite
+     *            the kind of operation
+     * 
+     * @return a {@link DataSource} implementation object
+     */
+    private DataSource openDataSource(final Class<?> type, final DataProvider provider, final boolean readWrite)
+    {
+        /* Pending writes go first so the mutations reach the provider in order */
+        if (readWrite && writeBehind != null)
+            writeBehind.flush(type);
+
+        return router.track(provider, provider.openDataSource(type),
+                metrics == null ? null : metrics.meter(type, provider.id()));
+    }
+
+    /**
+     * Returns the provider to run an operation on: the one running the transaction of the caller, or
+     * else the owner of the given partition key.
+     * 
+     * @param readWrite
+     *            the kind of operation
+     * @param key
+     *            the operation partition key or null if the operation is not addressed by key
+     * 
+     * @return the provider for the operation
+     */
+    private DataProvider provider(final boolean readWrite, final EntityKey key)
+    {
+        final TransactionContext context = context();
+
+        DataProvider provider = context != null && !context.ending.get() ? context.provider
+                : getProvider(readWrite, key);
 
         if (provider == null) // Can happen due high concurrency (but should not!)
-            provider = getProvider(readWrite);
+            provider = getProvider(readWrite, key);
+
+        return provider;
+    }
+
+    /**
+     * Splits the given items by the provider owning their partition keys.
+     * <p>
+     * Inside a transaction, or when the operations are not routed by key, all the items go to a
+     * single provider. Items without a partition key share one provider as well.
+     * 
+     * @param readWrite
+     *            the kind of operation
+     * @param items
+     *            the beans or key values addressed by a bulk operation
+     * @param keyOf
+     *            returns the partition key of an item
+     * 
+     * @return the positions of the items owned by each provider, in the given order
+     */
+    private <E> Map<DataProvider, List<Integer>> partition(final boolean readWrite, final List<E> items,
+            final Function<? super E, EntityKey> keyOf)
+    {
+        final Map<DataProvider, List<Integer>> groups = new LinkedHashMap<>();
+
+        if (!router.partitioned() || inTransaction())
+        {
+            final List<Integer> all = new ArrayList<>(items.size());
+            for (int i = 0; i < items.size(); i++)
+                all.add(i);
+
+            groups.put(provider(readWrite, null), all);
+
+            return groups;
+        }
+
+        DataProvider unrouted = null;
+
+        for (int i = 0; i < items.size(); i++)
+        {
+            final EntityKey key = keyOf.apply(items.get(i));
+
+            DataProvider owner;
+
+            if (key != null)
+                owner = provider(readWrite, key);
+            else if (unrouted != null)
+                owner = unrouted;
+            else
+                owner = unrouted = provider(readWrite, null);
+
+            groups.computeIfAbsent(owner, p -> new ArrayList<>()).add(i);
+        }
+
+        return groups;
+    }
+
+    /**
+     * Runs a bulk write on the providers owning the partition keys of the given beans.
+     * 
+     * @param type
+     *            the bean type
+     * @param beans
+     *            the beans to be written
+     * @param write
+     *            the data source write of a group of beans; returns one bean per given bean
+     * 
+     * @return the written beans in the given order
+     */
+    private <T> List<T> writePartitioned(final Class<?> type, final List<T> beans,
+            final BiFunction<DataSource, List<T>, List<T>> write)
+    {
+        return writePartitioned(type, beans, this::partitionKey, write);
+    }
+
+    /**
+     * Runs a bulk write on the providers owning the partition keys of the given items.
+     * 
+     * @param type
+     *            the bean type
+     * @param items
+     *            the beans or key values addressed by the write
+     * @param keyOf
+     *            returns the partition key of an item
+     * @param write
+     *            the data source write of a group of items; returns one result per given item
+     * 
+     * @return the write results in the given order
+     */
+    private <E, R> List<R> writePartitioned(final Class<?> type, final List<E> items,
+            final Function<? super E, EntityKey> keyOf, final BiFunction<DataSource, List<E>, List<R>> write)
+    {
+        final Map<DataProvider, List<Integer>> groups = partition(true, items, keyOf);
+
+        if (groups.size() == 1)
+        {
+            final DataProvider provider = groups.keySet().iterator().next();
+            final DataSource ds = openDataSource(type, provider, true);
+
+            List<R> result;
+
+            try
+            {
+                result = write.apply(ds, items);
+            }
+            finally
+            {
+                closeDataSource(ds);
+            }
+
+            wrote(provider);
+
+            return result;
+        }
+
+        final List<R> result = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++)
+            result.add(null);
+
+        for (final Map.Entry<DataProvider, List<Integer>> group : groups.entrySet())
+        {
+            final List<Integer> positions = group.getValue();
+            final List<E> part = new ArrayList<>(positions.size());
+            for (final int i : positions)
+                part.add(items.get(i));
+
+            final DataSource ds = openDataSource(type, group.getKey(), true);
+
+            try
+            {
+                final List<R> written = write.apply(ds, part);
+                for (int i = 0; i < positions.size(); i++)
+                    result.set(positions.get(i), written.get(i));
+            }
+            finally
+            {
+                closeDataSource(ds);
+            }
+
+            wrote(group.getKey());
+        }
+
+        return result;
+    }
+
+    /**
+     * Loads a bean missed by the cache remembering the key when it matches no bean.
+     * 
+     * @param type
+     *            the bean type
+     * @param key
+     *            the bean key
+     * @param loader
+     *            the provider load
+     * @param remember
+     *            records the miss on the negative cache against the generation read before the load
+     * 
+     * @return the loaded bean
+     * 
+     * @throws NotFoundException
+     *             if the key did not match any bean
+     */
+    private <T> T loadRemembering(final Class<?> type, final EntityKey key, final Supplier<T> loader,
+            final LongConsumer remember) throws NotFoundException
+    {
+        final long generation = cachePool.negatives().generation();
+
+        try
+        {
+            return cachePool.load(type, key, loader);
+        }
+        catch (final NotFoundException e)
+        {
+            remember.accept(generation);
+            throw e;
+        }
+    }
+
+    /**
+     * Forgets the remembered lookup misses of the given bean keys.
+     * <p>
+     * Inside a transaction the bean is recorded as well, so its misses are forgotten again once the
+     * transaction commits.
+     * 
+     * @param bean
+     *            the written bean
+     */
+    private void forgetMisses(final Object bean)
+    {
+        cachePool.negatives().forget(bean);
+
+        final TransactionContext context = context();
+
+        if (context != null)
+            context.written.add(bean);
+    }
+
+    /**
+     * Forgets the remembered lookup misses of the given beans keys.
+     * 
+     * @param beans
+     *            the written beans
+     */
+    private void forgetMisses(final List<?> beans)
+    {
+        for (final Object bean : beans)
+            forgetMisses(bean);
+    }
+
+    /**
+     * Buffers the given bean on the write-behind buffer instead of writing it through.
+     * <p>
+     * The L1 cache is updated at once. Beans are never written behind inside a transaction.
+     * 
+     * @param bean
+     *            the bean to be written
+     * @param key
+     *            the key the bean is written under or null for the bean own key
+     * @param ttl
+     *            the cache time to live
+     * @param unit
+     *            the time to live unit or null for the cache default
+     * @param update
+     *            <tt>true</tt> if the bean must already exist; <tt>false</tt> to save it
+     * 
+     * @return <tt>true</tt> if the bean was buffered; <tt>false</tt> if it must be written through
+     */
+    private boolean writeBehind(final Object bean, final EntityKey key, final long ttl, final TimeUnit unit,
+            final boolean update)
+    {
+        if (writeBehind == null || inTransaction() || !writeBehind.accepts(bean, key))
+            return false;
+
+        final Cache cache = cachePool.get(bean);
+
+        if (unit == null)
+            cache.set(bean);
+        else
+            cache.set(bean, ttl, unit);
+
+        writeBehind.offer(bean, update);
+        forgetMisses(bean);
 
-        final DataSource ds = provider.openDataSource(type);
+        return true;
+    }
 
-        activeDataSources.add(ds);
+    /**
+     * Buffers the given beans on the write-behind buffer when all of them can be written behind.
+     * 
+     * @param beans
+     *            the beans to be written
+     * @param ttl
+     *            the cache time to live
+     * @param unit
+     *            the time to live unit or null for the cache default
+     * @param update
+     *            <tt>true</tt> if the beans must already exist; <tt>false</tt> to save them
+     * 
+     * @return <tt>true</tt> if the beans were buffered; <tt>false</tt> if they must be written through
+     */
+    private <T> boolean writeBehind(final List<T> beans, final long ttl, final TimeUnit unit, final boolean update)
+    {
+        if (writeBehind == null || inTransaction())
+            return false;
 
-        return ds;
+        for (final T bean : beans)
+        {
+            if (!writeBehind.accepts(bean, null))
+                return false;
+        }
+
+        for (final T bean : beans)
+            writeBehind(bean, null, ttl, unit, update);
+
+        return true;
     }
 
     /**
@@ -2281,9 +3236,7 @@ public final class DataManagerImpl implements DataManager
      */
     private void closeDataSource(final DataSource ds)
     {
-        activeDataSources.remove(ds);
-
-        ds.close();
+        ds.close(); // No effect for provider shared instances
     }
 
     /**
@@ -2291,23 +3244,153 @@ public final class DataManagerImpl implements DataManager
      * 
      * @param readWrite
      *            set to {@code true} for a read and write provider
+     * @param key
+     *            the operation partition key or null to pick any provider
      * 
      * @return a instance to be used
      * 
      * @throws IllegalStateException
      *             if a read-write provider is requested but there is no one available
      */
-    private DataProvider getProvider(final boolean readWrite) throws IllegalStateException
+    private DataProvider getProvider(final boolean readWrite, final EntityKey key) throws IllegalStateException
     {
-        if (rwProviders.isEmpty() && roProviders.isEmpty())
-            throw new IllegalStateException("No data provider available");
+        /* Reads after a write or a commit must not miss it because of the replication delay */
+        if (!readWrite && router.stickyWindow() > 0L)
+        {
+            final SessionToken token = sessionToken();
 
-        if (readWrite && rwProviders.isEmpty())
-            throw new IllegalStateException("Read-Write data provider not available");
+            if (token.isSticky())
+                return router.routeSticky(key, token.provider());
+        }
+
+        return router.route(readWrite, key);
+    }
+
+    /**
+     * Opens the read-your-writes window of the session on the given provider.
+     * 
+     * @param provider
+     *            the provider that took a write
+     */
+    private void stick(final DataProvider provider)
+    {
+        final long window = router.stickyWindow();
+
+        if (window > 0L && provider != null)
+            sessionToken().mark(router.name(provider), System.currentTimeMillis() + window);
+    }
 
-        // FIXME have to be cache friendly (memcached like algorithm based on partition key)
-        return readWrite ? rwProviders.get(Fortuna.random().nextInt(rwProviders.size()))
-                : roProviders.isEmpty() ? rwProviders.get(Fortuna.random().nextInt(rwProviders.size()))
-                        : roProviders.get(Fortuna.random().nextInt(roProviders.size()));
+    /**
+     * Opens the read-your-writes window on the given provider once a write went through it. The
+     * writes of a transaction open it on commit instead.
+     * 
+     * @param provider
+     *            the provider that took the write
+     */
+    private void wrote(final DataProvider provider)
+    {
+        if (!inTransaction())
+            stick(provider);
+    }
+
+    /**
+     * Returns the partition key of the given bean: its surrogate key, or its primary key if the bean
+     * type has no surrogate key.
+     * 
+     * @param bean
+     *            the bean addressed by the operation
+     * 
+     * @return the partition key or null if the operation is not to be routed by key
+     */
+    private EntityKey partitionKey(final Object bean)
+    {
+        if (!router.partitioned())
+            return null;
+
+        try
+        {
+            final EntityKey skey = EntityUtils.keyCodec().surrogateKey(bean);
+
+            if (skey != null || EntityUtils.info(bean.getClass()).surrogateKey() != null)
+                return skey; // a surrogate key yet to be generated leaves the bean unrouted
+
+            return EntityUtils.keyCodec().primaryKey(bean);
+        }
+        catch (final IllegalArgumentException e)
+        {
+            return null; // the provider is the one to reject the bean
+        }
+    }
+
+    /**
+     * Returns the partition key for the given surrogate key value.
+     * 
+     * @param type
+     *            the bean type
+     * @param id
+     *            the surrogate key value
+     * 
+     * @return the partition key or null if the operation is not to be routed by key
+     */
+    private EntityKey partitionKeyI(final Class<?> type, final Object id)
+    {
+        if (!router.partitioned())
+            return null;
+
+        try
+        {
+            return EntityUtils.keyCodec().surrogateKey(type, id);
+        }
+        catch (final IllegalArgumentException e)
+        {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the partition key for the given primary key values.
+     * <p>
+     * Types with a surrogate key are partitioned by it, so their primary key lookups are not routed
+     * by key.
+     * 
+     * @param type
+     *            the bean type
+     * @param keys
+     *            the primary key values
+     * 
+     * @return the partition key or null if the operation is not to be routed by key
+     */
+    private EntityKey partitionKeyP(final Class<?> type, final Object... keys)
+    {
+        if (!router.partitioned())
+            return null;
+
+        try
+        {
+            return EntityUtils.info(type).surrogateKey() != null ? null : EntityUtils.keyCodec().primaryKey(type, keys);
+        }
+        catch (final IllegalArgumentException e)
+        {
+            return null;
+        }
+    }
+
+    /**
+     * A transaction in progress and the provider running it.
+     */
+    private static final class TransactionContext
+    {
+        final Transaction txn;
+        final DataProvider provider;
+        final AtomicBoolean ending = new AtomicBoolean(false);
+
+        /** Beans written by the transaction; their misses are forgotten again on commit */
+        final Queue<Object> written = new ConcurrentLinkedQueue<>();
+
+        TransactionContext(final Transaction txn, final DataProvider provider)
+        {
+            this.txn = txn;
+            this.provider = provider;
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,433 @@
+/*
+ * This file is part of UDAO 
+ * https://github.com/perbone/udao/
+ * 
+ * Copyright 2013-2018 Paulo Perbone
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package io.perbone.udao.internal;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+
+import io.perbone.udao.Cursor;
+import io.perbone.udao.DataException;
+import io.perbone.udao.NotFoundException;
+import io.perbone.udao.spi.DataSource;
+import io.perbone.udao.transaction.Transaction;
+
+/**
+ * Instruments the data operations of a shared data source, i.e. every {@link DataSource} method
+ * taking a {@link Transaction}, for both the router and the metrics registry through a single
+ * reflective call.
+ * <p>
+ * The router side counts the operations in flight on the {@link ProviderLoadMeter} of the provider
+ * and samples their latency. Forward-only cursors hold their provider resources until they are
+ * closed or run out of beans, so they are counted as in flight until then. The registry side times
+ * the operations on their {@link MetricsRegistry.SourceMeter}.
+ * 
+ * @author Paulo Perbone <pauloperbone@yahoo.com>
+ * @since 0.17.0
+ */
+final class MeteredDataSource implements InvocationHandler
+{
+    /* Method instances are shared by all the proxies so the lookups do not hash the name */
+    private static final ConcurrentHashMap<Method, Boolean> OPERATIONS = new ConcurrentHashMap<>();
+
+    private final DataSource target;
+    private final ProviderLoadMeter load;
+    private final MetricsRegistry.SourceMeter meter;
+    private final DataSource proxy;
+
+    /**
+     * Creates the instrumented wrapper of the given data source.
+     * 
+     * @param target
+     *            the shared data source
+     * @param load
+     *            the load of the provider that opened the data source; null if it is not counted
+     * @param meter
+     *            the operation metrics of the data source; null when metrics are disabled
+     */
+    MeteredDataSource(final DataSource target, final ProviderLoadMeter load, final MetricsRegistry.SourceMeter meter)
+    {
+        this.target = target;
+        this.load = load;
+        this.meter = meter;
+        this.proxy = (DataSource) Proxy.newProxyInstance(DataSource.class.getClassLoader(),
+                new Class<?>[] { DataSource.class }, this);
+    }
+
+    /**
+     * Returns the instrumented data source.
+     * 
+     * @return the data source proxy
+     */
+    DataSource proxy()
+    {
+        return proxy;
+    }
+
+    /**
+     * Tells whether the operations feed the load of the provider.
+     * 
+     * @return <tt>true</tt> if the load is counted; <tt>false</tt> otherwise
+     */
+    boolean counted()
+    {
+        return load != null;
+    }
+
+    @Override
+    public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable
+    {
+        if (method.getDeclaringClass() == Object.class)
+        {
+            if ("equals".equals(method.getName()))
+                return proxy == args[0];
+            if ("hashCode".equals(method.getName()))
+                return System.identityHashCode(proxy);
+        }
+
+        if (!isOperation(method))
+            return call(method, args);
+
+        final MetricsRegistry.OperationStats stats = meter == null ? null : meter.stats(method);
+        final long start = System.nanoTime();
+
+        boolean held = false;
+
+        if (load != null)
+            load.begin();
+
+        try
+        {
+            final Object result = call(method, args);
+
+            if (load != null && result instanceof Cursor && holdsResources((Cursor<?>) result))
+            {
+                held = true;
+                return new TrackedCursor<>((Cursor<?>) result, load);
+            }
+
+            return result;
+        }
+        catch (final NotFoundException e)
+        {
+            throw e;
+        }
+        catch (final Throwable e)
+        {
+            if (stats != null)
+                stats.errors.increment();
+            throw e;
+        }
+        finally
+        {
+            final long nanos = System.nanoTime() - start;
+
+            if (stats != null)
+                stats.latency.record(nanos);
+
+            if (held)
+                load.sample(nanos); // the cursor releases the operation on close
+            else if (load != null)
+                load.end(nanos);
+        }
+    }
+
+    private static boolean isOperation(final Method method)
+    {
+        Boolean operation = OPERATIONS.get(method);
+
+        if (operation == null)
+        {
+            final Class<?>[] params = method.getParameterTypes();
+
+            operation = params.length > 0 && params[0] == Transaction.class;
+            OPERATIONS.putIfAbsent(method, operation);
+        }
+
+        return operation;
+    }
+
+    private static boolean holdsResources(final Cursor<?> cursor)
+    {
+        return cursor.isOpen() && cursor.scrollMode() == Cursor.ScrollMode.TYPE_FORWARD_ONLY && !cursor.eos();
+    }
+
+    private Object call(final Method method, final Object[] args) throws Throwable
+    {
+        try
+        {
+            return method.invoke(target, args);
+        }
+        catch (final InvocationTargetException e)
+        {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Keeps a forward-only cursor counted as in flight until it is closed or runs out of beans.
+     */
+    private static final class TrackedCursor<T> implements Cursor<T>
+    {
+        private final Cursor<T> cursor;
+        private final ProviderLoadMeter load;
+        private boolean released = false;
+
+        TrackedCursor(final Cursor<T> cursor, final ProviderLoadMeter load)
+        {
+            this.cursor = cursor;
+            this.load = load;
+        }
+
+        @Override
+        public ScrollMode scrollMode() throws IllegalStateException
+        {
+            return cursor.scrollMode();
+        }
+
+        @Override
+        public T fetch() throws IllegalStateException, DataException
+        {
+            return cursor.fetch();
+        }
+
+        @Override
+        public T fetch(final long index) throws IllegalStateException, IllegalArgumentException, DataException
+        {
+            try
+            {
+                return cursor.fetch(index);
+            }
+            finally
+            {
+                settle();
+            }
+        }
+
+        @Override
+        public T[] toArray()
+        {
+            try
+            {
+                return cursor.toArray();
+            }
+            finally
+            {
+                settle();
+            }
+        }
+
+        @Override
+        public long position() throws IllegalStateException, DataException
+        {
+            return cursor.position();
+        }
+
+        @Override
+        public void first() throws IllegalStateException, DataException
+        {
+            try
+            {
+                cursor.first();
+            }
+            finally
+            {
+                settle();
+            }
+        }
+
+        @Override
+        public void last() throws IllegalStateException, DataException
+        {
+            try
+            {
+                cursor.last();
+            }
+            finally
+            {
+                settle();
+            }
+        }
+
+        @Override
+        public void next() throws IllegalStateException, DataException
+        {
+            try
+            {
+                cursor.next();
+            }
+            finally
+            {
+                settle();
+            }
+        }
+
+        @Override
+        public void previous() throws IllegalStateException, DataException
+        {
+            cursor.previous();
+        }
+
+        @Override
+        public void absolute(final long offset) throws IllegalStateException, DataException
+        {
+            try
+            {
+                cursor.absolute(offset);
+            }
+            finally
+            {
+                settle();
+            }
+        }
+
+        @Override
+        public void relative(final long offset) throws IllegalStateException, DataException
+        {
+            try
+            {
+                cursor.relative(offset);
+            }
+            finally
+            {
+                settle();
+            }
+        }
+
+        @Override
+        public boolean bos() throws IllegalStateException
+        {
+            return cursor.bos();
+        }
+
+        @Override
+        public boolean eos() throws IllegalStateException
+        {
+            return cursor.eos();
+        }
+
+        @Override
+        public boolean scrollable() throws IllegalStateException
+        {
+            return cursor.scrollable();
+        }
+
+        @Override
+        public boolean indexable() throws IllegalStateException
+        {
+            return cursor.indexable();
+        }
+
+        @Override
+        public boolean countable() throws IllegalStateException
+        {
+            return cursor.countable();
+        }
+
+        @Override
+        public long count() throws IllegalStateException, DataException
+        {
+            try
+            {
+                return cursor.count();
+            }
+            finally
+            {
+                settle();
+            }
+        }
+
+        @Override
+        public void close() throws DataException
+        {
+            try
+            {
+                cursor.close();
+            }
+            finally
+            {
+                release();
+            }
+        }
+
+        @Override
+        public boolean isOpen()
+        {
+            return cursor.isOpen();
+        }
+
+        @Override
+        public Iterator<T> iterator()
+        {
+            final Iterator<T> it = cursor.iterator();
+
+            return new Iterator<T>()
+            {
+                @Override
+                public boolean hasNext()
+                {
+                    try
+                    {
+                        return it.hasNext();
+                    }
+                    finally
+                    {
+                        settle();
+                    }
+                }
+
+                @Override
+                public T next()
+                {
+                    try
+                    {
+                        return it.next();
+                    }
+                    finally
+                    {
+                        settle();
+                    }
+                }
+            };
+        }
+
+        /**
+         * Releases the operation once the cursor ran out of beans; the provider resources are gone
+         * by then.
+         */
+        private void settle()
+        {
+            if (!released && (!cursor.isOpen() || cursor.eos()))
+                release();
+        }
+
+        private void release()
+        {
+            if (!released)
+            {
+                released = true;
+                load.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * This file is part of UDAO 
+ * https://github.com/perbone/udao/
+ * 
+ * Copyright 2013-2018 Paulo Perbone
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package io.perbone.udao.internal;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanException;
+import javax.management.MBeanInfo;
+import javax.management.ReflectionException;
+
+import io.perbone.udao.metrics.CacheMetrics;
+import io.perbone.udao.metrics.LatencySnapshot;
+import io.perbone.udao.metrics.MetricsSnapshot;
+import io.perbone.udao.metrics.OperationMetrics;
+import io.perbone.udao.metrics.ProviderMetrics;
+
+/**
+ * Read-only JMX view of the factory metrics.
+ * <p>
+ * Every figure of the {@link MetricsSnapshot} is exposed as a flat attribute named after its path,
+ * like <tt>cache.default.hits</tt> or <tt>operation.Person.fetchI.jdbc.p99</tt>. As new types and
+ * operations show up at run time the attribute set grows, so JMX consoles must refresh the bean
+ * info to see them.
+ * 
+ * @author Paulo Perbone <pauloperbone@yahoo.com>
+ * @since 0.17.0
+ */
+final class MetricsMBean implements DynamicMBean
+{
+    private final Supplier<MetricsSnapshot> metrics;
+
+    MetricsMBean(final Supplier<MetricsSnapshot> metrics)
+    {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Object getAttribute(final String attribute)
+            throws AttributeNotFoundException, MBeanException, ReflectionException
+    {
+        final Object value = attributes().get(attribute);
+
+        if (value == null)
+            throw new AttributeNotFoundException(String.format("No such attribute [%s]", attribute));
+
+        return value;
+    }
+
+    @Override
+    public AttributeList getAttributes(final String[] attributes)
+    {
+        final Map<String, Object> values = attributes();
+        final AttributeList list = new AttributeList();
+
+        for (final String name : attributes)
+        {
+            if (values.containsKey(name))
+                list.add(new Attribute(name, values.get(name)));
+        }
+
+        return list;
+    }
+
+    @Override
+    public void setAttribute(final Attribute attribute)
+            throws AttributeNotFoundException, MBeanException, ReflectionException
+    {
+        throw new AttributeNotFoundException("All the metrics attributes are read-only");
+    }
+
+    @Override
+    public AttributeList setAttributes(final AttributeList attributes)
+    {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(final String actionName, final Object[] params, final String[] signature)
+            throws MBeanException, ReflectionException
+    {
+        throw new ReflectionException(new NoSuchMethodException(actionName), "No operations available");
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo()
+    {
+        final Map<String, Object> values = attributes();
+        final MBeanAttributeInfo[] infos = new MBeanAttributeInfo[values.size()];
+        int i = 0;
+
+        for (final Map.Entry<String, Object> e : values.entrySet())
+            infos[i++] = new MBeanAttributeInfo(e.getKey(), e.getValue().getClass().getName(), e.getKey(), true,
+                    false, false);
+
+        return new MBeanInfo(getClass().getName(), "UDAO metrics", infos, null, null, null);
+    }
+
+    private Map<String, Object> attributes()
+    {
+        final MetricsSnapshot snapshot = metrics.get();
+        final Map<String, Object> values = new LinkedHashMap<>();
+
+        for (final CacheMetrics cache : snapshot.caches())
+        {
+            final String prefix = "cache." + cache.id() + ".";
+
+            values.put(prefix + "level", cache.level());
+            values.put(prefix + "size", cache.size());
+            values.put(prefix + "hits", cache.hits());
+            values.put(prefix + "misses", cache.misses());
+            values.put(prefix + "evictions", cache.evictions());
+            values.put(prefix + "hitRatio", cache.hitRatio());
+        }
+
+        for (final OperationMetrics op : snapshot.operations())
+        {
+            final String prefix = "operation." + op.type().getSimpleName() + "." + op.operation() + "."
+                    + op.provider() + ".";
+
+            values.put(prefix + "errors", op.errors());
+            latency(values, prefix, op.latency());
+        }
+
+        for (final ProviderMetrics provider : snapshot.providers())
+            latency(values, "provider." + provider.id() + ".poolWait.", provider.poolWait());
+
+        values.put("negative.lookups", snapshot.negativeLookups());
+        values.put("negative.hitRatio", snapshot.negativeHitRatio());
+        values.put("writeBehind.depth", snapshot.writeBehindDepth());
+        values.put("writeBehind.deadLetters", snapshot.writeBehindDeadLetters());
+
+        return values;
+    }
+
+    private static void latency(final Map<String, Object> values, final String prefix, final LatencySnapshot latency)
+    {
+        values.put(prefix + "count", latency.count());
+        values.put(prefix + "mean", latency.mean());
+        values.put(prefix + "max", latency.max());
+        values.put(prefix + "p50", latency.p50());
+        values.put(prefix + "p90", latency.p90());
+        values.put(prefix + "p99", latency.p99());
+        values.put(prefix + "p999", latency.p999());
+    }
+}
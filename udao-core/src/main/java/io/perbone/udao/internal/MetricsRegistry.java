@@ -0,0 +1,178 @@
+/*
+ * This file is part of UDAO 
+ * https://github.com/perbone/udao/
+ * 
+ * Copyright 2013-2018 Paulo Perbone
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package io.perbone.udao.internal;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongConsumer;
+
+import io.perbone.udao.NotFoundException;
+import io.perbone.udao.metrics.CacheMetrics;
+import io.perbone.udao.metrics.MetricsSnapshot;
+import io.perbone.udao.metrics.OperationMetrics;
+import io.perbone.udao.metrics.ProviderMetrics;
+import io.perbone.udao.spi.DataSource;
+import io.perbone.udao.transaction.Transaction;
+
+/**
+ * Registry of the operation metrics of a data manager factory.
+ * <p>
+ * Data sources are metered by the {@link MeteredDataSource} wrapper with the {@link #meter} of their
+ * bean type and provider, which times every data operation, i.e. every {@link DataSource} method
+ * taking a {@link Transaction}, by operation. A {@link NotFoundException} is a regular outcome and
+ * is not counted as an error. The counters and histograms are created once per key and then updated
+ * without locking nor allocating.
+ * 
+ * @author Paulo Perbone <pauloperbone@yahoo.com>
+ * @since 0.17.0
+ */
+final class MetricsRegistry
+{
+    private final ConcurrentMap<Class<?>, ConcurrentMap<String, SourceMeter>> meters = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<String, LatencyHistogram> poolWaits = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the operation metrics of the data sources of the given bean type and provider.
+     * 
+     * @param type
+     *            the bean type
+     * @param provider
+     *            the id of the provider that opens the data sources
+     * 
+     * @return the data source meter
+     */
+    SourceMeter meter(final Class<?> type, final String provider)
+    {
+        ConcurrentMap<String, SourceMeter> byProvider = meters.get(type);
+
+        if (byProvider == null)
+            byProvider = meters.computeIfAbsent(type, t -> new ConcurrentHashMap<>());
+
+        SourceMeter meter = byProvider.get(provider);
+
+        if (meter == null)
+            meter = byProvider.computeIfAbsent(provider, p -> new SourceMeter());
+
+        return meter;
+    }
+
+    /**
+     * Returns the listener recording the pool wait times of the given provider.
+     * 
+     * @param provider
+     *            the provider id
+     * 
+     * @return the pool wait listener
+     */
+    LongConsumer poolWaitListener(final String provider)
+    {
+        final LatencyHistogram histogram = poolWaits.computeIfAbsent(provider, p -> new LatencyHistogram());
+
+        return histogram::record;
+    }
+
+    /**
+     * Takes a snapshot of the registered metrics together with the given cache figures.
+     * 
+     * @param caches
+     *            the cache statistics
+     * @param negatives
+     *            the negative cache
+     * @param writeBehindDepth
+     *            the number of beans pending on the write-behind buffers
+     * @param writeBehindDeadLetters
+     *            the number of beans the write-behind buffers gave up on
+     * 
+     * @return the metrics snapshot
+     */
+    MetricsSnapshot snapshot(final List<CacheMetrics> caches, final NegativeCache negatives,
+            final long writeBehindDepth, final long writeBehindDeadLetters)
+    {
+        final List<OperationMetrics> operations = new ArrayList<>();
+
+        for (final Map.Entry<Class<?>, ConcurrentMap<String, SourceMeter>> byType : meters.entrySet())
+        {
+            for (final Map.Entry<String, SourceMeter> byProvider : byType.getValue().entrySet())
+            {
+                for (final Map.Entry<String, OperationStats> op : byProvider.getValue().operations.entrySet())
+                {
+                    final OperationStats stats = op.getValue();
+
+                    operations.add(new OperationMetrics(byType.getKey(), op.getKey(), byProvider.getKey(),
+                            stats.errors.sum(), stats.latency.snapshot()));
+                }
+            }
+        }
+
+        final List<ProviderMetrics> providers = new ArrayList<>();
+
+        for (final Map.Entry<String, LatencyHistogram> e : poolWaits.entrySet())
+            providers.add(new ProviderMetrics(e.getKey(), e.getValue().snapshot()));
+
+        return new MetricsSnapshot(System.currentTimeMillis(), operations, caches, providers,
+                negatives == null ? 0L : negatives.lookups(), negatives == null ? 0L : negatives.hits(),
+                writeBehindDepth, writeBehindDeadLetters);
+    }
+
+    /**
+     * The operation statistics of a bean type on a provider.
+     */
+    static final class SourceMeter
+    {
+        /* Marks the methods that are not data operations */
+        private static final OperationStats NONE = new OperationStats();
+
+        final ConcurrentHashMap<String, OperationStats> operations = new ConcurrentHashMap<>();
+
+        /* Method instances are shared by all the proxies so the lookups do not hash the name */
+        private final ConcurrentHashMap<Method, OperationStats> methods = new ConcurrentHashMap<>();
+
+        /**
+         * Returns the statistics of the given method or null if it is not a data operation.
+         */
+        OperationStats stats(final Method method)
+        {
+            OperationStats stats = methods.get(method);
+
+            if (stats == null)
+            {
+                final Class<?>[] params = method.getParameterTypes();
+
+                stats = params.length == 0 || params[0] != Transaction.class ? NONE
+                        : operations.computeIfAbsent(method.getName(), n -> new OperationStats());
+                methods.putIfAbsent(method, stats);
+            }
+
+            return stats == NONE ? null : stats;
+        }
+    }
+
+    static final class OperationStats
+    {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LongAdder errors = new LongAdder();
+    }
+}
@@ -0,0 +1,245 @@
+/*
+ * This file is part of UDAO 
+ * https://github.com/perbone/udao/
+ * 
+ * Copyright 2013-2018 Paulo Perbone
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package io.perbone.udao.internal;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.perbone.udao.util.EntityKey;
+import io.perbone.udao.util.EntityUtils;
+import io.perbone.udao.util.KeyCodec;
+
+/**
+ * Remembers the keys that matched no bean so repeated lookups skip the provider.
+ * <p>
+ * Only the types opted in through their <tt>negative-ttl</tt> setting are tracked. Misses are kept
+ * under the same surrogate, primary and alternate keys as the {@link CacheImpl} entries and expire
+ * after the type's time to live, capped at {@link #MAX_TTL_MILLIS}. Writing a bean forgets the misses
+ * of all its keys.
+ * <p>
+ * Every forget moves the cache to a new generation. A miss is recorded against the generation read
+ * before its lookup and dropped if a write came in between, so a slow lookup cannot remember a key
+ * written while it was running.
+ * 
+ * @author Paulo Perbone <pauloperbone@yahoo.com>
+ * @since 0.17.0
+ */
+final class NegativeCache
+{
+    static final long MAX_TTL_MILLIS = 60_000L;
+
+    private static final int MAX_ENTRIES = 100_000;
+
+    private final KeyCodec codec = EntityUtils.keyCodec();
+
+    /* Time to live in nanoseconds of the opted in types */
+    private final Map<Class<?>, Long> ttls = new ConcurrentHashMap<>();
+
+    /* Expiration time in nanoseconds of each miss */
+    private final Map<EntityKey, Long> misses = new ConcurrentHashMap<>();
+
+    private final AtomicLong generation = new AtomicLong();
+
+    private final AtomicLong lookups = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+
+    /**
+     * Opts the given type in.
+     * 
+     * @param type
+     *            the bean type
+     * @param ttl
+     *            the time to live of the misses; zero or less opts the type out
+     * @param unit
+     *            the time to live unit
+     */
+    void enable(final Class<?> type, final long ttl, final TimeUnit unit)
+    {
+        if (ttl <= 0)
+            ttls.remove(type);
+        else
+            ttls.put(type, Math.min(unit.toNanos(ttl), TimeUnit.MILLISECONDS.toNanos(MAX_TTL_MILLIS)));
+    }
+
+    boolean enabled(final Class<?> type)
+    {
+        return ttls.containsKey(type);
+    }
+
+    boolean containsI(final Class<?> type, final Object id)
+    {
+        return enabled(type) && contains(codec.surrogateKey(type, id));
+    }
+
+    boolean containsP(final Class<?> type, final Object... keys)
+    {
+        return enabled(type) && contains(codec.primaryKey(type, keys));
+    }
+
+    boolean containsA(final Class<?> type, final String name, final Object... keys)
+    {
+        return enabled(type) && contains(codec.alternateKey(type, name, keys));
+    }
+
+    /**
+     * Returns the current generation; read it before the lookup whose miss is to be recorded.
+     * 
+     * @return the generation
+     */
+    long generation()
+    {
+        return generation.get();
+    }
+
+    void putI(final Class<?> type, final long generation, final Object id)
+    {
+        if (enabled(type))
+            put(type, generation, codec.surrogateKey(type, id));
+    }
+
+    void putP(final Class<?> type, final long generation, final Object... keys)
+    {
+        if (enabled(type))
+            put(type, generation, codec.primaryKey(type, keys));
+    }
+
+    void putA(final Class<?> type, final long generation, final String name, final Object... keys)
+    {
+        if (enabled(type))
+            put(type, generation, codec.alternateKey(type, name, keys));
+    }
+
+    /**
+     * Forgets the misses of all the keys of the given bean.
+     * 
+     * @param bean
+     *            the written bean
+     */
+    void forget(final Object bean)
+    {
+        if (bean == null || !enabled(bean.getClass()))
+            return;
+
+        generation.incrementAndGet(); // before the removals; see put
+
+        if (misses.isEmpty())
+            return;
+
+        final EntityKey skey = codec.surrogateKey(bean);
+        final EntityKey pkey = codec.primaryKey(bean);
+
+        if (skey != null)
+            misses.remove(skey);
+        if (pkey != null)
+            misses.remove(pkey);
+        for (final EntityKey akey : codec.alternateKeys(bean))
+            misses.remove(akey);
+    }
+
+    void clear()
+    {
+        generation.incrementAndGet();
+        misses.clear();
+    }
+
+    long lookups()
+    {
+        return lookups.get();
+    }
+
+    long hits()
+    {
+        return hits.get();
+    }
+
+    /**
+     * Returns the share of the lookups answered by a remembered miss.
+     * 
+     * @return the negative hit ratio; zero when there was no lookup
+     */
+    double hitRatio()
+    {
+        final long total = lookups.get();
+
+        return total == 0L ? 0.0 : (double) hits.get() / total;
+    }
+
+    private boolean contains(final EntityKey key)
+    {
+        if (key == null)
+            return false;
+
+        lookups.incrementAndGet();
+
+        final Long expiresAt = misses.get(key);
+
+        if (expiresAt == null)
+            return false;
+
+        if (System.nanoTime() - expiresAt > 0)
+        {
+            misses.remove(key, expiresAt);
+            return false;
+        }
+
+        hits.incrementAndGet();
+
+        return true;
+    }
+
+    private void put(final Class<?> type, final long generation, final EntityKey key)
+    {
+        final Long ttl = ttls.get(type);
+
+        if (key == null || ttl == null || this.generation.get() != generation)
+            return;
+
+        if (misses.size() >= MAX_ENTRIES)
+            purge();
+
+        final Long expiresAt = System.nanoTime() + ttl;
+
+        misses.put(key, expiresAt);
+
+        /* A forget that ran since the check above may have missed this entry */
+        if (this.generation.get() != generation)
+            misses.remove(key, expiresAt);
+    }
+
+    /**
+     * Drops the expired misses; drops them all if that does not free room.
+     */
+    private void purge()
+    {
+        final long now = System.nanoTime();
+
+        for (final Iterator<Long> it = misses.values().iterator(); it.hasNext();)
+        {
+            if (now - it.next() > 0)
+                it.remove();
+        }
+
+        if (misses.size() >= MAX_ENTRIES)
+            misses.clear();
+    }
+}
@@ -0,0 +1,316 @@
+/*
+ * This file is part of UDAO 
+ * https://github.com/perbone/udao/
+ * 
+ * Copyright 2013-2018 Paulo Perbone
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package io.perbone.udao.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import io.perbone.toolbox.serialization.Serializer;
+import io.perbone.udao.spi.Cache;
+import io.perbone.udao.util.EntityKey;
+import io.perbone.udao.util.EntityUtils;
+import io.perbone.udao.util.KeyCodec;
+
+/**
+ * Concrete {@link Cache} implementation for the L2 off-heap caches.
+ * <p>
+ * Beans are serialized into an {@link OffHeapStore} so every read returns a fresh instance and no
+ * clone is needed.
+ * 
+ * @author Paulo Perbone <pauloperbone@yahoo.com>
+ * @since 0.17.0
+ */
+final class OffHeapCacheImpl implements Cache
+{
+    private final Class<?> type;
+    private final OffHeapStore store; // The backing cache store
+    private final Serializer serializer;
+    private final KeyCodec codec;
+    private final CacheCounters counters;
+
+    public OffHeapCacheImpl(final Class<?> type, final OffHeapStore store, final Serializer serializer)
+            throws IllegalArgumentException
+    {
+        this(type, store, serializer, new CacheCounters());
+    }
+
+    public OffHeapCacheImpl(final Class<?> type, final OffHeapStore store, final Serializer serializer,
+            final CacheCounters counters) throws IllegalArgumentException
+    {
+        if (!EntityUtils.isStorable(type))
+            throw new IllegalArgumentException("Not a storable bean type");
+        if (store == null)
+            throw new IllegalArgumentException("Store must not be null");
+        if (serializer == null)
+            throw new IllegalArgumentException("Serializer must not be null");
+        if (counters == null)
+            throw new IllegalArgumentException("Counters must not be null");
+
+        this.type = type;
+        this.store = store;
+        this.serializer = serializer;
+        this.codec = EntityUtils.keyCodec();
+        this.counters = counters;
+    }
+
+    @Override
+    public void add(final Object bean) throws IllegalArgumentException
+    {
+        add(bean, 0L, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void add(final Object bean, final long ttl, final TimeUnit unit) throws IllegalArgumentException
+    {
+        if (bean == null)
+            throw new IllegalArgumentException("Cannot cache a null bean");
+        if (unit == null)
+            throw new IllegalArgumentException("Time unit must not be null");
+
+        final List<EntityKey> keys = keys(bean);
+
+        if (!keys.isEmpty())
+            store.put(type, keys.toArray(new EntityKey[keys.size()]), serializer.deflate(bean), unit.toNanos(ttl));
+    }
+
+    @Override
+    public void set(final Object bean) throws IllegalArgumentException
+    {
+        add(bean);
+    }
+
+    @Override
+    public void set(final Object bean, final long ttl, final TimeUnit unit) throws IllegalArgumentException
+    {
+        add(bean, ttl, unit);
+    }
+
+    @Override
+    public <T> T getI(final Object id)
+    {
+        if (id == null)
+            throw new IllegalArgumentException("ID must not be null");
+
+        return get(codec.surrogateKey(type, id));
+    }
+
+    @Override
+    public <T> T getP(final Object... keys)
+    {
+        if (keys.length == 0)
+            throw new IllegalArgumentException("Primary key must not be empty neither null");
+
+        return get(codec.primaryKey(type, keys));
+    }
+
+    @Override
+    public <T> T getA(final String name, final Object... keys)
+    {
+        if (name == null)
+            throw new IllegalArgumentException("Alternate name must not be null");
+        if (keys.length == 0)
+            throw new IllegalArgumentException("Alternate keys must not be empty neither null");
+
+        return get(codec.alternateKey(type, name, keys));
+    }
+
+    @Override
+    public <T> List<T> getAll()
+    {
+        throw new UnsupportedOperationException("Operation not supported by this implementation");
+    }
+
+    @Override
+    public boolean contains(final Object bean)
+    {
+        for (final EntityKey key : keys(bean))
+        {
+            if (store.contains(key))
+                return true;
+        }
+
+        return false;
+    }
+
+    @Override
+    public boolean containsI(final Object id)
+    {
+        final EntityKey skey = codec.surrogateKey(type, id);
+
+        return skey == null ? false : store.contains(skey);
+    }
+
+    @Override
+    public boolean containsP(final Object... keys)
+    {
+        final EntityKey pkey = codec.primaryKey(type, keys);
+
+        return pkey == null ? false : store.contains(pkey);
+    }
+
+    @Override
+    public boolean containsA(final String name, final Object... keys)
+    {
+        final EntityKey akey = codec.alternateKey(type, name, keys);
+
+        return akey == null ? false : store.contains(akey);
+    }
+
+    @Override
+    public void delete(final Object bean)
+    {
+        if (bean == null)
+            throw new IllegalArgumentException("Bean must not be null");
+
+        for (final EntityKey key : keys(bean))
+            store.remove(key);
+    }
+
+    @Override
+    public void deleteI(final Object id)
+    {
+        removeI(id);
+    }
+
+    @Override
+    public void deleteP(final Object... keys)
+    {
+        removeP(keys);
+    }
+
+    @Override
+    public void deleteA(final String name, final Object... keys)
+    {
+        removeA(name, keys);
+    }
+
+    @Override
+    public <T> T removeI(final Object id)
+    {
+        if (id == null)
+            throw new IllegalArgumentException("ID must not be null");
+
+        return inflate(store.remove(codec.surrogateKey(type, id)));
+    }
+
+    @Override
+    public <T> T removeP(final Object... keys)
+    {
+        if (keys.length == 0)
+            throw new IllegalArgumentException("Primary key must not be empty neither null");
+
+        return inflate(store.remove(codec.primaryKey(type, keys)));
+    }
+
+    @Override
+    public <T> T removeA(final String name, final Object... keys)
+    {
+        if (name == null)
+            throw new IllegalArgumentException("Alternate name must not be null");
+        if (keys.length == 0)
+            throw new IllegalArgumentException("Alternate keys must not be empty neither null");
+
+        return inflate(store.remove(codec.alternateKey(type, name, keys)));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Only the beans of this type are dropped; the other types sharing the store are left untouched.
+     */
+    @Override
+    public void invalidate()
+    {
+        store.clear(type);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The criteria cannot be evaluated against serialized beans so all the beans of this type are
+     * dropped.
+     */
+    @Override
+    public void invalidate(final Object criteria)
+    {
+        invalidate();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The criteria cannot be evaluated against serialized beans so all the beans of this type are
+     * dropped.
+     */
+    @Override
+    public void prune(final Object criteria)
+    {
+        invalidate();
+    }
+
+    @Override
+    public void evict()
+    {
+        store.evict();
+    }
+
+    @Override
+    public long count()
+    {
+        return store.size();
+    }
+
+    /**
+     * Returns all the keys for the given bean.
+     */
+    private List<EntityKey> keys(final Object bean)
+    {
+        final EntityKey skey = codec.surrogateKey(bean);
+        final EntityKey pkey = codec.primaryKey(bean);
+
+        final List<EntityKey> keys = new ArrayList<>(codec.alternateKeys(bean));
+
+        if (pkey != null)
+            keys.add(0, pkey);
+        if (skey != null)
+            keys.add(0, skey);
+
+        return keys;
+    }
+
+    private <T> T get(final EntityKey key)
+    {
+        final byte[] bytes = key == null ? null : store.get(key);
+
+        if (bytes == null)
+            counters.miss();
+        else
+            counters.hit();
+
+        return inflate(bytes);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T inflate(final byte[] bytes)
+    {
+        return bytes == null ? null : (T) serializer.inflate(type, bytes);
+    }
+}
@@ -0,0 +1,546 @@
+/*
+ * This file is part of UDAO 
+ * https://github.com/perbone/udao/
+ * 
+ * Copyright 2013-2018 Paulo Perbone
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package io.perbone.udao.internal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import io.perbone.mkey.EvictionPolicy;
+import io.perbone.udao.configuration.CacheEntry;
+import io.perbone.udao.util.EntityKey;
+
+/**
+ * Off-heap store backing the L2 caches.
+ * <p>
+ * Values are serialized beans kept outside the Java heap, either in a direct {@link ByteBuffer}
+ * slab or in a memory-mapped file. The slab is split in fixed size blocks and every value takes a
+ * chain of blocks so there is no fragmentation to compact; only the key index and the block chains
+ * live on the heap.
+ * <p>
+ * The slab is striped in up to {@link #SEGMENTS} segments, each one with its own blocks, eviction
+ * order and lock, so concurrent callers only contend when their values land on the same segment. A
+ * value lands on the segment of its first key and is found by any of its keys through a shared
+ * concurrent index.
+ * <p>
+ * The store has its own size accounting: it holds at most <tt>hard-limit-size</tt> values and no
+ * more bytes than the slab <tt>capacity</tt>, both split evenly among the segments. When a segment
+ * reaches either limit its least recently used value is evicted (insertion order for the
+ * <tt>FIFO</tt> policy). Values expire after their time to live.
+ * 
+ * @author Paulo Perbone <pauloperbone@yahoo.com>
+ * @since 0.17.0
+ */
+final class OffHeapStore
+{
+    static final int BLOCK_SIZE = 256;
+
+    static final int SEGMENTS = 16;
+
+    private static final int MIN_SEGMENT_BLOCKS = 256;
+
+    private static final long MIN_SEGMENT_SIZE = 64L;
+
+    private static final long DEFAULT_CAPACITY = 64L * 1024L * 1024L;
+
+    private final ConcurrentMap<EntityKey, Slot> keys = new ConcurrentHashMap<>();
+
+    private final Segment[] segments;
+
+    private final long ttl;
+
+    private volatile boolean closed = false;
+
+    /**
+     * Creates a new store based on the given cache definition.
+     * 
+     * @param centry
+     *            the cache definition
+     * 
+     * @throws IllegalArgumentException
+     *             if the definition is invalid or the memory-mapped file cannot be opened
+     */
+    OffHeapStore(final CacheEntry centry) throws IllegalArgumentException
+    {
+        final long capacity = centry.capacity() == null ? DEFAULT_CAPACITY : centry.capacity();
+        final int blocks = (int) Math.min(capacity / BLOCK_SIZE, Integer.MAX_VALUE / BLOCK_SIZE);
+
+        if (blocks <= 0)
+            throw new IllegalArgumentException(
+                    String.format("Invalid capacity [%d]; must hold at least one block", capacity));
+
+        final long hardLimitSize = centry.hardLimitSize() == null || centry.hardLimitSize() <= 0 ? Long.MAX_VALUE
+                : centry.hardLimitSize();
+        final boolean accessOrder = centry.evictionPolicy() != EvictionPolicy.FIFO;
+        final ByteBuffer slab = centry.file() == null ? ByteBuffer.allocateDirect(blocks * BLOCK_SIZE)
+                : map(centry.file(), blocks * BLOCK_SIZE);
+
+        this.ttl = centry.ttl() == null || centry.ttl() <= 0 ? 0L
+                : (centry.unit() == null ? TimeUnit.SECONDS : centry.unit()).toNanos(centry.ttl());
+
+        // A power of two so the segment is picked by masking; small stores take a single segment
+        final int bySize = Integer.highestOneBit(blocks / MIN_SEGMENT_BLOCKS);
+        final long byLimit = Long.highestOneBit(hardLimitSize / MIN_SEGMENT_SIZE);
+        final int count = (int) Math.max(1L, Math.min(Math.min(SEGMENTS, bySize), byLimit));
+        final long segmentLimit = hardLimitSize == Long.MAX_VALUE ? Long.MAX_VALUE
+                : Math.max(1L, (hardLimitSize + count - 1) / count);
+
+        this.segments = new Segment[count];
+
+        for (int i = 0, first = 0; i < count; i++)
+        {
+            final int size = blocks / count + (i < blocks % count ? 1 : 0);
+            segments[i] = new Segment(slab.duplicate(), first, size, segmentLimit, accessOrder);
+            first += size;
+        }
+    }
+
+    /**
+     * Stores the value under all the given keys replacing any previous value mapped to them.
+     * 
+     * @param owner
+     *            the bean type of the value
+     * @param keys
+     *            the value keys
+     * @param value
+     *            the serialized value
+     * @param ttl
+     *            the time to live in nanoseconds; zero to use the store default
+     * 
+     * @return <tt>true</tt> if it was stored; <tt>false</tt> if the value is bigger than a segment
+     */
+    boolean put(final Class<?> owner, final EntityKey[] keys, final byte[] value, final long ttl)
+    {
+        checkOpen();
+
+        for (final EntityKey key : keys)
+        {
+            final Slot slot = this.keys.get(key);
+            if (slot != null)
+                slot.segment.release(slot);
+        }
+
+        final long timeToLive = ttl > 0 ? ttl : this.ttl;
+        final Segment segment = segments[segmentIndex(keys[0])];
+        final List<Slot> displaced = new ArrayList<>(0);
+
+        if (!segment.put(owner, keys, value, timeToLive > 0 ? System.nanoTime() + timeToLive : 0L, displaced))
+            return false;
+
+        // Values concurrently stored under the same keys; released outside the segment lock
+        for (final Slot slot : displaced)
+            slot.segment.release(slot);
+
+        return true;
+    }
+
+    /**
+     * Returns a copy of the value mapped to the given key.
+     * 
+     * @param key
+     *            the value key
+     * 
+     * @return the serialized value or null if there is none or it has expired
+     */
+    byte[] get(final EntityKey key)
+    {
+        checkOpen();
+
+        final Slot slot = keys.get(key);
+
+        return slot == null ? null : slot.segment.read(slot, false);
+    }
+
+    boolean contains(final EntityKey key)
+    {
+        checkOpen();
+
+        final Slot slot = keys.get(key);
+
+        return slot != null && slot.segment.live(slot);
+    }
+
+    /**
+     * Removes the value mapped to the given key, and all its other keys.
+     * 
+     * @param key
+     *            the value key
+     * 
+     * @return the serialized value or null if there was none
+     */
+    byte[] remove(final EntityKey key)
+    {
+        checkOpen();
+
+        final Slot slot = keys.get(key);
+
+        return slot == null ? null : slot.segment.read(slot, true);
+    }
+
+    long size()
+    {
+        long size = 0L;
+
+        for (final Segment segment : segments)
+            size += segment.size();
+
+        return size;
+    }
+
+    /**
+     * Returns the number of bytes taken by the stored values, counted in whole blocks.
+     * 
+     * @return the used bytes
+     */
+    long usedBytes()
+    {
+        long used = 0L;
+
+        for (final Segment segment : segments)
+            used += segment.usedBlocks();
+
+        return used * BLOCK_SIZE;
+    }
+
+    /**
+     * Removes all the expired values.
+     */
+    void evict()
+    {
+        checkOpen();
+
+        final long now = System.nanoTime();
+
+        for (final Segment segment : segments)
+            segment.evict(now);
+    }
+
+    /**
+     * Returns the number of values dropped by the store itself, either expired or pushed out by its
+     * limits.
+     * 
+     * @return the eviction count
+     */
+    long evictions()
+    {
+        long evictions = 0L;
+
+        for (final Segment segment : segments)
+            evictions += segment.evictions();
+
+        return evictions;
+    }
+
+    /**
+     * Removes all the values.
+     */
+    void clear()
+    {
+        clear(null);
+    }
+
+    /**
+     * Removes all the values of the given bean type, leaving the values of the other types sharing
+     * this store untouched.
+     * 
+     * @param owner
+     *            the bean type; <tt>null</tt> for all the types
+     */
+    void clear(final Class<?> owner)
+    {
+        for (final Segment segment : segments)
+            segment.clear(owner);
+    }
+
+    /**
+     * Drops all the values and the slab itself; the off-heap memory is reclaimed once the buffer is
+     * garbage collected.
+     */
+    void close()
+    {
+        if (!closed)
+        {
+            closed = true;
+            clear();
+            for (final Segment segment : segments)
+                segment.close();
+        }
+    }
+
+    private int segmentIndex(final EntityKey key)
+    {
+        final int h = key.hashCode();
+
+        return (h ^ (h >>> 16)) & (segments.length - 1);
+    }
+
+    private void checkOpen() throws IllegalStateException
+    {
+        if (closed)
+            throw new IllegalStateException("Illegal invocation; off-heap store is closed");
+    }
+
+    private static ByteBuffer map(final String file, final int size) throws IllegalArgumentException
+    {
+        try (final FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE))
+        {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size); // valid after the channel is closed
+        }
+        catch (final IOException e)
+        {
+            throw new IllegalArgumentException(String.format("Cannot map the cache file [%s]", file), e);
+        }
+    }
+
+    /**
+     * A lock stripe: a range of slab blocks with its own free stack, eviction order and limits. All
+     * its state, including the state of its slots, is guarded by the segment monitor.
+     */
+    private final class Segment
+    {
+        /* Slots ordered for eviction; access ordered unless the policy is FIFO */
+        private final LinkedHashMap<Slot, Slot> slots;
+
+        private final long hardLimitSize;
+
+        /* Own view of the shared slab so its position is not shared with the other segments */
+        private ByteBuffer slab;
+
+        /* Stack of free block indexes */
+        private final int[] free;
+        private int freeCount;
+
+        /* Values dropped by the store itself, either expired or pushed out by the limits */
+        private long evictions;
+
+        Segment(final ByteBuffer slab, final int first, final int blocks, final long hardLimitSize,
+                final boolean accessOrder)
+        {
+            this.slots = new LinkedHashMap<>(16, 0.75f, accessOrder);
+            this.hardLimitSize = hardLimitSize;
+            this.slab = slab;
+            this.free = new int[blocks];
+
+            for (int i = blocks - 1; i >= 0; i--)
+                free[freeCount++] = first + i;
+        }
+
+        synchronized boolean put(final Class<?> owner, final EntityKey[] keys, final byte[] value,
+                final long expiresAt, final List<Slot> displaced)
+        {
+            final int needed = (value.length + BLOCK_SIZE - 1) / BLOCK_SIZE;
+
+            if (needed > free.length || slab == null)
+                return false;
+
+            while (freeCount < needed || slots.size() >= hardLimitSize)
+            {
+                release(slots.keySet().iterator().next());
+                evictions++;
+            }
+
+            final int[] blocks = new int[needed];
+
+            for (int i = 0; i < needed; i++)
+            {
+                blocks[i] = free[--freeCount];
+
+                final int offset = i * BLOCK_SIZE;
+                final int length = Math.min(BLOCK_SIZE, value.length - offset);
+
+                slab.position(blocks[i] * BLOCK_SIZE);
+                slab.put(value, offset, length);
+            }
+
+            final Slot slot = new Slot(this, owner, keys, blocks, value.length, expiresAt);
+
+            slots.put(slot, slot);
+
+            for (final EntityKey key : keys)
+            {
+                final Slot previous = OffHeapStore.this.keys.put(key, slot);
+                if (previous != null && previous != slot && !displaced.contains(previous))
+                    displaced.add(previous);
+            }
+
+            return true;
+        }
+
+        /**
+         * Copies the value of the given slot, removing it if asked to.
+         * 
+         * @return the serialized value or null if the slot was released or has expired
+         */
+        synchronized byte[] read(final Slot slot, final boolean remove)
+        {
+            if (!live(slot))
+                return null;
+
+            slots.get(slot); // touches it for the access order
+
+            final byte[] value = new byte[slot.length];
+
+            for (int i = 0; i < slot.blocks.length; i++)
+            {
+                final int offset = i * BLOCK_SIZE;
+
+                slab.position(slot.blocks[i] * BLOCK_SIZE);
+                slab.get(value, offset, Math.min(BLOCK_SIZE, slot.length - offset));
+            }
+
+            if (remove)
+                release(slot);
+
+            return value;
+        }
+
+        /**
+         * Tells whether the given slot still holds a value, dropping it if it has expired.
+         */
+        synchronized boolean live(final Slot slot)
+        {
+            if (slot.released)
+            {
+                unmap(slot); // A stale index entry left by a concurrent put
+                return false;
+            }
+
+            if (slot.expired(System.nanoTime()))
+            {
+                release(slot);
+                evictions++;
+                return false;
+            }
+
+            return true;
+        }
+
+        synchronized long size()
+        {
+            return slots.size();
+        }
+
+        synchronized long usedBlocks()
+        {
+            return free.length - freeCount;
+        }
+
+        synchronized long evictions()
+        {
+            return evictions;
+        }
+
+        synchronized void evict(final long now)
+        {
+            final List<Slot> expired = new ArrayList<>();
+
+            for (final Slot slot : slots.keySet())
+            {
+                if (slot.expired(now))
+                    expired.add(slot);
+            }
+
+            for (final Slot slot : expired)
+                release(slot);
+
+            evictions += expired.size();
+        }
+
+        synchronized void clear(final Class<?> owner)
+        {
+            final List<Slot> cleared = new ArrayList<>();
+
+            for (final Slot slot : slots.keySet())
+            {
+                if (owner == null || slot.owner == owner)
+                    cleared.add(slot);
+            }
+
+            for (final Slot slot : cleared)
+                release(slot);
+        }
+
+        synchronized void close()
+        {
+            slab = null;
+        }
+
+        /**
+         * Unmaps the slot from all its keys and returns its blocks to the free stack.
+         */
+        synchronized void release(final Slot slot)
+        {
+            unmap(slot);
+
+            if (!slot.released)
+            {
+                slots.remove(slot);
+                for (final int block : slot.blocks)
+                    free[freeCount++] = block;
+                slot.released = true;
+            }
+        }
+
+        private void unmap(final Slot slot)
+        {
+            for (final EntityKey key : slot.keys)
+                keys.remove(key, slot);
+        }
+    }
+
+    /**
+     * A stored value: its owner type, its keys and its chain of blocks.
+     */
+    private static final class Slot
+    {
+        final Segment segment;
+        final Class<?> owner;
+        final EntityKey[] keys;
+        final int[] blocks;
+        final int length;
+        final long expiresAt; // zero for no expiration
+        boolean released; // guarded by the segment
+
+        Slot(final Segment segment, final Class<?> owner, final EntityKey[] keys, final int[] blocks,
+                final int length, final long expiresAt)
+        {
+            this.segment = segment;
+            this.owner = owner;
+            this.keys = keys;
+            this.blocks = blocks;
+            this.length = length;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean expired(final long now)
+        {
+            return expiresAt != 0L && now - expiresAt > 0;
+        }
+    }
+}
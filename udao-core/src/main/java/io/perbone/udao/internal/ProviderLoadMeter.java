@@ -0,0 +1,167 @@
+/*
+ * This file is part of UDAO 
+ * https://github.com/perbone/udao/
+ * 
+ * Copyright 2013-2018 Paulo Perbone
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package io.perbone.udao.internal;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.perbone.udao.spi.DataProvider;
+import io.perbone.udao.spi.DataSource;
+import io.perbone.udao.spi.ProviderLoad;
+
+/**
+ * Lock-free {@link ProviderLoad} of a provider, fed by the {@link ProviderRouter}.
+ * <p>
+ * Each latency sample moves the moving average by an eighth of its distance to the sample, so a
+ * provider slowing down shows up after a handful of operations while a single outlier does not.
+ * The average halves for every second without samples, so a provider left aside for being slow is
+ * probed again once it had time to recover.
+ * 
+ * @author Paulo Perbone <pauloperbone@yahoo.com>
+ * @since 0.17.0
+ */
+final class ProviderLoadMeter implements ProviderLoad
+{
+    private static final int DECAY_SHIFT = 3; // alpha = 1/8
+    private static final long IDLE_HALF_LIFE = TimeUnit.SECONDS.toNanos(1L);
+
+    private final String name;
+    private final DataProvider provider;
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final AtomicLong latency = new AtomicLong();
+    private volatile long lastSample = System.nanoTime();
+
+    /* Instrumented wrappers of the shared data sources of the provider; they go away with the meter */
+    private final ConcurrentHashMap<DataSource, MeteredDataSource> wrappers = new ConcurrentHashMap<>();
+
+    ProviderLoadMeter(final String name, final DataProvider provider)
+    {
+        this.name = name;
+        this.provider = provider;
+    }
+
+    /**
+     * Returns the name the provider was routed by.
+     * 
+     * @return the provider name
+     */
+    String name()
+    {
+        return name;
+    }
+
+    /**
+     * Returns the instrumented wrapper of the given data source, building it on the first call and
+     * again whenever the load is to be counted or no longer.
+     * 
+     * @param ds
+     *            the shared data source
+     * @param counted
+     *            <tt>true</tt> if the operations feed this load; <tt>false</tt> if the provider has
+     *            no peer to be compared with
+     * @param meter
+     *            the operation metrics of the data source; null when metrics are disabled
+     * 
+     * @return the instrumented data source
+     */
+    DataSource wrapper(final DataSource ds, final boolean counted, final MetricsRegistry.SourceMeter meter)
+    {
+        MeteredDataSource wrapper = wrappers.get(ds);
+
+        if (wrapper == null || wrapper.counted() != counted)
+        {
+            wrapper = new MeteredDataSource(ds, counted ? this : null, meter);
+            wrappers.put(ds, wrapper); // a racing build is equivalent; the last one wins
+        }
+
+        return wrapper.proxy();
+    }
+
+    @Override
+    public DataProvider provider()
+    {
+        return provider;
+    }
+
+    @Override
+    public int outstanding()
+    {
+        return outstanding.get();
+    }
+
+    @Override
+    public long latency()
+    {
+        final long idle = (System.nanoTime() - lastSample) / IDLE_HALF_LIFE;
+
+        return idle <= 0L ? latency.get() : latency.get() >> Math.min(idle, 63L);
+    }
+
+    /**
+     * Marks the start of an operation.
+     */
+    void begin()
+    {
+        outstanding.incrementAndGet();
+    }
+
+    /**
+     * Marks the end of an operation and samples its latency.
+     * 
+     * @param nanos
+     *            the operation latency in nanoseconds
+     */
+    void end(final long nanos)
+    {
+        release();
+        sample(nanos);
+    }
+
+    /**
+     * Marks the end of an operation whose latency was already sampled, e.g. a cursor being closed.
+     */
+    void release()
+    {
+        outstanding.decrementAndGet();
+    }
+
+    /**
+     * Samples the latency of an operation.
+     * 
+     * @param nanos
+     *            the operation latency in nanoseconds
+     */
+    void sample(final long nanos)
+    {
+        long current;
+        long next;
+
+        do
+        {
+            current = latency.get();
+            next = current == 0L ? Math.max(1L, nanos) : current + ((nanos - current) >> DECAY_SHIFT);
+        }
+        while (!latency.compareAndSet(current, next));
+
+        lastSample = System.nanoTime();
+    }
+}
@@ -0,0 +1,359 @@
+/*
+ * This file is part of UDAO 
+ * https://github.com/perbone/udao/
+ * 
+ * Copyright 2013-2018 Paulo Perbone
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package io.perbone.udao.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import io.perbone.udao.spi.DataProvider;
+import io.perbone.udao.spi.DataSource;
+import io.perbone.udao.spi.ProviderSelector;
+import io.perbone.udao.util.EntityKey;
+
+/**
+ * Routes the operations of a storage unit to its providers.
+ * <p>
+ * Operations addressed by a partition key go to the provider owning that key on a
+ * {@link ConsistentHashRing}, so the same bean always hits the same provider and its buffer cache.
+ * Read-only providers serve the reads when there is any; read-write providers serve the writes.
+ * Operations without a partition key, like scans and queries, go to the provider picked by the
+ * unit {@link ProviderSelector}, random by default. The selector is fed by the data sources handed
+ * out through {@link #track}, which count the operations in flight and sample their latency.
+ * <p>
+ * Reads inside the read-your-writes window of a session go to the read-write providers instead,
+ * see {@link #routeSticky}.
+ * <p>
+ * One router is shared by all the managers of a storage unit. Providers can be added and removed
+ * while it is in use; every change builds new rings and swaps them at once.
+ * 
+ * @author Paulo Perbone <pauloperbone@yahoo.com>
+ * @since 0.17.0
+ */
+final class ProviderRouter
+{
+    private volatile Routes routes = new Routes(Collections.<ProviderLoadMeter> emptyList(),
+            Collections.<ProviderLoadMeter> emptyList(), ConsistentHashRing.empty(), ConsistentHashRing.empty());
+
+    private volatile ProviderSelector selector = ProviderSelectors.random();
+
+    /* Read-your-writes window in milliseconds; zero to disable */
+    private volatile long stickyWindow = 0L;
+
+    /**
+     * Creates a router for the given providers, all of them with the same weight.
+     * 
+     * @param providers
+     *            the storage unit providers
+     * 
+     * @return the new router
+     * 
+     * @throws IllegalArgumentException
+     *             if the providers set is empty
+     */
+    static ProviderRouter of(final Set<DataProvider> providers) throws IllegalArgumentException
+    {
+        if (providers.isEmpty())
+            throw new IllegalArgumentException("Data Providers set is empty");
+
+        final ProviderRouter router = new ProviderRouter();
+        final Map<String, Integer> names = new HashMap<>();
+
+        for (final DataProvider provider : providers)
+        {
+            /* Providers of the same class share the default id */
+            final int n = names.merge(provider.id(), 1, Integer::sum);
+            router.add(n == 1 ? provider.id() : provider.id() + "-" + n, provider, 1);
+        }
+
+        return router;
+    }
+
+    /**
+     * Sets the selector for the operations not addressed by a partition key.
+     * 
+     * @param selector
+     *            the provider selector
+     * 
+     * @throws IllegalArgumentException
+     *             if the selector is null
+     */
+    void selector(final ProviderSelector selector) throws IllegalArgumentException
+    {
+        if (selector == null)
+            throw new IllegalArgumentException("Provider selector must not be null");
+
+        this.selector = selector;
+    }
+
+    /**
+     * Sets the read-your-writes window: how long after a write or a commit the reads of the same
+     * session keep going to the read-write providers.
+     * 
+     * @param window
+     *            the window length; zero to disable
+     * @param unit
+     *            the window time unit
+     * 
+     * @throws IllegalArgumentException
+     *             if the window is negative or the unit is null
+     */
+    void stickyWindow(final long window, final TimeUnit unit) throws IllegalArgumentException
+    {
+        if (window < 0L)
+            throw new IllegalArgumentException(String.format("Invalid window [%d]; cannot be negative", window));
+        if (unit == null)
+            throw new IllegalArgumentException("Window time unit must not be null");
+
+        this.stickyWindow = unit.toMillis(window);
+    }
+
+    /**
+     * Returns the read-your-writes window.
+     * 
+     * @return the window in milliseconds; zero if disabled
+     */
+    long stickyWindow()
+    {
+        return stickyWindow;
+    }
+
+    /**
+     * Adds a provider to this router.
+     * 
+     * @param name
+     *            the provider name; must be stable across restarts to keep the key placement
+     * @param provider
+     *            the provider
+     * @param weight
+     *            the provider share of the keys relative to the other providers
+     * 
+     * @throws IllegalArgumentException
+     *             if the name or provider is null or the weight is not positive
+     */
+    synchronized void add(final String name, final DataProvider provider, final int weight)
+            throws IllegalArgumentException
+    {
+        final Routes current = routes;
+
+        if (provider == null)
+            throw new IllegalArgumentException("Provider must not be null");
+
+        if (provider.isReadOnly())
+            routes = new Routes(current.rw, append(current.ro, name, provider), current.rwRing,
+                    current.roRing.with(name, provider, weight));
+        else
+            routes = new Routes(append(current.rw, name, provider), current.ro,
+                    current.rwRing.with(name, provider, weight), current.roRing);
+    }
+
+    /**
+     * Removes a provider from this router.
+     * 
+     * @param provider
+     *            the provider
+     */
+    synchronized void remove(final DataProvider provider)
+    {
+        final Routes current = routes;
+
+        final List<ProviderLoadMeter> rw = new ArrayList<>(current.rw);
+        final List<ProviderLoadMeter> ro = new ArrayList<>(current.ro);
+        rw.removeIf(load -> load.provider() == provider);
+        ro.removeIf(load -> load.provider() == provider);
+
+        routes = new Routes(Collections.unmodifiableList(rw), Collections.unmodifiableList(ro),
+                current.rwRing.without(provider), current.roRing.without(provider));
+    }
+
+    /**
+     * Tells whether the partition key can make any difference, that is, whether there is more than
+     * one provider to choose from.
+     * 
+     * @return <tt>true</tt> if the operations should be routed by their partition key
+     */
+    boolean partitioned()
+    {
+        final Routes current = routes;
+
+        return current.rw.size() > 1 || current.ro.size() > 1;
+    }
+
+    /**
+     * Picks the provider for an operation.
+     * 
+     * @param readWrite
+     *            set to {@code true} for a read and write provider
+     * @param key
+     *            the operation partition key or null if the operation is not addressed by key
+     * 
+     * @return the provider to be used
+     * 
+     * @throws IllegalStateException
+     *             if a read-write provider is requested but there is no one available
+     */
+    DataProvider route(final boolean readWrite, final EntityKey key) throws IllegalStateException
+    {
+        final Routes current = routes;
+
+        if (current.rw.isEmpty() && current.ro.isEmpty())
+            throw new IllegalStateException("No data provider available");
+
+        if (readWrite && current.rw.isEmpty())
+            throw new IllegalStateException("Read-Write data provider not available");
+
+        final boolean useRw = readWrite || current.ro.isEmpty();
+
+        if (key != null)
+            return (useRw ? current.rwRing : current.roRing).lookup(key);
+
+        final List<ProviderLoadMeter> candidates = useRw ? current.rw : current.ro;
+        final DataProvider provider = candidates.size() == 1 ? null : selector.select(candidates);
+
+        return provider == null ? candidates.get(0).provider() : provider;
+    }
+
+    /**
+     * Picks the provider for a read that must see the writes of its session: the owner of the key
+     * on the read-write ring, so the write and the read meet on the same provider, or else the
+     * provider that took the last write.
+     * 
+     * @param key
+     *            the operation partition key or null if the operation is not addressed by key
+     * @param name
+     *            the name of the provider that took the last write of the session
+     * 
+     * @return the provider to be used
+     * 
+     * @throws IllegalStateException
+     *             if there is no provider available
+     */
+    DataProvider routeSticky(final EntityKey key, final String name) throws IllegalStateException
+    {
+        final Routes current = routes;
+
+        if (current.rw.isEmpty())
+            return route(false, key);
+
+        if (key != null)
+            return current.rwRing.lookup(key);
+
+        for (final ProviderLoadMeter load : current.rw)
+        {
+            if (load.name().equals(name))
+                return load.provider();
+        }
+
+        return route(true, null); // removed meanwhile
+    }
+
+    /**
+     * Returns the name of the given read-write provider.
+     * 
+     * @param provider
+     *            the provider
+     * 
+     * @return the provider name or null if it is not a read-write provider of this router
+     */
+    String name(final DataProvider provider)
+    {
+        for (final ProviderLoadMeter load : routes.rw)
+        {
+            if (load.provider() == provider)
+                return load.name();
+        }
+
+        return null;
+    }
+
+    /**
+     * Wraps the given data source so its operations feed the load figures of its provider and the
+     * given operation metrics.
+     * <p>
+     * The load is only counted when the provider has a peer to be compared with; the data source is
+     * returned as is when there is nothing to count nor meter. Providers share one data source per
+     * type so each wrapper is built once and reused.
+     * 
+     * @param provider
+     *            the provider that opened the data source
+     * @param ds
+     *            the data source
+     * @param meter
+     *            the operation metrics of the data source; null when metrics are disabled
+     * 
+     * @return the instrumented data source
+     */
+    DataSource track(final DataProvider provider, final DataSource ds, final MetricsRegistry.SourceMeter meter)
+    {
+        final Routes current = routes;
+        final List<ProviderLoadMeter> peers = provider.isReadOnly() ? current.ro : current.rw;
+        final boolean counted = peers.size() > 1;
+
+        if (!counted && meter == null)
+            return ds;
+
+        for (final ProviderLoadMeter load : peers)
+        {
+            if (load.provider() == provider)
+                return load.wrapper(ds, counted, meter);
+        }
+
+        return ds; // removed meanwhile
+    }
+
+    private static List<ProviderLoadMeter> append(final List<ProviderLoadMeter> loads, final String name,
+            final DataProvider provider)
+    {
+        for (final ProviderLoadMeter load : loads)
+        {
+            if (load.provider() == provider)
+                return loads;
+        }
+
+        final List<ProviderLoadMeter> copy = new ArrayList<>(loads);
+        copy.add(new ProviderLoadMeter(name, provider));
+
+        return Collections.unmodifiableList(copy);
+    }
+
+    /**
+     * Immutable snapshot of the providers and their rings.
+     */
+    private static final class Routes
+    {
+        final List<ProviderLoadMeter> rw;
+        final List<ProviderLoadMeter> ro;
+        final ConsistentHashRing rwRing;
+        final ConsistentHashRing roRing;
+
+        Routes(final List<ProviderLoadMeter> rw, final List<ProviderLoadMeter> ro, final ConsistentHashRing rwRing,
+                final ConsistentHashRing roRing)
+        {
+            this.rw = rw;
+            this.ro = ro;
+            this.rwRing = rwRing;
+            this.roRing = roRing;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * This file is part of UDAO 
+ * https://github.com/perbone/udao/
+ * 
+ * Copyright 2013-2018 Paulo Perbone
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package io.perbone.udao.internal;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.perbone.toolbox.security.Fortuna;
+import io.perbone.udao.spi.DataProvider;
+import io.perbone.udao.spi.ProviderLoad;
+import io.perbone.udao.spi.ProviderSelector;
+
+/**
+ * Built-in {@link ProviderSelector} strategies.
+ * 
+ * @author Paulo Perbone <pauloperbone@yahoo.com>
+ * @since 0.17.0
+ */
+final class ProviderSelectors
+{
+    static final String RANDOM = "random";
+    static final String ROUND_ROBIN = "round-robin";
+    static final String LEAST_OUTSTANDING = "least-outstanding";
+    static final String EWMA = "ewma";
+
+    private ProviderSelectors()
+    {
+        // Not instantiable
+    }
+
+    /**
+     * Creates the built-in selector of the given name.
+     * 
+     * @param name
+     *            the strategy name
+     * 
+     * @return a new selector or null if the name is not a built-in strategy
+     */
+    static ProviderSelector named(final String name)
+    {
+        switch (name.toLowerCase())
+        {
+        case RANDOM:
+            return random();
+        case ROUND_ROBIN:
+            return new RoundRobin();
+        case LEAST_OUTSTANDING:
+            return new LeastOutstanding();
+        case EWMA:
+            return new Ewma();
+        default:
+            return null;
+        }
+    }
+
+    /**
+     * Returns the selector picking any candidate at random; the default one.
+     * 
+     * @return the random selector
+     */
+    static ProviderSelector random()
+    {
+        return candidates -> candidates.get(Fortuna.random().nextInt(candidates.size())).provider();
+    }
+
+    /**
+     * Cycles through the candidates.
+     */
+    private static final class RoundRobin implements ProviderSelector
+    {
+        private final AtomicInteger next = new AtomicInteger();
+
+        @Override
+        public DataProvider select(final List<? extends ProviderLoad> candidates)
+        {
+            return candidates.get((next.getAndIncrement() & Integer.MAX_VALUE) % candidates.size()).provider();
+        }
+    }
+
+    /**
+     * Picks the candidate with the fewest operations in flight; ties are broken at random.
+     */
+    private static final class LeastOutstanding implements ProviderSelector
+    {
+        @Override
+        public DataProvider select(final List<? extends ProviderLoad> candidates)
+        {
+            final int size = candidates.size();
+            final int start = size == 1 ? 0 : Fortuna.random().nextInt(size);
+
+            ProviderLoad best = candidates.get(start);
+
+            for (int i = 1; i < size; i++)
+            {
+                final ProviderLoad load = candidates.get((start + i) % size);
+                if (load.outstanding() < best.outstanding())
+                    best = load;
+            }
+
+            return best.provider();
+        }
+    }
+
+    /**
+     * Power of two choices over the latency average: two distinct candidates are drawn at random and
+     * the one with the lowest latency weighted by its operations in flight wins. Comparing only two
+     * keeps a slow provider out without stampeding the fastest one. Providers not sampled yet cost
+     * nothing, so they get probed first.
+     */
+    private static final class Ewma implements ProviderSelector
+    {
+        @Override
+        public DataProvider select(final List<? extends ProviderLoad> candidates)
+        {
+            final int size = candidates.size();
+
+            if (size == 1)
+                return candidates.get(0).provider();
+
+            final int i = Fortuna.random().nextInt(size);
+            final int j = (i + 1 + Fortuna.random().nextInt(size - 1)) % size;
+
+            final ProviderLoad a = candidates.get(i);
+            final ProviderLoad b = candidates.get(j);
+
+            return cost(a) <= cost(b) ? a.provider() : b.provider();
+        }
+
+        private static double cost(final ProviderLoad load)
+        {
+            return (double) load.latency() * (load.outstanding() + 1);
+        }
+    }
+}
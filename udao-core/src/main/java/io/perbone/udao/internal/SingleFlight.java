@@ -0,0 +1,166 @@
+/*
+ * This file is part of UDAO 
+ * https://github.com/perbone/udao/
+ * 
+ * Copyright 2013-2018 Paulo Perbone
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package io.perbone.udao.internal;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import io.perbone.toolbox.provider.OperationTimeoutException;
+import io.perbone.udao.DataException;
+import io.perbone.udao.util.EntityKey;
+import io.perbone.udao.util.EntityUtils;
+
+/**
+ * Collapses concurrent loads of the same bean into a single provider call.
+ * <p>
+ * The first caller missing a key runs the load; every other caller arriving while it is in flight
+ * waits for it and gets a copy of the same bean, or the same exception. A load is only shared while
+ * it runs; once it completes the next miss starts a new one.
+ * <p>
+ * Beans are only copied when a load was actually shared, and never for immutable types: a load
+ * nobody joined hands its bean over as is.
+ * 
+ * @author Paulo Perbone <pauloperbone@yahoo.com>
+ * @since 0.17.0
+ */
+final class SingleFlight
+{
+    private final ConcurrentHashMap<EntityKey, Flight> flights = new ConcurrentHashMap<>();
+
+    /**
+     * Loads the bean with the given key joining a load already in flight for it.
+     * 
+     * @param key
+     *            the bean key
+     * @param loader
+     *            the provider load
+     * @param timeout
+     *            the maximum time to wait for a load in flight
+     * @param unit
+     *            the timeout unit
+     * 
+     * @return the loaded bean
+     * 
+     * @throws OperationTimeoutException
+     *             if the load in flight does not complete in time
+     * @throws DataException
+     *             if the wait is interrupted
+     */
+    @SuppressWarnings("unchecked")
+    <T> T load(final EntityKey key, final Supplier<T> loader, final long timeout, final TimeUnit unit)
+            throws OperationTimeoutException, DataException
+    {
+        final Flight flight = new Flight();
+        final Flight current = flights.compute(key, (k, f) ->
+        {
+            if (f == null)
+                return flight;
+
+            f.waiters++;
+            return f;
+        });
+
+        if (current == flight)
+        {
+            T bean;
+
+            try
+            {
+                bean = loader.get();
+            }
+            catch (final RuntimeException | Error e)
+            {
+                flights.remove(key, flight);
+                flight.completeExceptionally(e);
+                throw e;
+            }
+
+            /* Nobody can join once the flight is removed */
+            flights.remove(key, flight);
+            flight.complete(bean);
+
+            /* The waiters copy the completed bean, so the caller must not get that very one */
+            return flight.waiters == 0 ? bean : copy(bean);
+        }
+
+        try
+        {
+            return copy((T) current.get(timeout, unit));
+        }
+        catch (final TimeoutException e)
+        {
+            throw new OperationTimeoutException("Timed out waiting for a concurrent load of the same bean", e);
+        }
+        catch (final ExecutionException e)
+        {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            if (e.getCause() instanceof Error)
+                throw (Error) e.getCause();
+
+            throw new DataException("Concurrent load of the same bean failed", e.getCause());
+        }
+        catch (final InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+
+            throw new DataException("Interrupted while waiting for a concurrent load of the same bean", e);
+        }
+    }
+
+    /**
+     * Copies a bean handed over by a shared load; immutable beans are shared as they are.
+     * 
+     * @param bean
+     *            the loaded bean; may be null
+     * 
+     * @return the copy
+     */
+    private static <T> T copy(final T bean)
+    {
+        if (bean == null || Boolean.TRUE.equals(EntityUtils.info(bean.getClass()).immutable()))
+            return bean;
+
+        return EntityUtils.clone(bean);
+    }
+
+    /**
+     * Returns the number of loads in flight.
+     * 
+     * @return the loads in flight
+     */
+    int inFlight()
+    {
+        return flights.size();
+    }
+
+    /**
+     * A load in flight and the number of callers waiting for it.
+     */
+    private static final class Flight extends CompletableFuture<Object>
+    {
+        /** Updated under the map lock while the flight is mapped; read by the loader once unmapped */
+        int waiters;
+    }
+}
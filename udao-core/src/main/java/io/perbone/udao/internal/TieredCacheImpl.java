@@ -0,0 +1,239 @@
+/*
+ * This file is part of UDAO 
+ * https://github.com/perbone/udao/
+ * 
+ * Copyright 2013-2018 Paulo Perbone
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package io.perbone.udao.internal;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import io.perbone.udao.spi.Cache;
+
+/**
+ * {@link Cache} implementation chaining an L1 cache over an L2 cache.
+ * <p>
+ * Writes go to both levels. Reads are served by L1 first; an L1 miss falls back to L2 and a hit
+ * there is promoted to L1. Only on a miss from both levels the caller goes to the provider.
+ * 
+ * @author Paulo Perbone <pauloperbone@yahoo.com>
+ * @since 0.17.0
+ */
+final class TieredCacheImpl implements Cache
+{
+    private final Cache l1;
+    private final Cache l2;
+
+    public TieredCacheImpl(final Cache l1, final Cache l2) throws IllegalArgumentException
+    {
+        if (l1 == null || l2 == null)
+            throw new IllegalArgumentException("Caches must not be null");
+
+        this.l1 = l1;
+        this.l2 = l2;
+    }
+
+    @Override
+    public void add(final Object bean) throws IllegalArgumentException
+    {
+        l1.add(bean);
+        l2.add(bean);
+    }
+
+    @Override
+    public void add(final Object bean, final long ttl, final TimeUnit unit) throws IllegalArgumentException
+    {
+        l1.add(bean, ttl, unit);
+        l2.add(bean, ttl, unit);
+    }
+
+    @Override
+    public void set(final Object bean) throws IllegalArgumentException
+    {
+        l1.set(bean);
+        l2.set(bean);
+    }
+
+    @Override
+    public void set(final Object bean, final long ttl, final TimeUnit unit) throws IllegalArgumentException
+    {
+        l1.set(bean, ttl, unit);
+        l2.set(bean, ttl, unit);
+    }
+
+    @Override
+    public <T> T getI(final Object id)
+    {
+        final T bean = l1.getI(id);
+
+        return bean == null ? promote(l2.getI(id)) : bean;
+    }
+
+    @Override
+    public <T> T getP(final Object... keys)
+    {
+        final T bean = l1.getP(keys);
+
+        return bean == null ? promote(l2.getP(keys)) : bean;
+    }
+
+    @Override
+    public <T> T getA(final String name, final Object... keys)
+    {
+        final T bean = l1.getA(name, keys);
+
+        return bean == null ? promote(l2.getA(name, keys)) : bean;
+    }
+
+    @Override
+    public <T> List<T> getAll()
+    {
+        return l1.getAll();
+    }
+
+    @Override
+    public boolean contains(final Object bean)
+    {
+        return l1.contains(bean) || l2.contains(bean);
+    }
+
+    @Override
+    public boolean containsI(final Object id)
+    {
+        return l1.containsI(id) || l2.containsI(id);
+    }
+
+    @Override
+    public boolean containsP(final Object... keys)
+    {
+        return l1.containsP(keys) || l2.containsP(keys);
+    }
+
+    @Override
+    public boolean containsA(final String name, final Object... keys)
+    {
+        return l1.containsA(name, keys) || l2.containsA(name, keys);
+    }
+
+    @Override
+    public void delete(final Object bean)
+    {
+        l1.delete(bean);
+        l2.delete(bean);
+    }
+
+    @Override
+    public void deleteI(final Object id)
+    {
+        l1.deleteI(id);
+        l2.deleteI(id);
+    }
+
+    @Override
+    public void deleteP(final Object... keys)
+    {
+        l1.deleteP(keys);
+        l2.deleteP(keys);
+    }
+
+    @Override
+    public void deleteA(final String name, final Object... keys)
+    {
+        l1.deleteA(name, keys);
+        l2.deleteA(name, keys);
+    }
+
+    @Override
+    public <T> T removeI(final Object id)
+    {
+        final T bean = l1.removeI(id);
+        final T other = l2.removeI(id);
+
+        return bean == null ? other : bean;
+    }
+
+    @Override
+    public <T> T removeP(final Object... keys)
+    {
+        final T bean = l1.removeP(keys);
+        final T other = l2.removeP(keys);
+
+        return bean == null ? other : bean;
+    }
+
+    @Override
+    public <T> T removeA(final String name, final Object... keys)
+    {
+        final T bean = l1.removeA(name, keys);
+        final T other = l2.removeA(name, keys);
+
+        return bean == null ? other : bean;
+    }
+
+    @Override
+    public long count()
+    {
+        return l1.count();
+    }
+
+    @Override
+    public void invalidate()
+    {
+        l1.invalidate();
+        l2.invalidate();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Neither tier evaluates criteria so the type is invalidated on both.
+     */
+    @Override
+    public void invalidate(final Object criteria)
+    {
+        invalidate();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Neither tier evaluates criteria so the type is invalidated on both.
+     */
+    @Override
+    public void prune(final Object criteria)
+    {
+        invalidate();
+    }
+
+    @Override
+    public void evict()
+    {
+        l1.evict();
+        l2.evict();
+    }
+
+    /**
+     * Copies an L2 hit into L1.
+     */
+    private <T> T promote(final T bean)
+    {
+        if (bean != null)
+            l1.add(bean);
+
+        return bean;
+    }
+}
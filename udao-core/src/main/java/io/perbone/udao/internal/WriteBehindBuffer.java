@@ -0,0 +1,693 @@
+/*
+ * This file is part of UDAO 
+ * https://github.com/perbone/udao/
+ * 
+ * Copyright 2013-2018 Paulo Perbone
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package io.perbone.udao.internal;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.perbone.udao.DataConstraintViolationException;
+import io.perbone.udao.KeyViolationException;
+import io.perbone.udao.NotFoundException;
+import io.perbone.udao.configuration.CacheEntry;
+import io.perbone.udao.util.EntityKey;
+import io.perbone.udao.util.EntityUtils;
+import io.perbone.udao.util.KeyCodec;
+
+/**
+ * Write-behind buffer of a storage unit.
+ * <p>
+ * Mutations of the write-behind types are kept in a dirty map per type, coalesced by key so only
+ * the last state of each bean is written. A background flusher writes each map as one bulk save
+ * (a JDBC batch or a JE transaction) when it reaches the <tt>flush-size</tt> of the type's cache or
+ * every <tt>flush-interval</tt>, whichever comes first. Beans only ever updated are written as one
+ * bulk update instead so a missing key still fails as it would have written through.
+ * <p>
+ * When a bulk write fails its beans are written one by one so a single bad bean does not hold the
+ * others back. A bean that keeps failing for {@value #MAX_ATTEMPTS} flushes, or that is rejected by
+ * the provider (missing key, key or constraint violation), is moved to the dead letters and logged;
+ * the others are put back in the buffer, behind any newer state of the same beans, and retried on
+ * the next trigger. Flush failures never surface on the unrelated writes that trigger them.
+ * <p>
+ * Flushes run through a private non transactional {@link DataManagerImpl} so buffered writes never
+ * join the transaction of the caller.
+ * 
+ * @author Paulo Perbone <pauloperbone@yahoo.com>
+ * @since 0.17.0
+ */
+final class WriteBehindBuffer
+{
+    private static final Logger logger = LoggerFactory.getLogger(WriteBehindBuffer.class);
+
+    private static final int DEFAULT_FLUSH_SIZE = 1000;
+    private static final long DEFAULT_FLUSH_INTERVAL = 1L;
+    private static final TimeUnit DEFAULT_FLUSH_UNIT = TimeUnit.SECONDS;
+    private static final int MAX_ATTEMPTS = 5;
+    private static final int MAX_DEAD_LETTERS = 10000;
+
+    private final AtomicBoolean open = new AtomicBoolean(true);
+
+    private final DataManagerImpl writer;
+
+    private final CachePool cachePool;
+
+    private final KeyCodec codec = EntityUtils.keyCodec();
+
+    private final Map<Class<?>, Queue> queues = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService flusher;
+
+    /* Beans given up on, newest last; guarded by its own monitor */
+    private final Deque<Object> deadLetters = new ArrayDeque<>();
+
+    /* Counters */
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong flushedBeans = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong deadLettered = new AtomicLong();
+    private final AtomicLong lastFlushNanos = new AtomicLong();
+    private final AtomicLong maxFlushNanos = new AtomicLong();
+    private final AtomicLong totalFlushNanos = new AtomicLong();
+
+    /**
+     * Creates a {@code WriteBehindBuffer} object.
+     * 
+     * @param name
+     *            the storage unit id; names the flusher thread
+     * @param writer
+     *            the data manager writing the flushes
+     * @param cachePool
+     *            the cache pool holding the write-behind settings
+     */
+    WriteBehindBuffer(final String name, final DataManagerImpl writer, final CachePool cachePool)
+    {
+        this.writer = writer;
+        this.cachePool = cachePool;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r ->
+        {
+            final Thread thread = new Thread(r, "udao-write-behind-" + name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Tells whether or not the given bean can be written behind.
+     * 
+     * @param bean
+     *            the bean to be written
+     * @param key
+     *            the key the bean is written under or null for the bean own key
+     * 
+     * @return <tt>true</tt> if the type is written behind and the key matches the bean
+     */
+    boolean accepts(final Object bean, final EntityKey key)
+    {
+        if (!open.get() || cachePool.writeBehind(bean.getClass()) == null)
+            return false;
+
+        final EntityKey main = mainKey(bean);
+
+        return main != null && (key == null || key.equals(main) || key.equals(codec.primaryKey(bean)));
+    }
+
+    /**
+     * Buffers a copy of the given bean replacing any pending state of it.
+     * <p>
+     * The bean is flushed as an update only if all its pending states were updates; once saved it
+     * may not exist on the provider yet.
+     * 
+     * @param bean
+     *            the bean to be written; must be accepted by {@link #accepts(Object, EntityKey)}
+     * @param update
+     *            <tt>true</tt> if the bean must already exist; <tt>false</tt> to save it
+     */
+    void offer(final Object bean, final boolean update)
+    {
+        final Queue queue = queue(bean.getClass());
+        final Object copy = EntityUtils.clone(bean);
+        final EntityKey main = mainKey(copy);
+
+        final int size;
+
+        synchronized (queue)
+        {
+            final Pending previous = queue.dirty.get(main);
+
+            queue.dirty.put(main, new Pending(copy, update && (previous == null || previous.update)));
+            size = queue.dirty.size();
+
+            if (previous != null) // its alternate keys may have changed
+                unindex(queue, previous.bean);
+
+            for (final EntityKey key : keys(copy))
+                queue.index.put(key, copy);
+        }
+
+        if (size >= queue.flushSize && queue.triggered.compareAndSet(false, true))
+            flusher.execute(() ->
+            {
+                queue.triggered.set(false);
+                flushQuietly(queue);
+            });
+    }
+
+    /**
+     * Returns a copy of the pending state of the bean with the given surrogate key.
+     * 
+     * @param type
+     *            the bean type
+     * @param id
+     *            the surrogate key
+     * 
+     * @return the pending bean or null if there is none
+     */
+    <T> T pendingI(final Class<T> type, final Object id)
+    {
+        return pending(type, codec.surrogateKey(type, id));
+    }
+
+    /**
+     * Returns a copy of the pending state of the bean with the given primary key.
+     * 
+     * @param type
+     *            the bean type
+     * @param keys
+     *            the primary key values
+     * 
+     * @return the pending bean or null if there is none
+     */
+    <T> T pendingP(final Class<T> type, final Object... keys)
+    {
+        return pending(type, codec.primaryKey(type, keys));
+    }
+
+    /**
+     * Returns a copy of the pending state of the bean with the given alternate key.
+     * 
+     * @param type
+     *            the bean type
+     * @param name
+     *            the alternate key name
+     * @param keys
+     *            the alternate key values
+     * 
+     * @return the pending bean or null if there is none
+     */
+    <T> T pendingA(final Class<T> type, final String name, final Object... keys)
+    {
+        return pending(type, codec.alternateKey(type, name, keys));
+    }
+
+    /**
+     * Writes the pending beans of the given type before returning.
+     * <p>
+     * Beans that cannot be written stay in the buffer or go to the dead letters; this call never
+     * fails the caller.
+     * 
+     * @param type
+     *            the bean type
+     */
+    void flush(final Class<?> type)
+    {
+        final Queue queue = queues.get(type);
+
+        if (queue != null)
+            flushQuietly(queue);
+    }
+
+    /**
+     * Writes the pending beans before returning.
+     * <p>
+     * Beans that cannot be written stay in the buffer or go to the dead letters; this call never
+     * fails the caller.
+     */
+    void flush()
+    {
+        for (final Queue queue : queues.values())
+            flushQuietly(queue);
+    }
+
+    /**
+     * Returns copies of the beans given up on, oldest first.
+     * <p>
+     * Only the last {@value #MAX_DEAD_LETTERS} are kept; {@link #deadLettered()} counts them all.
+     * 
+     * @return the dead letters
+     */
+    List<Object> deadLetters()
+    {
+        final List<Object> beans;
+
+        synchronized (deadLetters)
+        {
+            beans = new ArrayList<>(deadLetters);
+        }
+
+        final List<Object> copies = new ArrayList<>(beans.size());
+
+        for (final Object bean : beans)
+            copies.add(EntityUtils.clone(bean));
+
+        return copies;
+    }
+
+    /**
+     * Stops the flusher and writes all the pending beans.
+     * <p>
+     * Once closed the buffer accepts no more beans. Beans that still cannot be written are not
+     * retried; they go to the dead letters.
+     * 
+     * @param graceTime
+     *            the maximum time to wait for a running flush
+     * @param unit
+     *            the grace time unit
+     * 
+     * @return the number of beans never written, including the earlier dead letters
+     */
+    long close(final long graceTime, final TimeUnit unit)
+    {
+        if (open.compareAndSet(true, false))
+        {
+            flusher.shutdown();
+
+            try
+            {
+                if (!flusher.awaitTermination(graceTime, unit))
+                    flusher.shutdownNow();
+            }
+            catch (final InterruptedException e)
+            {
+                flusher.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+
+            for (final Queue queue : queues.values())
+            {
+                try
+                {
+                    flush(queue, true);
+                }
+                catch (final RuntimeException e)
+                {
+                    logger.error(String.format("Unable to flush the pending beans of type [%s] on close",
+                            queue.type.getName()), e);
+
+                    synchronized (queue)
+                    {
+                        for (final Pending pending : queue.dirty.values())
+                            deadLetter(queue, pending, e);
+                        queue.dirty.clear();
+                    }
+                }
+            }
+
+            queues.clear();
+        }
+
+        return deadLettered.get();
+    }
+
+    /**
+     * Returns the number of beans waiting to be written.
+     * 
+     * @return the queue depth
+     */
+    long depth()
+    {
+        long depth = 0L;
+
+        for (final Queue queue : queues.values())
+            depth += queue.size();
+
+        return depth;
+    }
+
+    long flushes()
+    {
+        return flushes.get();
+    }
+
+    long flushedBeans()
+    {
+        return flushedBeans.get();
+    }
+
+    long failures()
+    {
+        return failures.get();
+    }
+
+    long deadLettered()
+    {
+        return deadLettered.get();
+    }
+
+    long lastFlushNanos()
+    {
+        return lastFlushNanos.get();
+    }
+
+    long maxFlushNanos()
+    {
+        return maxFlushNanos.get();
+    }
+
+    long totalFlushNanos()
+    {
+        return totalFlushNanos.get();
+    }
+
+    private Queue queue(final Class<?> type)
+    {
+        return queues.computeIfAbsent(type, t ->
+        {
+            final CacheEntry centry = cachePool.writeBehind(t);
+
+            final Queue queue = new Queue(t,
+                    centry.flushSize() == null || centry.flushSize() <= 0 ? DEFAULT_FLUSH_SIZE : centry.flushSize());
+
+            final long interval = centry.flushInterval() == null || centry.flushInterval() <= 0
+                    ? DEFAULT_FLUSH_UNIT.toNanos(DEFAULT_FLUSH_INTERVAL)
+                    : (centry.flushUnit() == null ? DEFAULT_FLUSH_UNIT : centry.flushUnit())
+                            .toNanos(centry.flushInterval());
+
+            flusher.scheduleWithFixedDelay(() -> flushQuietly(queue), interval, interval, TimeUnit.NANOSECONDS);
+
+            return queue;
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T pending(final Class<T> type, final EntityKey key)
+    {
+        final Queue queue = key == null ? null : queues.get(type);
+
+        if (queue == null)
+            return null;
+
+        final Object bean = queue.index.get(key);
+
+        return bean == null ? null : (T) EntityUtils.clone(bean);
+    }
+
+    /**
+     * Writes the dirty map of the given queue as one bulk save and one bulk update.
+     * <p>
+     * Flushes of the same type are serialized so an older state never overwrites a newer one.
+     * 
+     * @param queue
+     *            the queue to flush
+     * @param last
+     *            <tt>true</tt> if the beans failing now are not retried
+     */
+    private void flush(final Queue queue, final boolean last)
+    {
+        synchronized (queue.flushLock)
+        {
+            final LinkedHashMap<EntityKey, Pending> batch;
+
+            synchronized (queue)
+            {
+                if (queue.dirty.isEmpty())
+                    return;
+
+                batch = queue.dirty;
+                queue.dirty = new LinkedHashMap<>();
+            }
+
+            final List<Pending> saves = new ArrayList<>();
+            final List<Pending> updates = new ArrayList<>();
+
+            for (final Pending pending : batch.values())
+            {
+                pending.failure = null;
+                (pending.update ? updates : saves).add(pending);
+            }
+
+            final long start = System.nanoTime();
+
+            final List<Pending> failed = new ArrayList<>();
+            write(saves, false, failed);
+            write(updates, true, failed);
+
+            final long elapsed = System.nanoTime() - start;
+
+            flushes.incrementAndGet();
+            flushedBeans.addAndGet(batch.size() - failed.size());
+            lastFlushNanos.set(elapsed);
+            totalFlushNanos.addAndGet(elapsed);
+            maxFlushNanos.accumulateAndGet(elapsed, Math::max);
+
+            synchronized (queue)
+            {
+                final LinkedHashMap<EntityKey, Pending> retries = new LinkedHashMap<>();
+
+                for (final Pending pending : failed)
+                {
+                    if (last || pending.attempts >= MAX_ATTEMPTS || !retryable(pending.failure))
+                        deadLetter(queue, pending, pending.failure);
+                    else
+                        retries.put(mainKey(pending.bean), pending);
+                }
+
+                for (final Map.Entry<EntityKey, Pending> entry : queue.dirty.entrySet()) // newer states win
+                {
+                    final Pending older = retries.get(entry.getKey());
+                    final Pending newer = entry.getValue();
+
+                    retries.put(entry.getKey(),
+                            older == null || older.update ? newer : new Pending(newer.bean, false));
+                }
+
+                queue.dirty = retries;
+
+                for (final Pending pending : batch.values())
+                {
+                    if (pending.failure == null)
+                        unindex(queue, pending.bean);
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the given beans in bulk, then one by one if the bulk write fails.
+     * 
+     * @param beans
+     *            the pending beans
+     * @param update
+     *            <tt>true</tt> to update the beans; <tt>false</tt> to save them
+     * @param failed
+     *            receives the beans that could not be written
+     */
+    private void write(final List<Pending> beans, final boolean update, final List<Pending> failed)
+    {
+        if (beans.isEmpty())
+            return;
+
+        try
+        {
+            write(beans, update);
+            return;
+        }
+        catch (final RuntimeException e)
+        {
+            failures.incrementAndGet();
+
+            if (beans.size() == 1)
+            {
+                failed.add(beans.get(0).failed(e));
+                return;
+            }
+        }
+
+        for (final Pending pending : beans)
+        {
+            try
+            {
+                write(Collections.singletonList(pending), update);
+            }
+            catch (final RuntimeException e)
+            {
+                failed.add(pending.failed(e));
+            }
+        }
+    }
+
+    private void write(final List<Pending> beans, final boolean update)
+    {
+        final List<Object> list = new ArrayList<>(beans.size());
+
+        for (final Pending pending : beans)
+            list.add(pending.bean);
+
+        if (update)
+            writer.update(list);
+        else
+            writer.save(list);
+    }
+
+    /**
+     * Tells whether or not a write failing with the given exception may succeed later.
+     */
+    private static boolean retryable(final RuntimeException e)
+    {
+        return !(e instanceof NotFoundException || e instanceof KeyViolationException
+                || e instanceof DataConstraintViolationException || e instanceof IllegalArgumentException);
+    }
+
+    /**
+     * Gives up on the given bean; called holding the queue monitor.
+     */
+    private void deadLetter(final Queue queue, final Pending pending, final RuntimeException cause)
+    {
+        unindex(queue, pending.bean);
+        deadLettered.incrementAndGet();
+
+        synchronized (deadLetters)
+        {
+            if (deadLetters.size() == MAX_DEAD_LETTERS)
+                deadLetters.removeFirst();
+            deadLetters.addLast(pending.bean);
+        }
+
+        logger.error(String.format("Giving up writing the bean [%s] of type [%s] after [%d] attempts",
+                mainKey(pending.bean), queue.type.getName(), pending.attempts), cause);
+    }
+
+    private void unindex(final Queue queue, final Object bean)
+    {
+        for (final EntityKey key : keys(bean))
+            queue.index.remove(key, bean);
+    }
+
+    private void flushQuietly(final Queue queue)
+    {
+        try
+        {
+            flush(queue, false);
+        }
+        catch (final RuntimeException e)
+        {
+            logger.warn(String.format("Unable to flush the pending beans of type [%s]; will retry",
+                    queue.type.getName()), e);
+        }
+    }
+
+    /**
+     * Returns the key the bean is coalesced under; the surrogate key when the type has one.
+     */
+    private EntityKey mainKey(final Object bean)
+    {
+        final EntityKey skey = codec.surrogateKey(bean);
+
+        return skey == null ? codec.primaryKey(bean) : skey;
+    }
+
+    private List<EntityKey> keys(final Object bean)
+    {
+        final List<EntityKey> akeys = codec.alternateKeys(bean);
+        final List<EntityKey> keys = new ArrayList<>(2 + akeys.size());
+
+        final EntityKey skey = codec.surrogateKey(bean);
+        final EntityKey pkey = codec.primaryKey(bean);
+
+        if (skey != null)
+            keys.add(skey);
+        if (pkey != null)
+            keys.add(pkey);
+
+        for (final EntityKey akey : akeys)
+        {
+            if (akey != null)
+                keys.add(akey);
+        }
+
+        return keys;
+    }
+
+    /**
+     * Pending beans of a single type.
+     */
+    private static final class Queue
+    {
+        final Class<?> type;
+        final int flushSize;
+        final Object flushLock = new Object();
+        final AtomicBoolean triggered = new AtomicBoolean(false);
+
+        /* Pending beans by main key in arrival order; guarded by the queue monitor */
+        LinkedHashMap<EntityKey, Pending> dirty = new LinkedHashMap<>();
+
+        /* Pending beans by all their keys, for the reads */
+        final Map<EntityKey, Object> index = new ConcurrentHashMap<>();
+
+        Queue(final Class<?> type, final int flushSize)
+        {
+            this.type = type;
+            this.flushSize = flushSize;
+        }
+
+        synchronized int size()
+        {
+            return dirty.size();
+        }
+    }
+
+    /**
+     * A pending bean state and how it is written.
+     */
+    private static final class Pending
+    {
+        final Object bean;
+        final boolean update;
+
+        /* Failed flushes so far and the last failure; touched by the flushing thread only */
+        int attempts;
+        RuntimeException failure;
+
+        Pending(final Object bean, final boolean update)
+        {
+            this.bean = bean;
+            this.update = update;
+        }
+
+        Pending failed(final RuntimeException e)
+        {
+            attempts++;
+            failure = e;
+            return this;
+        }
+    }
+}
@@ -21,7 +21,6 @@ package io.perbone.udao.provider.jdbc;
 
 import static io.perbone.udao.util.EntityUtils.hostName;
 
-import java.lang.ref.WeakReference;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.concurrent.TimeUnit;
@@ -33,6 +32,7 @@ import io.perbone.toolbox.provider.NotEnoughResourceException;
 import io.perbone.toolbox.provider.OperationTimeoutException;
 import io.perbone.toolbox.settings.Property;
 import io.perbone.toolbox.validation.StringValidations;
+import io.perbone.udao.Cursor.ScrollMode;
 import io.perbone.udao.DataConstraintViolationException;
 import io.perbone.udao.DataException;
 import io.perbone.udao.KeyViolationException;
@@ -116,6 +116,12 @@ public final class JdbcDataProviderImpl extends AbstractDataProvider
     @Property(name = "query-timeout", value = "0")
     private Long queryTimeout;
 
+    @Property(name = "statement-cache-size", value = "50")
+    private Integer statementCacheSize;
+
+    @Property(name = "scroll-mode", value = "TYPE_SCROLL_INSENSITIVE")
+    private ScrollMode scrollMode;
+
     @Property(name = "list-cache-enabled", value = "false")
     private Boolean listCacheEnabled;
 
@@ -158,13 +164,7 @@ public final class JdbcDataProviderImpl extends AbstractDataProvider
         checkActive();
         checkShutdownInProgress();
 
-        final DataSource ds = new JdbcDataSourceImpl(this, dialect, fetchSize, queryTimeout);
-
-        ds.open();
-
-        dsInUse.add(new WeakReference<DataSource>(ds));
-
-        return ds;
+        return sharedDataSource(type, t -> new JdbcDataSourceImpl(this, dialect, fetchSize, queryTimeout, scrollMode));
     }
 
     @Override
@@ -337,7 +337,12 @@ public final class JdbcDataProviderImpl extends AbstractDataProvider
         poolDS.setRemoveAbandonedTimeout((int) TimeUnit.MILLISECONDS.toSeconds(removeAbandonedTimeout));
         poolDS.setMinEvictableIdleTimeMillis(minEvictableIdleTime);
         poolDS.setJmxEnabled(jmxEnabled);
-        poolDS.setJdbcInterceptors("ConnectionState;StatementFinalizer");
+        if (statementCacheSize > 0) // Reuses prepared statements per connection
+            poolDS.setJdbcInterceptors(String.format(
+                    "ConnectionState;StatementFinalizer;StatementCache(prepared=true,callable=false,max=%d)",
+                    statementCacheSize));
+        else
+            poolDS.setJdbcInterceptors("ConnectionState;StatementFinalizer");
 
         /* Self initialization; works as fast fail */
         try
@@ -379,6 +384,8 @@ public final class JdbcDataProviderImpl extends AbstractDataProvider
 
     /**
      * Retrieves a connection from the pool with all its client info attributes filled.
+     * <p>
+     * The time spent waiting for the pool is reported to the pool wait listener.
      * 
      * @return the connection
      * 
@@ -389,7 +396,9 @@ public final class JdbcDataProviderImpl extends AbstractDataProvider
     {
         try
         {
+            final long start = System.nanoTime();
             final Connection conn = poolDS.getConnection();
+            recordPoolWait(System.nanoTime() - start);
 
             if (StringValidations.isValid(applicationName))
                 conn.setClientInfo("ApplicationName", applicationName);
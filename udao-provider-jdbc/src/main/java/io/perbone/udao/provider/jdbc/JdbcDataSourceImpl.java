@@ -19,6 +19,8 @@
 
 package io.perbone.udao.provider.jdbc;
 
+import static io.perbone.udao.Cursor.ScrollMode.TYPE_FORWARD_ONLY;
+import static io.perbone.udao.provider.jdbc.SqlDialect.DB2;
 import static io.perbone.udao.provider.jdbc.SqlDialect.DERBY;
 import static io.perbone.udao.provider.jdbc.SqlDialect.MYSQL;
 import static io.perbone.udao.provider.jdbc.SqlDialect.ORACLE;
@@ -33,11 +35,16 @@ import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.SQLTimeoutException;
 import java.sql.Statement;
+import java.sql.Time;
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.Hashtable;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
@@ -47,12 +54,14 @@ import io.perbone.toolbox.provider.NotEnoughResourceException;
 import io.perbone.toolbox.provider.OperationTimeoutException;
 import io.perbone.toolbox.validation.StringValidations;
 import io.perbone.udao.Cursor;
+import io.perbone.udao.Cursor.ScrollMode;
 import io.perbone.udao.DataConstraintViolationException;
 import io.perbone.udao.KeyViolationException;
 import io.perbone.udao.NotFoundException;
 import io.perbone.udao.annotation.DataType;
 import io.perbone.udao.query.Expression;
 import io.perbone.udao.query.NativeQuery;
+import io.perbone.udao.provider.jdbc.SqlTemplate.Operation;
 import io.perbone.udao.query.Query;
 import io.perbone.udao.spi.Cache;
 import io.perbone.udao.spi.DataProviderException;
@@ -61,8 +70,11 @@ import io.perbone.udao.spi.internal.AbstractDataSource;
 import io.perbone.udao.spi.internal.SimpleCursor;
 import io.perbone.udao.transaction.Transaction;
 import io.perbone.udao.transaction.TransactionException;
+import io.perbone.udao.util.BeanAccessor;
 import io.perbone.udao.util.ElementInfo;
+import io.perbone.udao.util.EntityKey;
 import io.perbone.udao.util.EntityUtils;
+import io.perbone.udao.util.KeyCodec;
 import io.perbone.udao.util.StorableInfo;
 
 /**
@@ -77,11 +89,19 @@ public class JdbcDataSourceImpl extends AbstractDataSource
     private static final String SQL_SELECT_COUNT = "SELECT COUNT(1) FROM %s";
     private static final String SQL_SELECT_ALL = "SELECT * FROM %s ORDER BY %s";
     private static final String SQL_SELECT_ONE = "SELECT * FROM %s WHERE %s";
+    private static final String SQL_SELECT_IN = "SELECT * FROM %s WHERE %s IN (%s)";
     // private static final String SQL_SELECT_EXISTS = "SELECT 1 FROM %s WHERE %s";
     private static final String SQL_SELECT_BY_EXAMPLE = "SELECT * FROM %s WHERE %s ORDER BY %s";
     private static final String SQL_INSERT = "INSERT INTO %s (%s) VALUES (%s)";
     private static final String SQL_UPDATE = "UPDATE %s SET %s WHERE %s";
     private static final String SQL_DELETE = "DELETE FROM %s WHERE %s";
+    private static final String SQL_UPSERT_ON_CONFLICT = "%s ON CONFLICT (%s) DO UPDATE SET %s";
+    private static final String SQL_UPSERT_ON_CONFLICT_NOTHING = "%s ON CONFLICT (%s) DO NOTHING";
+    private static final String SQL_UPSERT_ON_DUPLICATE_KEY = "%s ON DUPLICATE KEY UPDATE %s";
+    private static final String SQL_MERGE = "MERGE INTO %s USING %s ON (%s) WHEN MATCHED THEN UPDATE SET %s "
+            + "WHEN NOT MATCHED THEN INSERT (%s) VALUES (%s)";
+    private static final String SQL_MERGE_INSERT = "MERGE INTO %s USING %s ON (%s) "
+            + "WHEN NOT MATCHED THEN INSERT (%s) VALUES (%s)";
 
     private static final String DEFAULT_TARGET_NAME = "sql";
 
@@ -93,8 +113,12 @@ public class JdbcDataSourceImpl extends AbstractDataSource
 
     private final Long queryTimeout;
 
+    private final ScrollMode scrollMode;
+
+    private final SqlTemplateCache templates = new SqlTemplateCache();
+
     public JdbcDataSourceImpl(final JdbcDataProviderImpl provider, final SqlDialect dialect, final Long fetchSize,
-            final Long queryTimeout)
+            final Long queryTimeout, final ScrollMode scrollMode)
     {
         super();
 
@@ -102,6 +126,7 @@ public class JdbcDataSourceImpl extends AbstractDataSource
         this.dialect = dialect;
         this.fetchSize = fetchSize;
         this.queryTimeout = queryTimeout;
+        this.scrollMode = scrollMode;
     }
 
     @Override
@@ -125,63 +150,17 @@ public class JdbcDataSourceImpl extends AbstractDataSource
 
         final StorableInfo sinfo = EntityUtils.info(type);
 
-        final String tableName = parseTableName(DEFAULT_TARGET_NAME, sinfo);
-
-        String columns = null;
-        String placehoders = null;
-        for (final ElementInfo einfo : sinfo.elements())
-        {
-            if (!einfo.virtual())
-            {
-                columns = (columns == null ? parseColumnName(einfo) : columns + "," + parseColumnName(einfo));
-                placehoders = (placehoders == null ? "?" : placehoders + ",?");
-            }
-        }
-
-        // FIXME sql statement string should be cached
-        final String sql = String.format(SQL_INSERT, tableName, columns, placehoders);
+        final SqlTemplate template = insertTemplate(sinfo);
 
         final Connection conn = getConnection(txn);
 
         try
         {
-            final PreparedStatement pst = conn.prepareStatement(sql);
+            final PreparedStatement pst = conn.prepareStatement(template.sql());
 
             setQueryTimeout(pst);
 
-            int parameterIndex = 1;
-            for (final ElementInfo einfo : sinfo.elements())
-            {
-                if (!einfo.virtual())
-                {
-                    final Object value = EntityUtils.value(bean, einfo.name());
-                    if (value == null)
-                    {
-                        pst.setObject(parameterIndex++, value);
-                    }
-                    else if (value instanceof TimeUnit)
-                    {
-                        final String unit = EntityUtils.parseTimeUnit((TimeUnit) value);
-                        pst.setObject(parameterIndex++, unit);
-                    }
-                    else if (value instanceof Enum<?>)
-                    {
-                        pst.setObject(parameterIndex++, value.toString());
-                    }
-                    else if (value instanceof Date && einfo.dataType() == DataType.DATE)
-                    {
-                        Timestamp ts = new Timestamp(((Date) value).getTime());
-                        pst.setTimestamp(parameterIndex++, ts);
-                    }
-                    else if (value instanceof Date && einfo.dataType() == DataType.LONG)
-                    {
-                        Long tmp = ((Date) value).getTime();
-                        pst.setLong(parameterIndex++, tmp);
-                    }
-                    else
-                        pst.setObject(parameterIndex++, value);
-                }
-            }
+            setParameters(pst, template, sinfo, bean);
 
             pst.executeUpdate();
 
@@ -259,65 +238,19 @@ public class JdbcDataSourceImpl extends AbstractDataSource
 
         final StorableInfo sinfo = EntityUtils.info(type);
 
-        final String tableName = parseTableName(DEFAULT_TARGET_NAME, sinfo);
-
-        String columns = null;
-        String placehoders = null;
-        for (final ElementInfo einfo : sinfo.elements())
-        {
-            if (!einfo.virtual())
-            {
-                columns = (columns == null ? parseColumnName(einfo) : columns + "," + parseColumnName(einfo));
-                placehoders = (placehoders == null ? "?" : placehoders + ",?");
-            }
-        }
-
-        // FIXME sql statement string should be cached
-        final String sql = String.format(SQL_INSERT, tableName, columns, placehoders);
+        final SqlTemplate template = insertTemplate(sinfo);
 
         Connection conn = getConnection(txn);
 
         try
         {
-            final PreparedStatement pst = conn.prepareStatement(sql);
+            final PreparedStatement pst = conn.prepareStatement(template.sql());
 
             setQueryTimeout(pst);
 
             for (T bean : beans)
             {
-                int parameterIndex = 1;
-                for (final ElementInfo einfo : sinfo.elements())
-                {
-                    if (!einfo.virtual())
-                    {
-                        final Object value = EntityUtils.value(bean, einfo.name());
-                        if (value == null)
-                        {
-                            pst.setObject(parameterIndex++, value);
-                        }
-                        else if (value instanceof TimeUnit)
-                        {
-                            final String unit = EntityUtils.parseTimeUnit((TimeUnit) value);
-                            pst.setObject(parameterIndex++, unit);
-                        }
-                        else if (value instanceof Enum<?>)
-                        {
-                            pst.setObject(parameterIndex++, value.toString());
-                        }
-                        else if (value instanceof Date && einfo.dataType() == DataType.DATE)
-                        {
-                            Timestamp ts = new Timestamp(((Date) value).getTime());
-                            pst.setTimestamp(parameterIndex++, ts);
-                        }
-                        else if (value instanceof Date && einfo.dataType() == DataType.LONG)
-                        {
-                            Long tmp = ((Date) value).getTime();
-                            pst.setLong(parameterIndex++, tmp);
-                        }
-                        else
-                            pst.setObject(parameterIndex++, value);
-                    }
-                }
+                setParameters(pst, template, sinfo, bean);
                 pst.addBatch();
             }
 
@@ -387,8 +320,9 @@ public class JdbcDataSourceImpl extends AbstractDataSource
             KeyViolationException, DataConstraintViolationException, OperationTimeoutException,
             NotEnoughResourceException, DataProviderException
     {
-        // TODO Auto-generated method stub
-        return super.save(txn, cache, bean);
+        upsert(txn, cache, Collections.singletonList(bean), 0L, TimeUnit.NANOSECONDS);
+
+        return bean;
     }
 
     @Override
@@ -397,8 +331,9 @@ public class JdbcDataSourceImpl extends AbstractDataSource
             KeyViolationException, DataConstraintViolationException, OperationTimeoutException,
             NotEnoughResourceException, DataProviderException
     {
-        // TODO Auto-generated method stub
-        return super.save(txn, cache, bean, ttl, unit);
+        upsert(txn, cache, Collections.singletonList(bean), ttl, unit);
+
+        return bean;
     }
 
     @Override
@@ -407,8 +342,9 @@ public class JdbcDataSourceImpl extends AbstractDataSource
             KeyViolationException, DataConstraintViolationException, OperationTimeoutException,
             NotEnoughResourceException, DataProviderException
     {
-        // TODO Auto-generated method stub
-        return super.save(txn, cache, beans);
+        upsert(txn, cache, beans, 0L, TimeUnit.NANOSECONDS);
+
+        return beans;
     }
 
     @Override
@@ -417,8 +353,9 @@ public class JdbcDataSourceImpl extends AbstractDataSource
             TransactionException, KeyViolationException, DataConstraintViolationException, OperationTimeoutException,
             NotEnoughResourceException, DataProviderException
     {
-        // TODO Auto-generated method stub
-        return super.save(txn, cache, beans, ttl, unit);
+        upsert(txn, cache, beans, ttl, unit);
+
+        return beans;
     }
 
     @Override
@@ -433,18 +370,14 @@ public class JdbcDataSourceImpl extends AbstractDataSource
 
         final StorableInfo sinfo = EntityUtils.info(type);
 
-        final String tableName = parseTableName(DEFAULT_TARGET_NAME, sinfo);
-
-        final String where = parseColumnName(sinfo.surrogateKey()) + "=?";
-
-        // FIXME sql statement string should be cached
-        final String sql = String.format(SQL_SELECT_ONE, tableName, where);
+        final SqlTemplate template = selectTemplate(sinfo, Operation.SELECT_I, null,
+                Collections.singletonList(sinfo.surrogateKey()));
 
         final Connection conn = getConnection(txn);
 
         try
         {
-            final PreparedStatement pst = conn.prepareStatement(sql);
+            final PreparedStatement pst = conn.prepareStatement(template.sql());
 
             setQueryTimeout(pst);
 
@@ -488,8 +421,146 @@ public class JdbcDataSourceImpl extends AbstractDataSource
             throws UnsupportedOperationException, IllegalStateException, IllegalArgumentException, TransactionException,
             NotFoundException, OperationTimeoutException, NotEnoughResourceException, DataProviderException
     {
-        // TODO Auto-generated method stub
-        return super.fetchI(txn, cache, type, ids);
+        final KeyCodec codec = EntityUtils.keyCodec();
+
+        final StorableInfo sinfo = EntityUtils.info(type);
+
+        /* Same type as the loaded beans key so their keys match the requested ones */
+        final Object[] normalized = new Object[ids.length];
+        for (int i = 0; i < ids.length; i++)
+            normalized[i] = normalizeId(sinfo.surrogateKey(), ids[i]);
+
+        final Map<EntityKey, T> beans = new HashMap<>();
+
+        /* Cache probing; only the misses go to the database */
+        final Map<EntityKey, Object> misses = new HashMap<>();
+        for (final Object id : normalized)
+        {
+            final EntityKey skey = codec.surrogateKey(type, id);
+            if (beans.containsKey(skey) || misses.containsKey(skey))
+                continue;
+
+            final T bean = cache.getI(id);
+            if (bean == null)
+                misses.put(skey, id);
+            else
+                beans.put(skey, bean);
+        }
+
+        if (!misses.isEmpty())
+        {
+            final List<Object> values = new ArrayList<>(misses.values());
+
+            final int limit = dialect.inListLimit();
+
+            final Connection conn = getConnection(txn);
+
+            try
+            {
+                /* One statement per chunk of at most the dialect IN list limit */
+                for (int from = 0; from < values.size(); from += limit)
+                {
+                    final List<Object> chunk = values.subList(from, Math.min(from + limit, values.size()));
+
+                    final int size = inListSize(chunk.size(), limit);
+
+                    final SqlTemplate template = inTemplate(sinfo, size);
+
+                    final PreparedStatement pst = conn.prepareStatement(template.sql());
+
+                    setQueryTimeout(pst);
+
+                    // Pads the list repeating the last id so to reuse the statement for similar sizes
+                    for (int i = 0; i < size; i++)
+                        pst.setObject(i + 1, chunk.get(Math.min(i, chunk.size() - 1)));
+
+                    final ResultSet rs = pst.executeQuery();
+
+                    final ElementInfo[] columns = mapColumns(type, rs);
+
+                    while (rs.next())
+                    {
+                        final T bean = makeEntity(type, rs, columns); // Instantiate and populate a new bean
+
+                        if (bean == null)
+                            continue;
+
+                        cacheIt(txn, cache, bean); // Caches the new bean
+
+                        beans.put(codec.surrogateKey(bean), bean);
+                    }
+
+                    rs.close();
+                    pst.close();
+                }
+            }
+            catch (final SQLTimeoutException e)
+            {
+                throw new OperationTimeoutException("The currently executing 'fetchI' operation is timed out", e);
+            }
+            catch (final SQLException sqle)
+            {
+                throw new DataProviderException("Could not execute the database statement", sqle);
+            }
+            finally
+            {
+                close(txn, conn);
+            }
+        }
+
+        /* Ids order; ids matching no bean are left out */
+        final List<T> result = new ArrayList<>(ids.length);
+        for (final Object id : normalized)
+        {
+            final T bean = beans.get(codec.surrogateKey(type, id));
+            if (bean != null)
+                result.add(bean);
+        }
+
+        return result;
+    }
+
+    /**
+     * Converts the given id to the type of the surrogate key element, so an id given as a string or
+     * as another integral type encodes to the same key as the bean loaded for it.
+     * 
+     * @param einfo
+     *            the surrogate key element
+     * @param id
+     *            the id as given by the caller
+     * 
+     * @return the converted id; the id itself if it has the element type or cannot be converted
+     * 
+     * @throws IllegalArgumentException
+     *             if the id is null
+     */
+    private static Object normalizeId(final ElementInfo einfo, final Object id) throws IllegalArgumentException
+    {
+        if (id == null)
+            throw new IllegalArgumentException("ID must not be null");
+
+        switch (einfo.dataType())
+        {
+        case BYTE:
+        case SHORT:
+        case INT:
+        case LONG:
+            if (id instanceof Number)
+                return ((Number) id).longValue();
+            try
+            {
+                return Long.parseLong(id.toString().trim());
+            }
+            catch (final NumberFormatException e)
+            {
+                return id; // Left for the database to reject
+            }
+        case CHAR:
+        case STRING:
+            return id instanceof String ? id : id.toString();
+        default:
+            return id;
+        }
     }
 
     @Override
@@ -504,24 +575,13 @@ public class JdbcDataSourceImpl extends AbstractDataSource
         if (bean != null)
             return bean;
 
-        final String tableName = parseTableName(DEFAULT_TARGET_NAME, sinfo);
-
-        String where = "";
-        for (final ElementInfo einfo : sinfo.primaryKey())
-        {
-            if (StringValidations.isValid(where))
-                where += " AND ";
-            where = where + parseColumnName(einfo) + "=?";
-        }
-
-        // FIXME sql statement string should be cached
-        final String sql = String.format(SQL_SELECT_ONE, tableName, where);
+        final SqlTemplate template = selectTemplate(sinfo, Operation.SELECT_P, null, sinfo.primaryKey());
 
         final Connection conn = getConnection(txn);
 
         try
         {
-            final PreparedStatement pst = conn.prepareStatement(sql);
+            final PreparedStatement pst = conn.prepareStatement(template.sql());
 
             setQueryTimeout(pst);
 
@@ -602,24 +662,13 @@ public class JdbcDataSourceImpl extends AbstractDataSource
         if (bean != null)
             return bean;
 
-        final String tableName = parseTableName(DEFAULT_TARGET_NAME, sinfo);
-
-        String where = "";
-        for (final ElementInfo einfo : sinfo.alternateKey(name))
-        {
-            if (StringValidations.isValid(where))
-                where += " AND ";
-            where = where + parseColumnName(einfo) + "=?";
-        }
-
-        // FIXME sql statement string should be cached
-        final String sql = String.format(SQL_SELECT_ONE, tableName, where);
+        final SqlTemplate template = selectTemplate(sinfo, Operation.SELECT_A, name, sinfo.alternateKey(name));
 
         final Connection conn = getConnection(txn);
 
         try
         {
-            final PreparedStatement pst = conn.prepareStatement(sql);
+            final PreparedStatement pst = conn.prepareStatement(template.sql());
 
             setQueryTimeout(pst);
 
@@ -760,68 +809,19 @@ public class JdbcDataSourceImpl extends AbstractDataSource
 
         final StorableInfo sinfo = EntityUtils.info(type);
 
-        final String tableName = parseTableName(DEFAULT_TARGET_NAME, sinfo);
-
-        String setColumns = "";
-        for (final ElementInfo einfo : sinfo.elements())
-        {
-            if (!einfo.virtual()
-                    && (!einfo.metadata() || (einfo.metadata() && EntityUtils.value(bean, einfo.name()) != null)))
-            {
-                if (StringValidations.isValid(setColumns))
-                    setColumns = setColumns + ", ";
-                setColumns = setColumns + parseColumnName(einfo) + "=?";
-            }
-        }
-
-        final String where = parseColumnName(sinfo.surrogateKey()) + "=?";
-
-        // FIXME sql statement string should be cached
-        final String sql = String.format(SQL_UPDATE, tableName, setColumns, where);
+        final SqlTemplate template = updateTemplate(sinfo, Operation.UPDATE_I, null,
+                Collections.singletonList(sinfo.surrogateKey()), bean, false);
 
         final Connection conn = getConnection(txn);
 
         try
         {
-            final PreparedStatement pst = conn.prepareStatement(sql);
+            final PreparedStatement pst = conn.prepareStatement(template.sql());
 
             setQueryTimeout(pst);
 
             // Columns values
-            int parameterIndex = 1;
-            for (final ElementInfo einfo : sinfo.elements())
-            {
-                if (!einfo.virtual()
-                        && (!einfo.metadata() || (einfo.metadata() && EntityUtils.value(bean, einfo.name()) != null)))
-                {
-                    final Object value = EntityUtils.value(bean, einfo.name());
-                    if (value == null)
-                    {
-                        pst.setObject(parameterIndex++, value);
-                    }
-                    else if (value instanceof TimeUnit)
-                    {
-                        final String unit = EntityUtils.parseTimeUnit((TimeUnit) value);
-                        pst.setObject(parameterIndex++, unit);
-                    }
-                    else if (value instanceof Enum<?>)
-                    {
-                        pst.setObject(parameterIndex++, value.toString());
-                    }
-                    else if (value instanceof Date && einfo.dataType() == DataType.DATE)
-                    {
-                        final Timestamp ts = new Timestamp(((Date) value).getTime());
-                        pst.setTimestamp(parameterIndex++, ts);
-                    }
-                    else if (value instanceof Date && einfo.dataType() == DataType.LONG)
-                    {
-                        final Long tmp = ((Date) value).getTime();
-                        pst.setLong(parameterIndex++, tmp);
-                    }
-                    else
-                        pst.setObject(parameterIndex++, value);
-                }
-            }
+            int parameterIndex = setParameters(pst, template, sinfo, bean);
 
             // Where column value
             pst.setObject(parameterIndex++, id);
@@ -901,74 +901,18 @@ public class JdbcDataSourceImpl extends AbstractDataSource
 
         final StorableInfo sinfo = EntityUtils.info(type);
 
-        final String tableName = parseTableName(DEFAULT_TARGET_NAME, sinfo);
-
-        String setColumns = "";
-        for (final ElementInfo einfo : sinfo.elements())
-        {
-            if (!einfo.virtual()
-                    && (!einfo.metadata() || (einfo.metadata() && EntityUtils.value(bean, einfo.name()) != null)))
-            {
-                if (StringValidations.isValid(setColumns))
-                    setColumns = setColumns + ", ";
-                setColumns = setColumns + parseColumnName(einfo) + "=?";
-            }
-        }
-
-        String where = "";
-        for (final ElementInfo einfo : sinfo.primaryKey())
-        {
-            if (StringValidations.isValid(where))
-                where += " AND ";
-            where = where + parseColumnName(einfo) + "=?";
-        }
-
-        // FIXME sql statement string should be cached
-        final String sql = String.format(SQL_UPDATE, tableName, setColumns, where);
+        final SqlTemplate template = updateTemplate(sinfo, Operation.UPDATE_P, null, sinfo.primaryKey(), bean, false);
 
         final Connection conn = getConnection(txn);
 
         try
         {
-            final PreparedStatement pst = conn.prepareStatement(sql);
+            final PreparedStatement pst = conn.prepareStatement(template.sql());
 
             setQueryTimeout(pst);
 
             // Columns values
-            int parameterIndex = 1;
-            for (final ElementInfo einfo : sinfo.elements())
-            {
-                if (!einfo.virtual()
-                        && (!einfo.metadata() || (einfo.metadata() && EntityUtils.value(bean, einfo.name()) != null)))
-                {
-                    final Object value = EntityUtils.value(bean, einfo.name());
-                    if (value == null)
-                    {
-                        pst.setObject(parameterIndex++, value);
-                    }
-                    else if (value instanceof TimeUnit)
-                    {
-                        final String unit = EntityUtils.parseTimeUnit((TimeUnit) value);
-                        pst.setObject(parameterIndex++, unit);
-                    }
-                    else if (value instanceof Enum<?>)
-                    {
-                        pst.setObject(parameterIndex++, value.toString());
-                    }
-                    else if (value instanceof Date && einfo.dataType() == DataType.DATE)
-                    {
-                        final Timestamp ts = new Timestamp(((Date) value).getTime());
-                        pst.setTimestamp(parameterIndex++, ts);
-                    }
-                    else if (value instanceof Date && einfo.dataType() == DataType.LONG)
-                    {
-                        final Long tmp = ((Date) value).getTime();
-                        pst.setLong(parameterIndex++, tmp);
-                    }
-                    else
-                        pst.setObject(parameterIndex++, value);
-                }
-            }
+            int parameterIndex = setParameters(pst, template, sinfo, bean);
 
             // Where columns values
             for (int i = 0; i < keys.length; i++)
@@ -1055,74 +999,19 @@ public class JdbcDataSourceImpl extends AbstractDataSource
 
         StorableInfo sinfo = EntityUtils.info(type);
 
-        final String tableName = parseTableName(DEFAULT_TARGET_NAME, sinfo);
-
-        String setColumns = "";
-        for (final ElementInfo einfo : sinfo.elements())
-        {
-            if (!einfo.virtual()
-                    && (!einfo.metadata() || (einfo.metadata() && EntityUtils.value(bean, einfo.name()) != null)))
-            {
-                if (StringValidations.isValid(setColumns))
-                    setColumns = setColumns + ", ";
-                setColumns = setColumns + parseColumnName(einfo) + "=?";
-            }
-        }
-
-        String where = "";
-        for (final ElementInfo einfo : sinfo.alternateKey(name))
-        {
-            if (StringValidations.isValid(where))
-                where += " AND ";
-            where = where + parseColumnName(einfo) + "=?";
-        }
-
-        // FIXME sql statement string should be cached
-        final String sql = String.format(SQL_UPDATE, tableName, setColumns, where);
+        final SqlTemplate template = updateTemplate(sinfo, Operation.UPDATE_A, name, sinfo.alternateKey(name), bean,
+                false);
 
         Connection conn = getConnection(txn);
 
         try
         {
-            PreparedStatement pst = conn.prepareStatement(sql);
+            PreparedStatement pst = conn.prepareStatement(template.sql());
 
             setQueryTimeout(pst);
 
             // Columns values
-            int parameterIndex = 1;
-            for (final ElementInfo einfo : sinfo.elements())
-            {
-                if (!einfo.virtual()
-                        && (!einfo.metadata() || (einfo.metadata() && EntityUtils.value(bean, einfo.name()) != null)))
-                {
-                    final Object value = EntityUtils.value(bean, einfo.name());
-                    if (value == null)
-                    {
-                        pst.setObject(parameterIndex++, value);
-                    }
-                    else if (value instanceof TimeUnit)
-                    {
-                        final String unit = EntityUtils.parseTimeUnit((TimeUnit) value);
-                        pst.setObject(parameterIndex++, unit);
-                    }
-                    else if (value instanceof Enum<?>)
-                    {
-                        pst.setObject(parameterIndex++, value.toString());
-                    }
-                    else if (value instanceof Date && einfo.dataType() == DataType.DATE)
-                    {
-                        final Timestamp ts = new Timestamp(((Date) value).getTime());
-                        pst.setTimestamp(parameterIndex++, ts);
-                    }
-                    else if (value instanceof Date && einfo.dataType() == DataType.LONG)
-                    {
-                        final Long tmp = ((Date) value).getTime();
-                        pst.setLong(parameterIndex++, tmp);
-                    }
-                    else
-                        pst.setObject(parameterIndex++, value);
-                }
-            }
+            int parameterIndex = setParameters(pst, template, sinfo, bean);
 
             // Where column value
             for (int i = 0; i < keys.length; i++)
@@ -1211,66 +1100,19 @@ public class JdbcDataSourceImpl extends AbstractDataSource
 
         final StorableInfo sinfo = EntityUtils.info(type);
 
-        final String tableName = parseTableName(DEFAULT_TARGET_NAME, sinfo);
-
-        String setColumns = "";
-        for (final ElementInfo einfo : sinfo.elements())
-        {
-            if (!einfo.virtual() && EntityUtils.value(bean, einfo.name()) != null)
-            {
-                if (StringValidations.isValid(setColumns))
-                    setColumns = setColumns + ", ";
-                setColumns = setColumns + parseColumnName(einfo) + "=?";
-            }
-        }
-
-        final String where = parseColumnName(sinfo.surrogateKey()) + "=?";
-
-        // FIXME sql statement string should be cached
-        final String sql = String.format(SQL_UPDATE, tableName, setColumns, where);
+        final SqlTemplate template = updateTemplate(sinfo, Operation.PATCH_I, null,
+                Collections.singletonList(sinfo.surrogateKey()), bean, true);
 
         final Connection conn = getConnection(txn);
 
         try
         {
-            final PreparedStatement pst = conn.prepareStatement(sql);
+            final PreparedStatement pst = conn.prepareStatement(template.sql());
 
             setQueryTimeout(pst);
 
             // Columns values
-            int parameterIndex = 1;
-            for (final ElementInfo einfo : sinfo.elements())
-            {
-                if (!einfo.virtual())
-                {
-                    final Object value = EntityUtils.value(bean, einfo.name());
-                    if (value == null)
-                    {
-                        // do nothing (patch behavior)
-                    }
-                    else if (value instanceof TimeUnit)
-                    {
-                        final String unit = EntityUtils.parseTimeUnit((TimeUnit) value);
-                        pst.setObject(parameterIndex++, unit);
-                    }
-                    else if (value instanceof Enum<?>)
-                    {
-                        pst.setObject(parameterIndex++, value.toString());
-                    }
-                    else if (value instanceof Date && einfo.dataType() == DataType.DATE)
-                    {
-                        final Timestamp ts = new Timestamp(((Date) value).getTime());
-                        pst.setTimestamp(parameterIndex++, ts);
-                    }
-                    else if (value instanceof Date && einfo.dataType() == DataType.LONG)
-                    {
-                        final Long tmp = ((Date) value).getTime();
-                        pst.setLong(parameterIndex++, tmp);
-                    }
-                    else
-                        pst.setObject(parameterIndex++, value);
-                }
-            }
+            int parameterIndex = setParameters(pst, template, sinfo, bean);
 
             // Where column value
             pst.setObject(parameterIndex++, id);
@@ -1350,72 +1192,18 @@ public class JdbcDataSourceImpl extends AbstractDataSource
 
         final StorableInfo sinfo = EntityUtils.info(type);
 
-        final String tableName = parseTableName(DEFAULT_TARGET_NAME, sinfo);
-
-        String setColumns = "";
-        for (final ElementInfo einfo : sinfo.elements())
-        {
-            if (!einfo.virtual() && EntityUtils.value(bean, einfo.name()) != null)
-            {
-                if (StringValidations.isValid(setColumns))
-                    setColumns = setColumns + ", ";
-                setColumns = setColumns + parseColumnName(einfo) + "=?";
-            }
-        }
-
-        String where = "";
-        for (final ElementInfo einfo : sinfo.primaryKey())
-        {
-            if (StringValidations.isValid(where))
-                where += " AND ";
-            where = where + parseColumnName(einfo) + "=?";
-        }
-
-        // FIXME sql statement string should be cached
-        final String sql = String.format(SQL_UPDATE, tableName, setColumns, where);
+        final SqlTemplate template = updateTemplate(sinfo, Operation.PATCH_P, null, sinfo.primaryKey(), bean, true);
 
         final Connection conn = getConnection(txn);
 
         try
         {
-            final PreparedStatement pst = conn.prepareStatement(sql);
+            final PreparedStatement pst = conn.prepareStatement(template.sql());
 
             setQueryTimeout(pst);
 
             // Columns values
-            int parameterIndex = 1;
-            for (final ElementInfo einfo : sinfo.elements())
-            {
-                if (!einfo.virtual())
-                {
-                    final Object value = EntityUtils.value(bean, einfo.name());
-                    if (value == null)
-                    {
-                        // do nothing (patch behavior)
-                    }
-                    else if (value instanceof TimeUnit)
-                    {
-                        final String unit = EntityUtils.parseTimeUnit((TimeUnit) value);
-                        pst.setObject(parameterIndex++, unit);
-                    }
-                    else if (value instanceof Enum<?>)
-                    {
-                        pst.setObject(parameterIndex++, value.toString());
-                    }
-                    else if (value instanceof Date && einfo.dataType() == DataType.DATE)
-                    {
-                        final Timestamp ts = new Timestamp(((Date) value).getTime());
-                        pst.setTimestamp(parameterIndex++, ts);
-                    }
-                    else if (value instanceof Date && einfo.dataType() == DataType.LONG)
-                    {
-                        final Long tmp = ((Date) value).getTime();
-                        pst.setLong(parameterIndex++, tmp);
-                    }
-                    else
-                        pst.setObject(parameterIndex++, value);
-                }
-            }
+            int parameterIndex = setParameters(pst, template, sinfo, bean);
 
             // Where columns values
             for (int i = 0; i < keys.length; i++)
@@ -1513,6 +1301,28 @@ public class JdbcDataSourceImpl extends AbstractDataSource
         return super.patchA(txn, cache, bean, ttl, unit, name, keys);
     }
 
+    @Override
+    public <T> List<T> update(final Transaction txn, final Cache cache, final List<T> beans)
+            throws UnsupportedOperationException, IllegalStateException, IllegalArgumentException, TransactionException,
+            NotFoundException, KeyViolationException, DataConstraintViolationException, OperationTimeoutException,
+            NotEnoughResourceException, DataProviderException
+    {
+        updateBatch(txn, cache, beans, false);
+
+        return beans;
+    }
+
+    @Override
+    public <T> List<T> patch(final Transaction txn, final Cache cache, final List<T> beans)
+            throws UnsupportedOperationException, IllegalStateException, IllegalArgumentException, TransactionException,
+            NotFoundException, KeyViolationException, DataConstraintViolationException, OperationTimeoutException,
+            NotEnoughResourceException, DataProviderException
+    {
+        updateBatch(txn, cache, beans, true);
+
+        return beans;
+    }
+
     @Override
     public void touchI(final Transaction txn, final Cache cache, final Class<?> type, final Object id)
             throws UnsupportedOperationException, IllegalStateException, IllegalArgumentException, TransactionException,
@@ -1582,18 +1392,15 @@ public class JdbcDataSourceImpl extends AbstractDataSource
     {
         final StorableInfo sinfo = EntityUtils.info(type);
 
-        final String tableName = parseTableName(DEFAULT_TARGET_NAME, sinfo);
-
-        final String where = parseColumnName(sinfo.surrogateKey()) + "=?";
-
-        // FIXME sql statement string should be cached
-        final String sql = String.format(SQL_DELETE, tableName, where);
+        final SqlTemplate template = templates.get(type, Operation.DELETE_I, dialect, null, null,
+                () -> new SqlTemplate(String.format(SQL_DELETE, parseTableName(DEFAULT_TARGET_NAME, sinfo),
+                        parseKeyWhere(Collections.singletonList(sinfo.surrogateKey())))));
 
         final Connection conn = getConnection(txn);
 
         try
         {
-            final PreparedStatement pst = conn.prepareStatement(sql);
+            final PreparedStatement pst = conn.prepareStatement(template.sql());
 
             setQueryTimeout(pst);
 
@@ -1757,6 +1564,36 @@ public class JdbcDataSourceImpl extends AbstractDataSource
         }
     }
 
+    @Override
+    public void deleteI(final Transaction txn, final Cache cache, final Class<?> type, final Object... ids)
+            throws UnsupportedOperationException, IllegalStateException, IllegalArgumentException, TransactionException,
+            NotFoundException, KeyViolationException, DataConstraintViolationException, OperationTimeoutException,
+            NotEnoughResourceException, DataProviderException
+    {
+        final StorableInfo sinfo = EntityUtils.info(type);
+
+        final List<Object[]> values = new ArrayList<Object[]>(ids.length);
+        for (final Object id : ids)
+            values.add(new Object[] { id });
+
+        deleteBatch(txn, cache, sinfo, values);
+    }
+
+    @Override
+    public <T> void delete(final Transaction txn, final Cache cache, final List<T> beans)
+            throws UnsupportedOperationException, IllegalStateException, IllegalArgumentException, TransactionException,
+            NotFoundException, KeyViolationException, DataConstraintViolationException, OperationTimeoutException,
+            NotEnoughResourceException, DataProviderException
+    {
+        final StorableInfo sinfo = EntityUtils.info(beans.get(0).getClass());
+
+        final List<Object[]> values = new ArrayList<Object[]>(beans.size());
+        for (final T bean : beans)
+            values.add(keyValues(sinfo, bean));
+
+        deleteBatch(txn, cache, sinfo, values);
+    }
+
     @Override
     public <T> T removeI(final Transaction txn, final Cache cache, final Class<T> type, final Object id)
             throws UnsupportedOperationException, IllegalStateException, IllegalArgumentException, TransactionException,
@@ -1794,14 +1631,11 @@ public class JdbcDataSourceImpl extends AbstractDataSource
     {
         final StorableInfo sinfo = EntityUtils.info(type);
 
-        final String tableName = parseTableName(DEFAULT_TARGET_NAME, sinfo);
-
-        final String orderBy = parseColumnName(sinfo.surrogateKey());
-
-        // FIXME sql statement string should be cached
-        final String sql = String.format(SQL_SELECT_ALL, tableName, orderBy);
+        final SqlTemplate template = templates.get(type, Operation.SELECT_ALL, dialect, null, null,
+                () -> new SqlTemplate(String.format(SQL_SELECT_ALL, parseTableName(DEFAULT_TARGET_NAME, sinfo),
+                        parseColumnName(sinfo.surrogateKey()))));
 
-        return openCursor(txn, cache, type, sql);
+        return openCursor(txn, cache, type, template.sql());
     }
 
     @Override
@@ -1848,7 +1682,7 @@ public class JdbcDataSourceImpl extends AbstractDataSource
                 values.add(value);
         }
 
-        return openCursor(txn, cache, type, sql, values);
+        return openCursor(txn, cache, type, sql, values, scrollMode);
     }
 
     @Override
@@ -1858,20 +1692,14 @@ public class JdbcDataSourceImpl extends AbstractDataSource
     {
         checkDialectSupport(DERBY, MYSQL, ORACLE, POSTGRESQL);
 
-        final StorableInfo sinfo = EntityUtils.info(type);
-
-        final String tableName = parseTableName(DEFAULT_TARGET_NAME, sinfo);
-
-        final String where = parseQueryWhere(type, query);
+        final SqlTemplate template = queryTemplate(type, query, false);
 
-        final String limit = parseQueryLimit(query);
+        final List<Object> values = parseQueryValues(template, query);
 
-        final String order = parseQueryOrder(type, query);
+        values.addAll(parseQueryLimitValues(query));
 
-        // FIXME sql statement string should be cached
-        final String sql = parseQuerySelect("SELECT * FROM " + tableName, where, order, limit);
-
-        return openCursor(txn, cache, type, sql);
+        return openCursor(txn, cache, type, template.sql(), values,
+                query.scrollMode() == null ? scrollMode : query.scrollMode());
     }
 
     @Override
@@ -1898,14 +1726,12 @@ public class JdbcDataSourceImpl extends AbstractDataSource
             throws UnsupportedOperationException, IllegalStateException, IllegalArgumentException, TransactionException,
             OperationTimeoutException, NotEnoughResourceException, DataProviderException
     {
-        StorableInfo sinfo = EntityUtils.info(type);
-
-        final String tableName = parseTableName(DEFAULT_TARGET_NAME, sinfo);
+        final StorableInfo sinfo = EntityUtils.info(type);
 
-        // FIXME sql statement string should be cached
-        final String sql = String.format(SQL_SELECT_COUNT, tableName);
+        final SqlTemplate template = templates.get(type, Operation.COUNT, dialect, null, null,
+                () -> new SqlTemplate(String.format(SQL_SELECT_COUNT, parseTableName(DEFAULT_TARGET_NAME, sinfo))));
 
-        return count(txn, sql);
+        return count(txn, template.sql(), Collections.emptyList());
     }
 
     @Override
@@ -1924,19 +1750,12 @@ public class JdbcDataSourceImpl extends AbstractDataSource
     {
         checkDialectSupport(DERBY, MYSQL, ORACLE, POSTGRESQL);
 
-        final StorableInfo sinfo = EntityUtils.info(type);
-
-        final String tableName = parseTableName(DEFAULT_TARGET_NAME, sinfo);
-
-        final String where = parseQueryWhere(type, query);
-
-        // FIXME sql statement string should be cached
-        final String sql = String.format(SQL_SELECT_COUNT + " %s ", tableName, where);
+        final SqlTemplate template = queryTemplate(type, query, true);
 
-        return count(txn, sql);
+        return count(txn, template.sql(), parseQueryValues(template, query));
     }
 
-    private long count(final Transaction txn, final String sql)
+    private long count(final Transaction txn, final String sql, final List<Object> values)
     {
         long count = -1;
 
@@ -1948,6 +1767,8 @@ public class JdbcDataSourceImpl extends AbstractDataSource
 
             setQueryTimeout(pst);
 
+            setParameters(pst, values);
+
             final ResultSet rs = pst.executeQuery();
 
             if (rs.next())
@@ -2178,7 +1999,7 @@ public class JdbcDataSourceImpl extends AbstractDataSource
             for (final ElementInfo einfo : sinfo.nonVirtualElements())
             {
                 final String name = einfo.firstAliasForTarget(DEFAULT_TARGET_NAME);
-                final Object value = EntityUtils.value(bean, einfo.name());
+                final Object value = sinfo.accessor().get(bean, einfo);
                 if (value != null)
                 {
                     if (result.containsKey(name))
@@ -2221,203 +2042,1108 @@ public class JdbcDataSourceImpl extends AbstractDataSource
     // }
 
     /**
-     * Parses the column name for the given {@link ElementInfo}.
-     * <p>
-     * It will try for the target alias first and if not present it will use the element name as the
-     * column name.
+     * Parses the where statement for the given key elements.
      * 
-     * @param einfo
-     *            the {@link ElementInfo}
+     * @param keys
+     *            the key elements
      * 
-     * @return the column name
+     * @return the where statement with value place holders
      */
-    private String parseColumnName(final ElementInfo einfo)
+    private String parseKeyWhere(final List<ElementInfo> keys)
     {
-        String columnName = einfo.firstAliasForTarget(DEFAULT_TARGET_NAME);
+        final StringBuilder where = new StringBuilder();
 
-        if (columnName == null)
-            return columnName = einfo.name();
+        for (final ElementInfo einfo : keys)
+        {
+            if (where.length() > 0)
+                where.append(" AND ");
+            where.append(parseColumnName(einfo)).append("=?");
+        }
 
-        return columnName.toUpperCase();
+        return where.toString();
     }
 
     /**
+     * Returns the insert statement template for the bean type.
      * 
-     * @param type
-     * @param query
-     * @return
+     * @param sinfo
+     *            the bean storable info object
+     * 
+     * @return the statement template
      */
-    private String parseQueryWhere(final Class<?> type, final Query query)
+    private SqlTemplate insertTemplate(final StorableInfo sinfo)
     {
-        if (!query.hasWhere())
-            return null;
-
-        String where = " WHERE ";
-        ElementInfo einfo;
-
-        for (Expression exp : query.where())
+        return templates.get(sinfo.type(), Operation.INSERT, dialect, null, null, () ->
         {
-            switch (exp.type())
+            final List<ElementInfo> columns = new ArrayList<ElementInfo>();
+            final StringBuilder names = new StringBuilder();
+            final StringBuilder placeholders = new StringBuilder();
+
+            for (final ElementInfo einfo : sinfo.elements())
             {
-            case EQUAL:
-                einfo = EntityUtils.info(type, exp.name());
-                where += String.format("%s%s%s", einfo.firstAliasForTarget(DEFAULT_TARGET_NAME), exp.not() ? "<>" : "=",
-                        toJdbcValue(einfo, exp.value()));
-                break;
-            case LESS:
-                einfo = EntityUtils.info(type, exp.name());
-                where += String.format("%s%s%s", einfo.firstAliasForTarget(DEFAULT_TARGET_NAME), exp.not() ? ">=" : "<",
-                        toJdbcValue(einfo, exp.value()));
-                break;
-            case LESS_EQUAL:
-                einfo = EntityUtils.info(type, exp.name());
-                where += String.format("%s%s%s", einfo.firstAliasForTarget(DEFAULT_TARGET_NAME), exp.not() ? ">" : "<=",
-                        toJdbcValue(einfo, exp.value()));
-                break;
-            case GREATER:
-                einfo = EntityUtils.info(type, exp.name());
-                where += String.format("%s%s%s", einfo.firstAliasForTarget(DEFAULT_TARGET_NAME), exp.not() ? "<=" : ">",
-                        toJdbcValue(einfo, exp.value()));
-                break;
-            case GREATER_EQUAL:
-                einfo = EntityUtils.info(type, exp.name());
-                where += String.format("%s%s%s", einfo.firstAliasForTarget(DEFAULT_TARGET_NAME), exp.not() ? "<" : ">=",
-                        toJdbcValue(einfo, exp.value()));
-                break;
-            case IN:
-                einfo = EntityUtils.info(type, exp.name());
-                where += String.format("%s %s (%s)", einfo.firstAliasForTarget(DEFAULT_TARGET_NAME),
-                        exp.not() ? "NOT IN" : "IN", toJdbcValues(einfo, exp.values()));
-                break;
-            case BETWEEN:
-                einfo = EntityUtils.info(type, exp.name());
-                where += String.format("%s %s %s AND %s", einfo.firstAliasForTarget(DEFAULT_TARGET_NAME),
-                        exp.not() ? "NOT BETWEEN" : "BETWEEN", toJdbcValues(einfo, exp.begin()),
-                        toJdbcValues(einfo, exp.end()));
-                break;
-            case IS_NULL:
-                einfo = EntityUtils.info(type, exp.name());
-                where += String.format("%s %s", einfo.firstAliasForTarget(DEFAULT_TARGET_NAME),
-                        exp.not() ? "IS NOT NULL" : "IS NULL");
-                break;
-            case IS_NOT_NULL:
-                einfo = EntityUtils.info(type, exp.name());
-                where += String.format("%s %s", einfo.firstAliasForTarget(DEFAULT_TARGET_NAME),
-                        exp.not() ? "IS NULL" : "IS NOT NULL");
-                break;
-            case AND:
-                where += " AND ";
-                break;
-            case OR:
-                where += " OR ";
-                break;
-            case OPEN_PARENTHESIS:
-                where += "(";
-                break;
-            case CLOSE_PARENTHESIS:
-                where += ")";
-                break;
-            default:
-                break;
+                if (!einfo.virtual())
+                {
+                    if (!columns.isEmpty())
+                    {
+                        names.append(',');
+                        placeholders.append(',');
+                    }
+                    names.append(parseColumnName(einfo));
+                    placeholders.append('?');
+                    columns.add(einfo);
+                }
             }
-        }
 
-        return where;
+            return new SqlTemplate(
+                    String.format(SQL_INSERT, parseTableName(DEFAULT_TARGET_NAME, sinfo), names, placeholders),
+                    columns);
+        });
     }
 
-    private String toJdbcValue(final ElementInfo einfo, final Object value)
+    /**
+     * Returns the native upsert statement template for the bean type.
+     * <p>
+     * The binding plan follows the statement placeholders: all the columns for the insert forms;
+     * the key columns, the non key columns and then all the columns for <tt>MERGE</tt>.
+     * <p>
+     * As with updates, a metadata element with no value keeps the stored value of an existing row.
+     * Types whose columns are all keys have nothing to update so an existing row is left as is.
+     * 
+     * @param sinfo
+     *            the bean storable info object
+     * 
+     * @return the statement template or <tt>null</tt> if the dialect has no native upsert
+     */
+    private SqlTemplate upsertTemplate(final StorableInfo sinfo)
     {
-        if (value == null)
-            return "null";
+        if (dialect != POSTGRESQL && dialect != MYSQL && dialect != DB2 && dialect != DERBY && dialect != ORACLE)
+            return null;
 
-        switch (einfo.dataType())
+        return templates.get(sinfo.type(), Operation.UPSERT, dialect, null, null, () ->
         {
-        case BOOLEAN:
-            if (value instanceof Boolean)
-                return (Boolean) value ? "true" : "false";
-            else if (value instanceof Integer)
-                return ((Integer) value == 1) ? "1" : "0";
-            else if (value instanceof Long)
-                return ((Long) value == 1) ? "1" : "0";
-            else if (value instanceof String)
-                return "" + Boolean.parseBoolean((String) value);
-            else
-                return value.toString();
-        case BYTE:
-        case BYTES:
-        case LONG:
-        case SHORT:
-        case INT:
-        case FLOAT:
-        case DOUBLE:
-        case ID:
-        case REF:
-        case TUPLE:
-            return value.toString();
-        case CHAR:
-        case STRING:
-        case ENUM:
-            return "'" + value.toString() + "'";
-        case DATE:
-            if (dialect == POSTGRESQL)
-            {
-                if (value instanceof Date)
-                    // PostgreSQL to_timestamp has only seconds resolution
-                    return "to_timestamp(" + ((Date) value).getTime() / 1000 + ")";
-                else if (value instanceof Long)
-                    // PostgreSQL to_timestamp has only seconds resolution
-                    return "to_timestamp(" + ((Long) value) / 1000 + ")";
+            final List<ElementInfo> keys = keyElements(sinfo);
+            final List<ElementInfo> columns = new ArrayList<ElementInfo>();
+            final List<ElementInfo> values = new ArrayList<ElementInfo>();
+            final StringBuilder names = new StringBuilder();
+            final StringBuilder placeholders = new StringBuilder();
+            final StringBuilder keyNames = new StringBuilder();
+            final StringBuilder setColumns = new StringBuilder();
+            final String tableName = parseTableName(DEFAULT_TARGET_NAME, sinfo);
+
+            for (final ElementInfo einfo : sinfo.elements())
+            {
+                if (einfo.virtual())
+                    continue;
+
+                if (!columns.isEmpty())
+                {
+                    names.append(',');
+                    placeholders.append(',');
+                }
+                names.append(parseColumnName(einfo));
+                placeholders.append('?');
+                columns.add(einfo);
+
+                if (keys.contains(einfo))
+                    continue;
+
+                final String column = parseColumnName(einfo);
+                final String value = dialect == POSTGRESQL ? "EXCLUDED." + column
+                        : dialect == MYSQL ? "VALUES(" + column + ")" : "?";
+                final String stored = dialect == POSTGRESQL ? tableName + "." + column : column;
+
+                if (!values.isEmpty())
+                    setColumns.append(", ");
+                setColumns.append(column).append('=');
+                if (einfo.metadata())
+                    setColumns.append("COALESCE(").append(value).append(", ").append(stored).append(')');
                 else
-                    return "{d '" + value.toString() + "'}";
+                    setColumns.append(value);
+                values.add(einfo);
             }
-            else
-                return "{d '" + value.toString() + "'}";
-        case TIME:
-            return "{t '" + value.toString() + "'}";
-        case TIMESTAMP:
-            return "{ts '" + value.toString() + "'}";
-        case LIST:
-        case UNKNOWN:
-            return value.toString();
-        default:
-            return value.toString();
-        }
-    }
 
-    private String toJdbcValues(final ElementInfo einfo, final Object... values)
-    {
-        String result = null;
-        for (final Object value : values)
-        {
-            final String tmp = toJdbcValue(einfo, value);
-            result = result == null ? tmp : result + ", " + tmp;
-        }
-        return result;
-    }
+            for (final ElementInfo einfo : keys)
+            {
+                if (keyNames.length() > 0)
+                    keyNames.append(',');
+                keyNames.append(parseColumnName(einfo));
+            }
 
-    private String parseQueryLimit(final Query query)
-    {
-        if (!query.hasLimit())
-            return null;
+            final String insert = String.format(SQL_INSERT, tableName, names, placeholders);
 
-        String limit = null;
+            if (dialect == POSTGRESQL && values.isEmpty())
+                return new SqlTemplate(String.format(SQL_UPSERT_ON_CONFLICT_NOTHING, insert, keyNames), columns);
+            else if (dialect == POSTGRESQL)
+                return new SqlTemplate(String.format(SQL_UPSERT_ON_CONFLICT, insert, keyNames, setColumns), columns);
+
+            if (dialect == MYSQL && values.isEmpty())
+            {
+                // A no-op assignment; INSERT IGNORE would also turn errors other than the key clash into warnings
+                final String column = parseColumnName(keys.get(0));
+                setColumns.append(column).append('=').append(column);
+            }
+
+            if (dialect == MYSQL)
+                return new SqlTemplate(String.format(SQL_UPSERT_ON_DUPLICATE_KEY, insert, setColumns), columns);
+
+            final List<ElementInfo> binding = new ArrayList<ElementInfo>(keys);
+            binding.addAll(values);
+            binding.addAll(columns);
+
+            final String dual = dialect == ORACLE ? "DUAL" : "SYSIBM.SYSDUMMY1";
+
+            if (values.isEmpty())
+                return new SqlTemplate(String.format(SQL_MERGE_INSERT, tableName, dual, parseKeyWhere(keys), names,
+                        placeholders), binding);
+
+            return new SqlTemplate(String.format(SQL_MERGE, tableName, dual, parseKeyWhere(keys), setColumns, names,
+                    placeholders), binding);
+        });
+    }
+
+    /**
+     * Returns the select by key statement template for the bean type.
+     * 
+     * @param sinfo
+     *            the bean storable info object
+     * @param operation
+     *            the select operation
+     * @param name
+     *            the alternate key name or <tt>null</tt>
+     * @param keys
+     *            the key elements
+     * 
+     * @return the statement template
+     */
+    private SqlTemplate selectTemplate(final StorableInfo sinfo, final Operation operation, final String name,
+            final List<ElementInfo> keys)
+    {
+        return templates.get(sinfo.type(), operation, dialect, name, null, () -> new SqlTemplate(
+                String.format(SQL_SELECT_ONE, parseTableName(DEFAULT_TARGET_NAME, sinfo), parseKeyWhere(keys))));
+    }
+
+    /**
+     * Returns the select by surrogate key list statement template for the bean type.
+     * 
+     * @param sinfo
+     *            the bean storable info object
+     * @param size
+     *            the number of values in the <tt>IN</tt> list
+     * 
+     * @return the statement template
+     */
+    private SqlTemplate inTemplate(final StorableInfo sinfo, final int size)
+    {
+        return templates.get(sinfo.type(), Operation.SELECT_IN, dialect, size, null, () ->
+        {
+            final StringBuilder placeholders = new StringBuilder(size * 2);
+
+            for (int i = 0; i < size; i++)
+                placeholders.append(i == 0 ? "?" : ",?");
+
+            return new SqlTemplate(String.format(SQL_SELECT_IN, parseTableName(DEFAULT_TARGET_NAME, sinfo),
+                    parseColumnName(sinfo.surrogateKey()), placeholders));
+        });
+    }
+
+    /**
+     * Rounds the <tt>IN</tt> list size up to the next power of two, bounded by the limit, so a few
+     * statement templates serve every list size. Lists already past the limit keep their size.
+     * 
+     * @param size
+     *            the number of values
+     * @param limit
+     *            the dialect <tt>IN</tt> list limit
+     * 
+     * @return the padded list size
+     */
+    static int inListSize(final int size, final int limit)
+    {
+        final int padded = Integer.highestOneBit(size) == size ? size : Integer.highestOneBit(size) << 1;
+
+        return Math.max(size, Math.min(padded, limit));
+    }
+
+    /**
+     * Creates or updates the beans.
+     * <p>
+     * Dialects with a native upsert run one statement per bean, batched: PostgreSQL
+     * <tt>ON CONFLICT</tt>, MySQL <tt>ON DUPLICATE KEY UPDATE</tt> and DB2, Derby and Oracle
+     * <tt>MERGE</tt>. Other dialects update first and insert the beans the update did not match, on
+     * the same connection. The cache is refreshed with the saved beans.
+     * 
+     * @param txn
+     *            the current transaction or <tt>null</tt>
+     * @param cache
+     *            the bean type cache
+     * @param beans
+     *            the beans to save
+     * @param ttl
+     *            the cache time to live; zero for the cache default
+     * @param unit
+     *            the time to live unit
+     * 
+     * @throws IllegalArgumentException
+     *             if the bean type has neither surrogate nor primary key
+     */
+    private <T> void upsert(final Transaction txn, final Cache cache, final List<T> beans, final long ttl,
+            final TimeUnit unit) throws IllegalArgumentException, KeyViolationException,
+            DataConstraintViolationException, OperationTimeoutException, DataProviderException
+    {
+        final StorableInfo sinfo = EntityUtils.info(beans.get(0).getClass());
+
+        if (keyElements(sinfo).isEmpty())
+            throw new IllegalArgumentException("Cannot save a bean type with neither surrogate nor primary key");
+
+        final SqlTemplate template = upsertTemplate(sinfo);
+
+        final Connection conn = getConnection(txn);
+
+        try
+        {
+            if (template == null)
+            {
+                updateOrInsert(conn, sinfo, beans);
+            }
+            else
+            {
+                final PreparedStatement pst = conn.prepareStatement(template.sql());
+
+                setQueryTimeout(pst);
+
+                for (final T bean : beans)
+                {
+                    setParameters(pst, template, sinfo, bean);
+                    pst.addBatch();
+                }
+
+                pst.executeBatch();
+
+                pst.close();
+            }
+
+            commit(txn, conn);
+        }
+        catch (final SQLTimeoutException sqle)
+        {
+            String msg = "The currently executing 'save' operation is timed out";
+            try
+            {
+                rollback(txn, conn);
+            }
+            catch (final SQLException e)
+            {
+                msg = msg + " and could not roll back the transaction; there can be inconsistencies";
+                sqle.setNextException(e);
+            }
+            throw new OperationTimeoutException(msg, sqle);
+        }
+        catch (final SQLException sqle)
+        {
+            String msg = sqle.getSQLState().startsWith("23") ? MESSAGE_KEY_VIOLATION
+                    : "Could not execute the database statement";
+            try
+            {
+                rollback(txn, conn);
+            }
+            catch (final SQLException e)
+            {
+                msg = msg + " and could not roll back the transaction; there can be inconsistencies";
+                sqle.setNextException(e);
+            }
+
+            if (sqle.getSQLState().equals("23502")) // NOT NULL FAIL
+                throw new DataConstraintViolationException(msg, sqle);
+            else if (sqle.getSQLState().startsWith("23"))
+                throw new KeyViolationException(msg, sqle);
+            else
+                throw new DataProviderException(msg, sqle);
+        }
+        finally
+        {
+            close(txn, conn);
+        }
+
+        /* Refreshes the cache in place */
+        for (final T bean : beans)
+        {
+            if (transactionInProgress(txn))
+                cache.delete(bean); // Not committed yet
+            else if (ttl > 0)
+                cache.set(bean, ttl, unit);
+            else
+                cache.set(bean);
+        }
+    }
+
+    /**
+     * Saves the beans on dialects with no native upsert: updates each bean and batch inserts the
+     * ones the update did not match.
+     * 
+     * @param conn
+     *            the connection
+     * @param sinfo
+     *            the bean storable info object
+     * @param beans
+     *            the beans to save
+     * 
+     * @throws SQLException
+     *             if any statement fails
+     */
+    private <T> void updateOrInsert(final Connection conn, final StorableInfo sinfo, final List<T> beans)
+            throws SQLException
+    {
+        final List<ElementInfo> keys = keyElements(sinfo);
+        final Operation operation = sinfo.surrogateKey() == null ? Operation.UPDATE_P : Operation.UPDATE_I;
+
+        final List<T> missing = new ArrayList<T>();
+
+        for (final T bean : beans)
+        {
+            final SqlTemplate template = updateTemplate(sinfo, operation, null, keys, bean, false);
+
+            final PreparedStatement pst = conn.prepareStatement(template.sql());
+
+            setQueryTimeout(pst);
+
+            // Columns values
+            int parameterIndex = setParameters(pst, template, sinfo, bean);
+
+            // Where columns values
+            for (final ElementInfo einfo : keys)
+                setParameter(pst, parameterIndex++, einfo, sinfo.accessor().get(bean, einfo));
+
+            if (pst.executeUpdate() == 0)
+                missing.add(bean);
+
+            pst.close();
+        }
+
+        if (missing.isEmpty())
+            return;
+
+        final SqlTemplate template = insertTemplate(sinfo);
+
+        final PreparedStatement pst = conn.prepareStatement(template.sql());
+
+        setQueryTimeout(pst);
+
+        for (final T bean : missing)
+        {
+            setParameters(pst, template, sinfo, bean);
+            pst.addBatch();
+        }
+
+        pst.executeBatch();
+
+        pst.close();
+    }
+
+    /**
+     * Updates or patches the beans with JDBC batching.
+     * <p>
+     * Beans sharing the same statement (for patches, the same set of non null columns) go in the
+     * same batch and all the batches are committed at once. The cache is cleared bean by bean
+     * afterwards.
+     * 
+     * @param txn
+     *            the current transaction or <tt>null</tt>
+     * @param cache
+     *            the bean type cache
+     * @param beans
+     *            the beans to update
+     * @param patch
+     *            <tt>true</tt> for patch behavior; <tt>false</tt> otherwise
+     * 
+     * @throws NotFoundException
+     *             if any bean key did not match a row
+     */
+    private <T> void updateBatch(final Transaction txn, final Cache cache, final List<T> beans, final boolean patch)
+            throws NotFoundException, KeyViolationException, DataConstraintViolationException,
+            OperationTimeoutException, DataProviderException
+    {
+        final StorableInfo sinfo = EntityUtils.info(beans.get(0).getClass());
+
+        final List<ElementInfo> keys = keyElements(sinfo);
+        final Operation operation = sinfo.surrogateKey() == null ? (patch ? Operation.PATCH_P : Operation.UPDATE_P)
+                : (patch ? Operation.PATCH_I : Operation.UPDATE_I);
+
+        final Map<SqlTemplate, List<T>> batches = new LinkedHashMap<SqlTemplate, List<T>>();
+        for (final T bean : beans)
+            batches.computeIfAbsent(updateTemplate(sinfo, operation, null, keys, bean, patch),
+                    t -> new ArrayList<T>()).add(bean);
+
+        final Connection conn = getConnection(txn);
+
+        try
+        {
+            for (final Map.Entry<SqlTemplate, List<T>> batch : batches.entrySet())
+            {
+                final PreparedStatement pst = conn.prepareStatement(batch.getKey().sql());
+
+                setQueryTimeout(pst);
+
+                for (final T bean : batch.getValue())
+                {
+                    // Columns values
+                    int parameterIndex = setParameters(pst, batch.getKey(), sinfo, bean);
+
+                    // Where columns values
+                    for (final ElementInfo einfo : keys)
+                        setParameter(pst, parameterIndex++, einfo, sinfo.accessor().get(bean, einfo));
+
+                    pst.addBatch();
+                }
+
+                final int[] affectedRows = pst.executeBatch();
+
+                pst.close();
+
+                if (!matchedAll(affectedRows))
+                {
+                    rollback(txn, conn);
+                    throw new NotFoundException("The keys did not match some of the beans");
+                }
+            }
+
+            commit(txn, conn);
+        }
+        catch (final SQLTimeoutException sqle)
+        {
+            String msg = "The currently executing '" + (patch ? "patch" : "update") + "' operation is timed out";
+            try
+            {
+                rollback(txn, conn);
+            }
+            catch (final SQLException e)
+            {
+                msg = msg + " and could not roll back the transaction; there can be inconsistencies";
+                sqle.setNextException(e);
+            }
+            throw new OperationTimeoutException(msg, sqle);
+        }
+        catch (final SQLException sqle)
+        {
+            String msg = sqle.getSQLState().startsWith("23") ? MESSAGE_KEY_VIOLATION
+                    : "Could not execute the database statement";
+            try
+            {
+                rollback(txn, conn);
+            }
+            catch (final SQLException e)
+            {
+                msg = msg + " and could not roll back the transaction; there can be inconsistencies";
+                sqle.setNextException(e);
+            }
+
+            if (sqle.getSQLState().equals("23502")) // NOT NULL FAIL
+                throw new DataConstraintViolationException(msg, sqle);
+            else if (sqle.getSQLState().startsWith("23"))
+                throw new KeyViolationException(msg, sqle);
+            else
+                throw new DataProviderException(msg, sqle);
+        }
+        finally
+        {
+            close(txn, conn);
+        }
+
+        /* Clears these (potentially dirty) beans from cache */
+        for (final T bean : beans)
+            invalidate(cache, sinfo, keyValues(sinfo, bean));
+    }
+
+    /**
+     * Deletes the beans matching the given key values with JDBC batching, committed at once.
+     * 
+     * @param txn
+     *            the current transaction or <tt>null</tt>
+     * @param cache
+     *            the bean type cache
+     * @param sinfo
+     *            the bean storable info object
+     * @param values
+     *            the key values of every bean, following {@link #keyElements(StorableInfo)}
+     * 
+     * @throws NotFoundException
+     *             if any key did not match a row
+     */
+    private void deleteBatch(final Transaction txn, final Cache cache, final StorableInfo sinfo,
+            final List<Object[]> values) throws NotFoundException, KeyViolationException, OperationTimeoutException,
+            DataProviderException
+    {
+        final List<ElementInfo> keys = keyElements(sinfo);
+
+        final SqlTemplate template = templates.get(sinfo.type(),
+                sinfo.surrogateKey() == null ? Operation.DELETE_P : Operation.DELETE_I, dialect, null, null,
+                () -> new SqlTemplate(String.format(SQL_DELETE, parseTableName(DEFAULT_TARGET_NAME, sinfo),
+                        parseKeyWhere(keys))));
+
+        final Connection conn = getConnection(txn);
+
+        try
+        {
+            final PreparedStatement pst = conn.prepareStatement(template.sql());
+
+            setQueryTimeout(pst);
+
+            for (final Object[] value : values)
+            {
+                // Where columns values
+                for (int i = 0; i < keys.size(); i++)
+                    setParameter(pst, i + 1, keys.get(i), value[i]);
+
+                pst.addBatch();
+            }
+
+            final int[] affectedRows = pst.executeBatch();
+
+            pst.close();
+
+            if (!matchedAll(affectedRows))
+            {
+                rollback(txn, conn);
+                throw new NotFoundException("The keys did not match some of the beans");
+            }
+
+            commit(txn, conn);
+        }
+        catch (final SQLTimeoutException sqle)
+        {
+            String msg = "The currently executing 'delete' operation is timed out";
+            try
+            {
+                rollback(txn, conn);
+            }
+            catch (final SQLException e)
+            {
+                msg = msg + " and could not roll back the transaction; there can be inconsistencies";
+                sqle.setNextException(e);
+            }
+            throw new OperationTimeoutException(msg, sqle);
+        }
+        catch (final SQLException sqle)
+        {
+            String msg = sqle.getSQLState().startsWith("23") ? MESSAGE_FOREIGN_KEY_VIOLATION
+                    : "Could not execute the database statement";
+            try
+            {
+                rollback(txn, conn);
+            }
+            catch (final SQLException e)
+            {
+                msg = msg + " and could not roll back the transaction; there can be inconsistencies";
+                sqle.setNextException(e);
+            }
+
+            if (sqle.getSQLState().startsWith("23"))
+                throw new KeyViolationException(msg, sqle);
+            else
+                throw new DataProviderException(msg, sqle);
+        }
+        finally
+        {
+            close(txn, conn);
+        }
+
+        /* Deletes from cache */
+        for (final Object[] value : values)
+            invalidate(cache, sinfo, value);
+    }
+
+    /**
+     * Returns the elements identifying a bean in the bulk operations: its surrogate key if the type
+     * has one; otherwise its primary key.
+     * 
+     * @param sinfo
+     *            the bean storable info object
+     * 
+     * @return the key elements
+     */
+    private static List<ElementInfo> keyElements(final StorableInfo sinfo)
+    {
+        return sinfo.surrogateKey() == null ? sinfo.primaryKey() : Collections.singletonList(sinfo.surrogateKey());
+    }
+
+    /**
+     * Returns the bean values for the {@link #keyElements(StorableInfo)}.
+     * 
+     * @param sinfo
+     *            the bean storable info object
+     * @param bean
+     *            the bean
+     * 
+     * @return the key values
+     */
+    private static Object[] keyValues(final StorableInfo sinfo, final Object bean)
+    {
+        final List<ElementInfo> keys = keyElements(sinfo);
+        final Object[] values = new Object[keys.size()];
+
+        for (int i = 0; i < values.length; i++)
+            values[i] = sinfo.accessor().get(bean, keys.get(i));
+
+        return values;
+    }
+
+    /**
+     * Removes the bean with the given {@link #keyElements(StorableInfo)} values from the cache.
+     * 
+     * @param cache
+     *            the bean type cache
+     * @param sinfo
+     *            the bean storable info object
+     * @param values
+     *            the key values
+     */
+    private static void invalidate(final Cache cache, final StorableInfo sinfo, final Object[] values)
+    {
+        if (sinfo.surrogateKey() == null)
+            cache.deleteP(values);
+        else
+            cache.deleteI(values[0]);
+    }
+
+    /**
+     * Checks that every statement of a batch affected at least one row.
+     * 
+     * @param affectedRows
+     *            the batch update counts
+     * 
+     * @return <tt>true</tt> if no statement missed its row; <tt>false</tt> otherwise
+     */
+    private static boolean matchedAll(final int[] affectedRows)
+    {
+        for (final int count : affectedRows)
+        {
+            if (count == 0)
+                return false; // SUCCESS_NO_INFO is negative and taken as a match
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns the update statement template for the bean type and its present columns.
+     * <p>
+     * Updates skip metadata elements with no value; patches skip every element with no value.
+     * 
+     * @param sinfo
+     *            the bean storable info object
+     * @param operation
+     *            the update operation
+     * @param name
+     *            the alternate key name or <tt>null</tt>
+     * @param keys
+     *            the key elements
+     * @param bean
+     *            the bean to update from
+     * @param patch
+     *            <tt>true</tt> for patch behavior; <tt>false</tt> otherwise
+     * 
+     * @return the statement template
+     */
+    private SqlTemplate updateTemplate(final StorableInfo sinfo, final Operation operation, final String name,
+            final List<ElementInfo> keys, final Object bean, final boolean patch)
+    {
+        final BitSet present = new BitSet(sinfo.elements().size());
+
+        for (final ElementInfo einfo : sinfo.elements())
+        {
+            if (!einfo.virtual() && ((!patch && !einfo.metadata()) || sinfo.accessor().get(bean, einfo) != null))
+                present.set(einfo.ordinal());
+        }
+
+        return templates.get(sinfo.type(), operation, dialect, name, present, () ->
+        {
+            final List<ElementInfo> columns = new ArrayList<ElementInfo>();
+            final StringBuilder setColumns = new StringBuilder();
+
+            for (final ElementInfo einfo : sinfo.elements())
+            {
+                if (present.get(einfo.ordinal()))
+                {
+                    if (!columns.isEmpty())
+                        setColumns.append(", ");
+                    setColumns.append(parseColumnName(einfo)).append("=?");
+                    columns.add(einfo);
+                }
+            }
+
+            return new SqlTemplate(String.format(SQL_UPDATE, parseTableName(DEFAULT_TARGET_NAME, sinfo), setColumns,
+                    parseKeyWhere(keys)), columns);
+        });
+    }
+
+    /**
+     * Binds the bean values following the template binding plan.
+     * 
+     * @param pst
+     *            the prepared statement
+     * @param template
+     *            the statement template
+     * @param sinfo
+     *            the bean storable info object
+     * @param bean
+     *            the bean to bind from
+     * 
+     * @return the next parameter index
+     * 
+     * @throws SQLException
+     *             if cannot set a parameter value
+     */
+    private int setParameters(final PreparedStatement pst, final SqlTemplate template, final StorableInfo sinfo,
+            final Object bean) throws SQLException
+    {
+        final BeanAccessor accessor = sinfo.accessor();
+
+        int parameterIndex = 1;
+        for (final ElementInfo einfo : template.columns())
+            setParameter(pst, parameterIndex++, einfo, accessor.get(bean, einfo));
+
+        return parameterIndex;
+    }
+
+    /**
+     * Binds one element value converting it to its JDBC representation.
+     * 
+     * @param pst
+     *            the prepared statement
+     * @param parameterIndex
+     *            the parameter index
+     * @param einfo
+     *            the element info
+     * @param value
+     *            the element value
+     * 
+     * @throws SQLException
+     *             if cannot set the parameter value
+     */
+    private void setParameter(final PreparedStatement pst, final int parameterIndex, final ElementInfo einfo,
+            final Object value) throws SQLException
+    {
+        if (value == null)
+        {
+            pst.setObject(parameterIndex, value);
+        }
+        else if (value instanceof TimeUnit)
+        {
+            final String unit = EntityUtils.parseTimeUnit((TimeUnit) value);
+            pst.setObject(parameterIndex, unit);
+        }
+        else if (value instanceof Enum<?>)
+        {
+            pst.setObject(parameterIndex, value.toString());
+        }
+        else if (value instanceof Date && einfo.dataType() == DataType.DATE)
+        {
+            final Timestamp ts = new Timestamp(((Date) value).getTime());
+            pst.setTimestamp(parameterIndex, ts);
+        }
+        else if (value instanceof Date && einfo.dataType() == DataType.LONG)
+        {
+            final Long tmp = ((Date) value).getTime();
+            pst.setLong(parameterIndex, tmp);
+        }
+        else
+            pst.setObject(parameterIndex, value);
+    }
+
+    /**
+     * Parses the column name for the given {@link ElementInfo}.
+     * <p>
+     * It will try for the target alias first and if not present it will use the element name as the
+     * column name.
+     * 
+     * @param einfo
+     *            the {@link ElementInfo}
+     * 
+     * @return the column name
+     */
+    private String parseColumnName(final ElementInfo einfo)
+    {
+        String columnName = einfo.firstAliasForTarget(DEFAULT_TARGET_NAME);
+
+        if (columnName == null)
+            return columnName = einfo.name();
+
+        return columnName.toUpperCase();
+    }
+
+    /**
+     * Returns the compiled statement template for the query.
+     * <p>
+     * The query values, limit and offset are never inlined into the statement text; they are bound
+     * as parameters so every query with the same {@link QueryShape} shares the same statement.
+     * <tt>IN</tt> lists are padded to a power of two size for the same reason.
+     * 
+     * @param type
+     *            the bean type
+     * @param query
+     *            the query
+     * @param count
+     *            <tt>true</tt> for a count statement; <tt>false</tt> for a select statement
+     * 
+     * @return the statement template
+     */
+    private SqlTemplate queryTemplate(final Class<?> type, final Query query, final boolean count)
+    {
+        final StorableInfo sinfo = EntityUtils.info(type);
+
+        return templates.get(type, count ? Operation.COUNT_Q : Operation.SELECT_Q, dialect,
+                new QueryShape(query, dialect.inListLimit()),
+                null, () ->
+                {
+                    final List<ElementInfo> columns = new ArrayList<ElementInfo>();
+                    final String tableName = parseTableName(DEFAULT_TARGET_NAME, sinfo);
+                    final String where = parseQueryWhere(type, query, columns);
+
+                    if (count)
+                        return new SqlTemplate(
+                                String.format(SQL_SELECT_COUNT, tableName) + (where == null ? "" : where), columns);
+                    else
+                        return new SqlTemplate(parseQuerySelect("SELECT * FROM " + tableName, where,
+                                parseQueryOrder(type, query), parseQueryLimit(query)), columns);
+                });
+    }
+
+    /**
+     * Parses the query where clause with value place holders.
+     * 
+     * @param type
+     *            the bean type
+     * @param query
+     *            the query
+     * @param columns
+     *            the binding plan to fill in; one element per place holder
+     * 
+     * @return the where clause or <tt>null</tt> if the query has none
+     */
+    private String parseQueryWhere(final Class<?> type, final Query query, final List<ElementInfo> columns)
+    {
+        if (!query.hasWhere())
+            return null;
+
+        final StringBuilder where = new StringBuilder(" WHERE ");
+        ElementInfo einfo;
+
+        for (Expression exp : query.where())
+        {
+            switch (exp.type())
+            {
+            case EQUAL:
+                einfo = EntityUtils.info(type, exp.name());
+                where.append(einfo.firstAliasForTarget(DEFAULT_TARGET_NAME)).append(exp.not() ? "<>" : "=").append('?');
+                columns.add(einfo);
+                break;
+            case LESS:
+                einfo = EntityUtils.info(type, exp.name());
+                where.append(einfo.firstAliasForTarget(DEFAULT_TARGET_NAME)).append(exp.not() ? ">=" : "<").append('?');
+                columns.add(einfo);
+                break;
+            case LESS_EQUAL:
+                einfo = EntityUtils.info(type, exp.name());
+                where.append(einfo.firstAliasForTarget(DEFAULT_TARGET_NAME)).append(exp.not() ? ">" : "<=").append('?');
+                columns.add(einfo);
+                break;
+            case GREATER:
+                einfo = EntityUtils.info(type, exp.name());
+                where.append(einfo.firstAliasForTarget(DEFAULT_TARGET_NAME)).append(exp.not() ? "<=" : ">").append('?');
+                columns.add(einfo);
+                break;
+            case GREATER_EQUAL:
+                einfo = EntityUtils.info(type, exp.name());
+                where.append(einfo.firstAliasForTarget(DEFAULT_TARGET_NAME)).append(exp.not() ? "<" : ">=").append('?');
+                columns.add(einfo);
+                break;
+            case IN:
+                einfo = EntityUtils.info(type, exp.name());
+                where.append(einfo.firstAliasForTarget(DEFAULT_TARGET_NAME)).append(exp.not() ? " NOT IN (" : " IN (");
+                for (int i = 0; i < inListSize(exp.values().length, dialect.inListLimit()); i++)
+                {
+                    where.append(i == 0 ? "?" : ", ?");
+                    columns.add(einfo);
+                }
+                where.append(')');
+                break;
+            case BETWEEN:
+                einfo = EntityUtils.info(type, exp.name());
+                where.append(einfo.firstAliasForTarget(DEFAULT_TARGET_NAME))
+                        .append(exp.not() ? " NOT BETWEEN ? AND ?" : " BETWEEN ? AND ?");
+                columns.add(einfo);
+                columns.add(einfo);
+                break;
+            case IS_NULL:
+                einfo = EntityUtils.info(type, exp.name());
+                where.append(einfo.firstAliasForTarget(DEFAULT_TARGET_NAME))
+                        .append(exp.not() ? " IS NOT NULL" : " IS NULL");
+                break;
+            case IS_NOT_NULL:
+                einfo = EntityUtils.info(type, exp.name());
+                where.append(einfo.firstAliasForTarget(DEFAULT_TARGET_NAME))
+                        .append(exp.not() ? " IS NULL" : " IS NOT NULL");
+                break;
+            case AND:
+                where.append(" AND ");
+                break;
+            case OR:
+                where.append(" OR ");
+                break;
+            case OPEN_PARENTHESIS:
+                where.append('(');
+                break;
+            case CLOSE_PARENTHESIS:
+                where.append(')');
+                break;
+            default:
+                break;
+            }
+        }
+
+        return where.toString();
+    }
+
+    /**
+     * Parses the query values in place holder order.
+     * 
+     * @param template
+     *            the compiled query template
+     * @param query
+     *            the query
+     * 
+     * @return the values to bind
+     */
+    private List<Object> parseQueryValues(final SqlTemplate template, final Query query)
+    {
+        final ElementInfo[] columns = template.columns();
+        final List<Object> values = new ArrayList<Object>(columns.length);
+
+        for (Expression exp : query.where())
+        {
+            switch (exp.type())
+            {
+            case EQUAL:
+            case LESS:
+            case LESS_EQUAL:
+            case GREATER:
+            case GREATER_EQUAL:
+                values.add(toJdbcValue(columns[values.size()], exp.value()));
+                break;
+            case IN:
+                for (final Object value : exp.values())
+                    values.add(toJdbcValue(columns[values.size()], value));
+                // Pads the list repeating the last value as the statement was compiled for the padded size
+                for (int i = exp.values().length; i < inListSize(exp.values().length, dialect.inListLimit()); i++)
+                    values.add(values.get(values.size() - 1));
+                break;
+            case BETWEEN:
+                values.add(toJdbcValue(columns[values.size()], exp.begin()));
+                values.add(toJdbcValue(columns[values.size()], exp.end()));
+                break;
+            default:
+                break;
+            }
+        }
+
+        return values;
+    }
+
+    /**
+     * Converts a query value to its JDBC parameter representation.
+     * 
+     * @param einfo
+     *            the element info
+     * @param value
+     *            the query value
+     * 
+     * @return the parameter value
+     */
+    private Object toJdbcValue(final ElementInfo einfo, final Object value)
+    {
+        if (value == null)
+            return null;
+
+        switch (einfo.dataType())
+        {
+        case BOOLEAN:
+            if (value instanceof String)
+                return Boolean.parseBoolean((String) value);
+            else
+                return value;
+        case CHAR:
+        case STRING:
+        case ENUM:
+            return value.toString();
+        case DATE:
+        case TIMESTAMP:
+            if (value instanceof Date)
+                return new Timestamp(((Date) value).getTime());
+            else if (value instanceof Long)
+                return new Timestamp((Long) value);
+            else
+                return value;
+        case TIME:
+            if (value instanceof Date)
+                return new Time(((Date) value).getTime());
+            else
+                return value;
+        default:
+            return value;
+        }
+    }
+
+    /**
+     * Binds the given values in order.
+     * 
+     * @param pst
+     *            the prepared statement
+     * @param values
+     *            the values to bind
+     * 
+     * @throws SQLException
+     *             if cannot set a parameter value
+     */
+    private void setParameters(final PreparedStatement pst, final List<Object> values) throws SQLException
+    {
+        int parameterIndex = 1;
+        for (final Object value : values)
+        {
+            if (value instanceof TimeUnit)
+            {
+                final String unit = EntityUtils.parseTimeUnit((TimeUnit) value);
+                pst.setObject(parameterIndex++, unit);
+            }
+            else if (value instanceof Enum<?>)
+            {
+                pst.setObject(parameterIndex++, value.toString());
+            }
+            else
+            {
+                pst.setObject(parameterIndex++, value);
+            }
+        }
+    }
+
+    private String parseQueryLimit(final Query query)
+    {
+        if (!query.hasLimit())
+            return null;
+
+        String limit = null;
 
         switch (dialect)
         {
         case ORACLE:
-            limit = String.format(" ROWNUM < %d", query.limit());
+            limit = " ROWNUM < ?";
             break;
         case POSTGRESQL:
-            limit = String.format(" LIMIT %d OFFSET %d", query.limit(),
-                    query.hasOffset() ? (query.offset() == 1 ? 0L : query.offset() - 1) : 0L);
+            limit = " LIMIT ? OFFSET ?";
             break;
         case MYSQL:
-            limit = String.format(" LIMIT %d,%d",
-                    query.hasOffset() ? (query.offset() == 1 ? 0L : query.offset() - 1) : 0L, query.limit());
+            limit = " LIMIT ?,?";
             break;
         case DERBY:
-            limit = String.format(" OFFSET %d ROWS FETCH NEXT %d ROWS ONLY",
-                    query.hasOffset() ? query.offset() - 1 : 0L, query.limit());
+            limit = " OFFSET ? ROWS FETCH NEXT ? ROWS ONLY";
             break;
         default:
             // do nothing
@@ -2426,6 +3152,36 @@ public class JdbcDataSourceImpl extends AbstractDataSource
         return limit;
     }
 
+    /**
+     * Parses the query limit and offset values in the place holder order of
+     * {@link #parseQueryLimit(Query)}.
+     * 
+     * @param query
+     *            the query
+     * 
+     * @return the values to bind after the where clause values
+     */
+    private List<Object> parseQueryLimitValues(final Query query)
+    {
+        if (!query.hasLimit())
+            return Collections.emptyList();
+
+        final long offset = query.hasOffset() ? (query.offset() == 1 ? 0L : query.offset() - 1) : 0L;
+
+        switch (dialect)
+        {
+        case ORACLE:
+            return Collections.singletonList(query.limit());
+        case POSTGRESQL:
+            return Arrays.asList(query.limit(), offset);
+        case MYSQL:
+        case DERBY:
+            return Arrays.asList(offset, query.limit());
+        default:
+            return Collections.emptyList();
+        }
+    }
+
     private String parseQueryOrder(final Class<?> type, final Query query)
     {
         if (!query.hasOrder())
@@ -2464,20 +3220,46 @@ public class JdbcDataSourceImpl extends AbstractDataSource
     private <T> Cursor<T> openCursor(final Transaction txn, final Cache cache, final Class<T> type, final String sql)
             throws OperationTimeoutException, DataProviderException
     {
-        return openCursor(txn, cache, type, sql, Collections.emptyList());
+        return openCursor(txn, cache, type, sql, Collections.emptyList(), scrollMode);
     }
 
+    /**
+     * Opens a cursor over the beans returned by the given statement.
+     * <p>
+     * Forward-only cursors stream their beans holding the statement and its connection open until
+     * they are exhausted or closed; any other mode materializes the whole result set up front.
+     * 
+     * @param txn
+     *            the current transaction or {@code null} when there is no active transaction
+     * @param cache
+     *            the cache for the bean type
+     * @param type
+     *            the bean type
+     * @param sql
+     *            the select statement
+     * @param values
+     *            the statement parameter values
+     * @param mode
+     *            the cursor scroll mode
+     * 
+     * @return the cursor
+     * 
+     * @throws OperationTimeoutException
+     *             if the statement times out
+     * @throws DataProviderException
+     *             if cannot execute the statement
+     */
     private <T> Cursor<T> openCursor(final Transaction txn, final Cache cache, final Class<T> type, final String sql,
-            List<Object> values) throws OperationTimeoutException, DataProviderException
+            final List<Object> values, final ScrollMode mode) throws OperationTimeoutException, DataProviderException
     {
         Cursor<T> cursor = null;
 
+        boolean streaming = false;
+
         final Connection conn = getConnection(txn);
 
         try
         {
-            final List<T> lrs = new ArrayList<T>();
-
             final PreparedStatement pst = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
                     ResultSet.CONCUR_READ_ONLY);
 
@@ -2485,44 +3267,52 @@ public class JdbcDataSourceImpl extends AbstractDataSource
 
             setQueryTimeout(pst);
 
-            if (!values.isEmpty())
+            setParameters(pst, values);
+
+            final ResultSet rs;
+            try
             {
-                int parameterIndex = 1;
-                for (final Object value : values)
-                {
-                    if (value instanceof TimeUnit)
-                    {
-                        final String unit = EntityUtils.parseTimeUnit((TimeUnit) value);
-                        pst.setObject(parameterIndex++, unit);
-                    }
-                    else if (value instanceof Enum<?>)
-                    {
-                        pst.setObject(parameterIndex++, value.toString());
-                    }
-                    else
-                    {
-                        pst.setObject(parameterIndex++, value);
-                    }
-                }
+                rs = pst.executeQuery();
+            }
+            catch (final SQLException sqle)
+            {
+                pst.close();
+                throw sqle;
             }
 
-            final ResultSet rs = pst.executeQuery();
+            final ElementInfo[] columns = mapColumns(type, rs);
 
-            while (rs.next())
+            if (mode == TYPE_FORWARD_ONLY)
             {
-                final T bean = makeEntity(type, rs); // Instantiate and populate a new bean
-                cacheIt(txn, cache, bean); // Caches the new bean
-                lrs.add(bean); // Adds to the cursor collection
+                streaming = true; // From now on the cursor owns the statement and the connection
+                cursor = new StreamingCursor<T>(type, pst, rs, r ->
+                {
+                    final T bean = makeEntity(type, r, columns); // Instantiate and populate a new bean
+                    cacheIt(txn, cache, bean); // Caches the new bean
+                    return bean;
+                }, () -> close(txn, conn));
             }
+            else
+            {
+                final List<T> lrs = new ArrayList<T>();
 
-            rs.close();
+                while (rs.next())
+                {
+                    final T bean = makeEntity(type, rs, columns); // Instantiate and populate a new bean
+                    cacheIt(txn, cache, bean); // Caches the new bean
+                    lrs.add(bean); // Adds to the cursor collection
+                }
+
+                rs.close();
+                pst.close();
 
-            T[] resultSet = (T[]) Array.newInstance(type, lrs.size());
-            System.arraycopy(lrs.toArray(), 0, resultSet, 0, lrs.size());
+                T[] resultSet = (T[]) Array.newInstance(type, lrs.size());
+                System.arraycopy(lrs.toArray(), 0, resultSet, 0, lrs.size());
 
-            lrs.clear();
+                lrs.clear();
 
-            cursor = new SimpleCursor<T>(resultSet);
+                cursor = new SimpleCursor<T>(resultSet);
+            }
         }
         catch (final SQLTimeoutException e)
         {
@@ -2534,7 +3324,8 @@ public class JdbcDataSourceImpl extends AbstractDataSource
         }
         finally
         {
-            close(txn, conn);
+            if (!streaming)
+                close(txn, conn);
         }
 
         return cursor;
@@ -2551,96 +3342,122 @@ public class JdbcDataSourceImpl extends AbstractDataSource
      * @throws IllegalArgumentException
      * @throws SQLException
      */
-    @SuppressWarnings("rawtypes")
     private <T> T makeEntity(final Class<T> type, final ResultSet rs) throws IllegalArgumentException, SQLException
     {
-        T bean = null;
+        return makeEntity(type, rs, mapColumns(type, rs));
+    }
 
-        final ResultSetMetaData meta = rs.getMetaData();
+    /**
+     * Assembles a new entity object based on the content of the current result set position.
+     * 
+     * @param type
+     *            the bean type
+     * @param rs
+     *            the result set positioned at the row to read
+     * @param columns
+     *            the column to element mapping as returned by {@link #mapColumns(Class, ResultSet)}
+     * 
+     * @return the new bean or null if the bean type cannot be instantiated
+     * 
+     * @throws IllegalArgumentException
+     * @throws SQLException
+     */
+    @SuppressWarnings("rawtypes")
+    private <T> T makeEntity(final Class<T> type, final ResultSet rs, final ElementInfo[] columns)
+            throws IllegalArgumentException, SQLException
+    {
+        final BeanAccessor accessor = EntityUtils.info(type).accessor();
 
-        try
-        {
-            bean = type.newInstance();
-        }
-        catch (final InstantiationException e)
-        {
-            return null;
-        }
-        catch (final IllegalAccessException e)
-        {
+        final T bean = accessor.newInstance();
+
+        if (bean == null)
             return null;
-        }
 
         // FIXME support for all SQL/Java types
-        for (int i = 1; i <= meta.getColumnCount(); i++)
+        for (int i = 1; i < columns.length; i++)
         {
-            final Object value = rs.getObject(i);
-            if (rs.wasNull())
-                continue;
-
-            final String colName = meta.getColumnName(i);
-
-            final ElementInfo einfo = EntityUtils.info(bean.getClass(), colName);
+            final ElementInfo einfo = columns[i];
 
             if (einfo == null)
                 continue;
 
+            final Object value = rs.getObject(i);
+            if (rs.wasNull())
+                continue;
+
             final Class<?> beanFieldType = einfo.type();
 
             if (beanFieldType.equals(TimeUnit.class))
             {
-                EntityUtils.value(bean, colName, EntityUtils.parseTimeUnit((String) value));
+                accessor.set(bean, einfo, EntityUtils.parseTimeUnit((String) value));
             }
             else if (beanFieldType.isEnum())
             {
-                EntityUtils.value(bean, colName, Enum.valueOf((Class<Enum>) beanFieldType, (String) value));
+                accessor.set(bean, einfo, Enum.valueOf((Class<Enum>) beanFieldType, (String) value));
             }
-            // else if (value instanceof Date)
-            // {
-            // BeanUtils.value(bean, colName, ((Date) value).getTime());
-            // }
-            // else if (value instanceof Timestamp)
-            // {
-            // BeanUtils.value(bean, colName, ((Timestamp) value).getTime());
-            // }
             else if (value instanceof Integer)
             {
                 if (beanFieldType.equals(Integer.class))
-                    EntityUtils.value(bean, colName, value);
+                    accessor.set(bean, einfo, value);
                 else if (beanFieldType.equals(Long.class))
-                    EntityUtils.value(bean, colName, new Long(((Integer) value)));
+                    accessor.set(bean, einfo, new Long(((Integer) value)));
                 else if (beanFieldType.equals(Boolean.class))
-                    EntityUtils.value(bean, colName, ((Integer) value) == 1 ? true : false);
+                    accessor.set(bean, einfo, ((Integer) value) == 1 ? true : false);
                 else
-                    EntityUtils.value(bean, colName, value);
+                    accessor.set(bean, einfo, value);
             }
             else if (value instanceof Long)
             {
                 if (beanFieldType.equals(Integer.class))
-                    EntityUtils.value(bean, colName, ((Long) value).intValue());
-                else if (beanFieldType.equals(Long.class))
-                    EntityUtils.value(bean, colName, value);
+                    accessor.set(bean, einfo, ((Long) value).intValue());
                 else
-                    EntityUtils.value(bean, colName, value);
+                    accessor.set(bean, einfo, value);
             }
             else if (value instanceof BigDecimal)
             {
                 if (beanFieldType.equals(Integer.class))
-                    EntityUtils.value(bean, colName, ((BigDecimal) value).intValue());
+                    accessor.set(bean, einfo, ((BigDecimal) value).intValue());
                 else if (beanFieldType.equals(Long.class))
-                    EntityUtils.value(bean, colName, ((BigDecimal) value).longValue());
+                    accessor.set(bean, einfo, ((BigDecimal) value).longValue());
                 else
-                    EntityUtils.value(bean, colName, value);
+                    accessor.set(bean, einfo, value);
             }
             else
             {
-                EntityUtils.value(bean, colName, value);
+                accessor.set(bean, einfo, value);
             }
         }
 
         return bean;
     }
 
+    /**
+     * Maps the result set columns to the bean elements.
+     * <p>
+     * The mapping is resolved once per result set so the per row work is index based only.
+     * 
+     * @param type
+     *            the bean type
+     * @param rs
+     *            the result set
+     * 
+     * @return the elements indexed by column number (1 based); null entries for unmapped columns
+     * 
+     * @throws SQLException
+     *             if the result set meta data cannot be read
+     */
+    private ElementInfo[] mapColumns(final Class<?> type, final ResultSet rs) throws SQLException
+    {
+        final ResultSetMetaData meta = rs.getMetaData();
+
+        final ElementInfo[] columns = new ElementInfo[meta.getColumnCount() + 1];
+
+        for (int i = 1; i < columns.length; i++)
+            columns[i] = EntityUtils.info(type, meta.getColumnName(i));
+
+        return columns;
+    }
+
     /**
      * Caches the given bean into the given cache only if there is no current transaction in
      * progress.
@@ -0,0 +1,108 @@
+/*
+ * This file is part of UDAO 
+ * https://github.com/perbone/udao/
+ * 
+ * Copyright 2013-2018 Paulo Perbone
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package io.perbone.udao.provider.jdbc;
+
+import java.util.Arrays;
+import java.util.List;
+
+import io.perbone.toolbox.collection.Pair;
+import io.perbone.udao.query.Expression;
+import io.perbone.udao.query.Query;
+
+/**
+ * Represents the structural fingerprint of a {@link Query}.
+ * <p>
+ * Two queries share the same shape when they have the same expressions over the same elements,
+ * the same padded number of values for each <tt>IN</tt> list, the same order and both have or both
+ * lack a limit; their values, limits and offsets may differ. Queries with the same shape compile to
+ * the same parameterized SQL statement, so the number of shapes per type stays small.
+ * 
+ * @author Paulo Perbone <pauloperbone@yahoo.com>
+ * @since 0.17.0
+ */
+final class QueryShape
+{
+    private final int[] codes;
+
+    private final String[] names;
+
+    private final boolean limited;
+
+    private final int hash;
+
+    /**
+     * Creates the shape of the given query.
+     * 
+     * @param query
+     *            the query
+     * @param inListLimit
+     *            the dialect <tt>IN</tt> list limit
+     */
+    QueryShape(final Query query, final int inListLimit)
+    {
+        final List<Expression> where = query.where();
+        final List<Pair<String, Boolean>> order = query.order();
+
+        codes = new int[where.size() + order.size()];
+        names = new String[codes.length];
+
+        int i = 0;
+        for (final Expression exp : where)
+        {
+            final int arity = exp.values() == null ? 0
+                    : JdbcDataSourceImpl.inListSize(exp.values().length, inListLimit);
+            codes[i] = (arity << 8) | (exp.type().ordinal() << 1) | (exp.not() ? 1 : 0);
+            names[i++] = exp.name();
+        }
+
+        for (final Pair<String, Boolean> element : order)
+        {
+            codes[i] = element.second() ? -1 : -2;
+            names[i++] = element.first();
+        }
+
+        limited = query.hasLimit();
+
+        int h = Arrays.hashCode(codes);
+        h = 31 * h + Arrays.hashCode(names);
+        h = 31 * h + (limited ? 1 : 0);
+        hash = h;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(final Object obj)
+    {
+        if (this == obj)
+            return true;
+        if (!(obj instanceof QueryShape))
+            return false;
+
+        final QueryShape other = (QueryShape) obj;
+
+        return hash == other.hash && limited == other.limited && Arrays.equals(codes, other.codes)
+                && Arrays.equals(names, other.names);
+    }
+}
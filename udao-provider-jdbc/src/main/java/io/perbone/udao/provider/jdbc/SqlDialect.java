@@ -61,4 +61,28 @@ public enum SqlDialect
         else
             return UNKNOWN;
     }
+
+    /**
+     * Returns the maximum number of values this dialect accepts in a single <tt>IN</tt> list.
+     * 
+     * @return the <tt>IN</tt> list size limit
+     */
+    public int inListLimit()
+    {
+        switch (this)
+        {
+        case MSSQL:
+        case TSQL:
+        case SYBASE:
+            return 2000; // 2100 parameters per statement
+        case DB2:
+        case DERBY:
+        case HSQLDB:
+        case MYSQL:
+        case POSTGRESQL:
+            return 4096;
+        default:
+            return 1000; // Oracle is the most restrictive
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,89 @@
+/*
+ * This file is part of UDAO 
+ * https://github.com/perbone/udao/
+ * 
+ * Copyright 2013-2018 Paulo Perbone
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package io.perbone.udao.provider.jdbc;
+
+import java.util.List;
+
+import io.perbone.udao.util.ElementInfo;
+
+/**
+ * Represents a ready to use SQL statement for a bean type.
+ * <p>
+ * Holds the final statement string plus its binding plan, the ordered elements whose values go into
+ * the statement parameters. Key values, when the statement has a where clause, are bound right
+ * after them.
+ * 
+ * @author Paulo Perbone <pauloperbone@yahoo.com>
+ * @since 0.17.0
+ */
+final class SqlTemplate
+{
+    /**
+     * List of statement operations.
+     */
+    enum Operation
+    {
+        INSERT, SELECT_ALL, SELECT_I, SELECT_P, SELECT_A, UPDATE_I, UPDATE_P, UPDATE_A, PATCH_I, PATCH_P, PATCH_A,
+        DELETE_I, DELETE_P, UPSERT, COUNT, SELECT_Q, COUNT_Q, SELECT_IN
+    }
+
+    private static final ElementInfo[] NO_COLUMNS = new ElementInfo[0];
+
+    private final String sql;
+
+    private final ElementInfo[] columns;
+
+    SqlTemplate(final String sql)
+    {
+        this(sql, null);
+    }
+
+    SqlTemplate(final String sql, final List<ElementInfo> columns)
+    {
+        this.sql = sql;
+        this.columns = columns == null ? NO_COLUMNS : columns.toArray(new ElementInfo[columns.size()]);
+    }
+
+    /**
+     * Returns the SQL statement string.
+     * 
+     * @return the statement string
+     */
+    String sql()
+    {
+        return sql;
+    }
+
+    /**
+     * Returns the binding plan; the elements to bind in parameter order.
+     * 
+     * @return the elements to bind
+     */
+    ElementInfo[] columns()
+    {
+        return columns;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "SqlTemplate [sql=" + sql + ", columns=" + columns.length + "]";
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * This file is part of UDAO 
+ * https://github.com/perbone/udao/
+ * 
+ * Copyright 2013-2018 Paulo Perbone
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package io.perbone.udao.provider.jdbc;
+
+import java.util.BitSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+import io.perbone.udao.provider.jdbc.SqlTemplate.Operation;
+
+/**
+ * Cache of {@link SqlTemplate} objects.
+ * <p>
+ * Templates are keyed by bean type, operation, dialect, a qualifier (the alternate key name or the
+ * {@link QueryShape} of a query) and the set of present columns (for statements whose column list
+ * depends on the bean values, like patches) so they are built once and reused for every subsequent
+ * call.
+ * 
+ * @author Paulo Perbone <pauloperbone@yahoo.com>
+ * @since 0.17.0
+ */
+final class SqlTemplateCache
+{
+    private final ConcurrentMap<Key, SqlTemplate> templates = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the template for the given key building it on first use.
+     * 
+     * @param type
+     *            the bean type
+     * @param operation
+     *            the statement operation
+     * @param dialect
+     *            the SQL dialect
+     * @param qualifier
+     *            the alternate key name, the query shape or <tt>null</tt>
+     * @param present
+     *            the ordinals of the present columns or <tt>null</tt> when fixed
+     * @param builder
+     *            the template builder
+     * 
+     * @return the template
+     */
+    SqlTemplate get(final Class<?> type, final Operation operation, final SqlDialect dialect,
+            final Object qualifier, final BitSet present, final Supplier<SqlTemplate> builder)
+    {
+        final Key key = new Key(type, operation, dialect, qualifier, present);
+
+        SqlTemplate template = templates.get(key);
+
+        if (template == null)
+            template = templates.computeIfAbsent(key, k -> builder.get());
+
+        return template;
+    }
+
+    /**
+     * Returns the number of cached templates.
+     * 
+     * @return the number of templates
+     */
+    int size()
+    {
+        return templates.size();
+    }
+
+    /**
+     * Discards all the cached templates.
+     */
+    void clear()
+    {
+        templates.clear();
+    }
+
+    private static final class Key
+    {
+        private final Class<?> type;
+        private final Operation operation;
+        private final SqlDialect dialect;
+        private final Object qualifier;
+        private final BitSet present;
+        private final int hash;
+
+        Key(final Class<?> type, final Operation operation, final SqlDialect dialect, final Object qualifier,
+                final BitSet present)
+        {
+            this.type = type;
+            this.operation = operation;
+            this.dialect = dialect;
+            this.qualifier = qualifier;
+            this.present = present;
+
+            int h = type.hashCode();
+            h = 31 * h + operation.hashCode();
+            h = 31 * h + dialect.hashCode();
+            h = 31 * h + (qualifier == null ? 0 : qualifier.hashCode());
+            h = 31 * h + (present == null ? 0 : present.hashCode());
+            this.hash = h;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(final Object obj)
+        {
+            if (this == obj)
+                return true;
+            if (!(obj instanceof Key))
+                return false;
+
+            final Key other = (Key) obj;
+
+            return hash == other.hash && type == other.type && operation == other.operation
+                    && dialect == other.dialect
+                    && (qualifier == null ? other.qualifier == null : qualifier.equals(other.qualifier))
+                    && (present == null ? other.present == null : present.equals(other.present));
+        }
+    }
+}
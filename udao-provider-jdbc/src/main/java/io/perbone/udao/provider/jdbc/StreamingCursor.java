@@ -0,0 +1,429 @@
+/*
+ * This file is part of UDAO 
+ * https://github.com/perbone/udao/
+ * 
+ * Copyright 2013-2018 Paulo Perbone
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package io.perbone.udao.provider.jdbc;
+
+import static io.perbone.udao.Cursor.ScrollMode.TYPE_FORWARD_ONLY;
+
+import java.lang.reflect.Array;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import io.perbone.udao.Cursor;
+import io.perbone.udao.DataException;
+import io.perbone.udao.spi.DataProviderException;
+
+/**
+ * Forward-only {@link Cursor} implementation that streams its beans straight from an open JDBC
+ * {@link ResultSet}.
+ * <p>
+ * Rows are mapped one at a time as the cursor advances so neither the whole result set has to fit
+ * in the heap nor the first bean has to wait for the last row. The statement and its connection
+ * are held open until the cursor reaches its end or is closed, whichever comes first, so users
+ * must always close it.
+ * <p>
+ * This class is not thread safe.
+ * 
+ * @author Paulo Perbone <pauloperbone@yahoo.com>
+ * @since 0.17.0
+ */
+@SuppressWarnings("unchecked")
+final class StreamingCursor<T> implements Cursor<T>
+{
+    /**
+     * Maps the current result set row to a bean.
+     */
+    interface RowMapper<T>
+    {
+        T map(ResultSet rs) throws SQLException;
+    }
+
+    private static final String MESSAGE_FORWARD_ONLY = "Operation not supported by a forward-only cursor";
+
+    private final Class<T> type;
+
+    private final RowMapper<T> mapper;
+
+    private final Runnable release;
+
+    private PreparedStatement pst;
+
+    private ResultSet rs;
+
+    private T current = null;
+
+    private long position = -1;
+
+    private boolean exhausted = false;
+
+    private boolean closed = false;
+
+    private final Iterator<T> it = new CursorIterator();
+
+    /**
+     * Creates a streaming cursor positioned at the first bean, if any.
+     * 
+     * @param type
+     *            the bean type
+     * @param pst
+     *            the executed statement
+     * @param rs
+     *            the statement result set
+     * @param mapper
+     *            the row mapper
+     * @param release
+     *            releases the statement connection; called once after the statement is closed
+     * 
+     * @throws DataProviderException
+     *             if cannot fetch the first row
+     */
+    StreamingCursor(final Class<T> type, final PreparedStatement pst, final ResultSet rs, final RowMapper<T> mapper,
+            final Runnable release) throws DataProviderException
+    {
+        this.type = type;
+        this.pst = pst;
+        this.rs = rs;
+        this.mapper = mapper;
+        this.release = release;
+
+        advance();
+    }
+
+    @Override
+    public ScrollMode scrollMode() throws IllegalStateException
+    {
+        checkOpen();
+
+        return TYPE_FORWARD_ONLY;
+    }
+
+    @Override
+    public T fetch() throws IllegalStateException, DataException
+    {
+        checkOpen();
+
+        return current;
+    }
+
+    @Override
+    public T fetch(final long index) throws IllegalStateException, IllegalArgumentException, DataException
+    {
+        checkOpen();
+
+        throw new UnsupportedOperationException(MESSAGE_FORWARD_ONLY);
+    }
+
+    @Override
+    public T[] toArray()
+    {
+        checkOpen();
+
+        final List<T> beans = new ArrayList<T>();
+
+        while (!exhausted)
+        {
+            beans.add(current);
+            advance();
+        }
+
+        return beans.toArray((T[]) Array.newInstance(type, beans.size()));
+    }
+
+    @Override
+    public long position() throws IllegalStateException, DataException
+    {
+        checkOpen();
+
+        return position;
+    }
+
+    @Override
+    public void first() throws IllegalStateException, DataException
+    {
+        checkOpen();
+
+        if (position > 0)
+            throw new UnsupportedOperationException(MESSAGE_FORWARD_ONLY);
+    }
+
+    @Override
+    public void last() throws IllegalStateException, DataException
+    {
+        checkOpen();
+
+        throw new UnsupportedOperationException(MESSAGE_FORWARD_ONLY);
+    }
+
+    @Override
+    public void next() throws IllegalStateException, DataException
+    {
+        checkOpen();
+
+        if (!exhausted)
+            advance();
+    }
+
+    @Override
+    public void previous() throws IllegalStateException, DataException
+    {
+        checkOpen();
+
+        throw new UnsupportedOperationException(MESSAGE_FORWARD_ONLY);
+    }
+
+    @Override
+    public void absolute(final long offset) throws IllegalStateException, DataException
+    {
+        checkOpen();
+
+        if (offset < position)
+            throw new UnsupportedOperationException(MESSAGE_FORWARD_ONLY);
+
+        while (!exhausted && position < offset)
+            advance();
+    }
+
+    @Override
+    public void relative(final long offset) throws IllegalStateException, DataException
+    {
+        checkOpen();
+
+        if (offset < 0)
+            throw new UnsupportedOperationException(MESSAGE_FORWARD_ONLY);
+
+        for (long i = 0; i < offset && !exhausted; i++)
+            advance();
+    }
+
+    @Override
+    public boolean bos() throws IllegalStateException
+    {
+        checkOpen();
+
+        return position == -1;
+    }
+
+    @Override
+    public boolean eos() throws IllegalStateException
+    {
+        checkOpen();
+
+        return exhausted;
+    }
+
+    @Override
+    public boolean scrollable() throws IllegalStateException
+    {
+        checkOpen();
+
+        return false;
+    }
+
+    @Override
+    public boolean indexable() throws IllegalStateException
+    {
+        checkOpen();
+
+        return false;
+    }
+
+    @Override
+    public boolean countable() throws IllegalStateException
+    {
+        checkOpen();
+
+        return false;
+    }
+
+    @Override
+    public long count() throws IllegalStateException, DataException
+    {
+        checkOpen();
+
+        throw new UnsupportedOperationException("Cannot count a forward-only cursor before its end");
+    }
+
+    @Override
+    public void close() throws DataException
+    {
+        if (!closed)
+        {
+            closed = true;
+            current = null;
+            releaseResources();
+        }
+    }
+
+    @Override
+    public boolean isOpen()
+    {
+        return !closed;
+    }
+
+    @Override
+    public Iterator<T> iterator()
+    {
+        checkOpen();
+
+        return it;
+    }
+
+    /**
+     * Moves to the next row mapping it to the current bean; releases all the JDBC resources as soon
+     * as the result set is exhausted or the row cannot be read or mapped.
+     * 
+     * @throws DataProviderException
+     *             if cannot read the next row
+     */
+    private void advance() throws DataProviderException
+    {
+        try
+        {
+            if (rs.next())
+            {
+                current = mapper.map(rs);
+                position++;
+            }
+            else
+            {
+                current = null;
+                exhausted = true;
+                if (position != -1)
+                    position++; // Past the last bean; empty result sets stay at -1
+                releaseResources();
+            }
+        }
+        catch (final SQLException sqle)
+        {
+            current = null;
+            exhausted = true;
+            try
+            {
+                releaseResources();
+            }
+            catch (final DataProviderException e)
+            {
+                sqle.setNextException(new SQLException(e));
+            }
+            throw new DataProviderException("Could not read the next row from the database", sqle);
+        }
+        catch (final RuntimeException | Error e)
+        {
+            current = null;
+            exhausted = true;
+            try
+            {
+                releaseResources();
+            }
+            catch (final RuntimeException | Error suppressed)
+            {
+                if (suppressed != e)
+                    e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Closes the result set, its statement and releases the connection; only the first call takes
+     * effect.
+     * 
+     * @throws DataProviderException
+     *             if cannot close the JDBC resources
+     */
+    private void releaseResources() throws DataProviderException
+    {
+        if (pst == null)
+            return;
+
+        SQLException failure = null;
+
+        try
+        {
+            rs.close();
+        }
+        catch (final SQLException e)
+        {
+            failure = e;
+        }
+
+        try
+        {
+            pst.close();
+        }
+        catch (final SQLException e)
+        {
+            if (failure == null)
+                failure = e;
+            else
+                failure.setNextException(e);
+        }
+
+        rs = null;
+        pst = null;
+
+        release.run();
+
+        if (failure != null)
+            throw new DataProviderException("Could not close the database statement", failure);
+    }
+
+    private void checkOpen() throws IllegalStateException
+    {
+        if (closed)
+            throw new IllegalStateException("Cursor is closed");
+    }
+
+    /**
+     * Implements a forward-only iterator.
+     * 
+     * @author Paulo Perbone <pauloperbone@yahoo.com>
+     * @since 0.17.0
+     */
+    private final class CursorIterator implements Iterator<T>
+    {
+        @Override
+        public boolean hasNext()
+        {
+            return !exhausted;
+        }
+
+        @Override
+        public T next()
+        {
+            if (exhausted)
+                throw new NoSuchElementException();
+
+            final T result = current;
+            advance();
+            return result;
+        }
+
+        @Override
+        public void remove()
+        {
+            throw new UnsupportedOperationException("Cannot remove from a forward-only iterator");
+        }
+    }
+}
@@ -20,13 +20,10 @@
 package io.perbone.udao.provider.je;
 
 import java.io.File;
-import java.lang.ref.WeakReference;
-import java.util.Deque;
-import java.util.Iterator;
-import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
@@ -51,6 +48,7 @@ import io.perbone.toolbox.serialization.JSONSerializer;
 import io.perbone.toolbox.serialization.Serializer;
 import io.perbone.toolbox.settings.Property;
 import io.perbone.toolbox.validation.StringValidations;
+import io.perbone.udao.Cursor.ScrollMode;
 import io.perbone.udao.DataConstraintViolationException;
 import io.perbone.udao.DataException;
 import io.perbone.udao.KeyViolationException;
@@ -63,6 +61,9 @@ import io.perbone.udao.transaction.InvalidTransactionException;
 import io.perbone.udao.transaction.IsolationLevel;
 import io.perbone.udao.transaction.Transaction;
 import io.perbone.udao.transaction.TransactionException;
+import io.perbone.udao.util.BinarySerializer;
+import io.perbone.udao.util.EntityUtils;
+import io.perbone.udao.util.KeyCodec;
 import io.perbone.udao.util.StorableInfo;
 
 /**
@@ -114,6 +115,24 @@ public final class JeDataProviderImpl extends AbstractDataProvider
     @Property(name = "compress-payload", value = "false")
     private Boolean compressPayload;
 
+    @Property(name = "compress-threshold", value = "512")
+    private Integer compressThreshold;
+
+    @Property(name = "serializer", value = "binary")
+    private String serializerName;
+
+    @Property(name = "key-codec", value = "digest")
+    private String keyCodecName;
+
+    @Property(name = "scroll-mode", value = "TYPE_SCROLL_INSENSITIVE")
+    private ScrollMode scrollMode;
+
+    @Property(name = "cursor-prefetch", value = "0")
+    private Integer cursorPrefetch;
+
+    @Property(name = "create-chunk-size", value = "0")
+    private Integer createChunkSize;
+
     @Property(name = "application-name")
     private String applicationName;
 
@@ -123,14 +142,19 @@ public final class JeDataProviderImpl extends AbstractDataProvider
     @Property(name = "client-hostname")
     private String clientHostname;
 
-    private Map<Transaction, ConcurrentMap<String, Deque<Database>>> activeTransactions = new ConcurrentHashMap<>();
+    /** Database handles kept open for the provider lifetime; one per table name */
+    private final ConcurrentMap<String, Database> databases = new ConcurrentHashMap<>();
 
     private Environment dbenv;
 
     private Serializer serializer;
 
+    private KeyCodec keyCodec;
+
     private io.perbone.mkey.Cache secondaryKeyCreatorCache;
 
+    private ExecutorService prefetchExecutor;
+
     public JeDataProviderImpl()
     {
         super();
@@ -154,13 +178,7 @@ public final class JeDataProviderImpl extends AbstractDataProvider
         checkActive();
         checkShutdownInProgress();
 
-        DataSource ds = new JeDataSourceImpl(this);
-
-        ds.open();
-
-        dsInUse.add(new WeakReference<DataSource>(ds));
-
-        return ds;
+        return sharedDataSource(type, t -> new JeDataSourceImpl(this));
     }
 
     @Override
@@ -194,12 +212,7 @@ public final class JeDataProviderImpl extends AbstractDataProvider
             // TODO support for nested (parent) transaction
             com.sleepycat.je.Transaction internalTxn = dbenv.beginTransaction(null, txnConfig);
 
-            Transaction txn = new JeTransactionImpl(id, isolationLevel, internalTxn);
-
-            // Initialize support structures for the new transaction
-            activeTransactions.put(txn, new ConcurrentHashMap<>());
-
-            return txn;
+            return new JeTransactionImpl(id, isolationLevel, internalTxn);
         }
         catch (final DatabaseException dbe)
         {
@@ -217,7 +230,6 @@ public final class JeDataProviderImpl extends AbstractDataProvider
 
         checkTransaction(txn);
 
-        final ConcurrentMap<String, Deque<Database>> databases = activeTransactions.remove(txn);
         final com.sleepycat.je.Transaction internalTxn = ((JeTransactionImpl) txn).getTransaction();
 
         try
@@ -240,27 +252,6 @@ public final class JeDataProviderImpl extends AbstractDataProvider
         }
         finally
         {
-            if (databases != null)
-            {
-                for (Deque<Database> deque : databases.values())
-                {
-                    Iterator<Database> it = deque.iterator();
-                    while (it.hasNext())
-                    {
-                        try
-                        {
-                            it.next().close();
-                        }
-                        catch (final DatabaseException dbe)
-                        {
-                            logger.warn("Unable to close the databases; " + dbe.getMessage());
-                        }
-                    }
-
-                    deque.clear();
-                }
-            }
-
             ((JeTransactionImpl) txn).invalidate();
         }
     }
@@ -275,7 +266,6 @@ public final class JeDataProviderImpl extends AbstractDataProvider
 
         checkTransaction(txn);
 
-        final ConcurrentMap<String, Deque<Database>> databases = activeTransactions.remove(txn);
         final com.sleepycat.je.Transaction internalTxn = ((JeTransactionImpl) txn).getTransaction();
 
         try
@@ -291,27 +281,6 @@ public final class JeDataProviderImpl extends AbstractDataProvider
         }
         finally
         {
-            if (databases != null)
-            {
-                for (Deque<Database> deque : databases.values())
-                {
-                    Iterator<Database> it = deque.iterator();
-                    while (it.hasNext())
-                    {
-                        try
-                        {
-                            it.next().close();
-                        }
-                        catch (final DatabaseException dbe)
-                        {
-                            logger.warn("Unable to close the databases; " + dbe.getMessage());
-                        }
-                    }
-
-                    deque.clear();
-                }
-            }
-
             ((JeTransactionImpl) txn).invalidate();
         }
     }
@@ -337,8 +306,15 @@ public final class JeDataProviderImpl extends AbstractDataProvider
             if (maxFileSize != null)
                 envConfig.setConfigParam(EnvironmentConfig.LOG_FILE_MAX, maxFileSize.toString());
 
+            keyCodec = EntityUtils.keyCodec(keyCodecName);
             dbenv = new Environment(new File(databaseHome), envConfig);
-            serializer = new JSONSerializer(); // FIXME use compressPayload flag
+            if ("binary".equalsIgnoreCase(serializerName))
+                serializer = new BinarySerializer(compressPayload, compressThreshold);
+            else if ("json".equalsIgnoreCase(serializerName))
+                serializer = new JSONSerializer();
+            else
+                throw new IllegalStateException(
+                        "Cannot initialize database environment; invalid parameter 'serializer'");
             secondaryKeyCreatorCache = CacheBuilder
                     .newInstance()
                     .hardLimitSize(200L)
@@ -346,6 +322,13 @@ public final class JeDataProviderImpl extends AbstractDataProvider
                     .accessTimeout(30L, TimeUnit.MINUTES)
                     .evictionPolicy(EvictionPolicy.LRU)
                     .build();
+            if (cursorPrefetch > 0)
+                prefetchExecutor = Executors.newCachedThreadPool(r ->
+                {
+                    final Thread thread = new Thread(r, "udao-je-prefetch");
+                    thread.setDaemon(true);
+                    return thread;
+                });
         }
         catch (final Exception e)
         {
@@ -359,9 +342,28 @@ public final class JeDataProviderImpl extends AbstractDataProvider
     {
         try
         {
+            if (prefetchExecutor != null)
+            {
+                prefetchExecutor.shutdownNow();
+                prefetchExecutor = null;
+            }
+
+            for (final Database db : databases.values())
+            {
+                try
+                {
+                    db.close();
+                }
+                catch (final DatabaseException dbe)
+                {
+                    logger.warn("Unable to close the database; " + dbe.getMessage());
+                }
+            }
+            databases.clear();
+
             if (dbenv != null)
             {
-                // FIXME should handle open resources (database, cursors etc)
+                // FIXME should handle open resources (cursors etc)
                 dbenv.sync();
                 dbenv.close();
             }
@@ -377,77 +379,115 @@ public final class JeDataProviderImpl extends AbstractDataProvider
         return serializer;
     }
 
+    KeyCodec getKeyCodec()
+    {
+        return keyCodec;
+    }
+
+    ScrollMode getScrollMode()
+    {
+        return scrollMode;
+    }
+
+    int getCursorPrefetch()
+    {
+        return cursorPrefetch;
+    }
+
+    int getCreateChunkSize()
+    {
+        return createChunkSize;
+    }
+
+    ExecutorService getPrefetchExecutor()
+    {
+        return prefetchExecutor;
+    }
+
     io.perbone.mkey.Cache getSecondaryKeyCreatorCache()
     {
         return secondaryKeyCreatorCache;
     }
 
+    /**
+     * Returns the database handle for the given table name.
+     * <p>
+     * Handles are opened on first use and kept in a registry for the provider lifetime. JE database
+     * handles are thread safe and, when opened transactional, can be used with or without an
+     * explicit transaction; so the same handle serves every caller.
+     * 
+     * @param txn
+     *            the active transaction
+     * @param tableName
+     *            the database (table) name
+     * 
+     * @return the database object
+     * 
+     * @throws DataProviderException
+     *             if an error occurs during this operation
+     */
     Database openDatabase(final Transaction txn, final String tableName) throws DataProviderException
     {
-        Database db = null;
-
         try
         {
-            if (txn == null)
-            {
-                db = openOrCreateDatabase(txn, tableName);
-            }
-            else
-            {
-                ConcurrentMap<String, Deque<Database>> databases = activeTransactions.get(txn);
-                Deque<Database> newDeque = new ConcurrentLinkedDeque<>();
-                Deque<Database> deque = databases.putIfAbsent(tableName, newDeque);
-
-                if (deque == null)
-                {
-                    deque = newDeque;
-                }
-
-                db = deque.poll();
-
-                if (db == null)
-                {
-                    db = openOrCreateDatabase(txn, tableName);
-                }
-            }
+            return databases.computeIfAbsent(tableName, this::openOrCreateDatabase);
         }
         catch (final DatabaseException dbe)
         {
             throw new DataProviderException("Could not open the database", dbe);
         }
-
-        return db;
     }
 
     /**
-     * Closes the given database object.
+     * Releases the given database object.
      * <p>
-     * If there is an active transaction the database closing will be deferred.
+     * Registry handles stay open until the provider shutdown so this is a no-op for them; any other
+     * handle is closed right away.
      * 
      * @param txn
      *            the active transaction
      * @param db
-     *            the database to close
+     *            the database to release
      * 
      * @throws DataProviderException
      *             if an error occurs during this operation
      */
     void closeDatabase(final Transaction txn, final Database db) throws DataProviderException
     {
-        if (txn == null)
+        if (databases.get(db.getDatabaseName()) == db)
+            return;
+
+        try
         {
-            try
-            {
-                db.close();
-            }
-            catch (final DatabaseException dbe)
-            {
-                throw new DataProviderException("Could not close the database", dbe);
-            }
+            db.close();
+        }
+        catch (final DatabaseException dbe)
+        {
+            throw new DataProviderException("Could not close the database", dbe);
+        }
+    }
+
+    /**
+     * Begins an internal transaction grouping the writes of a bulk operation made with no user
+     * transaction.
+     * 
+     * @return the JE transaction object or <tt>null</tt> if the environment is not transactional
+     * 
+     * @throws DataProviderException
+     *             if an error occurs during this operation
+     */
+    com.sleepycat.je.Transaction beginInternalTransaction() throws DataProviderException
+    {
+        if (!transactional)
+            return null;
+
+        try
+        {
+            return dbenv.beginTransaction(null, null);
         }
-        else
+        catch (final DatabaseException dbe)
         {
-            activeTransactions.get(txn).get(db.getDatabaseName()).add(db);
+            throw new DataProviderException("Could not begin the internal transaction", dbe);
         }
     }
 
@@ -475,9 +515,10 @@ public final class JeDataProviderImpl extends AbstractDataProvider
 
     /**
      * Opens, and optionally creates, a Database.
+     * <p>
+     * The handle is opened outside any user transaction and is transactional whenever the
+     * environment is, so it can be shared by transactional and non transactional operations.
      * 
-     * @param txn
-     *            the active transaction
      * @param tableName
      *            the database (table) name
      * 
@@ -486,15 +527,15 @@ public final class JeDataProviderImpl extends AbstractDataProvider
      * @throws DatabaseException
      *             if an error occurs during this operation
      */
-    private Database openOrCreateDatabase(final Transaction txn, final String tableName) throws DatabaseException
+    private Database openOrCreateDatabase(final String tableName) throws DatabaseException
     {
         final DatabaseConfig dbConfig = new DatabaseConfig();
 
         dbConfig.setReadOnly(isReadOnly());
         dbConfig.setAllowCreate(allowCreate && !isReadOnly());
-        dbConfig.setTransactional(txn != null);
+        dbConfig.setTransactional(transactional);
 
-        return dbenv.openDatabase(txn == null ? null : ((JeTransactionImpl) txn).getTransaction(), tableName, dbConfig);
+        return dbenv.openDatabase(null, tableName, dbConfig);
     }
 
     /**
@@ -19,11 +19,18 @@
 
 package io.perbone.udao.provider.je;
 
+import static io.perbone.udao.Cursor.ScrollMode.TYPE_FORWARD_ONLY;
+
 import java.lang.reflect.Array;
-import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
 
 import com.sleepycat.je.CursorConfig;
 import com.sleepycat.je.Database;
@@ -37,6 +44,7 @@ import io.perbone.toolbox.provider.NotEnoughResourceException;
 import io.perbone.toolbox.provider.OperationTimeoutException;
 import io.perbone.toolbox.serialization.Serializer;
 import io.perbone.udao.Cursor;
+import io.perbone.udao.Cursor.ScrollMode;
 import io.perbone.udao.DataConstraintViolationException;
 import io.perbone.udao.KeyViolationException;
 import io.perbone.udao.NotFoundException;
@@ -49,7 +57,9 @@ import io.perbone.udao.spi.internal.AbstractDataSource;
 import io.perbone.udao.spi.internal.SimpleCursor;
 import io.perbone.udao.transaction.Transaction;
 import io.perbone.udao.transaction.TransactionException;
+import io.perbone.udao.util.EntityKey;
 import io.perbone.udao.util.EntityUtils;
+import io.perbone.udao.util.KeyCodec;
 import io.perbone.udao.util.StorableInfo;
 
 /**
@@ -64,11 +74,14 @@ class JeDataSourceImpl extends AbstractDataSource
     public static final String CHARSET_UTF8 = "UTF-8";
     public static final String DEFAULT_TARGET_NAME = "nosql";
 
+    /** Minimum list size for serializing the beans of a list create in parallel */
+    private static final int PARALLEL_SERIALIZATION_THRESHOLD = 256;
+
     private final JeDataProviderImpl provider;
 
     private final Serializer serializer;
 
-    private final Charset charset = Charset.forName(CHARSET_UTF8);
+    private final KeyCodec keyCodec;
 
     public JeDataSourceImpl(final JeDataProviderImpl provider)
     {
@@ -76,6 +89,7 @@ class JeDataSourceImpl extends AbstractDataSource
 
         this.provider = provider;
         this.serializer = provider.getSerializer();
+        this.keyCodec = provider.getKeyCodec();
     }
 
     @Override
@@ -111,11 +125,10 @@ class JeDataSourceImpl extends AbstractDataSource
         {
             final byte[] bytes = serializer.deflate(bean);
 
-            final String skey = EntityUtils.surrogateKeyHash(bean);
-            final String pkey = EntityUtils.primaryKeyHash(bean);
-            final List<String> akeys = EntityUtils.alternateKeyHashes(bean);
+            final EntityKey skey = keyCodec.surrogateKey(bean);
+            final EntityKey pkey = skey == null ? keyCodec.primaryKey(bean) : null;
 
-            final DatabaseEntry key = new DatabaseEntry(skey == null ? getBytes(pkey) : getBytes(skey));
+            final DatabaseEntry key = new DatabaseEntry(skey == null ? pkey.bytes() : skey.bytes());
             final DatabaseEntry data = new DatabaseEntry(bytes);
 
             final OperationStatus status = db.putNoOverwrite(getTransaction(txn), key, data);
@@ -154,8 +167,9 @@ class JeDataSourceImpl extends AbstractDataSource
             KeyViolationException, DataConstraintViolationException, OperationTimeoutException,
             NotEnoughResourceException, DataProviderException
     {
-        // TODO Auto-generated method stub
-        return super.create(txn, cache, beans);
+        createBulk(txn, cache, beans, 0L, TimeUnit.NANOSECONDS);
+
+        return beans;
     }
 
     @Override
@@ -164,8 +178,9 @@ class JeDataSourceImpl extends AbstractDataSource
             TransactionException, KeyViolationException, DataConstraintViolationException, OperationTimeoutException,
             NotEnoughResourceException, DataProviderException
     {
-        // TODO Auto-generated method stub
-        return super.create(txn, cache, beans, ttl, unit);
+        createBulk(txn, cache, beans, ttl, unit);
+
+        return beans;
     }
 
     @Override
@@ -174,8 +189,7 @@ class JeDataSourceImpl extends AbstractDataSource
             KeyViolationException, DataConstraintViolationException, OperationTimeoutException,
             NotEnoughResourceException, DataProviderException
     {
-        // TODO Auto-generated method stub
-        return super.save(txn, cache, bean);
+        return save(txn, cache, bean, 0L, TimeUnit.NANOSECONDS);
     }
 
     @Override
@@ -184,8 +198,34 @@ class JeDataSourceImpl extends AbstractDataSource
             KeyViolationException, DataConstraintViolationException, OperationTimeoutException,
             NotEnoughResourceException, DataProviderException
     {
-        // TODO Auto-generated method stub
-        return super.save(txn, cache, bean, ttl, unit);
+        final StorableInfo sinfo = EntityUtils.info(bean.getClass());
+
+        final String tableName = parseTableName(DEFAULT_TARGET_NAME, sinfo);
+
+        final Database db = provider.openDatabase(txn, tableName);
+
+        try
+        {
+            final DatabaseEntry key = new DatabaseEntry(entityKey(bean).bytes());
+            final DatabaseEntry data = new DatabaseEntry(serializer.deflate(bean));
+
+            final OperationStatus status = db.put(getTransaction(txn), key, data);
+
+            if (status != OperationStatus.SUCCESS)
+                throw new DataProviderException(MESSAGE_COULD_NOT_UPDATE);
+        }
+        catch (final DatabaseException dbe)
+        {
+            throw new DataProviderException(MESSAGE_COULD_NOT_UPDATE, dbe);
+        }
+        finally
+        {
+            provider.closeDatabase(txn, db);
+        }
+
+        refreshIt(txn, cache, bean, ttl, unit);
+
+        return bean;
     }
 
     @Override
@@ -194,8 +234,7 @@ class JeDataSourceImpl extends AbstractDataSource
             KeyViolationException, DataConstraintViolationException, OperationTimeoutException,
             NotEnoughResourceException, DataProviderException
     {
-        // TODO Auto-generated method stub
-        return super.save(txn, cache, beans);
+        return save(txn, cache, beans, 0L, TimeUnit.NANOSECONDS);
     }
 
     @Override
@@ -204,8 +243,12 @@ class JeDataSourceImpl extends AbstractDataSource
             TransactionException, KeyViolationException, DataConstraintViolationException, OperationTimeoutException,
             NotEnoughResourceException, DataProviderException
     {
-        // TODO Auto-generated method stub
-        return super.save(txn, cache, beans, ttl, unit);
+        putBulk(txn, beans, false);
+
+        for (final T bean : beans)
+            refreshIt(txn, cache, bean, ttl, unit);
+
+        return beans;
     }
 
     @Override
@@ -226,9 +269,9 @@ class JeDataSourceImpl extends AbstractDataSource
 
         try
         {
-            final String skey = EntityUtils.surrogateKeyHash(type, id);
+            final EntityKey skey = keyCodec.surrogateKey(type, id);
 
-            final DatabaseEntry key = new DatabaseEntry(getBytes(skey));
+            final DatabaseEntry key = new DatabaseEntry(skey.bytes());
             final DatabaseEntry data = new DatabaseEntry();
 
             final OperationStatus status = db.get(getTransaction(txn), key, data, LockMode.DEFAULT);
@@ -259,8 +302,88 @@ class JeDataSourceImpl extends AbstractDataSource
             throws UnsupportedOperationException, IllegalStateException, IllegalArgumentException, TransactionException,
             NotFoundException, OperationTimeoutException, NotEnoughResourceException, DataProviderException
     {
-        // TODO Auto-generated method stub
-        return super.fetchI(txn, cache, type, ids);
+        final Map<EntityKey, T> beans = new HashMap<>();
+
+        /* Cache probing; only the misses go to the database */
+        final List<EntityKey> misses = new ArrayList<>();
+        for (final Object id : ids)
+        {
+            final EntityKey skey = keyCodec.surrogateKey(type, id);
+            if (beans.containsKey(skey))
+                continue;
+
+            final T bean = cache.getI(id);
+            beans.put(skey, bean);
+            if (bean == null)
+                misses.add(skey);
+        }
+
+        if (!misses.isEmpty())
+        {
+            final StorableInfo sinfo = EntityUtils.info(type);
+
+            final String tableName = parseTableName(DEFAULT_TARGET_NAME, sinfo);
+
+            final Database db = provider.openDatabase(txn, tableName);
+
+            com.sleepycat.je.Cursor cursor = null;
+
+            try
+            {
+                /* Key order so the single cursor pass walks the btree forward */
+                Collections.sort(misses, (a, b) -> compareKeys(a.bytes(), b.bytes()));
+
+                cursor = db.openCursor(getTransaction(txn), null);
+
+                final DatabaseEntry data = new DatabaseEntry();
+
+                for (final EntityKey skey : misses)
+                {
+                    final OperationStatus status = cursor.getSearchKey(new DatabaseEntry(skey.bytes()), data,
+                            LockMode.DEFAULT);
+
+                    if (status == OperationStatus.SUCCESS)
+                    {
+                        // Instantiate and populate a new bean
+                        final T bean = serializer.inflate(type, data.getData());
+
+                        /* Caches it */
+                        cacheIt(txn, cache, bean);
+
+                        beans.put(skey, bean);
+                    }
+                }
+            }
+            catch (final DatabaseException dbe)
+            {
+                throw new DataProviderException(dbe);
+            }
+            finally
+            {
+                try
+                {
+                    if (cursor != null)
+                        cursor.close();
+                }
+                catch (final DatabaseException dbe)
+                {
+                    // Nothing to do; the database handle is released anyway
+                }
+
+                provider.closeDatabase(txn, db);
+            }
+        }
+
+        /* Ids order; ids matching no bean are left out */
+        final List<T> result = new ArrayList<>(ids.length);
+        for (final Object id : ids)
+        {
+            final T bean = beans.get(keyCodec.surrogateKey(type, id));
+            if (bean != null)
+                result.add(bean);
+        }
+
+        return result;
     }
 
     @Override
@@ -281,9 +404,9 @@ class JeDataSourceImpl extends AbstractDataSource
 
         try
         {
-            final String pkey = EntityUtils.primaryKeyHash(type, keys);
+            final EntityKey pkey = keyCodec.primaryKey(type, keys);
 
-            final DatabaseEntry key = new DatabaseEntry(getBytes(pkey));
+            final DatabaseEntry key = new DatabaseEntry(pkey.bytes());
             final DatabaseEntry data = new DatabaseEntry();
 
             final OperationStatus status = db.get(getTransaction(txn), key, data, LockMode.DEFAULT);
@@ -397,9 +520,9 @@ class JeDataSourceImpl extends AbstractDataSource
         {
             final byte[] bytes = serializer.deflate(bean);
 
-            final String skey = EntityUtils.surrogateKeyHash(type, id);
+            final EntityKey skey = keyCodec.surrogateKey(type, id);
 
-            final DatabaseEntry key = new DatabaseEntry(getBytes(skey));
+            final DatabaseEntry key = new DatabaseEntry(skey.bytes());
             final DatabaseEntry data = new DatabaseEntry(bytes);
 
             final OperationStatus status = db.put(getTransaction(txn), key, data);
@@ -450,9 +573,9 @@ class JeDataSourceImpl extends AbstractDataSource
         {
             final byte[] bytes = serializer.deflate(bean);
 
-            final String pkey = EntityUtils.primaryKeyHash(type, keys);
+            final EntityKey pkey = keyCodec.primaryKey(type, keys);
 
-            final DatabaseEntry key = new DatabaseEntry(getBytes(pkey));
+            final DatabaseEntry key = new DatabaseEntry(pkey.bytes());
             final DatabaseEntry data = new DatabaseEntry(bytes);
 
             final OperationStatus status = db.put(getTransaction(txn), key, data);
@@ -528,9 +651,9 @@ class JeDataSourceImpl extends AbstractDataSource
         {
             final byte[] bytes = serializer.deflate(bean);
 
-            final String skey = EntityUtils.surrogateKeyHash(type, id);
+            final EntityKey skey = keyCodec.surrogateKey(type, id);
 
-            final DatabaseEntry key = new DatabaseEntry(getBytes(skey));
+            final DatabaseEntry key = new DatabaseEntry(skey.bytes());
             final DatabaseEntry data = new DatabaseEntry(bytes);
 
             final OperationStatus status = db.put(getTransaction(txn), key, data);
@@ -585,9 +708,9 @@ class JeDataSourceImpl extends AbstractDataSource
         {
             final byte[] bytes = serializer.deflate(bean);
 
-            final String pkey = EntityUtils.primaryKeyHash(type, keys);
+            final EntityKey pkey = keyCodec.primaryKey(type, keys);
 
-            final DatabaseEntry key = new DatabaseEntry(getBytes(pkey));
+            final DatabaseEntry key = new DatabaseEntry(pkey.bytes());
             final DatabaseEntry data = new DatabaseEntry(bytes);
 
             final OperationStatus status = db.put(getTransaction(txn), key, data);
@@ -641,6 +764,36 @@ class JeDataSourceImpl extends AbstractDataSource
         return super.patchA(txn, cache, bean, ttl, unit, name, keys);
     }
 
+    @Override
+    public <T> List<T> update(final Transaction txn, final Cache cache, final List<T> beans)
+            throws UnsupportedOperationException, IllegalStateException, IllegalArgumentException, TransactionException,
+            NotFoundException, KeyViolationException, DataConstraintViolationException, OperationTimeoutException,
+            NotEnoughResourceException, DataProviderException
+    {
+        putBulk(txn, beans, false);
+
+        /* Clears these (potentially dirty) beans from cache */
+        for (final T bean : beans)
+            cache.delete(bean);
+
+        return beans;
+    }
+
+    @Override
+    public <T> List<T> patch(final Transaction txn, final Cache cache, final List<T> beans)
+            throws UnsupportedOperationException, IllegalStateException, IllegalArgumentException, TransactionException,
+            NotFoundException, KeyViolationException, DataConstraintViolationException, OperationTimeoutException,
+            NotEnoughResourceException, DataProviderException
+    {
+        putBulk(txn, beans, true);
+
+        /* Clears these (potentially dirty) beans from cache */
+        for (final T bean : beans)
+            cache.delete(bean);
+
+        return beans;
+    }
+
     @Override
     public void touchI(final Transaction txn, final Cache cache, final Class<?> type, final Object id)
             throws UnsupportedOperationException, IllegalStateException, IllegalArgumentException, TransactionException,
@@ -716,9 +869,9 @@ class JeDataSourceImpl extends AbstractDataSource
 
         try
         {
-            final String skey = EntityUtils.surrogateKeyHash(type, id);
+            final EntityKey skey = keyCodec.surrogateKey(type, id);
 
-            final DatabaseEntry key = new DatabaseEntry(getBytes(skey));
+            final DatabaseEntry key = new DatabaseEntry(skey.bytes());
 
             final OperationStatus status = db.delete(getTransaction(txn), key);
 
@@ -768,6 +921,40 @@ class JeDataSourceImpl extends AbstractDataSource
         super.deleteX(txn, cache, type, beans);
     }
 
+    @Override
+    public void deleteI(final Transaction txn, final Cache cache, final Class<?> type, final Object... ids)
+            throws UnsupportedOperationException, IllegalStateException, IllegalArgumentException, TransactionException,
+            NotFoundException, KeyViolationException, DataConstraintViolationException, OperationTimeoutException,
+            NotEnoughResourceException, DataProviderException
+    {
+        final List<EntityKey> keys = new ArrayList<>(ids.length);
+        for (final Object id : ids)
+            keys.add(keyCodec.surrogateKey(type, id));
+
+        deleteBulk(txn, EntityUtils.info(type), keys);
+
+        /* Deletes from cache */
+        for (final Object id : ids)
+            cache.deleteI(id);
+    }
+
+    @Override
+    public <T> void delete(final Transaction txn, final Cache cache, final List<T> beans)
+            throws UnsupportedOperationException, IllegalStateException, IllegalArgumentException, TransactionException,
+            NotFoundException, KeyViolationException, DataConstraintViolationException, OperationTimeoutException,
+            NotEnoughResourceException, DataProviderException
+    {
+        final List<EntityKey> keys = new ArrayList<>(beans.size());
+        for (final T bean : beans)
+            keys.add(entityKey(bean));
+
+        deleteBulk(txn, EntityUtils.info(beans.get(0).getClass()), keys);
+
+        /* Deletes from cache */
+        for (final T bean : beans)
+            cache.delete(bean);
+    }
+
     @Override
     public <T> T removeI(final Transaction txn, final Cache cache, final Class<T> type, final Object id)
             throws UnsupportedOperationException, IllegalStateException, IllegalArgumentException, TransactionException,
@@ -803,6 +990,9 @@ class JeDataSourceImpl extends AbstractDataSource
             throws UnsupportedOperationException, IllegalStateException, IllegalArgumentException, TransactionException,
             OperationTimeoutException, NotEnoughResourceException, DataProviderException
     {
+        if (provider.getScrollMode() == TYPE_FORWARD_ONLY)
+            return openStreamingCursor(txn, cache, type, 0L, Long.MAX_VALUE);
+
         Cursor<T> result = null;
 
         final StorableInfo sinfo = EntityUtils.info(type);
@@ -891,6 +1081,11 @@ class JeDataSourceImpl extends AbstractDataSource
             throw new UnsupportedOperationException(
                     MESSAGE_FAIL_UNSUPPORTED_OPERATION + "; missing offset and/or limit");
 
+        final ScrollMode mode = query.scrollMode() == null ? provider.getScrollMode() : query.scrollMode();
+
+        if (mode == TYPE_FORWARD_ONLY)
+            return openStreamingCursor(txn, cache, type, Math.max(query.offset() - 1, 0L), query.limit());
+
         Cursor<T> result = null;
 
         final StorableInfo sinfo = EntityUtils.info(type);
@@ -956,6 +1151,54 @@ class JeDataSourceImpl extends AbstractDataSource
         return result;
     }
 
+    /**
+     * Opens a streaming cursor over the beans stored for the given type.
+     * <p>
+     * The JE cursor and its database stay open until the returned cursor is exhausted or closed.
+     * Records are prefetched by the provider executor only outside transactions as the JE cursor
+     * must not be shared with the transaction thread. The JE cursor is opened by the thread that
+     * reads it, which is the prefetch producer when prefetching.
+     * 
+     * @param txn
+     *            the current transaction or {@code null} when there is no active transaction
+     * @param cache
+     *            the cache for the bean type
+     * @param type
+     *            the bean type
+     * @param offset
+     *            the number of records to skip before the first bean
+     * @param limit
+     *            the maximum number of beans to return
+     * 
+     * @return the streaming cursor
+     * 
+     * @throws DataProviderException
+     *             if cannot open the JE cursor
+     */
+    private <T> Cursor<T> openStreamingCursor(final Transaction txn, final Cache cache, final Class<T> type,
+            final long offset, final long limit) throws DataProviderException
+    {
+        final StorableInfo sinfo = EntityUtils.info(type);
+
+        final String tableName = parseTableName(DEFAULT_TARGET_NAME, sinfo);
+
+        final Database db = provider.openDatabase(txn, tableName);
+
+        // Forward only so it is safe to use a lock of type READ_COMMITTED
+        final Supplier<com.sleepycat.je.Cursor> opener = () -> db.openCursor(getTransaction(txn),
+                CursorConfig.READ_COMMITTED);
+
+        return new StreamingCursor<T>(type, opener, data ->
+        {
+            // Instantiate and populate a new bean
+            final T bean = serializer.inflate(type, data);
+            // Caches the new bean
+            cacheIt(txn, cache, bean);
+            return bean;
+        }, () -> provider.closeDatabase(txn, db), offset, limit, txn == null ? provider.getCursorPrefetch() : 0,
+                provider.getPrefetchExecutor());
+    }
+
     @Override
     public <T> Cursor<T> cursorN(final Transaction txn, final Cache cache, final Class<T> type, String nquery)
             throws UnsupportedOperationException, IllegalStateException, IllegalArgumentException, TransactionException,
@@ -1105,16 +1348,351 @@ class JeDataSourceImpl extends AbstractDataSource
     }
 
     /**
-     * Encodes the given {@code String} into a sequence of bytes using the proper charset.
+     * Compares two keys the way the JE default btree comparator does: unsigned byte by byte.
+     */
+    private static int compareKeys(final byte[] a, final byte[] b)
+    {
+        final int length = Math.min(a.length, b.length);
+
+        for (int i = 0; i < length; i++)
+        {
+            final int diff = (a[i] & 0xFF) - (b[i] & 0xFF);
+            if (diff != 0)
+                return diff;
+        }
+
+        return a.length - b.length;
+    }
+
+    /**
+     * Creates the beans in key order.
+     * <p>
+     * The beans are serialized up front, in parallel for large lists, and written sorted by key so
+     * the inserts land sequentially on the B-tree. The writes join the user transaction if there is
+     * one; otherwise they are committed in internal transactions of <tt>create-chunk-size</tt> beans,
+     * or all in a single one when it is zero. A chunk with key violations is aborted as a whole and
+     * the exception reports the list position of every offending bean.
+     * <p>
+     * With several chunks the creation is not atomic: the chunks committed before a failing one stay
+     * committed. Their beans are cached and the exception also reports their list positions so the
+     * caller can tell the created beans from the rest.
      * 
-     * @param value
-     *            the string to encode
+     * @param txn
+     *            the udao transaction object or <tt>null</tt>
+     * @param cache
+     *            the bean type cache
+     * @param beans
+     *            the beans to create
+     * @param ttl
+     *            the cache time to live; zero for the cache default
+     * @param unit
+     *            the time to live unit
      * 
-     * @return the encoded string into a new byte array
+     * @throws KeyViolationException
+     *             if any bean key is already stored or repeated in the list
      */
-    private byte[] getBytes(final String value)
+    private <T> void createBulk(final Transaction txn, final Cache cache, final List<T> beans, final long ttl,
+            final TimeUnit unit) throws KeyViolationException, DataProviderException
     {
-        return value.getBytes(charset);
+        final StorableInfo sinfo = EntityUtils.info(beans.get(0).getClass());
+
+        final String tableName = parseTableName(DEFAULT_TARGET_NAME, sinfo);
+
+        final Record[] records = new Record[beans.size()];
+
+        for (int i = 0; i < records.length; i++)
+            records[i] = new Record(i, entityKey(beans.get(i)).bytes());
+
+        final IntStream indexes = IntStream.range(0, records.length);
+        (records.length < PARALLEL_SERIALIZATION_THRESHOLD ? indexes : indexes.parallel())
+                .forEach(i -> records[i].data = serializer.deflate(beans.get(i)));
+
+        Arrays.sort(records, (a, b) -> compareKeys(a.key, b.key));
+
+        final List<Integer> violations = new ArrayList<>();
+
+        for (int i = 0; i < records.length; i++)
+        {
+            if (cache.contains(beans.get(records[i].index))
+                    || (i > 0 && compareKeys(records[i - 1].key, records[i].key) == 0))
+                violations.add(records[i].index);
+        }
+
+        if (!violations.isEmpty())
+            throw keyViolation(violations);
+
+        final int chunkSize = txn == null && provider.getCreateChunkSize() > 0 ? provider.getCreateChunkSize()
+                : records.length;
+
+        final Database db = provider.openDatabase(txn, tableName);
+
+        /* List positions of the beans in the chunks already committed */
+        final List<Integer> committed = new ArrayList<>();
+
+        try
+        {
+            for (int from = 0; from < records.length; from += chunkSize)
+            {
+                final com.sleepycat.je.Transaction internalTxn = txn == null ? provider.beginInternalTransaction()
+                        : null;
+                final com.sleepycat.je.Transaction jeTxn = txn == null ? internalTxn : getTransaction(txn);
+
+                try
+                {
+                    for (int i = from; i < Math.min(from + chunkSize, records.length); i++)
+                    {
+                        final DatabaseEntry key = new DatabaseEntry(records[i].key);
+                        final DatabaseEntry data = new DatabaseEntry(records[i].data);
+
+                        if (db.putNoOverwrite(jeTxn, key, data) == OperationStatus.KEYEXIST)
+                            violations.add(records[i].index);
+                    }
+
+                    if (!violations.isEmpty())
+                        throw keyViolation(violations, committed);
+
+                    commitInternal(internalTxn);
+
+                    if (internalTxn != null)
+                    {
+                        for (int i = from; i < Math.min(from + chunkSize, records.length); i++)
+                            committed.add(records[i].index);
+                    }
+                }
+                finally
+                {
+                    abortInternal(internalTxn);
+                }
+            }
+        }
+        catch (final DatabaseException dbe)
+        {
+            throw new DataProviderException(
+                    String.format("Could not create the beans%s", committedNote(committed)), dbe);
+        }
+        finally
+        {
+            provider.closeDatabase(txn, db);
+
+            /* Caches the beans of the chunks committed before a failure */
+            if (!committed.isEmpty() && committed.size() < records.length)
+            {
+                for (final Integer position : committed)
+                    cacheCreated(cache, beans.get(position), ttl, unit);
+            }
+        }
+
+        /* Caches them */
+        if (!transactionInProgress(txn))
+        {
+            for (final T bean : beans)
+                cacheCreated(cache, bean, ttl, unit);
+        }
+    }
+
+    private static void cacheCreated(final Cache cache, final Object bean, final long ttl, final TimeUnit unit)
+    {
+        if (ttl > 0)
+            cache.add(bean, ttl, unit);
+        else
+            cache.add(bean);
+    }
+
+    /**
+     * Builds the key violation exception for the given bean list positions.
+     * 
+     * @param positions
+     *            the positions of the offending beans
+     * 
+     * @return the exception object
+     */
+    private KeyViolationException keyViolation(final List<Integer> positions)
+    {
+        return keyViolation(positions, Collections.emptyList());
+    }
+
+    /**
+     * Builds the key violation exception for the given bean list positions, also reporting the beans
+     * already committed.
+     * 
+     * @param positions
+     *            the positions of the offending beans
+     * @param committed
+     *            the positions of the beans already committed
+     * 
+     * @return the exception object
+     */
+    private KeyViolationException keyViolation(final List<Integer> positions, final List<Integer> committed)
+    {
+        Collections.sort(positions);
+
+        return new KeyViolationException(String.format("%s for the beans at %s%s", MESSAGE_KEY_VIOLATION, positions,
+                committedNote(committed)));
+    }
+
+    /**
+     * Describes the beans committed before a failure, if any.
+     */
+    private static String committedNote(final List<Integer> committed)
+    {
+        if (committed.isEmpty())
+            return "";
+
+        final List<Integer> positions = new ArrayList<>(committed);
+        Collections.sort(positions);
+
+        return String.format("; the beans at %s were already committed", positions);
+    }
+
+    /**
+     * Writes the beans in one JE transaction, replacing the stored ones.
+     * <p>
+     * The writes join the user transaction if there is one; otherwise an internal transaction is
+     * committed once all of them succeed.
+     * 
+     * @param txn
+     *            the udao transaction object or <tt>null</tt>
+     * @param beans
+     *            the beans to update
+     * @param patch
+     *            <tt>true</tt> for patch behavior; <tt>false</tt> otherwise
+     * 
+     * @throws NotFoundException
+     *             if a bean to patch is not stored
+     */
+    private <T> void putBulk(final Transaction txn, final List<T> beans, final boolean patch)
+            throws NotFoundException, DataProviderException
+    {
+        final Class<T> type = (Class<T>) beans.get(0).getClass();
+
+        final StorableInfo sinfo = EntityUtils.info(type);
+
+        final String tableName = parseTableName(DEFAULT_TARGET_NAME, sinfo);
+
+        final Database db = provider.openDatabase(txn, tableName);
+
+        final com.sleepycat.je.Transaction internalTxn = txn == null ? provider.beginInternalTransaction() : null;
+        final com.sleepycat.je.Transaction jeTxn = txn == null ? internalTxn : getTransaction(txn);
+
+        try
+        {
+            for (final T bean : beans)
+            {
+                final DatabaseEntry key = new DatabaseEntry(entityKey(bean).bytes());
+
+                if (patch)
+                {
+                    // Copy the current values to the null ones (patch behavior)
+                    final DatabaseEntry current = new DatabaseEntry();
+
+                    if (db.get(jeTxn, key, current, LockMode.RMW) != OperationStatus.SUCCESS)
+                        throw new NotFoundException("The key did not match any bean");
+
+                    EntityUtils.copy(serializer.inflate(type, current.getData()), bean, false);
+                }
+
+                final OperationStatus status = db.put(jeTxn, key, new DatabaseEntry(serializer.deflate(bean)));
+
+                if (status != OperationStatus.SUCCESS)
+                    throw new DataProviderException(MESSAGE_COULD_NOT_UPDATE);
+            }
+
+            commitInternal(internalTxn);
+        }
+        catch (final DatabaseException dbe)
+        {
+            throw new DataProviderException(MESSAGE_COULD_NOT_UPDATE, dbe);
+        }
+        finally
+        {
+            abortInternal(internalTxn);
+            provider.closeDatabase(txn, db);
+        }
+    }
+
+    /**
+     * Deletes the records with the given keys in one JE transaction.
+     * 
+     * @param txn
+     *            the udao transaction object or <tt>null</tt>
+     * @param sinfo
+     *            the bean storable info object
+     * @param keys
+     *            the record keys
+     * 
+     * @throws NotFoundException
+     *             if any key did not match a record
+     */
+    private void deleteBulk(final Transaction txn, final StorableInfo sinfo, final List<EntityKey> keys)
+            throws NotFoundException, DataProviderException
+    {
+        final String tableName = parseTableName(DEFAULT_TARGET_NAME, sinfo);
+
+        final Database db = provider.openDatabase(txn, tableName);
+
+        final com.sleepycat.je.Transaction internalTxn = txn == null ? provider.beginInternalTransaction() : null;
+        final com.sleepycat.je.Transaction jeTxn = txn == null ? internalTxn : getTransaction(txn);
+
+        try
+        {
+            for (final EntityKey key : keys)
+            {
+                if (db.delete(jeTxn, new DatabaseEntry(key.bytes())) == OperationStatus.NOTFOUND)
+                    throw new NotFoundException("The key did not match any bean");
+            }
+
+            commitInternal(internalTxn);
+        }
+        catch (final DatabaseException dbe)
+        {
+            throw new DataProviderException(dbe);
+        }
+        finally
+        {
+            abortInternal(internalTxn);
+            provider.closeDatabase(txn, db);
+        }
+    }
+
+    /**
+     * Returns the record key for the bean: its surrogate key if the type has one; otherwise its
+     * primary key.
+     * 
+     * @param bean
+     *            the bean
+     * 
+     * @return the record key
+     */
+    private EntityKey entityKey(final Object bean)
+    {
+        final EntityKey skey = keyCodec.surrogateKey(bean);
+
+        return skey == null ? keyCodec.primaryKey(bean) : skey;
+    }
+
+    /**
+     * Commits the internal transaction, if any.
+     * 
+     * @param internalTxn
+     *            the internal JE transaction or <tt>null</tt>
+     */
+    private void commitInternal(final com.sleepycat.je.Transaction internalTxn)
+    {
+        if (internalTxn != null)
+            internalTxn.commit();
+    }
+
+    /**
+     * Aborts the internal transaction if it is still open, so a failed bulk operation leaves no
+     * partial writes.
+     * 
+     * @param internalTxn
+     *            the internal JE transaction or <tt>null</tt>
+     */
+    private void abortInternal(final com.sleepycat.je.Transaction internalTxn)
+    {
+        if (internalTxn != null && internalTxn.isValid())
+            internalTxn.abort();
     }
 
     /**
@@ -1166,4 +1744,35 @@ class JeDataSourceImpl extends AbstractDataSource
         if (!transactionInProgress(txn))
             cache.add(bean); // Save to cache it
     }
+
+    /**
+     * Replaces the cached bean with the saved one; outside a transaction only, otherwise the bean
+     * is just dropped from cache until the commit.
+     */
+    private void refreshIt(final Transaction txn, final Cache cache, final Object bean, final long ttl,
+            final TimeUnit unit)
+    {
+        if (transactionInProgress(txn))
+            cache.delete(bean);
+        else if (ttl > 0)
+            cache.set(bean, ttl, unit);
+        else
+            cache.set(bean);
+    }
+
+    /**
+     * A bean of a list create: its list position, record key and serialized value.
+     */
+    private static final class Record
+    {
+        final int index;
+        final byte[] key;
+        byte[] data;
+
+        Record(final int index, final byte[] key)
+        {
+            this.index = index;
+            this.key = key;
+        }
+    }
 }
@@ -0,0 +1,696 @@
+/*
+ * This file is part of UDAO 
+ * https://github.com/perbone/udao/
+ * 
+ * Copyright 2013-2018 Paulo Perbone
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package io.perbone.udao.provider.je;
+
+import static io.perbone.udao.Cursor.ScrollMode.TYPE_FORWARD_ONLY;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import com.sleepycat.je.DatabaseEntry;
+import com.sleepycat.je.DatabaseException;
+import com.sleepycat.je.LockMode;
+import com.sleepycat.je.OperationStatus;
+
+import io.perbone.udao.Cursor;
+import io.perbone.udao.DataException;
+import io.perbone.udao.spi.DataProviderException;
+
+/**
+ * Forward-only {@link Cursor} implementation that streams its beans straight from a live JE
+ * {@link com.sleepycat.je.Cursor}.
+ * <p>
+ * Records are read one at a time as the cursor advances and only inflated when fetched, so skipped
+ * records are never deserialized and the whole database never has to fit in the heap. Relative and
+ * absolute moves use the JE cursor skip operations. The JE cursor and its database are held open
+ * until this cursor reaches its end or is closed, whichever comes first, so users must always close
+ * it.
+ * <p>
+ * With a prefetch window a producer task walks the B-tree ahead of the consumer, filling a bounded
+ * queue with raw records while the consumer thread inflates them. The producer then owns the JE
+ * cursor: it opens, reads and closes it on its own thread and hands any failure over to the
+ * consumer, which stops waiting as soon as the producer is gone.
+ * <p>
+ * This class is not thread safe.
+ * 
+ * @author Paulo Perbone <pauloperbone@yahoo.com>
+ * @since 0.17.0
+ */
+@SuppressWarnings("unchecked")
+final class StreamingCursor<T> implements Cursor<T>
+{
+    private static final String MESSAGE_FORWARD_ONLY = "Operation not supported by a forward-only cursor";
+
+    private static final Object END_OF_SET = new Object();
+
+    private static final long OFFER_TIMEOUT = 50L;
+
+    private static final long POLL_TIMEOUT = 50L;
+
+    private final Class<T> type;
+
+    private com.sleepycat.je.Cursor cursor; // Confined to the producer thread when prefetching
+
+    private volatile DatabaseException closeFailure = null;
+
+    private final Function<byte[], T> inflater;
+
+    private final Runnable release;
+
+    private final DatabaseEntry key = new DatabaseEntry();
+
+    private final DatabaseEntry data = new DatabaseEntry();
+
+    private final BlockingQueue<Object> window;
+
+    private final Future<?> producer;
+
+    private volatile boolean stopping = false;
+
+    private long skip;
+
+    private long remaining;
+
+    private byte[] record = null;
+
+    private T current = null;
+
+    private long position = -1;
+
+    private boolean exhausted = false;
+
+    private boolean released = false;
+
+    private boolean closed = false;
+
+    private final Iterator<T> it = new CursorIterator();
+
+    /**
+     * Creates a streaming cursor positioned at the first bean, if any.
+     * 
+     * @param type
+     *            the bean type
+     * @param opener
+     *            opens the JE cursor; called on the thread that reads it
+     * @param inflater
+     *            inflates a raw record into a bean
+     * @param release
+     *            releases the cursor database; called once after the JE cursor is closed
+     * @param offset
+     *            the number of records to skip before the first bean
+     * @param limit
+     *            the maximum number of beans to return
+     * @param prefetch
+     *            the prefetch window size; zero to read on demand
+     * @param executor
+     *            the executor for the prefetch producer; can be <tt>null</tt> when not prefetching
+     * 
+     * @throws DataProviderException
+     *             if cannot open the JE cursor or read the first record
+     */
+    StreamingCursor(final Class<T> type, final Supplier<com.sleepycat.je.Cursor> opener,
+            final Function<byte[], T> inflater, final Runnable release, final long offset, final long limit,
+            final int prefetch, final ExecutorService executor) throws DataProviderException
+    {
+        this.type = type;
+        this.inflater = inflater;
+        this.release = release;
+        this.skip = offset;
+        this.remaining = limit;
+
+        if (prefetch > 0 && executor != null)
+        {
+            window = new ArrayBlockingQueue<Object>(prefetch);
+            producer = executor.submit(() -> produce(opener));
+        }
+        else
+        {
+            window = null;
+            producer = null;
+
+            try
+            {
+                cursor = opener.get();
+            }
+            catch (final DatabaseException dbe)
+            {
+                fail(dbe);
+            }
+        }
+
+        advance();
+    }
+
+    @Override
+    public ScrollMode scrollMode() throws IllegalStateException
+    {
+        checkOpen();
+
+        return TYPE_FORWARD_ONLY;
+    }
+
+    @Override
+    public T fetch() throws IllegalStateException, DataException
+    {
+        checkOpen();
+
+        if (current == null && record != null)
+            current = inflater.apply(record); // Lazy inflation
+
+        return current;
+    }
+
+    @Override
+    public T fetch(final long index) throws IllegalStateException, IllegalArgumentException, DataException
+    {
+        checkOpen();
+
+        throw new UnsupportedOperationException(MESSAGE_FORWARD_ONLY);
+    }
+
+    @Override
+    public T[] toArray()
+    {
+        checkOpen();
+
+        final List<T> beans = new ArrayList<T>();
+
+        while (!exhausted)
+        {
+            beans.add(fetch());
+            advance();
+        }
+
+        return beans.toArray((T[]) Array.newInstance(type, beans.size()));
+    }
+
+    @Override
+    public long position() throws IllegalStateException, DataException
+    {
+        checkOpen();
+
+        return position;
+    }
+
+    @Override
+    public void first() throws IllegalStateException, DataException
+    {
+        checkOpen();
+
+        if (position > 0)
+            throw new UnsupportedOperationException(MESSAGE_FORWARD_ONLY);
+    }
+
+    @Override
+    public void last() throws IllegalStateException, DataException
+    {
+        checkOpen();
+
+        throw new UnsupportedOperationException(MESSAGE_FORWARD_ONLY);
+    }
+
+    @Override
+    public void next() throws IllegalStateException, DataException
+    {
+        checkOpen();
+
+        if (!exhausted)
+            advance();
+    }
+
+    @Override
+    public void previous() throws IllegalStateException, DataException
+    {
+        checkOpen();
+
+        throw new UnsupportedOperationException(MESSAGE_FORWARD_ONLY);
+    }
+
+    @Override
+    public void absolute(final long offset) throws IllegalStateException, DataException
+    {
+        checkOpen();
+
+        if (offset < position)
+            throw new UnsupportedOperationException(MESSAGE_FORWARD_ONLY);
+
+        move(offset - position);
+    }
+
+    @Override
+    public void relative(final long offset) throws IllegalStateException, DataException
+    {
+        checkOpen();
+
+        if (offset < 0)
+            throw new UnsupportedOperationException(MESSAGE_FORWARD_ONLY);
+
+        move(offset);
+    }
+
+    @Override
+    public boolean bos() throws IllegalStateException
+    {
+        checkOpen();
+
+        return position == -1;
+    }
+
+    @Override
+    public boolean eos() throws IllegalStateException
+    {
+        checkOpen();
+
+        return exhausted;
+    }
+
+    @Override
+    public boolean scrollable() throws IllegalStateException
+    {
+        checkOpen();
+
+        return false;
+    }
+
+    @Override
+    public boolean indexable() throws IllegalStateException
+    {
+        checkOpen();
+
+        return false;
+    }
+
+    @Override
+    public boolean countable() throws IllegalStateException
+    {
+        checkOpen();
+
+        return false;
+    }
+
+    @Override
+    public long count() throws IllegalStateException, DataException
+    {
+        checkOpen();
+
+        throw new UnsupportedOperationException("Cannot count a forward-only cursor before its end");
+    }
+
+    @Override
+    public void close() throws DataException
+    {
+        if (!closed)
+        {
+            closed = true;
+            record = null;
+            current = null;
+            releaseResources();
+        }
+    }
+
+    @Override
+    public boolean isOpen()
+    {
+        return !closed;
+    }
+
+    @Override
+    public Iterator<T> iterator()
+    {
+        checkOpen();
+
+        return it;
+    }
+
+    /**
+     * Moves forward the given number of beans skipping the records in between without inflating
+     * them.
+     * 
+     * @param count
+     *            the number of beans to move
+     * 
+     * @throws DataProviderException
+     *             if cannot read the records
+     */
+    private void move(final long count) throws DataProviderException
+    {
+        if (count <= 0 || exhausted)
+            return;
+
+        if (count > 1)
+        {
+            try
+            {
+                position += skipRecords(count - 1);
+            }
+            catch (final DataProviderException e)
+            {
+                throw e;
+            }
+            catch (final RuntimeException | Error e)
+            {
+                fail(e);
+            }
+        }
+
+        advance();
+    }
+
+    /**
+     * Moves to the next record; releases all the JE resources as soon as the records run out.
+     * 
+     * @throws DataProviderException
+     *             if cannot read the next record
+     */
+    private void advance() throws DataProviderException
+    {
+        current = null;
+
+        try
+        {
+            record = window == null ? readRecord() : takeRecord();
+        }
+        catch (final DataProviderException e)
+        {
+            throw e;
+        }
+        catch (final RuntimeException | Error e)
+        {
+            fail(e);
+        }
+
+        if (record != null)
+        {
+            position++;
+        }
+        else
+        {
+            exhausted = true;
+            if (position != -1)
+                position++; // Past the last bean; empty sets stay at -1
+            releaseResources();
+        }
+    }
+
+    /**
+     * Reads the next raw record from the JE cursor honoring the initial offset and the limit.
+     * 
+     * @return the record or <tt>null</tt> if there are no more records
+     */
+    private byte[] readRecord()
+    {
+        if (skip > 0)
+        {
+            // An unpositioned JE cursor cannot skip; moves to the first record before skipping
+            // Skips honor the cursor isolation so uncommitted records are not counted
+            if (cursor.getNext(key, data, LockMode.DEFAULT) == OperationStatus.SUCCESS && skip > 1)
+                cursor.skipNext(skip - 1, key, data, LockMode.DEFAULT);
+            skip = 0;
+        }
+
+        if (remaining <= 0 || cursor.getNext(key, data, LockMode.DEFAULT) != OperationStatus.SUCCESS)
+            return null;
+
+        remaining--;
+
+        final byte[] bytes = data.getData();
+
+        // JE reuses the entry buffer; prefetched records must own their bytes
+        if (window == null && data.getOffset() == 0 && data.getSize() == bytes.length)
+            return bytes;
+        else
+            return Arrays.copyOfRange(bytes, data.getOffset(), data.getOffset() + data.getSize());
+    }
+
+    /**
+     * Skips the given number of records.
+     * 
+     * @param count
+     *            the number of records to skip
+     * 
+     * @return the number of records actually skipped
+     * 
+     * @throws DataProviderException
+     *             if cannot read the prefetched records
+     */
+    private long skipRecords(final long count) throws DataProviderException
+    {
+        long skipped = 0;
+
+        if (window == null)
+        {
+            if (remaining > 0)
+            {
+                skipped = cursor.skipNext(Math.min(count, remaining), key, data, LockMode.DEFAULT);
+                remaining -= skipped;
+            }
+        }
+        else
+        {
+            while (skipped < count && takeRecord() != null)
+                skipped++;
+        }
+
+        return skipped;
+    }
+
+    /**
+     * Takes the next raw record from the prefetch window.
+     * 
+     * @return the record or <tt>null</tt> if there are no more records
+     * 
+     * @throws DataProviderException
+     *             if the producer failed or stopped before the end of the records or if the consumer
+     *             was interrupted
+     */
+    private byte[] takeRecord() throws DataProviderException
+    {
+        Object item;
+
+        try
+        {
+            while ((item = window.poll(POLL_TIMEOUT, TimeUnit.MILLISECONDS)) == null)
+            {
+                // Gives up once the producer is gone without handing over the end mark or a failure
+                if (producer.isDone() && window.isEmpty())
+                    fail(new IllegalStateException("The record producer stopped before the end of the records"));
+            }
+        }
+        catch (final InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new DataProviderException("Interrupted while waiting for the next record", e);
+        }
+
+        if (item == END_OF_SET)
+        {
+            window.offer(END_OF_SET); // Keeps the end mark for any subsequent take
+            return null;
+        }
+        else if (item instanceof Throwable)
+        {
+            fail((Throwable) item);
+            return null;
+        }
+        else
+        {
+            return (byte[]) item;
+        }
+    }
+
+    /**
+     * Opens the JE cursor and walks the B-tree ahead of the consumer; runs on the prefetch executor.
+     * 
+     * @param opener
+     *            opens the JE cursor
+     */
+    private void produce(final Supplier<com.sleepycat.je.Cursor> opener)
+    {
+        try
+        {
+            cursor = opener.get();
+
+            byte[] bytes;
+            while (!stopping && (bytes = readRecord()) != null)
+                offer(bytes);
+
+            offer(END_OF_SET);
+        }
+        catch (final Throwable t)
+        {
+            offer(t);
+        }
+        finally
+        {
+            closeCursor();
+        }
+    }
+
+    private void offer(final Object item)
+    {
+        try
+        {
+            while (!stopping && !window.offer(item, OFFER_TIMEOUT, TimeUnit.MILLISECONDS))
+            {
+                // Waits for the consumer; gives up as soon as it stops
+            }
+        }
+        catch (final InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Stops the producer, if any, closes the JE cursor and releases its database; only the first
+     * call takes effect. With a producer the JE cursor is closed by the producer itself.
+     * 
+     * @throws DataProviderException
+     *             if cannot close the JE cursor
+     */
+    private void releaseResources() throws DataProviderException
+    {
+        if (released)
+            return;
+
+        released = true;
+
+        if (producer != null)
+        {
+            stopping = true;
+            window.clear();
+            try
+            {
+                producer.get(); // The JE cursor must not be in use when closed
+            }
+            catch (final InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+            catch (final ExecutionException | CancellationException e)
+            {
+                // Failures are handed over through the window
+            }
+        }
+        else
+        {
+            closeCursor();
+        }
+
+        try
+        {
+            if (closeFailure != null)
+                throw new DataProviderException("Could not close the database cursor", closeFailure);
+        }
+        finally
+        {
+            release.run();
+        }
+    }
+
+    /**
+     * Closes the JE cursor, if open, keeping any failure for {@link #releaseResources()}; called by
+     * the thread that reads the cursor.
+     */
+    private void closeCursor()
+    {
+        if (cursor == null)
+            return;
+
+        try
+        {
+            cursor.close();
+        }
+        catch (final DatabaseException dbe)
+        {
+            closeFailure = dbe;
+        }
+        finally
+        {
+            cursor = null;
+        }
+    }
+
+    private void fail(final Throwable cause) throws DataProviderException
+    {
+        record = null;
+        exhausted = true;
+        try
+        {
+            releaseResources();
+        }
+        catch (final DataProviderException e)
+        {
+            cause.addSuppressed(e);
+        }
+        throw new DataProviderException("Could not read the next record from the database", cause);
+    }
+
+    private void checkOpen() throws IllegalStateException
+    {
+        if (closed)
+            throw new IllegalStateException("Cursor is closed");
+    }
+
+    /**
+     * Implements a forward-only iterator.
+     * 
+     * @author Paulo Perbone <pauloperbone@yahoo.com>
+     * @since 0.17.0
+     */
+    private final class CursorIterator implements Iterator<T>
+    {
+        @Override
+        public boolean hasNext()
+        {
+            return !exhausted;
+        }
+
+        @Override
+        public T next()
+        {
+            if (exhausted)
+                throw new NoSuchElementException();
+
+            final T result = fetch();
+            advance();
+            return result;
+        }
+
+        @Override
+        public void remove()
+        {
+            throw new UnsupportedOperationException("Cannot remove from a forward-only iterator");
+        }
+    }
+}
@@ -22,6 +22,7 @@ package io.perbone.udao.spi;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
 
 import io.perbone.toolbox.provider.NotEnoughResourceException;
 import io.perbone.toolbox.provider.OperationTimeoutException;
@@ -194,6 +195,21 @@ public interface DataProvider
      */
     void setReadOnly(boolean value);
 
+    /**
+     * Sets the listener of the time spent waiting for pooled resources, like connections.
+     * <p>
+     * The listener receives the wait time in nanoseconds on the thread that waited so it must be
+     * fast and thread safe. Providers with no resource pool never call it; the default
+     * implementation ignores the listener.
+     * 
+     * @param listener
+     *            the pool wait listener; null to stop listening
+     */
+    default void setPoolWaitListener(LongConsumer listener)
+    {
+        // Nothing to listen to
+    }
+
     /**
      * Returns a collection of resource class types this provider is capable to manage through its
      * data sources.
@@ -273,8 +289,10 @@ public interface DataProvider
     /**
      * Opens a data source.
      * <p>
-     * The brand new {@link DataSource} object can access all the underling storage under its
-     * management.
+     * The {@link DataSource} object can access all the underling storage under its management.
+     * Implementations may hand out a shared, thread safe instance per type instead of a brand new
+     * one; closing a shared instance has no effect as it is owned by this provider and closed on
+     * shutdown.
      * 
      * @param type
      *            The target resource class type for the underling storage
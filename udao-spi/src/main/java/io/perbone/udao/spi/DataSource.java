@@ -187,6 +187,16 @@ public interface DataSource
             NotFoundException, KeyViolationException, DataConstraintViolationException, OperationTimeoutException,
             NotEnoughResourceException, DataProviderException;
 
+    <T> List<T> update(Transaction txn, Cache cache, List<T> beans)
+            throws UnsupportedOperationException, IllegalStateException, IllegalArgumentException, TransactionException,
+            NotFoundException, KeyViolationException, DataConstraintViolationException, OperationTimeoutException,
+            NotEnoughResourceException, DataProviderException;
+
+    <T> List<T> patch(Transaction txn, Cache cache, List<T> beans)
+            throws UnsupportedOperationException, IllegalStateException, IllegalArgumentException, TransactionException,
+            NotFoundException, KeyViolationException, DataConstraintViolationException, OperationTimeoutException,
+            NotEnoughResourceException, DataProviderException;
+
     void touchI(Transaction txn, Cache cache, Class<?> type, Object id)
             throws UnsupportedOperationException, IllegalStateException, IllegalArgumentException, TransactionException,
             NotFoundException, DataConstraintViolationException, OperationTimeoutException, NotEnoughResourceException,
@@ -237,6 +247,16 @@ public interface DataSource
             NotFoundException, KeyViolationException, DataConstraintViolationException, OperationTimeoutException,
             NotEnoughResourceException, DataProviderException;
 
+    void deleteI(Transaction txn, Cache cache, Class<?> type, Object... ids)
+            throws UnsupportedOperationException, IllegalStateException, IllegalArgumentException, TransactionException,
+            NotFoundException, KeyViolationException, DataConstraintViolationException, OperationTimeoutException,
+            NotEnoughResourceException, DataProviderException;
+
+    <T> void delete(Transaction txn, Cache cache, List<T> beans)
+            throws UnsupportedOperationException, IllegalStateException, IllegalArgumentException, TransactionException,
+            NotFoundException, KeyViolationException, DataConstraintViolationException, OperationTimeoutException,
+            NotEnoughResourceException, DataProviderException;
+
     <T> T removeI(Transaction txn, Cache cache, Class<T> type, Object id)
             throws UnsupportedOperationException, IllegalStateException, IllegalArgumentException, TransactionException,
             NotFoundException, KeyViolationException, DataConstraintViolationException, OperationTimeoutException,
@@ -0,0 +1,52 @@
+/*
+ * This file is part of UDAO 
+ * https://github.com/perbone/udao/
+ * 
+ * Copyright 2013-2018 Paulo Perbone
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package io.perbone.udao.spi;
+
+import io.perbone.udao.metrics.MetricsSnapshot;
+
+/**
+ * A <code>MetricsReporter</code> pushes the metrics of a data manager factory to an external
+ * monitoring system.
+ * <p>
+ * Reporters are declared by class name on the <tt>metrics</tt> settings and must have a public no
+ * argument constructor. The factory calls {@link #report} periodically, on every
+ * <tt>report-interval</tt>, from a single background thread and once more on shutdown just before
+ * {@link #close}.
+ * 
+ * @author Paulo Perbone <pauloperbone@yahoo.com>
+ * @since 0.17.0
+ */
+public interface MetricsReporter
+{
+    /**
+     * Reports the given metrics.
+     * <p>
+     * A failing report does not stop the next ones.
+     * 
+     * @param snapshot
+     *            the metrics to report
+     */
+    void report(MetricsSnapshot snapshot);
+
+    /**
+     * Releases the resources held by this reporter.
+     */
+    void close();
+}
@@ -0,0 +1,53 @@
+/*
+ * This file is part of UDAO 
+ * https://github.com/perbone/udao/
+ * 
+ * Copyright 2013-2018 Paulo Perbone
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package io.perbone.udao.spi;
+
+/**
+ * A <code>ProviderLoad</code> is the live load figures of a data provider as seen by the data
+ * managers of its storage unit.
+ * <p>
+ * The figures are sampled around every data source operation routed to the provider.
+ * 
+ * @author Paulo Perbone <pauloperbone@yahoo.com>
+ * @since 0.17.0
+ */
+public interface ProviderLoad
+{
+    /**
+     * Returns the provider these figures are about.
+     * 
+     * @return the data provider
+     */
+    DataProvider provider();
+
+    /**
+     * Returns the number of operations in flight on the provider.
+     * 
+     * @return the outstanding operations
+     */
+    int outstanding();
+
+    /**
+     * Returns the exponentially weighted moving average of the provider operation latency.
+     * 
+     * @return the average latency in nanoseconds or zero if there is no sample yet
+     */
+    long latency();
+}
@@ -0,0 +1,47 @@
+/*
+ * This file is part of UDAO 
+ * https://github.com/perbone/udao/
+ * 
+ * Copyright 2013-2018 Paulo Perbone
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package io.perbone.udao.spi;
+
+import java.util.List;
+
+/**
+ * A <code>ProviderSelector</code> picks the data provider for the operations of a storage unit
+ * that are not addressed by a partition key, like scans, queries and alternate key lookups.
+ * <p>
+ * Selectors are set per storage unit through its <tt>selector</tt> attribute, either by the name
+ * of a built-in strategy (<tt>random</tt>, <tt>round-robin</tt>, <tt>least-outstanding</tt> or
+ * <tt>ewma</tt>) or by class name, in which case it must have a public no argument constructor.
+ * One selector is shared by all the data managers of the unit, so it must be thread safe.
+ * 
+ * @author Paulo Perbone <pauloperbone@yahoo.com>
+ * @since 0.17.0
+ */
+public interface ProviderSelector
+{
+    /**
+     * Picks one of the candidate providers.
+     * 
+     * @param candidates
+     *            the candidate providers and their load; never empty
+     * 
+     * @return the chosen provider; must be one of the candidates
+     */
+    DataProvider select(List<? extends ProviderLoad> candidates);
+}
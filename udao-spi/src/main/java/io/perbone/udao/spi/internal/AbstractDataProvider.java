@@ -19,14 +19,16 @@
 
 package io.perbone.udao.spi.internal;
 
-import java.lang.ref.WeakReference;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
 
 import io.perbone.toolbox.provider.NotEnoughResourceException;
 import io.perbone.toolbox.provider.OperationTimeoutException;
@@ -79,8 +81,10 @@ public abstract class AbstractDataProvider implements DataProvider
 
     protected final Set<Class<?>> managedTypes = new ConcurrentSkipListSet<Class<?>>();
 
-    protected final Set<WeakReference<DataSource>> dsInUse = Collections
-            .synchronizedSet(new HashSet<WeakReference<DataSource>>());
+    private volatile LongConsumer poolWaitListener = null;
+
+    /* One shared data source per bean type; bounded by the number of managed types */
+    private final ConcurrentMap<Class<?>, AbstractDataSource> sharedDataSources = new ConcurrentHashMap<>();
 
     public AbstractDataProvider()
     {
@@ -151,16 +155,13 @@ public abstract class AbstractDataProvider implements DataProvider
         {
             try
             {
-                for (WeakReference<DataSource> ref : dsInUse)
-                {
-                    DataSource ds = ref.get();
-                    if (ds != null)
-                        ds.close();
-                }
+                for (final AbstractDataSource ds : sharedDataSources.values())
+                    ds.dispose();
+
+                sharedDataSources.clear();
 
                 this.onShutdown(graceTime, unit);
 
-                dsInUse.clear();
                 active.set(false);
             }
             catch (final IllegalArgumentException | IllegalStateException | DataProviderException e)
@@ -202,6 +203,12 @@ public abstract class AbstractDataProvider implements DataProvider
         readOnly.set(value);
     }
 
+    @Override
+    public void setPoolWaitListener(final LongConsumer listener)
+    {
+        poolWaitListener = listener;
+    }
+
     @Override
     public boolean isHighAvailability()
     {
@@ -335,6 +342,56 @@ public abstract class AbstractDataProvider implements DataProvider
         throw new UnsupportedOperationException(MESSAGE_FAIL_UNSUPPORTED_OPERATION);
     }
 
+    /**
+     * Returns the shared data source for the given type, creating and opening it on first use.
+     * <p>
+     * The data source returned by the factory must be thread safe as the same instance is handed
+     * to every caller; invoking {@link DataSource#close} on it has no effect and it is only closed
+     * when this provider shuts down.
+     * 
+     * @param type
+     *            the bean type
+     * @param factory
+     *            the data source factory
+     * 
+     * @return the open shared data source
+     * 
+     * @throws DataProviderException
+     *             if cannot open the new data source
+     */
+    protected DataSource sharedDataSource(final Class<?> type,
+            final Function<Class<?>, ? extends AbstractDataSource> factory) throws DataProviderException
+    {
+        AbstractDataSource ds = sharedDataSources.get(type);
+
+        if (ds == null)
+        {
+            ds = sharedDataSources.computeIfAbsent(type, t ->
+            {
+                final AbstractDataSource newDs = factory.apply(t);
+                newDs.open();
+                newDs.share();
+                return newDs;
+            });
+        }
+
+        return ds;
+    }
+
+    /**
+     * Reports the time spent waiting for a pooled resource to the pool wait listener, if any.
+     * 
+     * @param nanos
+     *            the wait time in nanoseconds
+     */
+    protected final void recordPoolWait(final long nanos)
+    {
+        final LongConsumer listener = poolWaitListener;
+
+        if (listener != null)
+            listener.accept(nanos);
+    }
+
     /**
      * Checks if this provider is currently active.
      * 
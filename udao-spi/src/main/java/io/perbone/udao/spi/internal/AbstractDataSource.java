@@ -68,6 +68,8 @@ public abstract class AbstractDataSource implements DataSource
 
     private final AtomicBoolean open = new AtomicBoolean(false);
 
+    private final AtomicBoolean shared = new AtomicBoolean(false);
+
     public AbstractDataSource()
     {
         // do nothing
@@ -315,6 +317,24 @@ public abstract class AbstractDataSource implements DataSource
         throw new UnsupportedOperationException(MESSAGE_FAIL_UNSUPPORTED_OPERATION);
     }
 
+    @Override
+    public <T> List<T> update(Transaction txn, Cache cache, List<T> beans)
+            throws UnsupportedOperationException, IllegalStateException, IllegalArgumentException, TransactionException,
+            NotFoundException, KeyViolationException, DataConstraintViolationException, OperationTimeoutException,
+            NotEnoughResourceException, DataProviderException
+    {
+        throw new UnsupportedOperationException(MESSAGE_FAIL_UNSUPPORTED_OPERATION);
+    }
+
+    @Override
+    public <T> List<T> patch(Transaction txn, Cache cache, List<T> beans)
+            throws UnsupportedOperationException, IllegalStateException, IllegalArgumentException, TransactionException,
+            NotFoundException, KeyViolationException, DataConstraintViolationException, OperationTimeoutException,
+            NotEnoughResourceException, DataProviderException
+    {
+        throw new UnsupportedOperationException(MESSAGE_FAIL_UNSUPPORTED_OPERATION);
+    }
+
     @Override
     public void touchI(Transaction txn, Cache cache, Class<?> type, Object id)
             throws UnsupportedOperationException, IllegalStateException, IllegalArgumentException, TransactionException,
@@ -405,6 +425,24 @@ public abstract class AbstractDataSource implements DataSource
         throw new UnsupportedOperationException(MESSAGE_FAIL_UNSUPPORTED_OPERATION);
     }
 
+    @Override
+    public void deleteI(Transaction txn, Cache cache, Class<?> type, Object... ids)
+            throws UnsupportedOperationException, IllegalStateException, IllegalArgumentException, TransactionException,
+            NotFoundException, KeyViolationException, DataConstraintViolationException, OperationTimeoutException,
+            NotEnoughResourceException, DataProviderException
+    {
+        throw new UnsupportedOperationException(MESSAGE_FAIL_UNSUPPORTED_OPERATION);
+    }
+
+    @Override
+    public <T> void delete(Transaction txn, Cache cache, List<T> beans)
+            throws UnsupportedOperationException, IllegalStateException, IllegalArgumentException, TransactionException,
+            NotFoundException, KeyViolationException, DataConstraintViolationException, OperationTimeoutException,
+            NotEnoughResourceException, DataProviderException
+    {
+        throw new UnsupportedOperationException(MESSAGE_FAIL_UNSUPPORTED_OPERATION);
+    }
+
     @Override
     public <T> T removeI(Transaction txn, Cache cache, Class<T> type, Object id)
             throws UnsupportedOperationException, IllegalStateException, IllegalArgumentException, TransactionException,
@@ -603,6 +641,9 @@ public abstract class AbstractDataSource implements DataSource
     @Override
     public void close() throws DataProviderException
     {
+        if (shared.get())
+            return; // Owned by its provider; closed on provider shutdown
+
         if (open.compareAndSet(true, false))
         {
             try
@@ -628,6 +669,41 @@ public abstract class AbstractDataSource implements DataSource
         return open.get();
     }
 
+    /**
+     * Tells whether or not this data source is shared among its provider clients.
+     * <p>
+     * Shared data sources are owned by their provider so invoking {@link #close} on them has no
+     * effect; they are closed when the provider shuts down.
+     * 
+     * @return <tt>true</tt> if it is shared; <tt>false</tt> otherwise
+     */
+    public boolean isShared()
+    {
+        return shared.get();
+    }
+
+    /**
+     * Marks this data source as shared.
+     * 
+     * @see #isShared
+     */
+    void share()
+    {
+        shared.set(true);
+    }
+
+    /**
+     * Closes this data source regardless of it being shared.
+     * 
+     * @throws DataProviderException
+     *             when cannot closes the this data source
+     */
+    void dispose() throws DataProviderException
+    {
+        shared.set(false);
+        close();
+    }
+
     /**
      * Checks if this data source can manage the bean class type.
      * 